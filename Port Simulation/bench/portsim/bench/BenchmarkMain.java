@@ -0,0 +1,51 @@
+package portsim.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the simulation benchmarks with the GC profiler attached, so each
+ * result reports allocation per operation as well as throughput.
+ * <p>
+ * Usage: {@code java portsim.bench.BenchmarkMain [jmh options]}. Any
+ * standard JMH options may be given, for example a regular expression to
+ * select benchmarks, or {@code -rf json -rff result.json} to save results
+ * to compare before and after a change.
+ */
+public final class BenchmarkMain {
+
+    /**
+     * Not instantiable.
+     */
+    private BenchmarkMain() {
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args JMH command line options
+     * @throws RunnerException if a benchmark fails
+     * @throws CommandLineOptionException if the options are invalid
+     */
+    public static void main(String[] args)
+            throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(commandLine);
+        if (commandLine.getIncludes().isEmpty()) {
+            builder.include("portsim\\.bench\\..*Benchmark");
+        }
+        if (!commandLine.getForkCount().hasValue()) {
+            builder.forks(1);
+        }
+        Options options = builder.addProfiler(GCProfiler.class)
+                .jvmArgsAppend("-Xmx4g")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,206 @@
+package portsim.bench;
+
+import portsim.cargo.BulkCargo;
+import portsim.cargo.BulkCargoType;
+import portsim.cargo.Cargo;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.movement.CargoMovement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.port.BulkQuay;
+import portsim.port.ContainerQuay;
+import portsim.port.Port;
+import portsim.port.Quay;
+import portsim.port.ShipQueue;
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+import portsim.util.SimulationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds the ports the benchmarks run against.
+ * <p>
+ * Ports are generated from a fixed seed so every run measures the same
+ * work. Each port has half bulk and half container quays, cargo in its
+ * warehouses, and a schedule of ship and cargo movements spread over one
+ * simulated day.
+ */
+public final class BenchmarkPorts {
+    /**
+     * Seed used for every generated port
+     */
+    public static final long SEED = 20_211_025L;
+
+    /**
+     * Number of minutes the movement schedule is spread over
+     */
+    public static final int HORIZON = 24 * 60;
+
+    /**
+     * IMO number of the first generated ship
+     */
+    private static final long FIRST_IMO = 1_000_000;
+
+    /**
+     * IMO number of the first ship created by {@link #ships}, above those
+     * of the ships in generated ports
+     */
+    private static final long FIRST_EXTRA_IMO = 5_000_000;
+
+    /**
+     * IDs of cargo carried by generated ships start here, above the IDs
+     * of stored and moved cargo
+     */
+    private static final int SHIP_CARGO_IDS = 100_000_000;
+
+    /**
+     * Countries ships come from and cargo is bound for
+     */
+    static final String[] COUNTRIES = {"Australia", "Japan", "China",
+        "Singapore", "New Zealand", "Chile", "Peru", "Korea"};
+
+    /**
+     * The sizes of port to benchmark.
+     */
+    public enum Size {
+        /**
+         * A handful of quays, similar to the bundled save files
+         */
+        SMALL(10, 2_000, 1_000),
+        /**
+         * A busy regional port
+         */
+        MEDIUM(100, 100_000, 20_000),
+        /**
+         * A port far bigger than any real one
+         */
+        HUGE(1_000, 1_000_000, 200_000);
+
+        private final int quays;
+        private final int cargo;
+        private final int movements;
+
+        Size(int quays, int cargo, int movements) {
+            this.quays = quays;
+            this.cargo = cargo;
+            this.movements = movements;
+        }
+    }
+
+    /**
+     * Not instantiable, use {@link #create(Size)}.
+     */
+    private BenchmarkPorts() {
+    }
+
+    /**
+     * Creates a new port of the given size in its own simulation context.
+     *
+     * @param size size of port to create
+     * @return generated port
+     */
+    public static Port create(Size size) {
+        SimulationContext context = new SimulationContext();
+        Random random = new Random(SEED + size.ordinal());
+
+        List<Quay> quays = new ArrayList<>(size.quays);
+        for (int i = 0; i < size.quays; i++) {
+            quays.add(i % 2 == 0
+                    ? new BulkQuay(i, 100 + random.nextInt(900))
+                    : new ContainerQuay(i, 10 + random.nextInt(90)));
+        }
+
+        List<Cargo> stored = new ArrayList<>(size.cargo);
+        for (int i = 0; i < size.cargo; i++) {
+            stored.add(cargo(context, random, i));
+        }
+
+        Port port = new Port(context, "Benchmark", 0, new ShipQueue(), quays,
+                stored);
+        int nextCargo = size.cargo;
+        List<Ship> arrived = new ArrayList<>(size.movements / 2);
+        for (int i = 0; i < size.movements; i++) {
+            long time = (long) i * HORIZON / size.movements;
+            if (i % 2 == 0) {
+                Ship ship = ship(context, random, FIRST_IMO + i / 2);
+                arrived.add(ship);
+                port.addMovement(new ShipMovement(time,
+                        MovementDirection.INBOUND, ship));
+            } else if (i % 4 == 1) {
+                List<Cargo> cargo = new ArrayList<>();
+                for (int j = 0; j < 5; j++) {
+                    cargo.add(cargo(context, random, nextCargo++));
+                }
+                port.addMovement(new CargoMovement(time,
+                        MovementDirection.INBOUND, cargo));
+            } else {
+                Ship ship = arrived.get(random.nextInt(arrived.size()));
+                port.addMovement(new ShipMovement(time,
+                        MovementDirection.OUTBOUND, ship));
+            }
+        }
+        return port;
+    }
+
+    /**
+     * Creates the given number of ships with random kinds, origins and
+     * flags, each carrying cargo bound for its origin. The ships do not
+     * clash with those of a port generated in the same context.
+     *
+     * @param context context to register the ships in
+     * @param count number of ships
+     * @return generated ships
+     */
+    public static Ship[] ships(SimulationContext context, int count) {
+        Random random = new Random(SEED);
+        Ship[] ships = new Ship[count];
+        for (int i = 0; i < count; i++) {
+            ships[i] = ship(context, random, FIRST_EXTRA_IMO + i);
+        }
+        return ships;
+    }
+
+    /* A bulk carrier or container ship loaded with cargo for its origin */
+    static Ship ship(SimulationContext context, Random random, long imo) {
+        String origin = COUNTRIES[random.nextInt(COUNTRIES.length)];
+        NauticalFlag flag = NauticalFlag.values()[
+                random.nextInt(NauticalFlag.values().length)];
+        if (random.nextBoolean()) {
+            BulkCarrier ship = new BulkCarrier(context, imo, "Bulk " + imo,
+                    origin, flag, 1000);
+            int id = SHIP_CARGO_IDS + (int) (imo - FIRST_IMO) * 16;
+            ship.loadCargo(new BulkCargo(context, id, origin,
+                    10 + random.nextInt(90), BulkCargoType.values()[
+                    random.nextInt(BulkCargoType.values().length)]));
+            return ship;
+        }
+        ContainerShip ship = new ContainerShip(context, imo, "Box " + imo,
+                origin, flag, 100);
+        int containers = random.nextInt(10);
+        for (int i = 0; i < containers; i++) {
+            int id = SHIP_CARGO_IDS + (int) (imo - FIRST_IMO) * 16 + i;
+            ship.loadCargo(new Container(context, id,
+                    origin, ContainerType.values()[
+                    random.nextInt(ContainerType.values().length)]));
+        }
+        return ship;
+    }
+
+    /* A container or bulk cargo with a random destination */
+    static Cargo cargo(SimulationContext context, Random random, int id) {
+        String destination = COUNTRIES[random.nextInt(COUNTRIES.length)];
+        if (random.nextInt(4) == 0) {
+            return new BulkCargo(context, id, destination,
+                    10 + random.nextInt(500), BulkCargoType.values()[
+                    random.nextInt(BulkCargoType.values().length)]);
+        }
+        return new Container(context, id, destination, ContainerType.values()[
+                random.nextInt(ContainerType.values().length)]);
+    }
+}
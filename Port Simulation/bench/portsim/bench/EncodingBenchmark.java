@@ -0,0 +1,50 @@
+package portsim.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import portsim.port.Port;
+import portsim.util.BadEncodingException;
+import portsim.util.SimulationContext;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures saving a generated port with {@link Port#encode()} and loading
+ * it again with {@link Port#initialisePort(SimulationContext,
+ * java.io.Reader)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EncodingBenchmark {
+    @Param({"SMALL", "MEDIUM", "HUGE"})
+    public BenchmarkPorts.Size size;
+
+    private Port port;
+    private String encoded;
+
+    @Setup
+    public void createPort() {
+        port = BenchmarkPorts.create(size);
+        encoded = port.encode();
+    }
+
+    @Benchmark
+    public String encode() {
+        return port.encode();
+    }
+
+    @Benchmark
+    public Port initialisePort() throws IOException, BadEncodingException {
+        return Port.initialisePort(new SimulationContext(),
+                new StringReader(encoded));
+    }
+}
@@ -0,0 +1,120 @@
+package portsim.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import portsim.evaluators.CargoDecompositionEvaluator;
+import portsim.evaluators.QuayOccupancyEvaluator;
+import portsim.evaluators.QueueWaitEvaluator;
+import portsim.evaluators.ShipFlagEvaluator;
+import portsim.evaluators.ShipThroughputEvaluator;
+import portsim.evaluators.StatisticsEvaluator;
+import portsim.movement.Movement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.port.Port;
+import portsim.port.Quay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each statistics evaluator on its own: reading a movement,
+ * elapsing a minute, and a ship arriving, docking and leaving.
+ * <p>
+ * Movements are taken in order from the schedule of a medium generated
+ * port, so evaluators see the same mix of ship and cargo movements as in a
+ * simulation. Every evaluator is given every movement and event, whether
+ * or not it subscribes to it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EvaluatorBenchmark {
+    @Param({"CargoDecompositionEvaluator", "QuayOccupancyEvaluator",
+        "QueueWaitEvaluator", "ShipFlagEvaluator", "ShipThroughputEvaluator"})
+    public String evaluatorName;
+
+    private StatisticsEvaluator evaluator;
+    private Movement[] movements;
+    private ShipMovement[] arrivals;
+    private Quay[] quays;
+    private int next;
+    private int nextArrival;
+
+    @Setup
+    public void createEvaluator() {
+        Port port = BenchmarkPorts.create(BenchmarkPorts.Size.MEDIUM);
+        PriorityQueue<Movement> schedule = port.getMovements();
+        movements = new Movement[schedule.size()];
+        List<ShipMovement> inbound = new ArrayList<>();
+        for (int i = 0; i < movements.length; i++) {
+            movements[i] = schedule.poll();
+            if (movements[i] instanceof ShipMovement && movements[i]
+                    .getDirection() == MovementDirection.INBOUND) {
+                inbound.add((ShipMovement) movements[i]);
+            }
+        }
+        arrivals = inbound.toArray(new ShipMovement[0]);
+        quays = port.getQuays().toArray(new Quay[0]);
+        switch (evaluatorName) {
+            case "CargoDecompositionEvaluator":
+                evaluator = new CargoDecompositionEvaluator();
+                break;
+            case "QuayOccupancyEvaluator":
+                evaluator = new QuayOccupancyEvaluator();
+                break;
+            case "QueueWaitEvaluator":
+                evaluator = new QueueWaitEvaluator();
+                break;
+            case "ShipFlagEvaluator":
+                evaluator = new ShipFlagEvaluator();
+                break;
+            case "ShipThroughputEvaluator":
+                evaluator = new ShipThroughputEvaluator();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown evaluator: "
+                        + evaluatorName);
+        }
+        for (Quay quay : quays) {
+            evaluator.onQuayAdded(quay);
+        }
+    }
+
+    @Benchmark
+    public StatisticsEvaluator onProcessMovement() {
+        evaluator.onProcessMovement(movements[next]);
+        next = next + 1 == movements.length ? 0 : next + 1;
+        return evaluator;
+    }
+
+    @Benchmark
+    public StatisticsEvaluator elapseOneMinute() {
+        evaluator.elapseOneMinute();
+        return evaluator;
+    }
+
+    /**
+     * A ship arrives, docks at a quay and leaves it again.
+     *
+     * @return evaluator given the events
+     */
+    @Benchmark
+    public StatisticsEvaluator shipVisit() {
+        ShipMovement arrival = arrivals[nextArrival];
+        Quay quay = quays[nextArrival % quays.length];
+        nextArrival = nextArrival + 1 == arrivals.length ? 0 : nextArrival + 1;
+        evaluator.onProcessMovement(arrival);
+        evaluator.onDock(quay, arrival.getShip());
+        evaluator.onUndock(quay, arrival.getShip());
+        return evaluator;
+    }
+}
@@ -0,0 +1,137 @@
+package portsim.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import portsim.cargo.Cargo;
+import portsim.movement.CargoMovement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.port.Port;
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.Ship;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Port#processMovement(portsim.movement.Movement)} for each
+ * kind of movement on generated ports.
+ * <p>
+ * Movements are built in advance and reused, and each benchmark undoes the
+ * effect of its movement with another movement where needed so the port
+ * stays the same size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MovementBenchmark {
+    /**
+     * Number of distinct movements of each kind to cycle through
+     */
+    private static final int MOVEMENTS = 1024;
+
+    @Param({"SMALL", "MEDIUM", "HUGE"})
+    public BenchmarkPorts.Size size;
+
+    private Port port;
+    private ShipMovement[] arrivals;
+    private ShipMovement[] departures;
+    private CargoMovement[] deliveries;
+    private CargoMovement[] collections;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void createPort() {
+        port = BenchmarkPorts.create(size);
+        Random random = new Random(BenchmarkPorts.SEED);
+        Ship[] ships = BenchmarkPorts.ships(port.getContext(), MOVEMENTS);
+        arrivals = new ShipMovement[MOVEMENTS];
+        departures = new ShipMovement[MOVEMENTS];
+        deliveries = new CargoMovement[MOVEMENTS];
+        collections = new CargoMovement[MOVEMENTS];
+        int id = Integer.MAX_VALUE - 4 * MOVEMENTS;
+        for (int i = 0; i < MOVEMENTS; i++) {
+            arrivals[i] = new ShipMovement(0, MovementDirection.INBOUND,
+                    ships[i]);
+            departures[i] = new ShipMovement(0, MovementDirection.OUTBOUND,
+                    ships[i]);
+            List<Cargo> cargo = new ArrayList<>();
+            for (int j = 0; j < 4; j++) {
+                cargo.add(BenchmarkPorts.cargo(port.getContext(), random, id++));
+            }
+            deliveries[i] = new CargoMovement(0, MovementDirection.INBOUND,
+                    cargo);
+            collections[i] = new CargoMovement(0, MovementDirection.OUTBOUND,
+                    cargo);
+        }
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (next + 1) % MOVEMENTS;
+        return index;
+    }
+
+    /**
+     * A ship arrives and joins the queue, then the queue is polled so it
+     * does not grow.
+     *
+     * @return ship polled from the queue
+     */
+    @Benchmark
+    public Ship shipInbound() {
+        port.processMovement(arrivals[nextIndex()]);
+        return port.getShipQueue().poll();
+    }
+
+    /**
+     * A ship departs, loading stored cargo bound for its origin, then the
+     * cargo is unloaded and delivered back to the warehouse.
+     *
+     * @return ship that departed
+     */
+    @Benchmark
+    public Ship shipOutbound() {
+        ShipMovement movement = departures[nextIndex()];
+        port.processMovement(movement);
+        Ship ship = movement.getShip();
+        List<Cargo> unloaded = new ArrayList<>();
+        if (ship instanceof BulkCarrier) {
+            Cargo cargo = ((BulkCarrier) ship).pollCargo();
+            if (cargo != null) {
+                unloaded.add(cargo);
+            }
+        } else if (ship instanceof ContainerShip) {
+            unloaded.addAll(((ContainerShip) ship).pollCargo());
+        }
+        if (!unloaded.isEmpty()) {
+            port.processMovement(new CargoMovement(0,
+                    MovementDirection.INBOUND, unloaded));
+        }
+        return ship;
+    }
+
+    /**
+     * Cargo is delivered to the port and stored, then collected again so
+     * the warehouse keeps its size.
+     *
+     * @return port the cargo was delivered to and collected from
+     */
+    @Benchmark
+    public Port cargoInboundOutbound() {
+        int index = nextIndex();
+        port.processMovement(deliveries[index]);
+        port.processMovement(collections[index]);
+        return port;
+    }
+}
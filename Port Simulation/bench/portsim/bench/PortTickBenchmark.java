@@ -0,0 +1,85 @@
+package portsim.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import portsim.evaluators.CargoDecompositionEvaluator;
+import portsim.evaluators.QuayOccupancyEvaluator;
+import portsim.evaluators.ShipFlagEvaluator;
+import portsim.evaluators.ShipThroughputEvaluator;
+import portsim.port.Port;
+import portsim.port.PortJournal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Port#elapseOneMinute()} on generated ports of each size.
+ * <p>
+ * Each iteration starts from a freshly generated port with all four
+ * evaluators attached and elapses one simulated day, a minute per call, so
+ * every iteration does the same work however fast the port is. The score
+ * is the time taken per minute elapsed.
+ * <p>
+ * With {@code journal} set, the port is recorded by a {@link PortJournal}
+ * in a temporary directory with the default group commit, so the two
+ * scores show the overhead of journalling.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, batchSize = BenchmarkPorts.HORIZON)
+@Measurement(iterations = 5, batchSize = BenchmarkPorts.HORIZON)
+public class PortTickBenchmark {
+    @Param({"SMALL", "MEDIUM", "HUGE"})
+    public BenchmarkPorts.Size size;
+
+    @Param({"false", "true"})
+    public boolean journal;
+
+    private Port port;
+    private Path directory;
+    private PortJournal portJournal;
+
+    @Setup(Level.Iteration)
+    public void createPort() throws IOException {
+        port = BenchmarkPorts.create(size);
+        port.addStatisticsEvaluator(new ShipThroughputEvaluator());
+        port.addStatisticsEvaluator(new ShipFlagEvaluator());
+        port.addStatisticsEvaluator(new CargoDecompositionEvaluator());
+        port.addStatisticsEvaluator(new QuayOccupancyEvaluator());
+        if (journal) {
+            directory = Files.createTempDirectory("journal");
+            portJournal = new PortJournal(port, directory.resolve("snapshot"),
+                    directory.resolve("journal"));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeJournal() throws IOException {
+        if (portJournal != null) {
+            portJournal.close();
+            Files.delete(directory.resolve("snapshot"));
+            Files.delete(directory.resolve("journal"));
+            Files.delete(directory);
+            portJournal = null;
+        }
+    }
+
+    @Benchmark
+    public Port elapseOneMinute() {
+        port.elapseOneMinute();
+        return port;
+    }
+}
@@ -0,0 +1,63 @@
+package portsim.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import portsim.port.ShipQueue;
+import portsim.ship.Ship;
+import portsim.util.SimulationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures adding ships to and polling ships from a {@link ShipQueue}
+ * holding a steady number of ships of mixed priorities.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ShipQueueBenchmark {
+    @Param({"16", "1024", "65536"})
+    public int queued;
+
+    private ShipQueue queue;
+    private Ship[] ships;
+    private int next;
+
+    @Setup
+    public void fillQueue() {
+        ships = BenchmarkPorts.ships(new SimulationContext(), 2 * queued);
+        queue = new ShipQueue();
+        for (int i = 0; i < queued; i++) {
+            queue.add(ships[i]);
+        }
+        next = queued;
+    }
+
+    /**
+     * Adds a ship, then polls one so the queue stays the same size.
+     *
+     * @return ship polled
+     */
+    @Benchmark
+    public Ship addThenPoll() {
+        queue.add(ships[next]);
+        next = next + 1 == ships.length ? 0 : next + 1;
+        return queue.poll();
+    }
+
+    /**
+     * Looks at the next ship without removing it.
+     *
+     * @return ship at the head of the queue
+     */
+    @Benchmark
+    public Ship peek() {
+        return queue.peek();
+    }
+}
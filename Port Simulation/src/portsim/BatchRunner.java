@@ -0,0 +1,82 @@
+package portsim;
+
+import portsim.evaluators.EvaluatorReport;
+import portsim.port.Port;
+import portsim.util.BadEncodingException;
+import portsim.util.SimulationContext;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Paths;
+
+/**
+ * Headless entry point for running a Port Simulation without the GUI.
+ * <p>
+ * Loads a port from a save file, runs it for a number of simulated minutes
+ * as fast as possible, then writes the final state of the port to a file and
+ * prints the results of the port's statistics evaluators.
+ */
+public class BatchRunner {
+
+    /**
+     * Runs a port simulation without a display.
+     * <p>
+     * Usage: {@code port_file minutes output_file}
+     * <p>
+     * Where
+     * <ul>
+     * <li>{@code port_file} is the path to the file containing the port</li>
+     * <li>{@code minutes} is the number of minutes to simulate</li>
+     * <li>{@code output_file} is the path the final port will be saved to</li>
+     * </ul>
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.err.println("Usage: port_file minutes output_file");
+            System.exit(1);
+        }
+
+        long minutes;
+        try {
+            minutes = Long.parseLong(args[1]);
+        } catch (NumberFormatException e) {
+            minutes = -1;
+        }
+        if (minutes < 0) {
+            System.err.println("minutes must be a non-negative integer: "
+                    + args[1]);
+            System.exit(1);
+        }
+
+        Port port;
+        try (Reader reader = new FileReader(args[0])) {
+            port = Port.initialisePort(new SimulationContext(), reader);
+        } catch (BadEncodingException | IOException e) {
+            System.err.println("Error loading from file. Stack trace below:");
+            e.printStackTrace();
+            System.exit(1);
+            return;
+        }
+
+        long start = System.nanoTime();
+        port.advanceTo(port.getTime() + minutes);
+        long elapsed = System.nanoTime() - start;
+
+        try {
+            port.save(Paths.get(args[2]));
+        } catch (IOException e) {
+            System.err.println("Error saving to file. Stack trace below:");
+            e.printStackTrace();
+            System.exit(1);
+        }
+
+        double seconds = elapsed / 1e9;
+        System.out.println(EvaluatorReport.describe(port.getEvaluators()));
+        System.out.printf("Simulated %d minutes in %.3f seconds"
+                        + " (%.0f ticks per second)%n", minutes, seconds,
+                seconds > 0 ? minutes / seconds : 0.0);
+    }
+}
@@ -0,0 +1,64 @@
+package portsim;
+
+import portsim.port.Port;
+import portsim.port.PortSnapshot;
+import portsim.util.BadEncodingException;
+import portsim.util.SimulationContext;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Converts saved ports between the text format and the binary snapshot
+ * format.
+ * <p>
+ * The format of the input file is detected automatically, and the output is
+ * written in the other format.
+ *
+ * @see Port#encode()
+ * @see PortSnapshot
+ */
+public class SnapshotConverter {
+
+    /**
+     * Converts a saved port to the other save format.
+     * <p>
+     * Usage: {@code input_file output_file}
+     * <p>
+     * If {@code input_file} is a binary snapshot, {@code output_file} is
+     * written in the text format, otherwise {@code input_file} is read as
+     * text and {@code output_file} is written as a binary snapshot.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: input_file output_file");
+            System.exit(1);
+        }
+
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+        try {
+            if (PortSnapshot.isSnapshot(input)) {
+                Port port = PortSnapshot.load(new SimulationContext(), input);
+                port.save(output);
+                System.out.println("Converted binary snapshot to text");
+            } else {
+                Port port;
+                try (Reader reader = Files.newBufferedReader(input)) {
+                    port = Port.initialisePort(new SimulationContext(), reader);
+                }
+                PortSnapshot.save(port, output);
+                System.out.println("Converted text to binary snapshot");
+            }
+        } catch (BadEncodingException | IOException e) {
+            System.err.println("Error converting file. Stack trace below:");
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
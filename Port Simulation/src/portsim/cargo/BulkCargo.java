@@ -1,6 +1,7 @@
 package portsim.cargo;
 
 import portsim.util.Encodable;
+import portsim.util.SimulationContext;
 
 /**
  * Bulk cargo is commodity cargo that is transported unpacked in large quantities.
@@ -31,7 +32,26 @@ public class BulkCargo extends Cargo implements Encodable {
      */
     public BulkCargo(int id, String destination, int tonnage,
                      BulkCargoType type) throws IllegalArgumentException {
-        super(id, destination);
+        this(SimulationContext.getDefault(), id, destination, tonnage, type);
+    }
+
+    /**
+     * Creates a new Bulk Cargo with the given ID, destination, tonnage and
+     * type, registered with the given simulation context.
+     *
+     * @param context     simulation the cargo belongs to
+     * @param id          cargo ID
+     * @param destination destination port
+     * @param tonnage     the weight of the cargo
+     * @param type        the type of cargo
+     * @throws IllegalArgumentException if a cargo already exists in the
+     *                                  context with the given ID or ID &lt; 0
+     *                                  or tonnage &lt; 0
+     */
+    public BulkCargo(SimulationContext context, int id, String destination,
+                     int tonnage, BulkCargoType type)
+            throws IllegalArgumentException {
+        super(context, id, destination);
         if (tonnage < 0) {
             throw new IllegalArgumentException("The cargo tonnage "
                 + "must be greater than or equal to 0: " + tonnage);
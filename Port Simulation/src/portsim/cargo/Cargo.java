@@ -3,8 +3,8 @@ package portsim.cargo;
 import portsim.util.BadEncodingException;
 import portsim.util.Encodable;
 import portsim.util.NoSuchCargoException;
+import portsim.util.SimulationContext;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -26,11 +26,6 @@ public abstract class Cargo implements Encodable {
      */
     private String destination;
 
-    /**
-     * Database of all cargo currently active in the simulation
-     */
-    private static Map<Integer, Cargo> cargoRegistry = new HashMap<>();
-
     /**
      * Creates a new Cargo with the given ID and destination port.
      * <p>
@@ -42,19 +37,34 @@ public abstract class Cargo implements Encodable {
      * @ass1_partial
      */
     public Cargo(int id, String destination) throws IllegalArgumentException {
+        this(SimulationContext.getDefault(), id, destination);
+    }
+
+    /**
+     * Creates a new Cargo with the given ID and destination port, and adds it
+     * to the cargo registry of the given simulation context.
+     *
+     * @param context     simulation the cargo belongs to
+     * @param id          cargo ID
+     * @param destination destination port
+     * @throws IllegalArgumentException if a cargo already exists in the
+     *                                  context with the given ID or ID &lt; 0
+     */
+    public Cargo(SimulationContext context, int id, String destination)
+            throws IllegalArgumentException {
         if (id < 0) {
             throw new IllegalArgumentException("Cargo ID must be greater than"
                 + " or equal to 0: " + id);
         }
 
-        if (cargoExists(id)) {
+        if (context.cargoExists(id)) {
             throw new IllegalArgumentException();
         }
 
 
         this.id = id;
         this.destination = destination;
-        cargoRegistry.put(id, this);
+        context.registerCargo(this);
     }
 
     /**
@@ -80,16 +90,14 @@ public abstract class Cargo implements Encodable {
     /**
      * Retrieve the global registry of all pieces of cargo, as a mapping
      * cargo IDs to Cargo instances.
+     * <p>
+     * The returned map is a read-only view of the registry.
      *
      * @return the cargo registry
      * @ass2
      */
     public static Map<Integer, Cargo> getCargoRegistry() {
-        Map<Integer, Cargo> result = new HashMap<>();
-        for (Map.Entry<Integer, Cargo> entry : cargoRegistry.entrySet()) {
-            result.put(entry.getKey(), entry.getValue());
-        }
-        return result;
+        return SimulationContext.getDefault().getCargoRegistry();
     }
 
     /**
@@ -102,12 +110,7 @@ public abstract class Cargo implements Encodable {
      * @ass2
      */
     public static boolean cargoExists(int id) {
-        for (Map.Entry<Integer, Cargo> entry : cargoRegistry.entrySet()) {
-            if (entry.getKey().equals(id)) {
-                return true;
-            }
-        }
-        return false;
+        return SimulationContext.getDefault().cargoExists(id);
     }
 
     /**
@@ -120,12 +123,7 @@ public abstract class Cargo implements Encodable {
      * @ass2
      */
     public static Cargo getCargoById(int id) throws NoSuchCargoException {
-        for (Map.Entry<Integer, Cargo> entry : cargoRegistry.entrySet()) {
-            if (entry.getKey().equals(id)) {
-                return entry.getValue();
-            }
-        }
-        throw new NoSuchCargoException();
+        return SimulationContext.getDefault().getCargoById(id);
     }
 
     @Override
@@ -199,6 +197,21 @@ public abstract class Cargo implements Encodable {
      */
     public static Cargo fromString(String string)
             throws BadEncodingException {
+        return fromString(SimulationContext.getDefault(), string);
+    }
+
+    /**
+     * Reads a piece of cargo from its encoded representation in the given
+     * string, registering it with the given simulation context.
+     *
+     * @param context simulation the cargo belongs to
+     * @param string  string containing the encoded cargo
+     *
+     * @return decoded cargo instance
+     * @throws BadEncodingException if the encoding is invalid
+     */
+    public static Cargo fromString(SimulationContext context, String string)
+            throws BadEncodingException {
         String[] result = string.split(":", -1);
         Integer id;
         if (result.length >= 3) {
@@ -211,23 +224,23 @@ public abstract class Cargo implements Encodable {
             if (result.length != 4
                     || stringToContainerType(result[3]) == null
                     || id < 0
-                    || cargoExists(id)) {
+                    || context.cargoExists(id)) {
                 throw new BadEncodingException();
             }
 
-            return new Container(id, result[2],
+            return new Container(context, id, result[2],
                     ContainerType.valueOf(result[3]));
 
         } else if (result[0].equals("BulkCargo")) {
             if (result.length != 5
                     || stringToBulkCargoType(result[3]) == null
                     || id < 0
-                    || cargoExists(id)
+                    || context.cargoExists(id)
                     || stringToInt(result[4]) < 0) {
                 throw new BadEncodingException();
             }
 
-            return new BulkCargo(id, result[2],
+            return new BulkCargo(context, id, result[2],
                     stringToInt(result[4]), BulkCargoType.valueOf(result[3]));
         }
 
@@ -294,7 +307,7 @@ public abstract class Cargo implements Encodable {
      * @given
      */
     public static void resetCargoRegistry() {
-        Cargo.cargoRegistry = new HashMap<>();
+        SimulationContext.getDefault().resetCargoRegistry();
     }
 
 }
@@ -1,6 +1,7 @@
 package portsim.cargo;
 
 import portsim.util.Encodable;
+import portsim.util.SimulationContext;
 
 /**
  * Represents a shipping container, used for holding or transporting something.
@@ -26,7 +27,24 @@ public class Container extends Cargo implements Encodable {
      */
     public Container(int id, String destination, ContainerType type)
         throws IllegalArgumentException {
-        super(id, destination);
+        this(SimulationContext.getDefault(), id, destination, type);
+    }
+
+    /**
+     * Creates a new Container of the specified {@link ContainerType}, with
+     * the given ID and destination, registered with the given simulation
+     * context.
+     *
+     * @param context     simulation the cargo belongs to
+     * @param id          cargo ID
+     * @param destination destination port
+     * @param type        type of container
+     * @throws IllegalArgumentException if a cargo already exists in the
+     *                                  context with the given ID or ID &lt; 0
+     */
+    public Container(SimulationContext context, int id, String destination,
+                     ContainerType type) throws IllegalArgumentException {
+        super(context, id, destination);
         this.type = type;
     }
 
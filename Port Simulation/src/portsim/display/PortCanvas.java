@@ -214,7 +214,7 @@ public class PortCanvas extends Canvas {
         gc.fillRect(350, roadStartY + 160, 90, 5);
 
         gc.setFill(Color.FIREBRICK);
-        int num = viewModel.getPort().getCargo().size();
+        int num = viewModel.getPort().getWarehouse().size();
         int cols = 9;
         for (int i = 0; i < num * 4; i++) {
             gc.fillRect(220 + 8 + (i % cols) * (CONTAINER_WIDTH + 2),
@@ -252,7 +252,8 @@ public class View {
                 return;
             }
 
-            var defaultShipNumber = 1000000 + Ship.getShipRegistry().size();
+            var context = viewModel.getPort().getContext();
+            var defaultShipNumber = 1000000 + context.getShipCount();
             var imoNumber = getResponse("Add Ship",
                 "Please enter the ship IMO number",
                 "IMO number:",
@@ -262,7 +263,7 @@ public class View {
                 return;
             }
             /* Can't create a new ship with the same IMO number as an existing one */
-            if (Ship.shipExists(imoNumber.get())) {
+            if (context.shipExists(imoNumber.get())) {
                 viewModel.createErrorDialog("Cannot create ship",
                     "Ship with IMO number " + imoNumber.get() + " already exists");
                 return;
@@ -309,10 +310,10 @@ public class View {
 
             Ship newShip;
             if (shipType.get().equals("BulkCarrier")) {
-                newShip = new BulkCarrier(imoNumber.get(), shipName.get(), shipOrigin.get(),
+                newShip = new BulkCarrier(context, imoNumber.get(), shipName.get(), shipOrigin.get(),
                     shipNauticalFlag.get(), capacity.get());
             } else {
-                newShip = new ContainerShip(imoNumber.get(), shipName.get(), shipOrigin.get(),
+                newShip = new ContainerShip(context, imoNumber.get(), shipName.get(), shipOrigin.get(),
                     shipNauticalFlag.get(), capacity.get());
             }
             //  Quay (If valid)
@@ -354,7 +355,8 @@ public class View {
                 return;
             }
 
-            var defaultCargoNumber = 1 + Cargo.getCargoRegistry().size();
+            var context = viewModel.getPort().getContext();
+            var defaultCargoNumber = 1 + context.getCargoCount();
             var cargoId = getResponse("Add Cargo",
                 "Please enter the cargo ID",
                 "cargo ID:",
@@ -364,7 +366,7 @@ public class View {
                 return;
             }
             /* Can't create a new ship with the same ID as an existing one */
-            if (Cargo.cargoExists(cargoId.get())) {
+            if (context.cargoExists(cargoId.get())) {
                 viewModel.createErrorDialog("Cannot create cargo",
                     "Cargo with cargo ID " + cargoId.get() + " already exists");
                 return;
@@ -400,10 +402,10 @@ public class View {
                 if (cargoTonnage.isEmpty() || cargoTonnage.get() < 1) {
                     return;
                 }
-                newCargo = new BulkCargo(cargoId.get(), cargoDestination.get(), cargoTonnage.get(),
-                    (BulkCargoType) cargoType.get());
+                newCargo = new BulkCargo(context, cargoId.get(), cargoDestination.get(),
+                    cargoTonnage.get(), (BulkCargoType) cargoType.get());
             } else {
-                newCargo = new Container(cargoId.get(), cargoDestination.get(),
+                newCargo = new Container(context, cargoId.get(), cargoDestination.get(),
                     (ContainerType) cargoType.get());
             }
             viewModel.registerChange();
@@ -481,9 +483,11 @@ public class View {
             Movement newMovement;
             try {
                 if (type.equals("CargoMovement")) {
-                    newMovement = CargoMovement.fromString(encoding.get());
+                    newMovement = CargoMovement.fromString(viewModel.getPort().getContext(),
+                        encoding.get());
                 } else {
-                    newMovement = ShipMovement.fromString(encoding.get());
+                    newMovement = ShipMovement.fromString(viewModel.getPort().getContext(),
+                        encoding.get());
                 }
                 viewModel.getPort().addMovement(newMovement);
             } catch (Exception exception) {
@@ -504,7 +508,7 @@ public class View {
             StatisticsEvaluator ev = null;
             switch (type) {
                 case "QuayOccupancyEvaluator":
-                    ev = new QuayOccupancyEvaluator(viewModel.getPort());
+                    ev = new QuayOccupancyEvaluator();
                     break;
                 case "ShipThroughputEvaluator":
                     ev = new ShipThroughputEvaluator();
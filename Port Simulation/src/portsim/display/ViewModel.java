@@ -17,7 +17,6 @@ import portsim.cargo.Container;
 
 import java.io.*;
 import java.util.List;
-import java.util.Map;
 import java.util.StringJoiner;
 
 /**
@@ -256,41 +255,7 @@ public class ViewModel {
      * @ass2
      */
     public void updateEvaluatorText() {
-        List<StatisticsEvaluator> evaluators = port.getEvaluators();
-        String sep = System.getProperty("line.separator");
-
-        if (evaluators.size() == 0) {
-            evaluatorsText.setValue("No Evaluators Present");
-        } else {
-            String result = "";
-            for (StatisticsEvaluator evaluator : evaluators) {
-                result += evaluator.getClass().getSimpleName() + sep;
-                if (evaluator instanceof QuayOccupancyEvaluator) {
-                    int occupied
-                            = ((QuayOccupancyEvaluator) evaluator).getQuaysOccupied();
-                    result += occupied + " Quay(s) currently occupied" + sep;
-                } else if (evaluator instanceof ShipFlagEvaluator) {
-                    Map<String, Integer> flags
-                            = ((ShipFlagEvaluator) evaluator).getFlagDistribution();
-                    for (Map.Entry<String, Integer> entry : flags.entrySet()) {
-                        result += entry.getKey() + " : " + entry.getValue()
-                                + sep;
-                    }
-                } else if (evaluator instanceof ShipThroughputEvaluator) {
-                    int numShips
-                            = ((ShipThroughputEvaluator) evaluator).getThroughputPerHour();
-                    result += numShips + " Ships passed in the last hour" + sep;
-                } else { // evaluator is  a CargoDecompositionEvaluator
-                    Map<String, Integer> distribution
-                            = ((CargoDecompositionEvaluator) evaluator).getCargoDistribution();
-                    for (Map.Entry<String, Integer> entry : distribution.entrySet()) {
-                        result += entry.getKey() + " : " + entry.getValue()
-                                + sep;
-                    }
-                }
-            }
-            evaluatorsText.setValue(result);
-        }
+        evaluatorsText.setValue(EvaluatorReport.describe(port.getEvaluators()));
     }
 
 
@@ -352,9 +317,9 @@ public class ViewModel {
      * @see Port#encode()
      */
     public void saveAs(Writer portWriter) throws IOException {
-        PrintWriter printer = new PrintWriter(new BufferedWriter(portWriter));
-        printer.write(port.encode());
-        printer.close();
+        try (Writer writer = new BufferedWriter(portWriter)) {
+            port.encodeTo(writer);
+        }
     }
 
     /**
@@ -7,30 +7,36 @@ import portsim.movement.MovementDirection;
 import portsim.movement.ShipMovement;
 import portsim.ship.BulkCarrier;
 import portsim.ship.ContainerShip;
+import portsim.ship.Ship;
 
+import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Collects data on what types of cargo are passing through the port.
  * Gathers data on all derivatives of the cargo class.
- *
+ * <p>
+ * Counts are kept in arrays indexed by enum ordinal and by an ID given to
+ * each cargo class, so counting cargo does not allocate. The distribution
+ * maps are built when asked for.
  */
 public class CargoDecompositionEvaluator extends StatisticsEvaluator {
     /**
-     *  The distribution of bulk cargo types that have entered the port.
+     *  Number of bulk cargo of each type that have entered the port, by
+     *  ordinal
      */
-    private Map<BulkCargoType, Integer> bulkCargoDistribution;
+    private final long[] bulkCargoCounts;
     /**
-     *  The distribution of which cargo types that have entered the port.
+     *  Number of cargo of each class that have entered the port.
      */
-    private Map<String, Integer> cargoDistribution;
+    private final KeyedCounts<Class<?>> cargoCounts;
     /**
-     *  Returns the distribution of container cargo types that have entered
-     *  the port.
+     *  Number of containers of each type that have entered the port, by
+     *  ordinal
      */
-    private Map<ContainerType, Integer> containerDistribution;
+    private final long[] containerCounts;
 
 
     /**
@@ -40,109 +46,110 @@ public class CargoDecompositionEvaluator extends StatisticsEvaluator {
      */
     public CargoDecompositionEvaluator() {
         super();
-        this.bulkCargoDistribution = new HashMap<>();
-        this.cargoDistribution = new HashMap<>();
-        this.containerDistribution = new HashMap<>();
+        this.bulkCargoCounts = new long[BulkCargoType.values().length];
+        this.cargoCounts = new KeyedCounts<>();
+        this.containerCounts = new long[ContainerType.values().length];
+    }
+
+    @Override
+    public CargoDecompositionEvaluator createForFork() {
+        return new CargoDecompositionEvaluator();
     }
 
     /**
      * Returns the distribution of which cargo types that have entered the port.
+     * <p>
+     * The map is a snapshot, keyed by the simple name of each cargo class.
      *
      * @return cargo distribution map
      *
      */
     public Map<String, Integer> getCargoDistribution() {
-        return cargoDistribution;
+        return cargoCounts.snapshot(Class::getSimpleName);
     }
 
     /**
      * Returns the distribution of bulk cargo types that have entered the port.
+     * <p>
+     * The map is a snapshot containing only types that have been seen.
      *
      * @return bulk cargo distribution map
      *
      */
     public Map<BulkCargoType, Integer> getBulkCargoDistribution() {
-        return bulkCargoDistribution;
+        return snapshot(BulkCargoType.values(), bulkCargoCounts);
     }
 
     /**
      * Returns the distribution of container cargo types that have entered
      * the port.
+     * <p>
+     * The map is a snapshot containing only types that have been seen.
      *
      * @return container distribution map.
      *
      */
     public Map<ContainerType, Integer> getContainerDistribution() {
-        return containerDistribution;
+        return snapshot(ContainerType.values(), containerCounts);
+    }
+
+    private static <T> Map<T, Integer> snapshot(T[] types, long[] counts) {
+        Map<T, Integer> result = new HashMap<>();
+        for (int i = 0; i < types.length; i++) {
+            if (counts[i] > 0) {
+                result.put(types[i], (int) counts[i]);
+            }
+        }
+        return result;
     }
 
     /**
-     * Updates the Cargo Distribution hashmap, and CargoType, or
-     * ContainerType distribution. maps given the cargo.
-     *
-     * Increments the number if the class has seen before. Sets the number to 1
-     * if the class has never been seen before.
+     * Counts the given cargo towards its class and its bulk cargo or
+     * container type.
      *
      * @param cargo the cargo to be counted.
      *
      *
      */
     private void processCargo(Cargo cargo) {
-        // Update the Cargo hashmap
-        String simpleName = cargo.getClass().getSimpleName();
-        Integer count = cargoDistribution.get(simpleName);
-        if (count != null) {
-            cargoDistribution.put(simpleName, count + 1);
-        } else {
-            cargoDistribution.put(simpleName, 1);
-        }
+        cargoCounts.increment(cargo.getClass());
 
-        // Update the type hashmaps
         if (cargo instanceof BulkCargo) {
-            BulkCargoType type = ((BulkCargo) cargo).getType();
-            Integer typeCount = bulkCargoDistribution.get(type);
-
-            if (typeCount != null) {
-                bulkCargoDistribution.put(type, typeCount + 1);
-            } else {
-                bulkCargoDistribution.put(type, 1);
-            }
-        } else { // cargo is a container
-            ContainerType type = ((Container) cargo).getType();
-            Integer typeCount = containerDistribution.get(type);
-
-            if (typeCount != null) {
-                containerDistribution.put(type, typeCount + 1);
-            } else {
-                containerDistribution.put(type, 1);
-            }
+            bulkCargoCounts[((BulkCargo) cargo).getType().ordinal()]++;
+        } else if (cargo instanceof Container) {
+            containerCounts[((Container) cargo).getType().ordinal()]++;
         }
     }
 
+    @Override
+    public Set<PortEvent> getSubscriptions() {
+        return EnumSet.of(PortEvent.SHIP_INBOUND, PortEvent.CARGO_INBOUND,
+                PortEvent.TICK);
+    }
+
     @Override
     public void onProcessMovement(Movement movement) {
         if (movement.getDirection().equals(MovementDirection.INBOUND)) {
 
             if (movement instanceof ShipMovement) {
-                ShipMovement shipMovement = (ShipMovement) movement;
-                if (shipMovement.getShip() instanceof BulkCarrier) {
-                    BulkCarrier ship = (BulkCarrier) shipMovement.getShip();
-                    BulkCargo cargo = ship.getCargo();
-
-                    processCargo(cargo);
-
-                } else { // ship is instance of ContainerShip
-                    ContainerShip ship = (ContainerShip) shipMovement.getShip();
-                    List<Container> containers = ship.getCargo();
-                    for (Container cargo : containers) {
+                Ship ship = ((ShipMovement) movement).getShip();
+                if (ship instanceof BulkCarrier) {
+                    BulkCargo cargo = ((BulkCarrier) ship).getCargo();
+                    if (cargo != null) {
                         processCargo(cargo);
                     }
 
+                } else if (ship instanceof ContainerShip) {
+                    ContainerShip containerShip = (ContainerShip) ship;
+                    for (int i = 0; i < containerShip.getContainerCount(); i++) {
+                        processCargo(containerShip.getContainer(i));
+                    }
+
                 }
-            } else { // Movement is cargo movement
-                List<Cargo> cargos = ((CargoMovement) movement).getCargo();
-                for (Cargo cargo : cargos) {
-                    processCargo(cargo);
+            } else if (movement instanceof CargoMovement) {
+                CargoMovement cargoMovement = (CargoMovement) movement;
+                for (int i = 0; i < cargoMovement.getCargoCount(); i++) {
+                    processCargo(cargoMovement.getCargo(i));
                 }
             }
 
@@ -0,0 +1,70 @@
+package portsim.evaluators;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Formats the current results of a port's statistics evaluators as
+ * human-readable text.
+ * <p>
+ * Shared by the GUI and the headless batch runner so both report evaluator
+ * results in the same format.
+ */
+public final class EvaluatorReport {
+
+    /**
+     * Not instantiable, use {@link #describe(List)}.
+     */
+    private EvaluatorReport() {
+    }
+
+    /**
+     * Returns the results of the given evaluators, one line per statistic
+     * and each line separated by {@link System#lineSeparator()}.
+     * <p>
+     * Each evaluator's results are preceded by a line containing its simple
+     * class name. If there are no evaluators, {@code "No Evaluators Present"}
+     * is returned.
+     *
+     * @param evaluators - evaluators to describe, in the order to report them
+     *
+     * @return evaluator results text
+     */
+    public static String describe(List<StatisticsEvaluator> evaluators) {
+        if (evaluators.isEmpty()) {
+            return "No Evaluators Present";
+        }
+
+        String sep = System.lineSeparator();
+        StringBuilder result = new StringBuilder();
+        for (StatisticsEvaluator evaluator : evaluators) {
+            result.append(evaluator.getClass().getSimpleName()).append(sep);
+            if (evaluator instanceof QuayOccupancyEvaluator) {
+                int occupied
+                        = ((QuayOccupancyEvaluator) evaluator).getQuaysOccupied();
+                result.append(occupied).append(" Quay(s) currently occupied")
+                        .append(sep);
+            } else if (evaluator instanceof ShipFlagEvaluator) {
+                appendDistribution(result,
+                        ((ShipFlagEvaluator) evaluator).getFlagDistribution());
+            } else if (evaluator instanceof ShipThroughputEvaluator) {
+                int numShips
+                        = ((ShipThroughputEvaluator) evaluator).getThroughputPerHour();
+                result.append(numShips).append(" Ships passed in the last hour")
+                        .append(sep);
+            } else if (evaluator instanceof CargoDecompositionEvaluator) {
+                appendDistribution(result, ((CargoDecompositionEvaluator) evaluator)
+                        .getCargoDistribution());
+            }
+        }
+        return result.toString();
+    }
+
+    private static void appendDistribution(StringBuilder result,
+                                           Map<String, Integer> distribution) {
+        for (Map.Entry<String, Integer> entry : distribution.entrySet()) {
+            result.append(entry.getKey()).append(" : ").append(entry.getValue())
+                    .append(System.lineSeparator());
+        }
+    }
+}
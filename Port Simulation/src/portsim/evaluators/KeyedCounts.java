@@ -0,0 +1,91 @@
+package portsim.evaluators;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Counts occurrences of keys, such as origin flags, that are not known in
+ * advance.
+ * <p>
+ * Each distinct key is given a small integer ID the first time it is
+ * counted, and counts are kept in a {@code long[]} indexed by ID. Counting
+ * a key that has been seen before does not allocate.
+ *
+ * @param <K> type of key counted
+ */
+class KeyedCounts<K> {
+    /**
+     * ID given to each key seen so far
+     */
+    private final Map<K, Integer> ids;
+
+    /**
+     * Keys seen so far, indexed by ID
+     */
+    private Object[] keys;
+
+    /**
+     * Number of times each key has been counted, indexed by ID
+     */
+    private long[] counts;
+
+    /**
+     * Creates a new set of counts with no keys.
+     */
+    KeyedCounts() {
+        this.ids = new HashMap<>();
+        this.keys = new Object[8];
+        this.counts = new long[8];
+    }
+
+    /**
+     * Adds one to the count of the given key.
+     *
+     * @param key key to count
+     */
+    void increment(K key) {
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = ids.size();
+            if (id == keys.length) {
+                keys = Arrays.copyOf(keys, id * 2);
+                counts = Arrays.copyOf(counts, id * 2);
+            }
+            keys[id] = key;
+            ids.put(key, id);
+        }
+        counts[id]++;
+    }
+
+    /**
+     * Returns the number of times the given key has been counted.
+     *
+     * @param key key to look up
+     * @return count of the key, or 0 if it has never been counted
+     */
+    long get(K key) {
+        Integer id = ids.get(key);
+        return id == null ? 0 : counts[id];
+    }
+
+    /**
+     * Returns a new map from each key counted to its count, with keys
+     * converted by the given function. Counts of keys that convert to the
+     * same name are added together.
+     *
+     * @param name converts keys to the keys of the map
+     * @param <N> type of the keys of the map
+     * @return map of counts
+     */
+    @SuppressWarnings("unchecked")
+    <N> Map<N, Integer> snapshot(Function<? super K, ? extends N> name) {
+        Map<N, Integer> result = new HashMap<>();
+        for (int id = 0; id < ids.size(); id++) {
+            result.merge(name.apply((K) keys[id]), (int) counts[id],
+                    Integer::sum);
+        }
+        return result;
+    }
+}
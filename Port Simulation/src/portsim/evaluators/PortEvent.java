@@ -0,0 +1,82 @@
+package portsim.evaluators;
+
+import portsim.movement.CargoMovement;
+import portsim.movement.Movement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+
+/**
+ * The kinds of event a port delivers to its statistics evaluators.
+ * <p>
+ * Evaluators subscribe to the events they need through
+ * {@link StatisticsEvaluator#getSubscriptions()}, and the port only
+ * delivers those events to them.
+ */
+public enum PortEvent {
+    /**
+     * A ship arrives at the port, delivered to
+     * {@link StatisticsEvaluator#onProcessMovement(Movement)}.
+     */
+    SHIP_INBOUND,
+    /**
+     * A ship leaves the port, delivered to
+     * {@link StatisticsEvaluator#onProcessMovement(Movement)}.
+     */
+    SHIP_OUTBOUND,
+    /**
+     * Cargo arrives at the port, delivered to
+     * {@link StatisticsEvaluator#onProcessMovement(Movement)}.
+     */
+    CARGO_INBOUND,
+    /**
+     * Cargo leaves the port, delivered to
+     * {@link StatisticsEvaluator#onProcessMovement(Movement)}.
+     */
+    CARGO_OUTBOUND,
+    /**
+     * A quay becomes part of the port, delivered to
+     * {@link StatisticsEvaluator#onQuayAdded(portsim.port.Quay)}. An
+     * evaluator subscribed to it that is added to a port first receives it
+     * once for each quay the port already has.
+     */
+    QUAY_ADDED,
+    /**
+     * A ship docks at a quay, delivered to
+     * {@link StatisticsEvaluator#onDock(portsim.port.Quay, portsim.ship.Ship)}.
+     */
+    DOCK,
+    /**
+     * A ship leaves a quay, delivered to
+     * {@link StatisticsEvaluator#onUndock(portsim.port.Quay, portsim.ship.Ship)}.
+     */
+    UNDOCK,
+    /**
+     * Cargo is unloaded from a docked ship into storage, delivered to
+     * {@link StatisticsEvaluator#onUnload(portsim.port.Quay,
+     * portsim.ship.Ship, java.util.List)}.
+     */
+    UNLOAD,
+    /**
+     * A minute elapses, delivered to
+     * {@link StatisticsEvaluator#elapseOneMinute()} or
+     * {@link StatisticsEvaluator#elapseMinutes(long)}.
+     */
+    TICK;
+
+    /**
+     * Returns the event raised when the given movement is processed.
+     *
+     * @param movement movement being processed
+     * @return event for the movement, or null if it is neither a ship nor a
+     * cargo movement
+     */
+    public static PortEvent of(Movement movement) {
+        boolean inbound = movement.getDirection() == MovementDirection.INBOUND;
+        if (movement instanceof ShipMovement) {
+            return inbound ? SHIP_INBOUND : SHIP_OUTBOUND;
+        } else if (movement instanceof CargoMovement) {
+            return inbound ? CARGO_INBOUND : CARGO_OUTBOUND;
+        }
+        return null;
+    }
+}
@@ -1,32 +1,75 @@
 package portsim.evaluators;
 
-import portsim.cargo.BulkCargoType;
 import portsim.movement.Movement;
 import portsim.port.Port;
 import portsim.port.Quay;
+import portsim.ship.Ship;
 
-import java.util.List;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Evaluator to monitor how many quays are currently occupied at the port.
- *
+ * <p>
+ * The evaluator subscribes to the port's quay, dock and undock events, so
+ * the number of occupied quays of each type is kept up to date as ships
+ * dock and leave, rather than found by scanning every quay. It only counts
+ * once it has been added to a port. It also measures utilisation over
+ * time: each minute that elapses adds one occupied quay-minute for every
+ * occupied quay.
  */
 public class QuayOccupancyEvaluator extends StatisticsEvaluator {
     /**
-     *  Port to monitor quays
+     * Number of quays and occupied quays of each quay class
      */
-    private Port port;
+    private final Map<Class<?>, Counts> countsByType;
 
     /**
-     * Constructs a new QuayOccupancyEvaluator.\
-     *
-     * @param port port to monitor quays.
+     * Occupancy history of each quay of the port
+     */
+    private final Map<Quay, Occupancy> quays;
+
+    /**
+     * Number of quays currently occupied
+     */
+    private int occupied;
+
+    /**
+     * Total minutes spent occupied, summed over all quays
+     */
+    private long occupiedQuayMinutes;
+
+    /**
+     * Total minutes spent at the port, summed over all quays
+     */
+    private long quayMinutes;
+
+    /**
+     * Constructs a new QuayOccupancyEvaluator.
+     */
+    public QuayOccupancyEvaluator() {
+        super();
+        this.countsByType = new HashMap<>();
+        this.quays = new IdentityHashMap<>();
+    }
+
+    /**
+     * Constructs a new QuayOccupancyEvaluator and adds it to the given port,
+     * so it starts counting that port's quays straight away.
      *
+     * @param port port to monitor quays of
      */
     public QuayOccupancyEvaluator(Port port) {
-        super();
-        this.port = port;
+        this();
+        port.addStatisticsEvaluator(this);
+    }
+
+    @Override
+    public QuayOccupancyEvaluator createForFork() {
+        return new QuayOccupancyEvaluator();
     }
 
     /**
@@ -35,19 +78,178 @@ public class QuayOccupancyEvaluator extends StatisticsEvaluator {
      * @return number of quays
      */
     public int getQuaysOccupied() {
-        int occupied = 0;
-        List<Quay> quays = this.port.getQuays();
-        for (Quay quay : quays) {
-            if (!quay.isEmpty()) {
-                occupied++;
-            }
-        }
         return occupied;
     }
 
+    /**
+     * Returns the number of quays of the given type that are currently
+     * occupied.
+     *
+     * @param type class of quay to count, such as BulkQuay.class
+     * @return number of occupied quays of exactly that class
+     */
+    public int getQuaysOccupied(Class<? extends Quay> type) {
+        Counts counts = countsByType.get(type);
+        return counts == null ? 0 : counts.occupied;
+    }
+
+    /**
+     * Returns the number of quays of the given type at the port.
+     *
+     * @param type class of quay to count, such as BulkQuay.class
+     * @return number of quays of exactly that class
+     */
+    public int getQuayCount(Class<? extends Quay> type) {
+        Counts counts = countsByType.get(type);
+        return counts == null ? 0 : counts.quays;
+    }
+
+    /**
+     * Returns the total number of minutes quays have been occupied while
+     * this evaluator has been running, summed over all quays.
+     *
+     * @return occupied quay-minutes
+     */
+    public long getOccupiedQuayMinutes() {
+        return occupiedQuayMinutes;
+    }
+
+    /**
+     * Returns the number of minutes the given quay has been occupied while
+     * this evaluator has been running.
+     *
+     * @param quay quay of the port
+     * @return occupied minutes, or 0 if the quay is not part of the port
+     */
+    public long getOccupiedMinutes(Quay quay) {
+        Occupancy occupancy = quays.get(quay);
+        if (occupancy == null) {
+            return 0;
+        }
+        return occupancy.minutes
+                + (occupancy.since < 0 ? 0 : this.getTime() - occupancy.since);
+    }
+
+    /**
+     * Returns the fraction of the time quays have been occupied while this
+     * evaluator has been running, over all quays of the port.
+     *
+     * @return utilisation between 0 and 1, or 0 if no time has elapsed
+     */
+    public double getUtilisation() {
+        return quayMinutes == 0
+                ? 0 : (double) occupiedQuayMinutes / quayMinutes;
+    }
+
+    /**
+     * Returns the fraction of the time the given quay has been occupied
+     * since it or this evaluator was added to the port, whichever was
+     * later.
+     *
+     * @param quay quay of the port
+     * @return utilisation between 0 and 1, or 0 if no time has elapsed or
+     * the quay is not part of the port
+     */
+    public double getUtilisation(Quay quay) {
+        Occupancy occupancy = quays.get(quay);
+        if (occupancy == null || this.getTime() == occupancy.added) {
+            return 0;
+        }
+        return (double) getOccupiedMinutes(quay)
+                / (this.getTime() - occupancy.added);
+    }
+
+    @Override
+    public Set<PortEvent> getSubscriptions() {
+        return EnumSet.of(PortEvent.QUAY_ADDED, PortEvent.DOCK,
+                PortEvent.UNDOCK, PortEvent.TICK);
+    }
+
     @Override
     public void onProcessMovement(Movement movement) {
         // DO NOTHING
         ;
     }
+
+    @Override
+    public void elapseOneMinute() {
+        super.elapseOneMinute();
+        occupiedQuayMinutes += occupied;
+        quayMinutes += quays.size();
+    }
+
+    @Override
+    public void elapseMinutes(long minutes) {
+        this.addTime(minutes);
+        occupiedQuayMinutes += occupied * minutes;
+        quayMinutes += quays.size() * minutes;
+    }
+
+    @Override
+    public void onQuayAdded(Quay quay) {
+        if (quays.containsKey(quay)) {
+            return;
+        }
+        quays.put(quay, new Occupancy(this.getTime()));
+        countsByType.computeIfAbsent(quay.getClass(), c -> new Counts())
+                .quays++;
+        if (!quay.isEmpty()) {
+            onDock(quay, quay.getShip());
+        }
+    }
+
+    @Override
+    public void onDock(Quay quay, Ship ship) {
+        Occupancy occupancy = quays.get(quay);
+        if (occupancy == null || occupancy.since >= 0) {
+            return;
+        }
+        occupancy.since = this.getTime();
+        countsByType.get(quay.getClass()).occupied++;
+        occupied++;
+    }
+
+    @Override
+    public void onUndock(Quay quay, Ship ship) {
+        Occupancy occupancy = quays.get(quay);
+        if (occupancy == null || occupancy.since < 0) {
+            return;
+        }
+        occupancy.minutes += this.getTime() - occupancy.since;
+        occupancy.since = -1;
+        countsByType.get(quay.getClass()).occupied--;
+        occupied--;
+    }
+
+    /**
+     * Number of quays of one class, and how many of them are occupied.
+     */
+    private static class Counts {
+        private int quays;
+        private int occupied;
+    }
+
+    /**
+     * When a quay was added and how long it has been occupied.
+     */
+    private static class Occupancy {
+        /**
+         * Evaluator time the quay was added
+         */
+        private final long added;
+
+        /**
+         * Evaluator time the current ship docked, or -1 if empty
+         */
+        private long since = -1;
+
+        /**
+         * Minutes occupied by ships that have since left
+         */
+        private long minutes;
+
+        Occupancy(long added) {
+            this.added = added;
+        }
+    }
 }
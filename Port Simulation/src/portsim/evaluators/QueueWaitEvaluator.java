@@ -0,0 +1,125 @@
+package portsim.evaluators;
+
+import portsim.movement.Movement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.port.Quay;
+import portsim.ship.Ship;
+import portsim.util.LongObjectMap;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Measures how long ships wait in the queue between arriving at the port
+ * and docking at a quay.
+ * <p>
+ * The wait of a ship runs from its inbound movement being processed to it
+ * docking. Ships that were already queued or docked when the evaluator was
+ * added are not counted.
+ */
+public class QueueWaitEvaluator extends StatisticsEvaluator {
+    /**
+     * Evaluator time each waiting ship arrived, by IMO number
+     */
+    private final LongObjectMap<Long> arrivals;
+
+    /**
+     * Number of ships that have docked after waiting
+     */
+    private long shipsDocked;
+
+    /**
+     * Total minutes waited by ships that have docked
+     */
+    private long totalWait;
+
+    /**
+     * Longest wait of a ship that has docked
+     */
+    private long longestWait;
+
+    /**
+     * Constructs a new QueueWaitEvaluator.
+     */
+    public QueueWaitEvaluator() {
+        super();
+        this.arrivals = new LongObjectMap<>();
+    }
+
+    @Override
+    public QueueWaitEvaluator createForFork() {
+        return new QueueWaitEvaluator();
+    }
+
+    /**
+     * Returns the number of ships that have arrived and since docked.
+     *
+     * @return number of ships
+     */
+    public long getShipsDocked() {
+        return shipsDocked;
+    }
+
+    /**
+     * Returns the number of ships that have arrived and not docked, whether
+     * still in the queue or turned away because no quay was free.
+     *
+     * @return number of ships
+     */
+    public int getShipsWaiting() {
+        return arrivals.size();
+    }
+
+    /**
+     * Returns the mean number of minutes ships that have docked waited.
+     *
+     * @return mean wait, or 0 if no ship has docked
+     */
+    public double getMeanWait() {
+        return shipsDocked == 0 ? 0 : (double) totalWait / shipsDocked;
+    }
+
+    /**
+     * Returns the longest number of minutes a ship that has docked waited.
+     *
+     * @return longest wait, or 0 if no ship has docked
+     */
+    public long getLongestWait() {
+        return longestWait;
+    }
+
+    @Override
+    public Set<PortEvent> getSubscriptions() {
+        return EnumSet.of(PortEvent.SHIP_INBOUND, PortEvent.DOCK,
+                PortEvent.TICK);
+    }
+
+    @Override
+    public boolean canRunConcurrently() {
+        return true;
+    }
+
+    @Override
+    public void onProcessMovement(Movement movement) {
+        if (movement.getDirection().equals(MovementDirection.INBOUND)
+                && movement instanceof ShipMovement) {
+            long imoNumber = ((ShipMovement) movement).getShip().getImoNumber();
+            if (!arrivals.containsKey(imoNumber)) {
+                arrivals.put(imoNumber, this.getTime());
+            }
+        }
+    }
+
+    @Override
+    public void onDock(Quay quay, Ship ship) {
+        Long arrived = arrivals.remove(ship.getImoNumber());
+        if (arrived == null) {
+            return;
+        }
+        long wait = this.getTime() - arrived;
+        shipsDocked++;
+        totalWait += wait;
+        longestWait = Math.max(longestWait, wait);
+    }
+}
@@ -3,36 +3,47 @@ package portsim.evaluators;
 import portsim.movement.Movement;
 import portsim.movement.MovementDirection;
 import portsim.movement.ShipMovement;
-import portsim.ship.NauticalFlag;
 
-import java.util.HashMap;
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Gathers data on how many ships each country has sent to this port.
- *
+ * <p>
+ * Counts are kept in an array indexed by an ID given to each origin flag,
+ * so counting a ship from a country seen before does not allocate. The
+ * distribution map is built when asked for.
  */
 public class ShipFlagEvaluator extends StatisticsEvaluator {
     /**
-     *  The flag distribution seen at this port.
+     *  Number of ships seen at this port from each origin flag.
      */
-    private Map<String, Integer> flagDistribution;
+    private final KeyedCounts<String> flagCounts;
 
     /**
      *  Constructs a new ShipFlagEvaluator.
      */
     public ShipFlagEvaluator() {
         super();
-        this.flagDistribution = new HashMap<>();
+        this.flagCounts = new KeyedCounts<>();
+    }
+
+    @Override
+    public ShipFlagEvaluator createForFork() {
+        return new ShipFlagEvaluator();
     }
 
     /**
      *  Return the flag distribution seen at this port.
+     *  <p>
+     *  The map is a snapshot of the counts when this method was called.
      *
      * @return flag distribution
      */
     public Map<String, Integer> getFlagDistribution() {
-        return this.flagDistribution;
+        return flagCounts.snapshot(Function.identity());
     }
 
     /**
@@ -43,27 +54,26 @@ public class ShipFlagEvaluator extends StatisticsEvaluator {
      * @return number of times flag seen or 0 if not seen
      */
     public int getFlagStatistics(String flag) {
-        Integer count = flagDistribution.get(flag);
-        if (count == null) {
-            return 0;
-        }
-        return count;
+        return (int) flagCounts.get(flag);
     }
 
 
+    @Override
+    public Set<PortEvent> getSubscriptions() {
+        return EnumSet.of(PortEvent.SHIP_INBOUND, PortEvent.TICK);
+    }
+
+    @Override
+    public boolean canRunConcurrently() {
+        return true;
+    }
+
     @Override
     public void onProcessMovement(Movement movement) {
         if (movement.getDirection().equals(MovementDirection.INBOUND)
                 && movement instanceof ShipMovement) {
             ShipMovement shipMovement = (ShipMovement) movement;
-            String originFlag = shipMovement.getShip().getOriginFlag();
-            int count = this.getFlagStatistics(originFlag);
-
-            if (count == 0) {
-                flagDistribution.put(originFlag, 1);
-            } else {
-                flagDistribution.put(originFlag, count + 1);
-            }
+            flagCounts.increment(shipMovement.getShip().getOriginFlag());
         }
     }
 }
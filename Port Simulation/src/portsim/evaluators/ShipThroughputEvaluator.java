@@ -5,27 +5,76 @@ import portsim.movement.Movement;
 import portsim.movement.MovementDirection;
 import portsim.movement.ShipMovement;
 
-import java.util.ArrayList;
-
-import java.util.List;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
 
 
 /**
  * Gathers data on how many ships pass through the port over time.
+ * <p>
+ * Departures are counted per minute in a ring buffer with one slot for
+ * each minute of the longest window, and a running total is kept for each
+ * window, so recording a departure, ticking and reading the throughput are
+ * all O(1) per window and memory does not grow over time. A departure is
+ * counted in a window of {@code w} minutes until {@code w} minutes after it
+ * happened.
  */
 public class ShipThroughputEvaluator extends StatisticsEvaluator {
     /**
-     *  A map with ships as keys and the time they passed through the port
-     *  as values.
+     * Length of the window reported by {@link #getThroughputPerHour()}
+     */
+    public static final int HOUR = 60;
+
+    /**
+     * Lengths in minutes of the windows throughput is measured over
+     */
+    private final int[] windows;
+
+    /**
+     * Number of departures in each window, parallel to {@link #windows}
+     */
+    private final long[] totals;
+
+    /**
+     * Number of departures in each of the most recent minutes, indexed by
+     * time modulo the length of the buffer
      */
-    private List<Long> movementLog;
+    private final int[] departures;
 
     /**
-     *  Constructs a new ShipThroughputEvaluator.
+     *  Constructs a new ShipThroughputEvaluator measuring throughput over
+     *  the last hour.
      */
     public ShipThroughputEvaluator() {
+        this(HOUR);
+    }
+
+    /**
+     * Constructs a new ShipThroughputEvaluator measuring throughput over
+     * the last hour and each of the given windows.
+     *
+     * @param windows lengths in minutes of the windows to measure, for
+     *                example 15 and 1440 for a quarter hour and a day
+     * @throws IllegalArgumentException if a window is less than one minute
+     */
+    public ShipThroughputEvaluator(int... windows)
+            throws IllegalArgumentException {
         super();
-        this.movementLog = new ArrayList<>();
+        int[] all = Arrays.copyOf(windows, windows.length + 1);
+        all[windows.length] = HOUR;
+        this.windows = Arrays.stream(all).distinct().sorted().toArray();
+        if (this.windows[0] < 1) {
+            throw new IllegalArgumentException("Window must be at least one"
+                    + " minute: " + this.windows[0]);
+        }
+        this.totals = new long[this.windows.length];
+        this.departures = new int[this.windows[this.windows.length - 1] + 1];
+    }
+
+    @Override
+    public ShipThroughputEvaluator createForFork() {
+        return new ShipThroughputEvaluator(windows);
     }
 
     /**
@@ -35,14 +84,55 @@ public class ShipThroughputEvaluator extends StatisticsEvaluator {
      * @return ships throughput
      */
     public int getThroughputPerHour() {
-        return this.movementLog.size();
+        return (int) getThroughput(HOUR);
+    }
+
+    /**
+     * Returns the number of ships that have passed through the port in the
+     * given window.
+     *
+     * @param window length of the window in minutes
+     * @return ships throughput over the window
+     * @throws IllegalArgumentException if this evaluator does not measure
+     *                                  the given window
+     */
+    public long getThroughput(int window) throws IllegalArgumentException {
+        int index = Arrays.binarySearch(windows, window);
+        if (index < 0) {
+            throw new IllegalArgumentException("Window not measured: "
+                    + window);
+        }
+        return totals[index];
+    }
+
+    /**
+     * Returns the lengths of the windows this evaluator measures, in
+     * ascending order.
+     *
+     * @return window lengths in minutes
+     */
+    public int[] getWindows() {
+        return windows.clone();
+    }
+
+    @Override
+    public Set<PortEvent> getSubscriptions() {
+        return EnumSet.of(PortEvent.SHIP_OUTBOUND, PortEvent.TICK);
+    }
+
+    @Override
+    public boolean canRunConcurrently() {
+        return true;
     }
 
     @Override
     public void onProcessMovement(Movement movement) {
         if (movement.getDirection().equals(MovementDirection.OUTBOUND)
                 && movement instanceof ShipMovement) {
-            this.movementLog.add(this.getTime());
+            departures[slot(this.getTime())]++;
+            for (int i = 0; i < totals.length; i++) {
+                totals[i]++;
+            }
         }
 
     }
@@ -50,10 +140,40 @@ public class ShipThroughputEvaluator extends StatisticsEvaluator {
     @Override
     public void elapseOneMinute() {
         super.elapseOneMinute();
-        for (int i = 0; i < movementLog.size(); i++) {
-            if (this.getTime() - movementLog.get(i) > 60) {
-                movementLog.remove(i);
+        expire();
+    }
+
+    @Override
+    public void elapseMinutes(long minutes) {
+        if (minutes >= departures.length) {
+            // every departure in the buffer has expired
+            this.addTime(minutes);
+            Arrays.fill(departures, 0);
+            Arrays.fill(totals, 0);
+            return;
+        }
+        for (long i = 0; i < minutes; i++) {
+            this.addTime(1);
+            expire();
+        }
+    }
+
+    /*
+     * Drops the departures that have just left each window and clears the
+     * slot for the current minute.
+     */
+    private void expire() {
+        long now = this.getTime();
+        for (int i = 0; i < windows.length; i++) {
+            long expired = now - windows[i] - 1;
+            if (expired >= 0) {
+                totals[i] -= departures[slot(expired)];
             }
         }
+        departures[slot(now)] = 0;
+    }
+
+    private int slot(long time) {
+        return (int) (time % departures.length);
     }
 }
@@ -1,11 +1,22 @@
 package portsim.evaluators;
 
+import portsim.cargo.Cargo;
 import portsim.movement.Movement;
+import portsim.port.Quay;
+import portsim.ship.Ship;
 import portsim.util.Tickable;
 
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  * A base class representing an object that gathers and reports data on various
  * aspects of the port's operation.
+ * <p>
+ * A port only delivers the events an evaluator subscribes to through
+ * {@link #getSubscriptions()}. By default evaluators receive every movement
+ * and every tick.
  */
 public abstract class StatisticsEvaluator implements Tickable {
     /**
@@ -43,8 +54,123 @@ public abstract class StatisticsEvaluator implements Tickable {
      */
     public abstract void onProcessMovement(Movement movement);
 
+    /**
+     * Returns the events this evaluator wants to receive.
+     * <p>
+     * The port reads the subscriptions once, when the evaluator is added.
+     * By default an evaluator subscribes to all four kinds of movement and
+     * to ticks; evaluators that only need some of them should override this
+     * so the port can skip them for other events. An evaluator that does not
+     * subscribe to {@link PortEvent#TICK} does not keep track of time.
+     *
+     * @return events to deliver to this evaluator
+     */
+    public Set<PortEvent> getSubscriptions() {
+        return EnumSet.of(PortEvent.SHIP_INBOUND, PortEvent.SHIP_OUTBOUND,
+                PortEvent.CARGO_INBOUND, PortEvent.CARGO_OUTBOUND,
+                PortEvent.TICK);
+    }
+
+    /**
+     * Returns a new evaluator for a fork of the port this evaluator is
+     * added to, gathering the same statistics from the time of the fork.
+     * <p>
+     * The new evaluator should be configured like this one but hold none of
+     * its data. By default this returns null, and the evaluator is not
+     * carried over to forks of its port.
+     *
+     * @return new evaluator for the forked port, or null if there is none
+     * @see portsim.port.Port#fork()
+     */
+    public StatisticsEvaluator createForFork() {
+        return null;
+    }
+
+    /**
+     * Returns whether this evaluator can be run on a background thread while
+     * the simulation continues.
+     * <p>
+     * That is only safe for evaluators that use nothing but the values
+     * passed to them and their own state, since by the time an event is
+     * delivered on a background thread the ships, quays and cargo it refers
+     * to may have changed. Evaluators that return false, the default, are
+     * always called on the simulation thread.
+     *
+     * @return true if the evaluator can run on a background thread
+     */
+    public boolean canRunConcurrently() {
+        return false;
+    }
+
+    /**
+     * Called when a quay becomes part of the port, which may already have a
+     * ship docked at it, if subscribed to {@link PortEvent#QUAY_ADDED}.
+     * Does nothing by default.
+     *
+     * @param quay quay added to the port
+     */
+    public void onQuayAdded(Quay quay) {
+    }
+
+    /**
+     * Called after a ship docks at a quay, if subscribed to
+     * {@link PortEvent#DOCK}. Does nothing by default.
+     *
+     * @param quay quay the ship docked at
+     * @param ship ship that docked
+     */
+    public void onDock(Quay quay, Ship ship) {
+    }
+
+    /**
+     * Called after a ship leaves a quay, if subscribed to
+     * {@link PortEvent#UNDOCK}. Does nothing by default.
+     *
+     * @param quay quay the ship left
+     * @param ship ship that left
+     */
+    public void onUndock(Quay quay, Ship ship) {
+    }
+
+    /**
+     * Called after cargo is unloaded from a docked ship into the port's
+     * storage, if subscribed to {@link PortEvent#UNLOAD}. Does nothing by
+     * default.
+     *
+     * @param quay quay the ship is docked at
+     * @param ship ship the cargo was unloaded from
+     * @param cargo cargo that was unloaded, which should not be modified
+     */
+    public void onUnload(Quay quay, Ship ship, List<? extends Cargo> cargo) {
+    }
+
     @Override
     public void elapseOneMinute() {
         this.time++;
     }
+
+    /**
+     * Delivers the given number of clock ticks to the evaluator in one call.
+     * <p>
+     * Used when the port fast-forwards over minutes where nothing happens.
+     * By default this calls {@link #elapseOneMinute()} once per minute;
+     * evaluators that can account for many minutes at once should override it.
+     *
+     * @param minutes - number of minutes that have elapsed
+     */
+    public void elapseMinutes(long minutes) {
+        for (long i = 0; i < minutes; i++) {
+            elapseOneMinute();
+        }
+    }
+
+    /**
+     * Advances the time since the evaluator was created without calling
+     * {@link #elapseOneMinute()}.
+     *
+     * @param minutes - number of minutes to add
+     */
+    protected void addTime(long minutes) {
+        this.time += minutes;
+    }
 }
@@ -3,8 +3,10 @@ package portsim.movement;
 import portsim.cargo.Cargo;
 import portsim.util.BadEncodingException;
 import portsim.util.Encodable;
+import portsim.util.SimulationContext;
 
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -49,6 +51,28 @@ public class CargoMovement extends Movement implements Encodable {
         return new ArrayList<>(cargo);
     }
 
+    /**
+     * Returns the number of pieces of cargo that will be moved.
+     *
+     * @return number of cargo in the movement
+     */
+    public int getCargoCount() {
+        return cargo.size();
+    }
+
+    /**
+     * Returns the piece of cargo at the given position in this movement,
+     * without copying the cargo list.
+     *
+     * @param index position of the cargo, from 0 to
+     *              {@link #getCargoCount()} - 1
+     * @return cargo at that position
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public Cargo getCargo(int index) throws IndexOutOfBoundsException {
+        return cargo.get(index);
+    }
+
     /**
      * Returns the human-readable string representation of this CargoMovement.
      * <p>
@@ -77,17 +101,20 @@ public class CargoMovement extends Movement implements Encodable {
 
     @Override
     public String encode() {
-        String result = super.encode() + ":" + this.cargo.size() + ":";
+        return Encodable.encodeToString(this);
+    }
 
-        for (int i = 0; i < cargo.size(); i++) {
-            result += cargo.get(i).getId();
+    @Override
+    public void encodeTo(Appendable out) throws IOException {
+        out.append(super.encode()).append(':')
+                .append(Integer.toString(cargo.size())).append(':');
 
-            if (i != cargo.size() - 1) {
-                result += ",";
+        for (int i = 0; i < cargo.size(); i++) {
+            if (i > 0) {
+                out.append(',');
             }
+            out.append(Integer.toString(cargo.get(i).getId()));
         }
-
-        return result;
     }
 
     /**
@@ -100,9 +127,25 @@ public class CargoMovement extends Movement implements Encodable {
      */
     public static CargoMovement fromString(String string)
             throws BadEncodingException {
+        return fromString(SimulationContext.getDefault(), string);
+    }
+
+    /**
+     * Creates a cargo movement from a string encoding, looking up the cargo
+     * in the given simulation context.
+     *
+     * @param context - simulation the cargo belongs to
+     * @param string - string containing the encoded CargoMovement
+     *
+     * @return decoded CargoMovement instance
+     * @throws BadEncodingException - if the encoding is invalid
+     */
+    public static CargoMovement fromString(SimulationContext context,
+                                           String string)
+            throws BadEncodingException {
         String[] result = string.split(":");
         ArrayList<Cargo> storedCargo = new ArrayList<>();
-        Map<Integer, Cargo> cargoRegistry = Cargo.getCargoRegistry();
+        Map<Integer, Cargo> cargoRegistry = context.getCargoRegistry();
 
         if (result.length < 5
                 || !result[0].equals("CargoMovement")
@@ -116,7 +159,7 @@ public class CargoMovement extends Movement implements Encodable {
 
         for (String cargo : listedCargo) {
             if (stringToInt(cargo) < 0
-                    || !Cargo.cargoExists(stringToInt(cargo))) {
+                    || !context.cargoExists(stringToInt(cargo))) {
                 throw new BadEncodingException();
             }
             storedCargo.add(cargoRegistry.get(stringToInt(cargo)));
@@ -3,6 +3,7 @@ package portsim.movement;
 import portsim.ship.Ship;
 import portsim.util.BadEncodingException;
 import portsim.util.Encodable;
+import portsim.util.SimulationContext;
 
 import java.util.List;
 import java.util.Map;
@@ -89,15 +90,33 @@ public class ShipMovement extends Movement implements Encodable {
      */
     public static ShipMovement fromString(String string)
             throws BadEncodingException {
+        return fromString(SimulationContext.getDefault(), string);
+    }
+
+    /**
+     * Creates a ship movement from a string encoding, looking up the ship in
+     * the given simulation context.
+     *
+     * @param context - simulation the ship belongs to
+     * @param string - string containing the encoded ShipMovement
+     *
+     * @return decoded ShipMovement instance
+     *
+     * @throws BadEncodingException - if the format of the given string is
+     * invalid
+     */
+    public static ShipMovement fromString(SimulationContext context,
+                                          String string)
+            throws BadEncodingException {
         String [] result = string.split(":");
-        Map<Long, Ship> ships = Ship.getShipRegistry();
+        Map<Long, Ship> ships = context.getShipRegistry();
 
         if (result.length != 4
                 || !result[0].equals("ShipMovement")
                 || stringToLong(result[1]) < 0
                 || !isDirection(result[2])
                 || stringToLong(result[3]) < 0
-                || !Ship.shipExists(stringToLong(result[3]))) {
+                || !context.shipExists(stringToLong(result[3]))) {
             throw new BadEncodingException();
         }
 
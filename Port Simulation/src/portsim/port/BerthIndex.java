@@ -0,0 +1,228 @@
+package portsim.port;
+
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.Ship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Index of the empty quays of a port, used to find a berth for a ship in
+ * O(log q) time for q quays.
+ * <p>
+ * Bulk quays are indexed by maximum tonnage and container quays by maximum
+ * number of containers. For each kind, a segment tree over the quays in the
+ * order they were added answers first-fit queries, and a sorted set of
+ * (capacity, position) keys answers best-fit queries. The index listens to
+ * each quay so it stays up to date however ships dock or leave.
+ */
+class BerthIndex implements QuayListener {
+    /**
+     * Empty bulk quays, by maximum tonnage
+     */
+    private final Berths bulkQuays;
+
+    /**
+     * Empty container quays, by maximum number of containers
+     */
+    private final Berths containerQuays;
+
+    /**
+     * All tracked quays in the order they were added, for ships and quays
+     * of other kinds
+     */
+    private final List<Quay> allQuays;
+
+    /**
+     * Creates a new index with no quays.
+     */
+    BerthIndex() {
+        this.bulkQuays = new Berths();
+        this.containerQuays = new Berths();
+        this.allQuays = new ArrayList<>();
+    }
+
+    /**
+     * Starts tracking the given quay.
+     *
+     * @param quay quay to track
+     */
+    void track(Quay quay) {
+        Berths berths = berthsFor(quay);
+        if (berths != null && berths.positions.containsKey(quay)) {
+            return; // already tracked, first position wins
+        }
+        allQuays.add(quay);
+        quay.addListener(this);
+        if (berths != null) {
+            berths.add(quay, capacityOf(quay));
+        }
+    }
+
+    /**
+     * Returns an empty quay the given ship can dock at, chosen by the given
+     * policy.
+     *
+     * @param ship ship looking for a berth
+     * @param policy rule used to choose between suitable quays
+     * @return a suitable empty quay, or null if there is none
+     */
+    Quay find(Ship ship, DockingPolicy policy) {
+        Berths berths = null;
+        int required = 0;
+        if (ship instanceof BulkCarrier) {
+            berths = bulkQuays;
+            BulkCarrier bulkCarrier = (BulkCarrier) ship;
+            required = bulkCarrier.getCargo() == null
+                    ? 0 : bulkCarrier.getCargo().getTonnage();
+        } else if (ship instanceof ContainerShip) {
+            berths = containerQuays;
+            required = ((ContainerShip) ship).getContainerCount();
+        }
+
+        if (berths != null) {
+            Quay quay = policy == DockingPolicy.BEST_FIT
+                    ? berths.bestFit(required) : berths.firstFit(required);
+            if (quay == null || ship.canDock(quay)) {
+                return quay;
+            }
+        }
+
+        // unknown kind of ship, fall back to checking every quay
+        for (Quay quay : allQuays) {
+            if (ship.canDock(quay) && quay.isEmpty()) {
+                return quay;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void shipArrived(Quay quay, Ship ship) {
+        Berths berths = berthsFor(quay);
+        if (berths != null) {
+            berths.setEmpty(quay, -1);
+        }
+    }
+
+    @Override
+    public void shipDeparted(Quay quay, Ship ship) {
+        Berths berths = berthsFor(quay);
+        if (berths != null && quay.isEmpty()) {
+            berths.setEmpty(quay, capacityOf(quay));
+        }
+    }
+
+    private Berths berthsFor(Quay quay) {
+        if (quay instanceof BulkQuay) {
+            return bulkQuays;
+        } else if (quay instanceof ContainerQuay) {
+            return containerQuays;
+        }
+        return null;
+    }
+
+    private static int capacityOf(Quay quay) {
+        return quay instanceof BulkQuay
+                ? ((BulkQuay) quay).getMaxTonnage()
+                : ((ContainerQuay) quay).getMaxContainers();
+    }
+
+    /**
+     * The quays of one kind, with the capacities of those that are empty.
+     */
+    private static class Berths {
+        /**
+         * Position of each quay in {@link #quays}
+         */
+        private final Map<Quay, Integer> positions = new IdentityHashMap<>();
+
+        /**
+         * Quays of this kind, in the order they were added
+         */
+        private final List<Quay> quays = new ArrayList<>();
+
+        /**
+         * Segment tree of the maximum capacity of the empty quays under each
+         * node, with leaves from index {@code leaves}; -1 means no empty quay
+         */
+        private int[] tree = {-1, -1};
+
+        /**
+         * Index of the first leaf, a power of two
+         */
+        private int leaves = 1;
+
+        /**
+         * Empty quays keyed by (capacity &lt;&lt; 32 | position)
+         */
+        private final TreeSet<Long> byCapacity = new TreeSet<>();
+
+        void add(Quay quay, int capacity) {
+            int position = quays.size();
+            positions.put(quay, position);
+            quays.add(quay);
+            if (quays.size() > leaves) {
+                int[] old = tree;
+                int oldLeaves = leaves;
+                leaves *= 2;
+                tree = new int[2 * leaves];
+                Arrays.fill(tree, -1);
+                System.arraycopy(old, oldLeaves, tree, leaves, oldLeaves);
+                for (int node = leaves - 1; node > 0; node--) {
+                    tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+                }
+            }
+            tree[leaves + position] = -1;
+            setEmpty(quay, quay.isEmpty() ? capacity : -1);
+        }
+
+        /* Records the quay as empty with the given capacity, or occupied if -1 */
+        void setEmpty(Quay quay, int capacity) {
+            Integer position = positions.get(quay);
+            if (position == null) {
+                return;
+            }
+            int node = leaves + position;
+            int previous = tree[node];
+            if (previous == capacity) {
+                return;
+            }
+            if (previous >= 0) {
+                byCapacity.remove(key(previous, position));
+            }
+            if (capacity >= 0) {
+                byCapacity.add(key(capacity, position));
+            }
+            tree[node] = capacity;
+            for (node /= 2; node > 0; node /= 2) {
+                tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+
+        Quay firstFit(int required) {
+            if (tree[1] < required) {
+                return null;
+            }
+            int node = 1;
+            while (node < leaves) {
+                node = tree[2 * node] >= required ? 2 * node : 2 * node + 1;
+            }
+            return quays.get(node - leaves);
+        }
+
+        Quay bestFit(int required) {
+            Long key = byCapacity.ceiling(key(required, 0));
+            return key == null ? null : quays.get((int) (key & 0xFFFFFFFFL));
+        }
+
+        private static long key(int capacity, int position) {
+            return ((long) capacity << 32) | position;
+        }
+    }
+}
@@ -41,6 +41,11 @@ public class BulkQuay extends Quay implements Encodable {
         return maxTonnage;
     }
 
+    @Override
+    public BulkQuay copy() {
+        return new BulkQuay(getId(), maxTonnage);
+    }
+
     @Override
     public boolean equals(Object o) {
 
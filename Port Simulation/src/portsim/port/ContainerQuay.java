@@ -41,6 +41,11 @@ public class ContainerQuay extends Quay implements Encodable {
         return maxContainers;
     }
 
+    @Override
+    public ContainerQuay copy() {
+        return new ContainerQuay(getId(), maxContainers);
+    }
+
     @Override
     public boolean equals(Object o) {
         return super.equals(o)
@@ -0,0 +1,60 @@
+package portsim.port;
+
+import portsim.ship.Ship;
+import portsim.util.LongObjectMap;
+
+/**
+ * Index from the IMO number of each ship docked at a port's quays to the
+ * quay it is docked at.
+ * <p>
+ * The index listens to each of the port's quays, so it stays up to date
+ * however ships are docked or undocked.
+ */
+class DockedShips implements QuayListener {
+    /**
+     * Quay each docked ship is at, by IMO number
+     */
+    private final LongObjectMap<Quay> quayByImo;
+
+    /**
+     * Creates a new index with no quays.
+     */
+    DockedShips() {
+        this.quayByImo = new LongObjectMap<>();
+    }
+
+    /**
+     * Starts tracking the given quay, including any ship already docked.
+     *
+     * @param quay quay to track
+     */
+    void track(Quay quay) {
+        quay.addListener(this);
+        if (!quay.isEmpty()) {
+            shipArrived(quay, quay.getShip());
+        }
+    }
+
+    /**
+     * Returns the quay the given ship is docked at.
+     *
+     * @param ship ship to look up
+     * @return the ship's quay, or null if it is not docked at a tracked quay
+     */
+    Quay quayOf(Ship ship) {
+        Quay quay = quayByImo.get(ship.getImoNumber());
+        return quay != null && quay.getShip() == ship ? quay : null;
+    }
+
+    @Override
+    public void shipArrived(Quay quay, Ship ship) {
+        quayByImo.put(ship.getImoNumber(), quay);
+    }
+
+    @Override
+    public void shipDeparted(Quay quay, Ship ship) {
+        if (quayByImo.get(ship.getImoNumber()) == quay) {
+            quayByImo.remove(ship.getImoNumber());
+        }
+    }
+}
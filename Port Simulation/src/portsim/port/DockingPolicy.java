@@ -0,0 +1,18 @@
+package portsim.port;
+
+/**
+ * The rule a port uses to choose which empty quay a ship docks at.
+ */
+public enum DockingPolicy {
+    /**
+     * Dock at the first suitable quay in the order quays were added to the
+     * port.
+     */
+    FIRST_FIT,
+
+    /**
+     * Dock at the suitable quay with the smallest capacity, leaving larger
+     * quays free for larger ships. Ties go to the quay added first.
+     */
+    BEST_FIT
+}
@@ -0,0 +1,172 @@
+package portsim.port;
+
+import portsim.cargo.Cargo;
+import portsim.evaluators.PortEvent;
+import portsim.evaluators.StatisticsEvaluator;
+import portsim.movement.Movement;
+import portsim.ship.Ship;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Delivers a port's events to the statistics evaluators subscribed to them.
+ * <p>
+ * Subscribers are kept in one array per {@link PortEvent}, built when each
+ * evaluator is added, so delivering an event only visits the evaluators
+ * that asked for it. The bus listens to the port's quays to raise quay
+ * added, dock and undock events.
+ */
+class EvaluatorBus implements QuayListener {
+    private static final StatisticsEvaluator[] NONE = {};
+
+    /**
+     * Evaluators subscribed to each event, indexed by event ordinal
+     */
+    private final StatisticsEvaluator[][] subscribers;
+
+    /**
+     * Creates a new bus with no subscribers.
+     */
+    EvaluatorBus() {
+        this.subscribers = new StatisticsEvaluator[PortEvent.values().length][];
+        Arrays.fill(subscribers, NONE);
+    }
+
+    /**
+     * Subscribes the given evaluator to the events it asks for.
+     *
+     * @param evaluator evaluator to subscribe
+     */
+    void subscribe(StatisticsEvaluator evaluator) {
+        for (PortEvent event : evaluator.getSubscriptions()) {
+            StatisticsEvaluator[] current = subscribers[event.ordinal()];
+            StatisticsEvaluator[] updated
+                    = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = evaluator;
+            subscribers[event.ordinal()] = updated;
+        }
+    }
+
+    /**
+     * Stops delivering events to the given evaluator.
+     *
+     * @param evaluator evaluator to unsubscribe
+     */
+    void unsubscribe(StatisticsEvaluator evaluator) {
+        for (int i = 0; i < subscribers.length; i++) {
+            StatisticsEvaluator[] current = subscribers[i];
+            for (int j = 0; j < current.length; j++) {
+                if (current[j] == evaluator) {
+                    StatisticsEvaluator[] updated
+                            = new StatisticsEvaluator[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, j);
+                    System.arraycopy(current, j + 1, updated, j,
+                            updated.length - j);
+                    subscribers[i] = updated;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether any evaluator is subscribed to the given event.
+     *
+     * @param event event to check
+     * @return true if the event has subscribers
+     */
+    boolean hasSubscribers(PortEvent event) {
+        return subscribers[event.ordinal()].length > 0;
+    }
+
+    /**
+     * Delivers a processed movement to the evaluators subscribed to its
+     * kind and direction.
+     *
+     * @param movement movement that was processed
+     */
+    void movementProcessed(Movement movement) {
+        PortEvent event = PortEvent.of(movement);
+        if (event == null) {
+            return;
+        }
+        for (StatisticsEvaluator evaluator : subscribers[event.ordinal()]) {
+            evaluator.onProcessMovement(movement);
+        }
+    }
+
+    /**
+     * Delivers cargo unloaded from a docked ship.
+     *
+     * @param quay quay the ship is docked at
+     * @param ship ship the cargo was unloaded from
+     * @param cargo cargo that was unloaded
+     */
+    void unloaded(Quay quay, Ship ship, List<? extends Cargo> cargo) {
+        for (StatisticsEvaluator evaluator
+                : subscribers[PortEvent.UNLOAD.ordinal()]) {
+            evaluator.onUnload(quay, ship, cargo);
+        }
+    }
+
+    /**
+     * Delivers one elapsed minute.
+     */
+    void tick() {
+        for (StatisticsEvaluator evaluator
+                : subscribers[PortEvent.TICK.ordinal()]) {
+            evaluator.elapseOneMinute();
+        }
+    }
+
+    /**
+     * Delivers the given number of elapsed minutes in one call.
+     *
+     * @param minutes number of minutes that have elapsed
+     */
+    void tick(long minutes) {
+        for (StatisticsEvaluator evaluator
+                : subscribers[PortEvent.TICK.ordinal()]) {
+            evaluator.elapseMinutes(minutes);
+        }
+    }
+
+    /**
+     * Waits until every event raised so far has been delivered. Events are
+     * delivered as they are raised, so this does nothing.
+     */
+    void sync() {
+    }
+
+    /**
+     * Delivers any outstanding events and releases the resources used to
+     * deliver them. This does nothing as there are none.
+     */
+    void close() {
+    }
+
+    @Override
+    public void quayAdded(Quay quay) {
+        for (StatisticsEvaluator evaluator
+                : subscribers[PortEvent.QUAY_ADDED.ordinal()]) {
+            evaluator.onQuayAdded(quay);
+        }
+    }
+
+    @Override
+    public void shipArrived(Quay quay, Ship ship) {
+        for (StatisticsEvaluator evaluator
+                : subscribers[PortEvent.DOCK.ordinal()]) {
+            evaluator.onDock(quay, ship);
+        }
+    }
+
+    @Override
+    public void shipDeparted(Quay quay, Ship ship) {
+        for (StatisticsEvaluator evaluator
+                : subscribers[PortEvent.UNDOCK.ordinal()]) {
+            evaluator.onUndock(quay, ship);
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package portsim.port;
+
+import portsim.cargo.Cargo;
+import portsim.evaluators.PortEvent;
+import portsim.evaluators.StatisticsEvaluator;
+import portsim.movement.Movement;
+import portsim.ship.Ship;
+
+import java.lang.ref.Cleaner;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Delivers a port's events to its statistics evaluators on background
+ * threads, so slow evaluators do not hold up the simulation.
+ * <p>
+ * Only evaluators that {@link StatisticsEvaluator#canRunConcurrently() can
+ * run concurrently} are run on the threads; the rest are still called on
+ * the simulation thread as events are raised.
+ * <p>
+ * Each concurrent evaluator is assigned to one of a fixed number of worker
+ * threads. Every worker has a bounded single-producer single-consumer ring
+ * buffer;
+ * the simulation thread publishes each event into the rings of the workers
+ * with a subscriber for it, and the worker delivers it through its own
+ * {@link EvaluatorBus}. Publishing only writes to preallocated arrays, and
+ * blocks only when a ring is full.
+ * <p>
+ * Evaluator results must only be read after {@link #sync()}, which waits
+ * until every event published so far has been delivered. Events carry the
+ * quay, ship, movement or cargo they are about, and evaluators receive
+ * them after the simulation has moved on, so they should not rely on the
+ * current state of those objects.
+ * <p>
+ * The worker threads run until {@link #close()} is called. If a pipeline
+ * becomes unreachable without being closed, its workers are stopped once
+ * it has been garbage collected.
+ */
+class EvaluatorPipeline extends EvaluatorBus {
+    /* Kinds of entry in a ring */
+    private static final byte MOVEMENT = 0;
+    private static final byte DOCK = 1;
+    private static final byte UNDOCK = 2;
+    private static final byte UNLOAD = 3;
+    private static final byte TICK = 4;
+    private static final byte SUBSCRIBE = 5;
+    private static final byte UNSUBSCRIBE = 6;
+    private static final byte QUAY_ADDED = 7;
+
+    /**
+     * How long an idle worker sleeps before checking its ring again
+     */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Stops the workers of pipelines that are no longer reachable
+     */
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /**
+     * Worker threads, each with its own ring and evaluators
+     */
+    private final Worker[] workers;
+
+    /**
+     * Stops the workers, when closed or garbage collected
+     */
+    private final Cleaner.Cleanable stopper;
+
+    /**
+     * Number of evaluators subscribed so far, used to spread them over the
+     * workers
+     */
+    private int subscribed;
+
+    /**
+     * Creates a pipeline with the given number of worker threads and starts
+     * the threads.
+     *
+     * @param threads number of worker threads
+     * @param capacity number of events each ring can hold, rounded up to a
+     *                 power of two
+     * @throws IllegalArgumentException if threads or capacity &lt; 1
+     */
+    EvaluatorPipeline(int threads, int capacity)
+            throws IllegalArgumentException {
+        if (threads < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Pipeline needs at least one"
+                    + " thread and one slot: " + threads + ", " + capacity);
+        }
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(size);
+            Thread thread = new Thread(workers[i], "evaluator-" + i);
+            thread.setDaemon(true);
+            workers[i].thread = thread;
+            thread.start();
+        }
+        this.stopper = CLEANER.register(this, new Stopper(workers));
+    }
+
+    /**
+     * Returns the number of worker threads.
+     *
+     * @return number of threads
+     */
+    int getThreads() {
+        return workers.length;
+    }
+
+    @Override
+    void subscribe(StatisticsEvaluator evaluator) {
+        if (!evaluator.canRunConcurrently()) {
+            super.subscribe(evaluator);
+            return;
+        }
+        Worker worker = workers[subscribed++ % workers.length];
+        for (PortEvent event : evaluator.getSubscriptions()) {
+            worker.wants[event.ordinal()] = true;
+        }
+        worker.publish(SUBSCRIBE, evaluator, null, null, 0);
+    }
+
+    @Override
+    void unsubscribe(StatisticsEvaluator evaluator) {
+        if (!evaluator.canRunConcurrently()) {
+            super.unsubscribe(evaluator);
+            return;
+        }
+        for (Worker worker : workers) {
+            worker.publish(UNSUBSCRIBE, evaluator, null, null, 0);
+        }
+    }
+
+    @Override
+    boolean hasSubscribers(PortEvent event) {
+        if (super.hasSubscribers(event)) {
+            return true;
+        }
+        for (Worker worker : workers) {
+            if (worker.wants[event.ordinal()]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    void movementProcessed(Movement movement) {
+        super.movementProcessed(movement);
+        PortEvent event = PortEvent.of(movement);
+        if (event != null) {
+            publish(event, MOVEMENT, movement, null, null, 0);
+        }
+    }
+
+    @Override
+    void unloaded(Quay quay, Ship ship, List<? extends Cargo> cargo) {
+        super.unloaded(quay, ship, cargo);
+        publish(PortEvent.UNLOAD, UNLOAD, quay, ship, cargo, 0);
+    }
+
+    @Override
+    void tick() {
+        super.tick();
+        publish(PortEvent.TICK, TICK, null, null, null, 1);
+    }
+
+    @Override
+    void tick(long minutes) {
+        super.tick(minutes);
+        publish(PortEvent.TICK, TICK, null, null, null, minutes);
+    }
+
+    @Override
+    public void quayAdded(Quay quay) {
+        super.quayAdded(quay);
+        publish(PortEvent.QUAY_ADDED, QUAY_ADDED, quay, null, null, 0);
+    }
+
+    @Override
+    public void shipArrived(Quay quay, Ship ship) {
+        super.shipArrived(quay, ship);
+        publish(PortEvent.DOCK, DOCK, quay, ship, null, 0);
+    }
+
+    @Override
+    public void shipDeparted(Quay quay, Ship ship) {
+        super.shipDeparted(quay, ship);
+        publish(PortEvent.UNDOCK, UNDOCK, quay, ship, null, 0);
+    }
+
+    private void publish(PortEvent event, byte kind, Object first,
+                         Object second, Object third, long minutes) {
+        for (Worker worker : workers) {
+            if (worker.wants[event.ordinal()]) {
+                worker.publish(kind, first, second, third, minutes);
+            }
+        }
+    }
+
+    /**
+     * Waits until every event published so far has been delivered, so the
+     * evaluators' results are consistent with the current state of the
+     * port.
+     *
+     * @throws IllegalStateException if an evaluator threw an exception
+     */
+    @Override
+    void sync() throws IllegalStateException {
+        for (Worker worker : workers) {
+            long target = worker.head;
+            if (worker.consumed.get() < target) {
+                LockSupport.unpark(worker.thread);
+                while (worker.consumed.get() < target) {
+                    worker.checkFailure();
+                    Thread.yield();
+                }
+            }
+            worker.checkFailure();
+        }
+    }
+
+    /**
+     * Delivers every event published so far, then stops the worker threads.
+     *
+     * @throws IllegalStateException if an evaluator threw an exception
+     */
+    @Override
+    void close() throws IllegalStateException {
+        try {
+            sync();
+        } finally {
+            stopper.clean();
+            for (Worker worker : workers) {
+                try {
+                    worker.thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells workers to stop once their rings are empty. Must not refer to
+     * the pipeline, so that the pipeline can become unreachable.
+     */
+    private static class Stopper implements Runnable {
+        private final Worker[] workers;
+
+        Stopper(Worker[] workers) {
+            this.workers = workers;
+        }
+
+        @Override
+        public void run() {
+            for (Worker worker : workers) {
+                worker.running = false;
+                LockSupport.unpark(worker.thread);
+            }
+        }
+    }
+
+    /**
+     * A worker thread and the ring of events waiting for it.
+     */
+    private static class Worker implements Runnable {
+        /**
+         * Delivers events to this worker's evaluators, only used by the
+         * worker thread
+         */
+        private final EvaluatorBus bus = new EvaluatorBus();
+
+        /**
+         * Events this worker's evaluators subscribe to, only used by the
+         * simulation thread
+         */
+        private final boolean[] wants = new boolean[PortEvent.values().length];
+
+        /* The ring, one array per field of an entry */
+        private final int mask;
+        private final byte[] kinds;
+        private final Object[] firsts;
+        private final Object[] seconds;
+        private final Object[] thirds;
+        private final long[] minutes;
+
+        /**
+         * Number of entries published, only used by the simulation thread
+         */
+        private long head;
+
+        /**
+         * Number of entries published, read by the worker thread
+         */
+        private final AtomicLong published = new AtomicLong();
+
+        /**
+         * Number of entries delivered, read by the simulation thread
+         */
+        private final AtomicLong consumed = new AtomicLong();
+
+        private Thread thread;
+        private volatile boolean running = true;
+        private volatile RuntimeException failure;
+
+        Worker(int size) {
+            this.mask = size - 1;
+            this.kinds = new byte[size];
+            this.firsts = new Object[size];
+            this.seconds = new Object[size];
+            this.thirds = new Object[size];
+            this.minutes = new long[size];
+        }
+
+        void publish(byte kind, Object first, Object second, Object third,
+                     long minutes) {
+            long sequence = head;
+            if (sequence - consumed.get() > mask) {
+                LockSupport.unpark(thread); // ring is full, wait for the worker
+                while (sequence - consumed.get() > mask) {
+                    checkFailure();
+                    Thread.yield();
+                }
+            }
+            int slot = (int) sequence & mask;
+            kinds[slot] = kind;
+            firsts[slot] = first;
+            seconds[slot] = second;
+            thirds[slot] = third;
+            this.minutes[slot] = minutes;
+            head = sequence + 1;
+            published.lazySet(head);
+        }
+
+        void checkFailure() throws IllegalStateException {
+            RuntimeException cause = failure;
+            if (cause != null) {
+                throw new IllegalStateException("Statistics evaluator failed",
+                        cause);
+            }
+        }
+
+        @Override
+        public void run() {
+            long next = 0;
+            while (true) {
+                long available = published.get();
+                if (next == available) {
+                    if (!running) {
+                        return;
+                    }
+                    LockSupport.parkNanos(this, IDLE_NANOS);
+                    continue;
+                }
+                for (; next < available; next++) {
+                    int slot = (int) next & mask;
+                    if (failure == null) {
+                        try {
+                            deliver(slot);
+                        } catch (RuntimeException e) {
+                            failure = e;
+                        }
+                    }
+                    firsts[slot] = null;
+                    seconds[slot] = null;
+                    thirds[slot] = null;
+                }
+                consumed.lazySet(next);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void deliver(int slot) {
+            switch (kinds[slot]) {
+                case MOVEMENT:
+                    bus.movementProcessed((Movement) firsts[slot]);
+                    break;
+                case DOCK:
+                    bus.shipArrived((Quay) firsts[slot], (Ship) seconds[slot]);
+                    break;
+                case UNDOCK:
+                    bus.shipDeparted((Quay) firsts[slot], (Ship) seconds[slot]);
+                    break;
+                case UNLOAD:
+                    bus.unloaded((Quay) firsts[slot], (Ship) seconds[slot],
+                            (List<? extends Cargo>) thirds[slot]);
+                    break;
+                case TICK:
+                    if (minutes[slot] == 1) {
+                        bus.tick();
+                    } else {
+                        bus.tick(minutes[slot]);
+                    }
+                    break;
+                case SUBSCRIBE:
+                    bus.subscribe((StatisticsEvaluator) firsts[slot]);
+                    break;
+                case UNSUBSCRIBE:
+                    bus.unsubscribe((StatisticsEvaluator) firsts[slot]);
+                    break;
+                case QUAY_ADDED:
+                    bus.quayAdded((Quay) firsts[slot]);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown event: "
+                            + kinds[slot]);
+            }
+        }
+    }
+}
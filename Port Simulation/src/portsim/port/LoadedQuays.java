@@ -0,0 +1,107 @@
+package portsim.port;
+
+import portsim.ship.Ship;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The set of a port's quays whose docked ship still has cargo to unload.
+ * <p>
+ * Quays are kept in the order they were added to the port, so unloading
+ * them in set order matches unloading every quay in port order. A quay
+ * joins the set when a ship with cargo docks there and leaves it when the
+ * ship departs or {@link #unloaded(int)} is called.
+ */
+class LoadedQuays implements QuayListener {
+    /**
+     * Position of each tracked quay in {@link #quays}
+     */
+    private final Map<Quay, Integer> positions;
+
+    /**
+     * Tracked quays, in the order they were added
+     */
+    private final List<Quay> quays;
+
+    /**
+     * Positions of the quays whose docked ship has cargo
+     */
+    private final BitSet loaded;
+
+    /**
+     * Creates a new set with no quays.
+     */
+    LoadedQuays() {
+        this.positions = new IdentityHashMap<>();
+        this.quays = new ArrayList<>();
+        this.loaded = new BitSet();
+    }
+
+    /**
+     * Starts tracking the given quay, including any ship already docked.
+     *
+     * @param quay quay to track
+     */
+    void track(Quay quay) {
+        if (positions.containsKey(quay)) {
+            return;
+        }
+        positions.put(quay, quays.size());
+        quays.add(quay);
+        quay.addListener(this);
+        if (!quay.isEmpty()) {
+            shipArrived(quay, quay.getShip());
+        }
+    }
+
+    /**
+     * Returns the position of the first quay in the set at or after the
+     * given position.
+     *
+     * @param from position to start searching from
+     * @return position of the next loaded quay, or -1 if there are none
+     */
+    int next(int from) {
+        return loaded.nextSetBit(from);
+    }
+
+    /**
+     * Returns the quay at the given position.
+     *
+     * @param position position of the quay
+     * @return quay at that position
+     */
+    Quay get(int position) {
+        return quays.get(position);
+    }
+
+    /**
+     * Removes the quay at the given position from the set once its ship
+     * has been unloaded.
+     *
+     * @param position position of the unloaded quay
+     */
+    void unloaded(int position) {
+        loaded.clear(position);
+    }
+
+    @Override
+    public void shipArrived(Quay quay, Ship ship) {
+        Integer position = positions.get(quay);
+        if (position != null && ship.hasCargo()) {
+            loaded.set(position);
+        }
+    }
+
+    @Override
+    public void shipDeparted(Quay quay, Ship ship) {
+        Integer position = positions.get(quay);
+        if (position != null && quay.isEmpty()) {
+            loaded.clear(position);
+        }
+    }
+}
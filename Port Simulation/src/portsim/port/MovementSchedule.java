@@ -0,0 +1,180 @@
+package portsim.port;
+
+import portsim.movement.Movement;
+import portsim.util.LongTrieMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A calendar of movements waiting to be processed by a port, bucketed by the
+ * minute at which each movement is due (see {@link Movement#getTime()}).
+ * <p>
+ * Each tick only needs to look at the bucket for the current minute, so the
+ * cost of a tick depends on the number of movements due at that minute
+ * rather than on the total number of movements scheduled in the future.
+ * Movements sharing the same time are kept in the order they were added.
+ * <p>
+ * A schedule can be {@link #fork() forked} in constant time. The buckets
+ * are held in a {@link LongTrieMap} keyed by minute, which the two
+ * schedules share; each copies only the trie nodes on the path to a bucket
+ * it adds or polls, and copies a shared bucket before adding a movement to
+ * it, so no fork ever copies the whole schedule.
+ */
+class MovementSchedule implements Iterable<Movement> {
+    /**
+     * Buckets of movements keyed by the minute they are due
+     */
+    private final LongTrieMap<List<Movement>> buckets;
+
+    /**
+     * The buckets this schedule created since it was last forked, which
+     * only it can see and so can be added to in place
+     */
+    private Set<List<Movement>> ownedBuckets;
+
+    /**
+     * The total number of movements across all buckets.
+     */
+    private int size;
+
+    /**
+     * Creates a new empty movement schedule.
+     */
+    MovementSchedule() {
+        this(new LongTrieMap<>(), 0);
+    }
+
+    private MovementSchedule(LongTrieMap<List<Movement>> buckets, int size) {
+        this.buckets = buckets;
+        this.ownedBuckets = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.size = size;
+    }
+
+    /**
+     * Returns a new schedule with the same movements as this one.
+     * <p>
+     * The two schedules share their buckets, so the cost does not depend
+     * on the number of movements scheduled, however often either schedule
+     * is forked. Afterwards, movements added to or polled from either
+     * schedule do not affect the other.
+     *
+     * @return forked schedule
+     */
+    MovementSchedule fork() {
+        ownedBuckets = Collections.newSetFromMap(new IdentityHashMap<>());
+        return new MovementSchedule(buckets.fork(), size);
+    }
+
+    /**
+     * Adds the given movement to the bucket for its action time.
+     *
+     * @param movement movement to schedule
+     */
+    void add(Movement movement) {
+        long time = movement.getTime();
+        List<Movement> bucket = buckets.get(time);
+        if (bucket == null || !ownedBuckets.contains(bucket)) {
+            bucket = bucket == null ? new ArrayList<>() : new ArrayList<>(bucket);
+            ownedBuckets.add(bucket);
+            buckets.put(time, bucket);
+        }
+        bucket.add(movement);
+        size++;
+    }
+
+    /**
+     * Removes and returns all movements due at exactly the given time.
+     * <p>
+     * Buckets for earlier times can never be processed again, so they are
+     * discarded as well.
+     *
+     * @param time the current simulation time
+     * @return movements due at the given time, or an empty list if none
+     */
+    List<Movement> pollDue(long time) {
+        if (size == 0) {
+            return List.of();
+        }
+        long first = buckets.ceilingKey(0);
+        while (first >= 0 && first < time) {
+            discard(first);
+            first = buckets.ceilingKey(first + 1);
+        }
+        if (first != time) {
+            return List.of();
+        }
+        return discard(time);
+    }
+
+    private List<Movement> discard(long time) {
+        List<Movement> bucket = buckets.remove(time);
+        ownedBuckets.remove(bucket);
+        size -= bucket.size();
+        return bucket;
+    }
+
+    /**
+     * Returns the time of the earliest scheduled movement.
+     *
+     * @return earliest movement time, or -1 if the schedule is empty
+     */
+    long firstTime() {
+        return buckets.ceilingKey(0);
+    }
+
+    /**
+     * Returns the number of movements currently scheduled.
+     *
+     * @return number of movements
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether there are no movements scheduled.
+     *
+     * @return true if the schedule is empty
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns an iterator over all scheduled movements in time order.
+     *
+     * @return movement iterator
+     */
+    @Override
+    public Iterator<Movement> iterator() {
+        final Iterator<List<Movement>> bucketIterator = buckets.iterator();
+        return new Iterator<Movement>() {
+            private Iterator<Movement> current = null;
+
+            @Override
+            public boolean hasNext() {
+                while (current == null || !current.hasNext()) {
+                    if (!bucketIterator.hasNext()) {
+                        return false;
+                    }
+                    current = bucketIterator.next().iterator();
+                }
+                return true;
+            }
+
+            @Override
+            public Movement next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+}
@@ -1,6 +1,8 @@
 package portsim.port;
 
+import portsim.cargo.BulkCargo;
 import portsim.cargo.Cargo;
+import portsim.cargo.Container;
 import portsim.evaluators.*;
 import portsim.movement.CargoMovement;
 import portsim.movement.Movement;
@@ -11,9 +13,16 @@ import portsim.ship.ContainerShip;
 import portsim.ship.Ship;
 import portsim.util.*;
 
-import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 /**
@@ -24,8 +33,21 @@ import java.util.*;
  *
  * @ass1_partial
  */
-public class Port implements Tickable, Encodable {
+public class Port implements Tickable, Encodable, Closeable {
 
+    /**
+     * Number of characters buffered when saving a port to a file
+     */
+    private static final int SAVE_BUFFER_SIZE = 64 * 1024;
+    /**
+     * Number of events each evaluator thread can fall behind by
+     */
+    private static final int EVALUATOR_RING_SIZE = 4096;
+
+    /**
+     * The simulation this port belongs to
+     */
+    private SimulationContext context;
     /**
      * The name of this port used for identification
      */
@@ -34,11 +56,31 @@ public class Port implements Tickable, Encodable {
      * The quays associated with this port
      */
     private List<Quay> quays;
+    /**
+     * The quay each ship docked at this port is docked at
+     */
+    private DockedShips dockedShips;
+    /**
+     * The empty quays of this port, indexed for docking
+     */
+    private BerthIndex berths;
+    /**
+     * The quays of this port whose docked ship has cargo to unload
+     */
+    private LoadedQuays loadedQuays;
+    /**
+     * The rule used to choose which empty quay a ship docks at
+     */
+    private DockingPolicy dockingPolicy;
+    /**
+     * Listeners told about ships docking at and leaving any of the quays
+     */
+    private List<QuayListener> quayListeners;
     /**
      * The cargo currently stored at the port at warehouses.
      * Cargo unloaded from trucks / ships
      */
-    private List<Cargo> storedCargo;
+    private Warehouse storedCargo;
     /**
      * The time since simulation started.
      */
@@ -47,14 +89,42 @@ public class Port implements Tickable, Encodable {
      *  The list of evaluators at the port.
      */
     private List<StatisticsEvaluator> evaluators;
+    /**
+     * Subscribers to the port's events that are not among its evaluators
+     */
+    private List<StatisticsEvaluator> observers;
+    /**
+     * Delivers events to the evaluators subscribed to them
+     */
+    private EvaluatorBus bus;
     /**
      *  The queue of ships waiting to be docked at this port.
      */
     private ShipQueue queue;
     /**
-     *  The queue of movements waiting to be processed.
+     *  The movements waiting to be processed, bucketed by their action time.
+     */
+    private MovementSchedule movements;
+    /**
+     * Whether this port has been forked or is a fork, so its ships may be
+     * shared with another port and must be copied before they change
+     */
+    private boolean forked;
+    /**
+     * The copies of ships this port has made since it was first forked,
+     * which stand in for the shared ships, by IMO number
      */
-    private PriorityQueue<Movement> movements;
+    private LongTrieMap<Ship> shipVersions;
+    /**
+     * The ship copies made since this port was last forked, which only this
+     * port can see and so can be changed in place
+     */
+    private Set<Ship> ownedShips;
+    /**
+     * The write-ahead journal recording changes to this port, or null if
+     * the port is not journalled
+     */
+    private PortJournal journal;
 
     /**
      * Creates a new port with the given name.
@@ -64,8 +134,8 @@ public class Port implements Tickable, Encodable {
      * The list of quays in the port, stored cargo (warehouses) and statistics evaluators should be
      * initialised as empty lists.
      * <p>
-     * An empty ShipQueue should be initialised, and a PriorityQueue should be initialised
-     * to store movements ordered by the time of the movement (see {@link Movement#getTime()}).
+     * An empty ShipQueue should be initialised, and a movement schedule should be initialised
+     * to store movements bucketed by the time of the movement (see {@link Movement#getTime()}).
      *
      * @param name name of the port
      * @ass1_partial
@@ -95,25 +165,225 @@ public class Port implements Tickable, Encodable {
                  List<Quay> quays,
                  List<Cargo> storedCargo)
             throws IllegalArgumentException {
+        this(SimulationContext.getDefault(), name, time, shipQueue, quays,
+                storedCargo);
+    }
+
+    /**
+     * Creates a new empty port with the given name belonging to the given
+     * simulation context.
+     *
+     * @param context - simulation whose ships and cargo this port manages
+     * @param name - name of the port
+     */
+    public Port(SimulationContext context, String name) {
+        this(context, name, 0, new ShipQueue(), new ArrayList<Quay>(),
+                new ArrayList<Cargo>());
+    }
+
+    /**
+     * Creates a new port with the given name, time elapsed, ship queue, quays
+     * and stored cargo, belonging to the given simulation context.
+     *
+     * @param context - simulation whose ships and cargo this port manages
+     * @param name - name of the port
+     * @param time - number of minutes since simulation started
+     * @param shipQueue - ships waiting to enter the port
+     * @param quays - the port's quays
+     * @param storedCargo - the cargo stored at the port
+     *
+     * @throws IllegalArgumentException if time < 0
+     */
+    public Port(SimulationContext context,
+                String name,
+                long time,
+                ShipQueue shipQueue,
+                List<Quay> quays,
+                List<Cargo> storedCargo)
+            throws IllegalArgumentException {
         if (time < 0) {
             throw new IllegalArgumentException();
         }
 
+        this.context = context;
         this.name = name;
         this.queue = shipQueue;
-        this.quays = quays;
-        this.storedCargo = storedCargo;
+        this.quays = new ArrayList<>(quays);
+        this.dockedShips = new DockedShips();
+        this.berths = new BerthIndex();
+        this.loadedQuays = new LoadedQuays();
+        this.dockingPolicy = DockingPolicy.FIRST_FIT;
+        this.quayListeners = new ArrayList<>();
+        for (Quay quay : quays) {
+            dockedShips.track(quay);
+            berths.track(quay);
+            loadedQuays.track(quay);
+        }
+        this.storedCargo = new Warehouse();
+        for (Cargo cargo : storedCargo) {
+            this.storedCargo.add(cargo);
+        }
         this.evaluators = new ArrayList<StatisticsEvaluator>();
+        this.observers = new ArrayList<>();
+        this.bus = new EvaluatorBus();
+        forwardQuayEventsToBus();
         this.time = time;
-        this.movements = new PriorityQueue<Movement>(new Comparator<Movement>() {
-            public int compare(Movement m1, Movement m2) {
-                return (int) (m1.getTime() - m2.getTime());
+        this.movements = new MovementSchedule();
+    }
+
+    /**
+     * Creates a fork of the given port, sharing its ships, cargo, queue,
+     * stored cargo and movements and with copies of its quays.
+     *
+     * @param port port to fork
+     */
+    private Port(Port port) {
+        this.context = port.context.fork();
+        this.name = port.name;
+        this.time = port.time;
+        this.queue = port.queue.fork();
+        this.storedCargo = port.storedCargo.fork();
+        this.movements = port.movements.fork();
+        this.dockingPolicy = port.dockingPolicy;
+        this.quays = new ArrayList<>(port.quays.size());
+        this.dockedShips = new DockedShips();
+        this.berths = new BerthIndex();
+        this.loadedQuays = new LoadedQuays();
+        for (Quay quay : port.quays) {
+            Quay copy = quay.copy();
+            if (!quay.isEmpty()) {
+                copy.shipArrives(quay.getShip());
+            }
+            quays.add(copy);
+            dockedShips.track(copy);
+            berths.track(copy);
+            loadedQuays.track(copy);
+        }
+        this.quayListeners = new ArrayList<>();
+        this.evaluators = new ArrayList<StatisticsEvaluator>();
+        this.observers = new ArrayList<>();
+        this.bus = new EvaluatorBus();
+        forwardQuayEventsToBus();
+        for (StatisticsEvaluator evaluator : port.evaluators) {
+            StatisticsEvaluator forked = evaluator.createForFork();
+            if (forked != null) {
+                addStatisticsEvaluator(forked);
+            }
+        }
+        this.forked = true;
+        this.shipVersions = port.shipVersions.fork();
+        this.ownedShips = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /* Passes quay changes on to the evaluators subscribed to them */
+    private void forwardQuayEventsToBus() {
+        addQuayListener(new QuayListener() {
+            @Override
+            public void quayAdded(Quay quay) {
+                bus.quayAdded(quay);
+            }
+
+            @Override
+            public void shipArrived(Quay quay, Ship ship) {
+                bus.shipArrived(quay, ship);
+            }
+
+            @Override
+            public void shipDeparted(Quay quay, Ship ship) {
+                bus.shipDeparted(quay, ship);
             }
         });
     }
 
     /**
-     * Adds a movement to the PriorityQueue of movements.
+     * Returns a new port in the same state as this one, which can then be
+     * simulated independently of this port, including on another thread.
+     * <p>
+     * Forking does not copy the port's cargo, ships, ship queue, stored cargo
+     * or scheduled movements. Both ports share them, and each port copies
+     * only the parts it changes, when it first changes them: the registries
+     * and the warehouse are tries that copy only the nodes on the path to
+     * each entry changed, the queue copies only the segment it adds to, the
+     * schedule keeps sharing the movements already scheduled, and a ship is
+     * copied the first time cargo is loaded onto or unloaded from it. The
+     * quays are copied straight away. Until it is first forked, a port keeps
+     * its registries and warehouse in flat maps and linked chains instead,
+     * and the first fork moves them into tries in time linear in the amount
+     * of cargo and the number of ships. After that, the cost of forking is
+     * independent of the amount of cargo and the number of ships and
+     * movements, and each change after a fork costs little more than it
+     * would without one.
+     * <p>
+     * The fork has the evaluators returned by
+     * {@link StatisticsEvaluator#createForFork()} for each of this port's
+     * statistics evaluators, which start counting from the time of the
+     * fork; evaluators for which it returns null are not carried over.
+     * Quay listeners added to this port, and the
+     * number of evaluator threads, are not carried over.
+     * <p>
+     * Ships and cargo created after the fork are registered only with the
+     * port they were created for. Ship objects read directly from the
+     * shared queue or movements may be stale copies; the current state of a
+     * port's ships is that of its quays, encoding and snapshots.
+     *
+     * @return forked port
+     */
+    public Port fork() {
+        bus.sync();
+        if (!forked) {
+            this.forked = true;
+            this.shipVersions = new LongTrieMap<>();
+        }
+        this.ownedShips = Collections.newSetFromMap(new IdentityHashMap<>());
+        return new Port(this);
+    }
+
+    /**
+     * Sets the journal told about each movement added or processed and
+     * each minute elapsed.
+     *
+     * @param journal journal to record to, or null to stop journalling
+     */
+    void setJournal(PortJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Returns this port's current version of the given ship.
+     * <p>
+     * Once a port has been forked, the ships shared with the fork are never
+     * changed; each port copies a ship before loading or unloading it, and
+     * the copy stands in for the ship from then on.
+     *
+     * @param ship ship to look up
+     * @return the ship itself, or this port's copy of it
+     */
+    Ship currentShip(Ship ship) {
+        if (!forked || ship == null) {
+            return ship;
+        }
+        Ship version = shipVersions.get(ship.getImoNumber());
+        return version == null ? ship : version;
+    }
+
+    /* This port's current version of the given ship, copied first if it may
+     * be shared with a forked port */
+    private Ship ownShip(Ship ship) {
+        if (!forked || ownedShips.contains(ship)) {
+            return ship;
+        }
+        Ship copy = ship.copy();
+        shipVersions.put(copy.getImoNumber(), copy);
+        ownedShips.add(copy);
+        Quay quay = dockedShips.quayOf(ship);
+        if (quay != null) {
+            quay.replaceShip(copy);
+        }
+        return copy;
+    }
+
+    /**
+     * Adds a movement to the schedule of movements waiting to be processed.
      *
      * @param movement - movement to add
      *
@@ -128,6 +398,9 @@ public class Port implements Tickable, Encodable {
         }
 
         this.movements.add(movement);
+        if (journal != null) {
+            journal.movementAdded(movement);
+        }
     }
 
     /**
@@ -137,36 +410,85 @@ public class Port implements Tickable, Encodable {
      *
      */
     public void processMovement(Movement movement) {
+        if (journal != null) {
+            journal.movementProcessed(movement);
+        }
+        process(movement);
+    }
+
+    /* Processes a movement without journalling it. Movements due at a tick
+     * are processed this way, since replaying the tick processes them */
+    private void process(Movement movement) {
         if (movement instanceof ShipMovement) {
-            Ship ship = ((ShipMovement) movement).getShip();
+            Ship ship = currentShip(((ShipMovement) movement).getShip());
             if (movement.getDirection().equals(MovementDirection.INBOUND)) {
                 queue.add(ship);
             } else { // outbound
-                for (Cargo cargo : getCargo()) {
-                    if (ship.canLoad(cargo)) {
-                        ship.loadCargo(cargo);
-                    }
-                    for (Quay quay : getQuays()) {
-                        if (quay.getShip() == ship) {
-                            quay.shipDeparts();
-                        }
-                    }
+                ship = loadOutboundCargo(ship);
+                Quay quay = dockedShips.quayOf(ship);
+                if (quay != null) {
+                    quay.shipDeparts();
                 }
             }
         } else { // Move is instance of CargoMovement
             List<Cargo> cargos = ((CargoMovement) movement).getCargo();
             if (movement.getDirection().equals(MovementDirection.INBOUND)) {
-                this.storedCargo.addAll(cargos);
+                for (Cargo cargo : cargos) {
+                    storedCargo.add(cargo);
+                }
             } else { // OutBound
                 for (Cargo cargo : cargos) {
-                    storedCargo.removeIf(n -> n.getId() == cargo.getId());
+                    storedCargo.remove(cargo.getId());
                 }
             }
         }
 
-        for (StatisticsEvaluator evaluator : evaluators) {
-            evaluator.onProcessMovement(movement);
+        bus.movementProcessed(movement);
+    }
+
+    /**
+     * Loads a departing ship with stored cargo bound for its origin, up to
+     * the ship's capacity, and removes the loaded cargo from storage.
+     * <p>
+     * Only cargo of the ship's kind bound for its origin flag is considered,
+     * in the order it was stored.
+     *
+     * @param ship ship to load
+     * @return the ship loaded, a copy of the given ship if it had to be
+     * copied before loading
+     */
+    private Ship loadOutboundCargo(Ship ship) {
+        if (ship instanceof ContainerShip) {
+            for (Cargo cargo : storedCargo.containersFor(ship.getOriginFlag())) {
+                if (!ship.canLoad(cargo)) {
+                    break; // ship is full
+                }
+                ship = ownShip(ship);
+                ship.loadCargo(cargo);
+                storedCargo.remove(cargo.getId());
+            }
+        } else if (ship instanceof BulkCarrier) {
+            if (((BulkCarrier) ship).getCargo() != null) {
+                return ship; // already loaded, nothing else fits
+            }
+            for (Cargo cargo : storedCargo.bulkCargoFor(ship.getOriginFlag())) {
+                if (ship.canLoad(cargo)) {
+                    ship = ownShip(ship);
+                    ship.loadCargo(cargo);
+                    storedCargo.remove(cargo.getId());
+                    break; // bulk carriers hold one cargo
+                }
+            }
+        } else {
+            for (Cargo cargo : storedCargo) {
+                if (ship.canLoad(cargo)) {
+                    ship = ownShip(ship);
+                    ship.loadCargo(cargo);
+                    storedCargo.remove(cargo.getId());
+                }
+            }
         }
+        return ship;
     }
 
     /**
@@ -184,6 +506,45 @@ public class Port implements Tickable, Encodable {
         }
 
         this.evaluators.add(eval);
+        subscribe(eval);
+    }
+
+    /**
+     * Removes the given statistics evaluator from the port, so it no longer
+     * receives the port's events.
+     *
+     * @param eval statistics evaluator to remove
+     * @return true if the evaluator was one of the port's evaluators
+     */
+    public boolean removeStatisticsEvaluator(StatisticsEvaluator eval) {
+        if (!evaluators.remove(eval)) {
+            return false;
+        }
+        bus.unsubscribe(eval);
+        return true;
+    }
+
+    /**
+     * Subscribes the given evaluator to this port's events without adding
+     * it to the port's evaluators, so it is not reported, encoded or
+     * recreated in forks of the port.
+     *
+     * @param observer evaluator to subscribe
+     */
+    void addObserver(StatisticsEvaluator observer) {
+        observers.add(observer);
+        subscribe(observer);
+    }
+
+    /* Subscribes a new evaluator to the bus, first telling it about the
+     * port's quays if it subscribes to quays being added */
+    private void subscribe(StatisticsEvaluator evaluator) {
+        if (evaluator.getSubscriptions().contains(PortEvent.QUAY_ADDED)) {
+            for (Quay quay : quays) {
+                evaluator.onQuayAdded(quay);
+            }
+        }
+        bus.subscribe(evaluator);
     }
 
     /**
@@ -207,12 +568,32 @@ public class Port implements Tickable, Encodable {
     }
 
     /**
-     * Returns the queue of movements waiting to be processed.
+     * Returns the queue of movements waiting to be processed, ordered by the
+     * time of the movement.
+     * <p>
+     * Adding or removing elements from the returned queue should not affect
+     * the movements scheduled at this port.
      *
      * @return movements queue.
      *
      */
     public PriorityQueue<Movement> getMovements() {
+        PriorityQueue<Movement> result = new PriorityQueue<>(
+                Math.max(1, movements.size()),
+                Comparator.comparingLong(Movement::getTime));
+        for (Movement movement : movements) {
+            result.add(movement);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the movements waiting to be processed, in the order they will
+     * be processed.
+     *
+     * @return scheduled movements, not copied
+     */
+    MovementSchedule getMovementSchedule() {
         return movements;
     }
 
@@ -223,9 +604,107 @@ public class Port implements Tickable, Encodable {
      *
      */
     public List<StatisticsEvaluator> getEvaluators() {
+        bus.sync();
         return evaluators;
     }
 
+    /**
+     * Sets the number of background threads this port's statistics
+     * evaluators run on.
+     * <p>
+     * With no threads, the default, evaluators are called as part of each
+     * movement and tick. With one or more threads, evaluators that
+     * {@link StatisticsEvaluator#canRunConcurrently() can run concurrently}
+     * are called on the threads, each always on the same thread, and the
+     * port only publishes each event into a bounded queue per thread. Other
+     * evaluators are still called as part of each movement and tick.
+     * {@link #getEvaluators()} and {@link #syncEvaluators()} wait for the
+     * threads to catch up, so evaluator results read through them are
+     * consistent with the current time of the port.
+     * <p>
+     * Events are delivered to the evaluators in the same order either way.
+     * Any threads the port already had are stopped, after delivering the
+     * events published to them, before the new ones start. A port with
+     * evaluator threads should be {@link #close() closed} once it is no
+     * longer needed.
+     *
+     * @param threads number of evaluator threads, or 0 to run evaluators on
+     *                the simulation thread
+     * @throws IllegalArgumentException if threads &lt; 0
+     * @throws IllegalStateException if an evaluator threw an exception on
+     * one of the threads being stopped
+     */
+    public void setEvaluatorThreads(int threads)
+            throws IllegalArgumentException, IllegalStateException {
+        if (threads < 0) {
+            throw new IllegalArgumentException("Number of evaluator threads"
+                    + " must not be negative: " + threads);
+        }
+        try {
+            bus.close();
+        } finally {
+            bus = threads == 0 ? new EvaluatorBus()
+                    : new EvaluatorPipeline(threads, EVALUATOR_RING_SIZE);
+            for (StatisticsEvaluator evaluator : evaluators) {
+                bus.subscribe(evaluator);
+            }
+            for (StatisticsEvaluator observer : observers) {
+                bus.subscribe(observer);
+            }
+        }
+    }
+
+    /**
+     * Stops this port's evaluator threads, after delivering every event
+     * published to them. Does nothing if evaluators are called on the
+     * simulation thread.
+     * <p>
+     * The port can still be used after it is closed, with its evaluators
+     * called on the simulation thread, as if
+     * {@code setEvaluatorThreads(0)} had been called.
+     *
+     * @throws IllegalStateException if an evaluator threw an exception on
+     * a background thread
+     */
+    @Override
+    public void close() throws IllegalStateException {
+        setEvaluatorThreads(0);
+    }
+
+    /**
+     * Returns the number of background threads this port's statistics
+     * evaluators run on.
+     *
+     * @return number of evaluator threads, 0 if evaluators are called on
+     * the simulation thread
+     */
+    public int getEvaluatorThreads() {
+        return bus instanceof EvaluatorPipeline
+                ? ((EvaluatorPipeline) bus).getThreads() : 0;
+    }
+
+    /**
+     * Waits until the statistics evaluators have received every event so
+     * far, so their results are consistent with the current time of the
+     * port. Returns straight away unless evaluators run on background
+     * threads.
+     *
+     * @throws IllegalStateException if an evaluator threw an exception on
+     * a background thread
+     */
+    public void syncEvaluators() throws IllegalStateException {
+        bus.sync();
+    }
+
+
+    /**
+     * Returns the simulation context whose ships and cargo this port manages.
+     *
+     * @return port's simulation context
+     */
+    public SimulationContext getContext() {
+        return context;
+    }
 
     /**
      * Returns the name of this port.
@@ -261,7 +740,24 @@ public class Port implements Tickable, Encodable {
      * @ass1
      */
     public List<Cargo> getCargo() {
-        return new ArrayList<>(this.storedCargo);
+        List<Cargo> result = new ArrayList<>(storedCargo.size());
+        for (Cargo cargo : storedCargo) {
+            result.add(cargo);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the warehouse holding the cargo stored at this port.
+     * <p>
+     * Unlike {@link #getCargo()}, the warehouse is not copied, so this is the
+     * cheap way to count or iterate over stored cargo. It should not be
+     * modified directly.
+     *
+     * @return port warehouse
+     */
+    public Warehouse getWarehouse() {
+        return storedCargo;
     }
 
     /**
@@ -272,85 +768,147 @@ public class Port implements Tickable, Encodable {
      */
     public void addQuay(Quay quay) {
         this.quays.add(quay);
+        dockedShips.track(quay);
+        berths.track(quay);
+        loadedQuays.track(quay);
+        for (QuayListener listener : quayListeners) {
+            quay.addListener(listener);
+            listener.quayAdded(quay);
+        }
     }
 
-    @Override
-    public String encode() {
-        String sep = System.getProperty("line.separator");
-        StringBuilder result = new StringBuilder();
-        final Map<Integer, Cargo> cargoRegistry = Cargo.getCargoRegistry();
-        final Map<Long, Ship> shipRegistry = Ship.getShipRegistry();
-        final List<Ship> shipQueue = queue.getShipQueue();
+    /**
+     * Registers a listener to be told whenever a ship docks at or leaves
+     * any quay of this port, including quays added later.
+     * <p>
+     * {@link QuayListener#quayAdded(Quay)} is called straight away for each
+     * current quay, and for each quay added afterwards.
+     *
+     * @param listener listener to add
+     */
+    public void addQuayListener(QuayListener listener) {
+        quayListeners.add(listener);
+        for (Quay quay : quays) {
+            quay.addListener(listener);
+            listener.quayAdded(quay);
+        }
+    }
 
-        result.append(name);
-        result.append(sep);
-        result.append(time);
-        result.append(sep);
-        result.append(cargoRegistry.size());
-        result.append(sep);
+    /**
+     * Returns the rule used to choose which empty quay a ship docks at.
+     *
+     * @return docking policy of this port
+     */
+    public DockingPolicy getDockingPolicy() {
+        return dockingPolicy;
+    }
 
-        for (Map.Entry<Integer, Cargo> entry : cargoRegistry.entrySet()) {
-            result.append(entry.getValue().encode());
-            result.append(sep);
+    /**
+     * Sets the rule used to choose which empty quay a ship docks at.
+     * <p>
+     * Ports use {@link DockingPolicy#FIRST_FIT} unless told otherwise.
+     *
+     * @param dockingPolicy docking policy to use from now on
+     */
+    public void setDockingPolicy(DockingPolicy dockingPolicy) {
+        this.dockingPolicy = dockingPolicy;
+        if (journal != null) {
+            journal.dockingPolicySet(dockingPolicy);
         }
+    }
 
-        result.append(shipRegistry.size());
-        result.append(sep);
+    @Override
+    public String encode() {
+        return Encodable.encodeToString(this);
+    }
 
-        for (Map.Entry<Long, Ship> entry : shipRegistry.entrySet()) {
-            result.append(entry.getValue().encode());
-            result.append(sep);
-        }
+    /**
+     * Writes the encoding of this port to the given destination one section
+     * at a time, without building the whole encoding in memory.
+     * <p>
+     * The characters written are exactly those returned by {@link #encode()}.
+     *
+     * @param out destination to write the encoding to
+     * @throws IOException if an IOException occurs when writing to out
+     */
+    @Override
+    public void encodeTo(Appendable out) throws IOException {
+        String sep = System.getProperty("line.separator");
+        final Map<Integer, Cargo> cargoRegistry = context.getCargoRegistry();
+        final Map<Long, Ship> shipRegistry = context.getShipRegistry();
 
-        result.append(quays.size());
-        result.append(sep);
+        out.append(name).append(sep);
+        out.append(Long.toString(time)).append(sep);
 
-        for (Quay quay : quays) {
-            result.append(quay.encode());
-            result.append(sep);
+        out.append(Integer.toString(cargoRegistry.size())).append(sep);
+        for (Cargo cargo : cargoRegistry.values()) {
+            cargo.encodeTo(out);
+            out.append(sep);
         }
 
-        result.append("ShipQueue:").append(shipQueue.size()).append(":");
-        for (int i = 0; i < shipQueue.size(); i++) {
-            result.append(shipQueue.get(i).getImoNumber());
-
-            if (i < shipQueue.size() - 1) {
-                result.append(",");
-            }
+        out.append(Integer.toString(shipRegistry.size())).append(sep);
+        for (Ship ship : shipRegistry.values()) {
+            currentShip(ship).encodeTo(out);
+            out.append(sep);
+        }
 
+        out.append(Integer.toString(quays.size())).append(sep);
+        for (Quay quay : quays) {
+            quay.encodeTo(out);
+            out.append(sep);
         }
-        result.append(sep);
 
-        result.append("StoredCargo:").append(storedCargo.size()).append(":");
-        for (int i = 0; i < storedCargo.size(); i++) {
-            result.append(storedCargo.get(i).getId());
+        queue.encodeTo(out);
+        out.append(sep);
 
-            if (i < storedCargo.size() - 1) {
-                result.append(",");
+        out.append("StoredCargo:").append(Integer.toString(storedCargo.size()))
+                .append(':');
+        boolean first = true;
+        for (Cargo cargo : storedCargo) {
+            if (!first) {
+                out.append(',');
             }
+            out.append(Integer.toString(cargo.getId()));
+            first = false;
         }
-        result.append(sep);
-
-        result.append("Movements:").append(movements.size());
-        result.append(sep);
+        out.append(sep);
 
+        out.append("Movements:").append(Integer.toString(movements.size()))
+                .append(sep);
         for (Movement movement : movements) {
-            result.append(movement.encode());
-            result.append(sep);
+            movement.encodeTo(out);
+            out.append(sep);
         }
 
-        result.append("Evaluators:").append(evaluators.size()).append(":");
-
+        out.append("Evaluators:").append(Integer.toString(evaluators.size()))
+                .append(':');
         for (int i = 0; i < evaluators.size(); i++) {
-            result.append(evaluators.get(i).getClass().getSimpleName());
-
-            if (i < evaluators.size() - 1) {
-                result.append(",");
+            if (i > 0) {
+                out.append(',');
             }
+            out.append(evaluators.get(i).getClass().getSimpleName());
         }
+    }
 
-
-        return result.toString();
+    /**
+     * Saves this port to the file at the given path, replacing any existing
+     * contents.
+     * <p>
+     * The encoding is streamed through a buffered writer on a file channel,
+     * so only a small buffer is held in memory regardless of the size of
+     * the port.
+     *
+     * @param path file to save the port to
+     * @throws IOException if an IOException occurs when writing the file
+     */
+    public void save(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             Writer writer = new BufferedWriter(Channels.newWriter(channel,
+                     StandardCharsets.UTF_8), SAVE_BUFFER_SIZE)) {
+            encodeTo(writer);
+        }
     }
 
     /**
@@ -367,246 +925,139 @@ public class Port implements Tickable, Encodable {
      */
     public static Port initialisePort(Reader reader)
             throws IOException, BadEncodingException {
-        BufferedReader bufferedReader = new BufferedReader(reader);
-
-        final String name = bufferedReader.readLine();
-        final long time = checkLong(bufferedReader.readLine());
-
-        int numCargo = stringToInt(bufferedReader.readLine());
-        for (int i = 0; i < numCargo; i++) {
-            String encodedCargo = bufferedReader.readLine();
-            Cargo.fromString(encodedCargo);
-        }
-        if (Cargo.getCargoRegistry().size() != numCargo) {
-            throw new BadEncodingException();
-        }
-
-        int numShips = stringToInt(bufferedReader.readLine());
-        for (int i = 0; i < numShips; i++) {
-            String encodedShip = bufferedReader.readLine();
-            Ship.fromString(encodedShip);
-        }
-        if (Ship.getShipRegistry().size() != numShips) {
-            throw new BadEncodingException();
-        }
-
-        int numQuays = stringToInt(bufferedReader.readLine());
-        List<Quay> quays = new ArrayList<>();
-        for (int i = 0; i < numQuays; i++) {
-            String encodedQuay = bufferedReader.readLine();
-            quays.add(Quay.fromString(encodedQuay));
-        }
-        if (quays.size() != numQuays) {
-            throw new BadEncodingException();
-        }
-
-        String shipQueue = bufferedReader.readLine();
-        String[] queueInfo = shipQueue.split(":", -1);
-        ShipQueue queue = new ShipQueue();
-        processQueue(queueInfo, queue);
+        return initialisePort(SimulationContext.getDefault(), reader);
+    }
 
-        String storedCargo = bufferedReader.readLine();
-        String[] storageInfo = storedCargo.split(":", -1);
-        List<Cargo> cargos = new ArrayList<>();
-        processCargo(storageInfo, cargos);
+    /**
+     * Creates a port instance by reading various ship, quay, cargo, movement
+     * and evaluator entities from the given reader. All ships and cargo read
+     * are registered with the given simulation context.
+     *
+     * @param context - simulation to load the port into
+     * @param reader - reader from which to load all info
+     *
+     * @return port created by reading from given reader
+     *
+     * @throws IOException - if an IOException
+     *                      is encountered when reading from the reader
+     * @throws BadEncodingException - if the encoding is invalid, reporting
+     *                      the line at which decoding failed
+     */
+    public static Port initialisePort(SimulationContext context, Reader reader)
+            throws IOException, BadEncodingException {
+        return new PortDecoder(context, reader).decode();
+    }
 
-        String movements = bufferedReader.readLine();
-        String[] movementInfo = movements.split(":");
-        if (movementInfo.length != 2 || !movementInfo[0].equals("Movements")) {
-            throw new BadEncodingException();
-        }
+    @Override
+    public void elapseOneMinute() {
+        time++;
 
-        int numMovements = stringToInt(movementInfo[1]);
-        List<Movement> storedMovements = new ArrayList<>();
-        for (int i = 0; i < numMovements; i++) {
-            String encodedMovement = bufferedReader.readLine();
-            String [] encodedMovements = encodedMovement.split(":");
-            if (encodedMovements[0].equals("ShipMovement")) {
-                storedMovements.add(ShipMovement.fromString(encodedMovement));
-            } else if (encodedMovements[0].equals("CargoMovement")) {
-                storedMovements.add(CargoMovement.fromString(encodedMovement));
-            } else {
-                throw new BadEncodingException();
+        if (time % 10 == 0 && !queue.isEmpty()) {
+            Ship ship = currentShip(queue.poll());
+            Quay quay = berths.find(ship, dockingPolicy);
+            if (quay != null) {
+                quay.shipArrives(ship);
             }
         }
 
-        if (storedMovements.size() != numMovements) {
-            throw new BadEncodingException();
-        }
-
-        String evaluators = bufferedReader.readLine();
-        String [] evaluatorInfo = evaluators.split(":", -1);
-        if (evaluatorInfo.length != 3 || !evaluatorInfo[0].equals("Evaluators")) {
-            throw new BadEncodingException();
-        }
-        int numEvaluators = stringToInt(evaluatorInfo[1]);
-
-        String [] encodedEvaluators;
-        if (evaluatorInfo[2].equals("")) {
-            encodedEvaluators = ",".split(",");
-        } else {
-            encodedEvaluators = evaluatorInfo[2].split(",");
-        }
-
-        if (encodedEvaluators.length != numEvaluators) {
-            throw new BadEncodingException();
-        }
-
-        Port result = new Port(name, time, queue, quays, cargos);
-        for (Movement movement : storedMovements) {
-            result.addMovement(movement);
-        }
-
-        List<String> evaluatorClasses
-                = new ArrayList<>(Arrays.asList("CargoDecompositionEvaluator",
-                "QuayOccupancyEvaluator",
-                "ShipFlagEvaluator",
-                "ShipThroughputEvaluator"));
-        for (String encodedEvaluator : encodedEvaluators) {
-            if (encodedEvaluator.equals(evaluatorClasses.get(0))) {
-                result.addStatisticsEvaluator(new CargoDecompositionEvaluator());
-            } else if (encodedEvaluator.equals(evaluatorClasses.get(1))) {
-                result.addStatisticsEvaluator(new QuayOccupancyEvaluator(result));
-            } else if (encodedEvaluator.equals(evaluatorClasses.get(2))) {
-                result.addStatisticsEvaluator(new ShipFlagEvaluator());
-            } else if (encodedEvaluator.equals(evaluatorClasses.get(3))) {
-                result.addStatisticsEvaluator(new ShipThroughputEvaluator());
-            } else {
-                throw new BadEncodingException();
+        if (time % 5 == 0) {
+            for (int i = loadedQuays.next(0); i >= 0; i = loadedQuays.next(i + 1)) {
+                Quay quay = loadedQuays.get(i);
+                Ship ship = ownShip(quay.getShip());
+
+                if (ship instanceof BulkCarrier) {
+                    BulkCargo cargo = ((BulkCarrier) ship).pollCargo();
+                    if (cargo != null) {
+                        storedCargo.add(cargo);
+                        if (bus.hasSubscribers(PortEvent.UNLOAD)) {
+                            bus.unloaded(quay, ship,
+                                    Collections.singletonList(cargo));
+                        }
+                    }
+                } else if (ship instanceof ContainerShip) {
+                    List<Container> containers
+                            = ((ContainerShip) ship).pollCargo();
+                    for (Cargo cargo : containers) {
+                        storedCargo.add(cargo);
+                    }
+                    if (!containers.isEmpty()
+                            && bus.hasSubscribers(PortEvent.UNLOAD)) {
+                        bus.unloaded(quay, ship, containers);
+                    }
+                }
+                loadedQuays.unloaded(i);
             }
         }
 
-        return result;
-    }
-
-    private static void processCargo(String[] storageInfo, List<Cargo> cargos)
-            throws BadEncodingException {
-        if (!storageInfo[0].equals("StoredCargo") || storageInfo.length != 3) {
-            throw new BadEncodingException();
-        }
-
-        int numCargoStored = stringToInt(storageInfo[1]);
-
-        String[] cargoIds;
-        if (storageInfo[2].equals("")) {
-            cargoIds = ",".split(",");
-        } else {
-            cargoIds = storageInfo[2].split(",");
+        for (Movement movement : movements.pollDue(this.time)) {
+            process(movement);
         }
 
-        if (cargoIds.length != numCargoStored) {
-            throw new BadEncodingException();
+        bus.tick();
+        if (journal != null) {
+            journal.ticked(time);
         }
 
-        for (String cargoId : cargoIds) {
-            int decodedCargoId = stringToInt(cargoId);
-            try {
-                cargos.add(Cargo.getCargoById(decodedCargoId));
-            } catch (NoSuchCargoException e) {
-                throw new BadEncodingException();
-            }
-        }
     }
 
-    private static void processQueue(String[] queueInfo, ShipQueue queue)
-            throws BadEncodingException {
-        if (!queueInfo[0].equals("ShipQueue") || queueInfo.length != 3) {
-            throw new BadEncodingException();
-        }
-
-        int shipsInQueue = stringToInt(queueInfo[1]);
-        String[] imoInQueue;
-        if (queueInfo[2].equals("")) {
-            imoInQueue = ",".split(",");
-        } else {
-            imoInQueue = queueInfo[2].split(",");
-        }
-
-        if (imoInQueue.length != shipsInQueue) {
-            throw new BadEncodingException();
+    /**
+     * Advances the simulation until the given time has been reached.
+     * <p>
+     * Rather than elapsing every minute in turn, the port jumps directly to
+     * the next minute where something can happen: a movement is due, a
+     * docking round takes place while ships are waiting in the queue, or an
+     * unloading round takes place while a ship is docked at a quay. The
+     * minutes skipped in between are delivered to each statistics evaluator
+     * in aggregate via {@link StatisticsEvaluator#elapseMinutes(long)}.
+     * <p>
+     * The resulting state is the same as calling {@link #elapseOneMinute()}
+     * once for every minute up to the given time.
+     *
+     * @param targetTime - the time to advance the simulation to
+     *
+     * @throws IllegalArgumentException if targetTime is less than the
+     * current number of minutes elapsed
+     */
+    public void advanceTo(long targetTime) throws IllegalArgumentException {
+        if (targetTime < this.time) {
+            throw new IllegalArgumentException("Cannot advance to a time in"
+                    + " the past: " + targetTime);
         }
 
-        for (String shipImo : imoInQueue) {
-            long decodedImo = checkLong(shipImo);
-            try {
-                queue.add(Ship.getShipByImoNumber(decodedImo));
-            } catch (NoSuchShipException e) {
-                throw new BadEncodingException();
+        while (this.time < targetTime) {
+            long idle = nextEventTime(targetTime) - this.time - 1;
+            if (idle > 0) {
+                this.time += idle;
+                bus.tick(idle);
             }
+            elapseOneMinute();
         }
     }
 
-    private static long checkLong(String s) throws BadEncodingException {
-        try {
-            return Long.parseLong(s);
-
-        } catch (NumberFormatException e) {
-            throw new BadEncodingException();
-        }
-    }
-
-    private static int stringToInt(String i) throws BadEncodingException {
-        try {
-            return Integer.parseInt(i);
-        } catch (NumberFormatException e) {
-            throw new BadEncodingException();
-        }
-    }
-
-    @Override
-    public void elapseOneMinute() {
-        time++;
-
-        if (time % 10 == 0) {
-            Ship ship = queue.poll();
-            for (Quay quay : getQuays()) {
-                if (ship.canDock(quay) && quay.isEmpty()) {
-                    quay.shipArrives(ship);
-                    break;
-                }
-            }
-        }
-
-        if (time % 5 == 0) {
-            for (Quay quay : quays) {
-                if (!quay.isEmpty()) {
-                    Ship ship = quay.getShip();
-
-                    if (ship instanceof BulkCarrier) {
-                        BulkCarrier bulkCarrier = (BulkCarrier) ship;
-                        try {
-                            storedCargo.add(bulkCarrier.unloadCargo());
-                        } catch (NoSuchCargoException e) {
-                            // Do Nothing
-                            ;
-                        }
-                    } else { // ship is a ContainerSHip
-                        ContainerShip containerShip = (ContainerShip) ship;
-                        try {
-                            storedCargo.addAll(containerShip.unloadCargo());
-                        } catch (NoSuchCargoException e) {
-                            //Do Nothing
-                            ;
-                        }
-                    }
+    /**
+     * Returns the next minute after the current time at which a tick could
+     * change the state of the port, capped at the given limit.
+     *
+     * @param limit - the latest time to consider
+     *
+     * @return time of the next event, or limit if nothing happens before it
+     */
+    private long nextEventTime(long limit) {
+        long next = limit;
 
-                }
-            }
+        long movementTime = movements.firstTime();
+        if (movementTime >= 0) {
+            next = Math.min(next, Math.max(movementTime, this.time + 1));
         }
 
-        PriorityQueue<Movement> movementsCopy
-                = new PriorityQueue<>(movements);
-
-        while (!movementsCopy.isEmpty()) {
-            Movement movement = movementsCopy.poll();
-            if (movement != null && movement.getTime() == this.time) {
-                processMovement(movement);
-            }
+        if (!queue.isEmpty()) {
+            next = Math.min(next, (this.time / 10 + 1) * 10);
         }
 
-        for (StatisticsEvaluator evaluator : evaluators) {
-            evaluator.elapseOneMinute();
+        if (loadedQuays.next(0) >= 0) {
+            next = Math.min(next, (this.time / 5 + 1) * 5);
         }
 
+        return next;
     }
 }
@@ -0,0 +1,280 @@
+package portsim.port;
+
+import portsim.cargo.Cargo;
+import portsim.evaluators.CargoDecompositionEvaluator;
+import portsim.evaluators.QuayOccupancyEvaluator;
+import portsim.evaluators.QueueWaitEvaluator;
+import portsim.evaluators.ShipFlagEvaluator;
+import portsim.evaluators.ShipThroughputEvaluator;
+import portsim.evaluators.StatisticsEvaluator;
+import portsim.movement.CargoMovement;
+import portsim.movement.ShipMovement;
+import portsim.ship.Ship;
+import portsim.util.BadEncodingException;
+import portsim.util.IntObjectMap;
+import portsim.util.NoSuchCargoException;
+import portsim.util.NoSuchShipException;
+import portsim.util.SimulationContext;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a port from the save format written by {@link Port#encode()} in a
+ * single pass over the input.
+ * <p>
+ * Each line is decoded as soon as it is read, with ships, cargo and quays
+ * looked up directly in the registries of the simulation context. The
+ * ship queue, stored cargo and evaluator lists are scanned in place rather
+ * than split into intermediate arrays.
+ * <p>
+ * Any {@link BadEncodingException} thrown reports the number of the line at
+ * which decoding failed.
+ */
+class PortDecoder {
+    /**
+     * Simulation that decoded ships and cargo are registered with
+     */
+    private final SimulationContext context;
+
+    /**
+     * Source of the encoded port
+     */
+    private final BufferedReader reader;
+
+    /**
+     * Number of the line most recently read, starting from 1
+     */
+    private int lineNumber;
+
+    /**
+     * Creates a decoder reading from the given reader into the given
+     * simulation context.
+     *
+     * @param context - simulation to load the port into
+     * @param reader - reader from which to load the port
+     */
+    PortDecoder(SimulationContext context, Reader reader) {
+        this.context = context;
+        this.reader = reader instanceof BufferedReader
+                ? (BufferedReader) reader : new BufferedReader(reader);
+        this.lineNumber = 0;
+    }
+
+    /**
+     * Reads a whole port from the reader.
+     *
+     * @return decoded port
+     * @throws IOException if an IOException is encountered when reading
+     * @throws BadEncodingException if the encoding is invalid, with the
+     * offending line number in its message
+     */
+    Port decode() throws IOException, BadEncodingException {
+        try {
+            return decodePort();
+        } catch (BadEncodingException | IllegalArgumentException e) {
+            String reason = e.getMessage() == null
+                    ? "invalid encoding" : e.getMessage();
+            throw new BadEncodingException("Line " + lineNumber + ": "
+                    + reason, e);
+        }
+    }
+
+    private Port decodePort() throws IOException, BadEncodingException {
+        final String name = nextLine();
+        final long time = parseLong(nextLine(), 0, -1);
+
+        int numCargo = parseCount(nextLine());
+        int cargoBefore = context.getCargoCount();
+        for (int i = 0; i < numCargo; i++) {
+            Cargo.fromString(context, nextLine());
+        }
+        if (context.getCargoCount() - cargoBefore != numCargo) {
+            throw new BadEncodingException("expected " + numCargo + " cargo");
+        }
+
+        int numShips = parseCount(nextLine());
+        int shipsBefore = context.getShipCount();
+        for (int i = 0; i < numShips; i++) {
+            Ship.fromString(context, nextLine());
+        }
+        if (context.getShipCount() - shipsBefore != numShips) {
+            throw new BadEncodingException("expected " + numShips + " ships");
+        }
+
+        int numQuays = parseCount(nextLine());
+        List<Quay> quays = new ArrayList<>(numQuays);
+        for (int i = 0; i < numQuays; i++) {
+            quays.add(Quay.fromString(context, nextLine()));
+        }
+
+        ShipQueue queue = new ShipQueue();
+        String line = nextLine();
+        int count = 0;
+        for (int start = listStart(line, "ShipQueue"); start < line.length();
+                start = nextItem(line, start) + 1) {
+            long imo = parseLong(line, start, nextItem(line, start));
+            try {
+                queue.add(context.getShipByImoNumber(imo));
+            } catch (NoSuchShipException e) {
+                throw new BadEncodingException("unknown ship " + imo, e);
+            }
+            count++;
+        }
+        checkListCount(line, count);
+
+        List<Cargo> storedCargo = new ArrayList<>();
+        IntObjectMap<Cargo> storedById = new IntObjectMap<>();
+        line = nextLine();
+        for (int start = listStart(line, "StoredCargo"); start < line.length();
+                start = nextItem(line, start) + 1) {
+            long id = parseLong(line, start, nextItem(line, start));
+            if (id > Integer.MAX_VALUE) {
+                throw new BadEncodingException("cargo id out of range: " + id);
+            }
+            Cargo cargo;
+            try {
+                cargo = context.getCargoById((int) id);
+            } catch (NoSuchCargoException e) {
+                throw new BadEncodingException("unknown cargo " + id, e);
+            }
+            if (storedById.put((int) id, cargo) != null) {
+                throw new BadEncodingException("duplicate stored cargo " + id);
+            }
+            storedCargo.add(cargo);
+        }
+        checkListCount(line, storedCargo.size());
+
+        Port port = new Port(context, name, time, queue, quays, storedCargo);
+
+        line = nextLine();
+        if (!line.startsWith("Movements:")) {
+            throw new BadEncodingException("expected Movements section");
+        }
+        int numMovements = parseCount(line.substring("Movements:".length()));
+        for (int i = 0; i < numMovements; i++) {
+            line = nextLine();
+            if (line.startsWith("ShipMovement:")) {
+                port.addMovement(ShipMovement.fromString(context, line));
+            } else if (line.startsWith("CargoMovement:")) {
+                port.addMovement(CargoMovement.fromString(context, line));
+            } else {
+                throw new BadEncodingException("unknown movement type");
+            }
+        }
+
+        line = nextLine();
+        count = 0;
+        for (int start = listStart(line, "Evaluators"); start < line.length();
+                start = nextItem(line, start) + 1) {
+            String evaluator = line.substring(start, nextItem(line, start));
+            port.addStatisticsEvaluator(createEvaluator(evaluator));
+            count++;
+        }
+        checkListCount(line, count);
+
+        return port;
+    }
+
+    /**
+     * Creates a new evaluator from its simple class name.
+     *
+     * @param name - simple class name of the evaluator
+     * @return new evaluator instance
+     * @throws BadEncodingException if the name is not a known evaluator
+     */
+    static StatisticsEvaluator createEvaluator(String name)
+            throws BadEncodingException {
+        switch (name) {
+            case "CargoDecompositionEvaluator":
+                return new CargoDecompositionEvaluator();
+            case "QuayOccupancyEvaluator":
+                return new QuayOccupancyEvaluator();
+            case "QueueWaitEvaluator":
+                return new QueueWaitEvaluator();
+            case "ShipFlagEvaluator":
+                return new ShipFlagEvaluator();
+            case "ShipThroughputEvaluator":
+                return new ShipThroughputEvaluator();
+            default:
+                throw new BadEncodingException("unknown evaluator " + name);
+        }
+    }
+
+    private String nextLine() throws IOException, BadEncodingException {
+        String line = reader.readLine();
+        lineNumber++;
+        if (line == null) {
+            throw new BadEncodingException("unexpected end of input");
+        }
+        return line;
+    }
+
+    /*
+     * Checks a line has the form "label:count:items" and returns the index
+     * of the first item.
+     */
+    private static int listStart(String line, String label)
+            throws BadEncodingException {
+        int countEnd = line.indexOf(':', label.length() + 1);
+        if (!line.startsWith(label + ":") || countEnd < 0
+                || line.indexOf(':', countEnd + 1) >= 0) {
+            throw new BadEncodingException("expected " + label + " section");
+        }
+        parseLong(line, label.length() + 1, countEnd);
+        return countEnd + 1;
+    }
+
+    /* Checks the count in a "label:count:items" line matches the items read */
+    private static void checkListCount(String line, int count)
+            throws BadEncodingException {
+        int countStart = line.indexOf(':') + 1;
+        long expected = parseLong(line, countStart, line.indexOf(':', countStart));
+        if (expected != count) {
+            throw new BadEncodingException("expected " + expected
+                    + " items but found " + count);
+        }
+    }
+
+    /* Returns the end index of the comma separated item starting at start */
+    private static int nextItem(String line, int start) {
+        int end = line.indexOf(',', start);
+        return end < 0 ? line.length() : end;
+    }
+
+    private static int parseCount(String s) throws BadEncodingException {
+        long count = parseLong(s, 0, -1);
+        if (count > Integer.MAX_VALUE) {
+            throw new BadEncodingException("count out of range: " + s);
+        }
+        return (int) count;
+    }
+
+    /*
+     * Parses a non-negative decimal number from s[start, end) without
+     * creating a substring. An end of -1 means the end of the string.
+     */
+    private static long parseLong(String s, int start, int end)
+            throws BadEncodingException {
+        if (end < 0) {
+            end = s.length();
+        }
+        if (start >= end || end - start > 18) {
+            throw new BadEncodingException("invalid number: "
+                    + s.substring(Math.min(start, end), end));
+        }
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new BadEncodingException("invalid number: "
+                        + s.substring(start, end));
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+}
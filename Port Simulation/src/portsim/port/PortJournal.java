@@ -0,0 +1,629 @@
+package portsim.port;
+
+import portsim.cargo.Cargo;
+import portsim.movement.CargoMovement;
+import portsim.movement.Movement;
+import portsim.movement.ShipMovement;
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.Ship;
+import portsim.util.BadEncodingException;
+import portsim.util.SimulationContext;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only write-ahead journal of the changes made to a port since
+ * its last snapshot, from which the port can be recovered after a crash.
+ * <p>
+ * The journal records every movement added with
+ * {@link Port#addMovement(Movement)}, every movement processed directly
+ * with {@link Port#processMovement(Movement)}, every change of
+ * {@link Port#setDockingPolicy(DockingPolicy) docking policy}, and the time
+ * reached at the end of every tick. Movements processed by a tick are not
+ * recorded separately, since replaying the tick processes them again. A
+ * movement added or processed for a ship or cargo the snapshot may not
+ * contain is recorded with the encodings of that ship and cargo.
+ * <p>
+ * Replaying a run of ticks with nothing else between them gives the same
+ * port as advancing straight to the last of them, so a tick only stores its
+ * time, and a tick record is written only for the latest tick before each
+ * other record and each commit. Ticks still count towards the number of
+ * records that triggers a commit.
+ * <p>
+ * Records are appended to an in-memory buffer and written to the journal
+ * file in batches with a group commit: once a given number of records are
+ * waiting, or a given number of milliseconds after the last commit, the
+ * buffer is written to the file and the file is forced to the storage
+ * device on a background thread, so the simulation does not wait for the
+ * device. Records not yet committed when the process dies are lost.
+ * <p>
+ * {@link #checkpoint()} writes a new {@link PortSnapshot} and starts the
+ * journal again, so the journal only holds the changes since the snapshot.
+ * {@link #recover(SimulationContext, Path, Path)} loads the snapshot and
+ * replays the journal. Each journal records the length and checksum of the
+ * snapshot it follows, so a journal left behind by a crash during a
+ * checkpoint is recognised and ignored, and each record carries a checksum
+ * so a partly written record at the end of the journal is ignored.
+ */
+public class PortJournal implements Closeable {
+    private static final int MAGIC = 0x504A524E;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+
+    /* Length and checksum in front of each record */
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    /* Kinds of record */
+    private static final byte TICK = 0;
+    private static final byte ADD = 1;
+    private static final byte PROCESS = 2;
+    private static final byte POLICY = 3;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Records written before a commit, unless set otherwise
+     */
+    private static final int DEFAULT_GROUP_RECORDS = 8192;
+
+    /**
+     * Milliseconds between commits, unless set otherwise
+     */
+    private static final long DEFAULT_GROUP_MILLIS = 100;
+
+    private final Port port;
+    private final Path snapshot;
+    private final FileChannel channel;
+
+    /**
+     * Records waiting to be written to the file
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Payload of the record being appended
+     */
+    private ByteBuffer payload;
+
+    private final CRC32 crc;
+
+    /**
+     * Number of records in the buffer
+     */
+    private int pending;
+
+    /**
+     * Time reached by the latest tick, written by the simulation thread
+     */
+    private volatile long tickTime;
+
+    /**
+     * Time of the latest tick record in the journal
+     */
+    private long writtenTick;
+
+    /**
+     * Number of ticks since the simulation thread last committed, only
+     * used by the simulation thread
+     */
+    private int ticks;
+
+    private final int groupRecords;
+
+    /**
+     * Commits the journal periodically, and forces writes to the device
+     */
+    private final ScheduledExecutorService committer;
+
+    /**
+     * Whether a force has been requested and not started yet
+     */
+    private final AtomicBoolean forceRequested;
+
+    /**
+     * The first exception thrown while writing on the committer thread,
+     * rethrown to the simulation thread
+     */
+    private volatile IOException failure;
+
+    private boolean closed;
+
+    /**
+     * Starts journalling the given port, committing every 8192 records or
+     * 100 milliseconds.
+     * <p>
+     * A snapshot of the port is written to the given snapshot path and the
+     * journal file is started empty, replacing any existing files.
+     *
+     * @param port port to journal
+     * @param snapshot file to write snapshots of the port to
+     * @param journal file to write the journal to
+     * @throws IOException if an IOException occurs when writing the files
+     */
+    public PortJournal(Port port, Path snapshot, Path journal)
+            throws IOException {
+        this(port, snapshot, journal, DEFAULT_GROUP_RECORDS,
+                DEFAULT_GROUP_MILLIS);
+    }
+
+    /**
+     * Starts journalling the given port, committing every given number of
+     * records or milliseconds, whichever comes first.
+     * <p>
+     * A snapshot of the port is written to the given snapshot path and the
+     * journal file is started empty, replacing any existing files.
+     *
+     * @param port port to journal
+     * @param snapshot file to write snapshots of the port to
+     * @param journal file to write the journal to
+     * @param groupRecords number of records written before a commit
+     * @param groupMillis milliseconds between commits
+     * @throws IllegalArgumentException if groupRecords or groupMillis &lt; 1
+     * @throws IOException if an IOException occurs when writing the files
+     */
+    public PortJournal(Port port, Path snapshot, Path journal,
+                       int groupRecords, long groupMillis)
+            throws IllegalArgumentException, IOException {
+        if (groupRecords < 1 || groupMillis < 1) {
+            throw new IllegalArgumentException("Group commit needs at least"
+                    + " one record and one millisecond: " + groupRecords
+                    + ", " + groupMillis);
+        }
+        this.port = port;
+        this.snapshot = snapshot;
+        this.groupRecords = groupRecords;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.payload = ByteBuffer.allocate(256);
+        this.crc = new CRC32();
+        this.forceRequested = new AtomicBoolean();
+        this.tickTime = port.getTime();
+        this.writtenTick = tickTime;
+        this.channel = FileChannel.open(journal, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            restart(writeSnapshot());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.committer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "journal-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        committer.scheduleWithFixedDelay(this::commitInBackground,
+                groupMillis, groupMillis, TimeUnit.MILLISECONDS);
+        port.setJournal(this);
+    }
+
+    /**
+     * Writes a new snapshot of the port and starts the journal again, after
+     * committing the records so far.
+     * <p>
+     * If the process dies part way through, recovery uses either the old
+     * snapshot and the old journal, or the new snapshot alone.
+     *
+     * @throws IOException if an IOException occurs when writing the files
+     */
+    public synchronized void checkpoint() throws IOException {
+        checkOpen();
+        commit();
+        restart(writeSnapshot());
+    }
+
+    /**
+     * Writes all records appended so far to the journal file and waits
+     * until they have been forced to the storage device.
+     *
+     * @throws IOException if an IOException occurs when writing the file
+     */
+    public synchronized void commit() throws IOException {
+        checkOpen();
+        writeTick();
+        drain();
+        channel.force(false);
+    }
+
+    /**
+     * Commits the records appended so far and stops journalling the port.
+     *
+     * @throws IOException if an IOException occurs when writing the file
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            port.setJournal(null);
+        }
+        committer.shutdown();
+        try {
+            committer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                commit();
+            } finally {
+                closed = true;
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Loads the port from the given snapshot, including its docking
+     * policy, and replays the given journal onto it.
+     * <p>
+     * Replay stops at the first incomplete or damaged record, which was
+     * being written when the journal stopped. A journal written before the
+     * snapshot, or a missing journal, is not replayed. The port's statistics
+     * evaluators count from the snapshot.
+     *
+     * @param context simulation to load the port into
+     * @param snapshot file containing the port's last snapshot
+     * @param journal file containing the journal since the snapshot
+     * @return recovered port
+     * @throws IOException if an IOException occurs when reading the files
+     * @throws BadEncodingException if the snapshot is invalid, or a record
+     * in the journal cannot be applied to the port
+     */
+    public static Port recover(SimulationContext context, Path snapshot,
+                               Path journal)
+            throws IOException, BadEncodingException {
+        Port port = PortSnapshot.load(context, snapshot);
+        if (!Files.exists(journal)) {
+            return port;
+        }
+        ByteBuffer in;
+        try (FileChannel file = FileChannel.open(journal,
+                StandardOpenOption.READ)) {
+            in = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+        }
+        if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC
+                || in.getInt() != VERSION
+                || in.getLong() != Files.size(snapshot)
+                || in.getInt() != checksum(snapshot)) {
+            return port;
+        }
+
+        CRC32 crc = new CRC32();
+        while (in.remaining() >= RECORD_HEADER_SIZE) {
+            int length = in.getInt();
+            int expected = in.getInt();
+            if (length < 1 || length > in.remaining()) {
+                break;
+            }
+            ByteBuffer record = in.slice();
+            record.limit(length);
+            crc.reset();
+            crc.update(record.duplicate());
+            if ((int) crc.getValue() != expected) {
+                break;
+            }
+            in.position(in.position() + length);
+            replay(port, record);
+        }
+        return port;
+    }
+
+    /* Applies one record to a port being recovered */
+    private static void replay(Port port, ByteBuffer record)
+            throws BadEncodingException {
+        SimulationContext context = port.getContext();
+        byte type = record.get();
+        if (type == TICK) {
+            long time = record.getLong();
+            if (time > port.getTime()) {
+                port.advanceTo(time);
+            }
+            return;
+        }
+        if (type == POLICY) {
+            DockingPolicy[] policies = DockingPolicy.values();
+            int ordinal = record.get();
+            if (ordinal < 0 || ordinal >= policies.length) {
+                throw new BadEncodingException("Unknown docking policy: "
+                        + ordinal);
+            }
+            port.setDockingPolicy(policies[ordinal]);
+            return;
+        }
+        if (type != ADD && type != PROCESS) {
+            throw new BadEncodingException("Unknown journal record: " + type);
+        }
+
+        List<String> strings = new ArrayList<>();
+        int count = record.getInt();
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[record.getInt()];
+            record.get(bytes);
+            strings.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        // ships and cargo the movement needs, then the movement itself
+        for (String definition : strings.subList(0, count - 1)) {
+            String[] parts = definition.split(":", 3);
+            try {
+                if (parts[0].equals("BulkCarrier")
+                        || parts[0].equals("ContainerShip")) {
+                    if (!context.shipExists(Long.parseLong(parts[1]))) {
+                        Ship.fromString(context, definition);
+                    }
+                } else if (!context.cargoExists(Integer.parseInt(parts[1]))) {
+                    Cargo.fromString(context, definition);
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new BadEncodingException("Invalid journalled definition: "
+                        + definition, e);
+            }
+        }
+        String encoded = strings.get(count - 1);
+        Movement movement = encoded.startsWith("ShipMovement:")
+                ? ShipMovement.fromString(context, encoded)
+                : CargoMovement.fromString(context, encoded);
+        try {
+            if (type == ADD) {
+                port.addMovement(movement);
+            } else {
+                port.processMovement(movement);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new BadEncodingException("Journalled movement cannot be"
+                    + " replayed: " + encoded, e);
+        }
+    }
+
+    /* Called by the port after a movement is added */
+    void movementAdded(Movement movement) {
+        append(ADD, withDefinitions(movement));
+    }
+
+    /* Called by the port before a movement is processed directly */
+    void movementProcessed(Movement movement) {
+        append(PROCESS, withDefinitions(movement));
+    }
+
+    /* Called by the port when its docking policy is set */
+    void dockingPolicySet(DockingPolicy policy) {
+        synchronized (this) {
+            writeTick();
+            payload.clear();
+            payload.put(POLICY).put((byte) policy.ordinal());
+            append();
+        }
+    }
+
+    /* Returns the encodings of the ships and cargo the movement refers to,
+     * followed by the encoding of the movement itself */
+    private static List<String> withDefinitions(Movement movement) {
+        List<String> strings = new ArrayList<>();
+        if (movement instanceof ShipMovement) {
+            Ship ship = ((ShipMovement) movement).getShip();
+            if (ship instanceof ContainerShip) {
+                for (Cargo cargo : ((ContainerShip) ship).getCargo()) {
+                    strings.add(cargo.encode());
+                }
+            } else if (ship instanceof BulkCarrier
+                    && ((BulkCarrier) ship).getCargo() != null) {
+                strings.add(((BulkCarrier) ship).getCargo().encode());
+            }
+            strings.add(ship.encode());
+        } else if (movement instanceof CargoMovement) {
+            for (Cargo cargo : ((CargoMovement) movement).getCargo()) {
+                strings.add(cargo.encode());
+            }
+        }
+        strings.add(movement.encode());
+        return strings;
+    }
+
+    /* Called by the port at the end of each tick */
+    void ticked(long time) {
+        tickTime = time;
+        if (++ticks >= groupRecords) {
+            ticks = 0;
+            synchronized (this) {
+                try {
+                    writeTick();
+                    drain();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Journal write failed", e);
+                }
+            }
+            requestForce();
+        }
+    }
+
+    /* Appends a tick record for the latest tick, unless already written */
+    private void writeTick() {
+        long time = tickTime;
+        if (time > writtenTick) {
+            writtenTick = time;
+            payload.clear();
+            payload.put(TICK).putLong(time);
+            append();
+        }
+    }
+
+    private synchronized void append(byte type, List<String> strings) {
+        writeTick();
+        payload.clear();
+        payload.put(type);
+        reserve(4);
+        payload.putInt(strings.size());
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            reserve(4 + bytes.length);
+            payload.putInt(bytes.length).put(bytes);
+        }
+        append();
+    }
+
+    /* Grows the payload buffer to fit the given number of bytes more */
+    private void reserve(int bytes) {
+        if (payload.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(
+                    payload.capacity() * 2, payload.position() + bytes));
+            payload.flip();
+            grown.put(payload);
+            payload = grown;
+        }
+    }
+
+    /* Appends the record in the payload buffer, committing if enough
+     * records are waiting */
+    private void append() {
+        if (failure != null) {
+            throw new UncheckedIOException("Journal write failed", failure);
+        }
+        int length = payload.position();
+        crc.reset();
+        crc.update(payload.array(), 0, length);
+        try {
+            if (buffer.remaining() < RECORD_HEADER_SIZE + length) {
+                drain();
+            }
+            if (buffer.remaining() < RECORD_HEADER_SIZE + length) {
+                // larger than the whole buffer, so written on its own
+                ByteBuffer record = ByteBuffer.allocate(
+                        RECORD_HEADER_SIZE + length);
+                record.putInt(length).putInt((int) crc.getValue())
+                        .put(payload.array(), 0, length).flip();
+                write(record);
+            } else {
+                buffer.putInt(length).putInt((int) crc.getValue())
+                        .put(payload.array(), 0, length);
+                pending++;
+            }
+            if (pending >= groupRecords) {
+                drain();
+                requestForce();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Journal write failed", e);
+        }
+    }
+
+    /* Writes the buffered records to the file */
+    private void drain() throws IOException {
+        buffer.flip();
+        write(buffer);
+        buffer.clear();
+        pending = 0;
+    }
+
+    private void write(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private void requestForce() {
+        if (forceRequested.compareAndSet(false, true)) {
+            committer.execute(this::force);
+        }
+    }
+
+    private void force() {
+        forceRequested.set(false);
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    /* Periodic commit on the committer thread */
+    private void commitInBackground() {
+        synchronized (this) {
+            if (closed || (pending == 0 && tickTime <= writtenTick)) {
+                return;
+            }
+            try {
+                writeTick();
+                drain();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+                return;
+            } catch (UncheckedIOException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+                return;
+            }
+        }
+        force();
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Journal is closed");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /* Saves a snapshot of the port next to the snapshot path and moves it
+     * into place once it is on the device, returning its checksum */
+    private int writeSnapshot() throws IOException {
+        Path temporary = snapshot.resolveSibling(snapshot.getFileName()
+                + ".tmp");
+        PortSnapshot.save(port, temporary);
+        try (FileChannel file = FileChannel.open(temporary,
+                StandardOpenOption.WRITE)) {
+            file.force(true);
+        }
+        int checksum = checksum(temporary);
+        Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        return checksum;
+    }
+
+    /* Empties the journal file and writes the header for the snapshot with
+     * the given checksum */
+    private void restart(int checksum) throws IOException {
+        buffer.clear();
+        pending = 0;
+        writtenTick = tickTime;
+        channel.truncate(0);
+        channel.position(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(Files.size(snapshot))
+                .putInt(checksum).flip();
+        write(header);
+        channel.force(true);
+    }
+
+    private static int checksum(Path path) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel file = FileChannel.open(path,
+                StandardOpenOption.READ)) {
+            crc.update(file.map(FileChannel.MapMode.READ_ONLY, 0, file.size()));
+        }
+        return (int) crc.getValue();
+    }
+}
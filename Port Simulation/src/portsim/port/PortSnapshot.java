@@ -0,0 +1,599 @@
+package portsim.port;
+
+import portsim.cargo.BulkCargo;
+import portsim.cargo.BulkCargoType;
+import portsim.cargo.Cargo;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.evaluators.StatisticsEvaluator;
+import portsim.movement.CargoMovement;
+import portsim.movement.Movement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+import portsim.util.BadEncodingException;
+import portsim.util.IntObjectMap;
+import portsim.util.NoSuchCargoException;
+import portsim.util.NoSuchShipException;
+import portsim.util.SimulationContext;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves and loads ports in a compact, versioned binary snapshot format.
+ * <p>
+ * A snapshot holds the same state as the text format produced by
+ * {@link Port#encode()}, and loading a snapshot gives a port with an
+ * identical text encoding. It is much smaller and faster to read and write:
+ * <ul>
+ *     <li>ids, IMO numbers, capacities and times are written as unsigned
+ *     variable-length integers (7 bits per byte, low bits first);</li>
+ *     <li>{@link NauticalFlag}, {@link ContainerType}, {@link BulkCargoType}
+ *     and {@link MovementDirection} values are written as their ordinals;</li>
+ *     <li>names, destinations, origin flags and evaluator names are stored
+ *     once in a string dictionary and referred to by index.</li>
+ * </ul>
+ * <p>
+ * Besides the text encoding, a snapshot records the port's
+ * {@link DockingPolicy}, at the end of the header section, from version 2
+ * of the format on. Version 1 snapshots, written before it was recorded,
+ * load with {@link DockingPolicy#FIRST_FIT}.
+ * <p>
+ * The file starts with a fixed header of the magic number {@code "PSNP"},
+ * the format version and the number of sections, followed by a section
+ * table giving the id, offset and length of each section. Snapshots are
+ * loaded by memory-mapping the file with {@link FileChannel#map} and
+ * decoding each section in place.
+ */
+public final class PortSnapshot {
+    /**
+     * Magic number at the start of every snapshot, "PSNP" in ASCII
+     */
+    private static final int MAGIC = 0x50534E50;
+
+    /**
+     * Version of the snapshot format written by this class
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * First snapshot version to record the docking policy
+     */
+    private static final int POLICY_VERSION = 2;
+
+    /* Section ids, in the order the sections are written and read */
+    private static final int STRINGS = 0;
+    private static final int HEADER = 1;
+    private static final int CARGO = 2;
+    private static final int SHIPS = 3;
+    private static final int QUAYS = 4;
+    private static final int QUEUE = 5;
+    private static final int STORED_CARGO = 6;
+    private static final int MOVEMENTS = 7;
+    private static final int EVALUATORS = 8;
+    private static final int SECTION_COUNT = 9;
+
+    /**
+     * Size in bytes of the magic number, version and section count
+     */
+    private static final int PREAMBLE_SIZE = 12;
+
+    /**
+     * Size in bytes of one section table entry: id, offset and length
+     */
+    private static final int TABLE_ENTRY_SIZE = 20;
+
+    /* Tags distinguishing the subclasses of cargo, ships, quays and movements */
+    private static final int CONTAINER = 0;
+    private static final int BULK = 1;
+    private static final int SHIP_MOVEMENT = 0;
+    private static final int CARGO_MOVEMENT = 1;
+
+    /**
+     * Not instantiable, use {@link #save(Port, Path)} and
+     * {@link #load(SimulationContext, Path)}.
+     */
+    private PortSnapshot() {
+    }
+
+    /**
+     * Writes a binary snapshot of the given port to the file at the given
+     * path, replacing any existing contents.
+     *
+     * @param port port to save
+     * @param path file to save the snapshot to
+     * @throws IOException if an IOException occurs when writing the file
+     */
+    public static void save(Port port, Path path) throws IOException {
+        Section[] sections = encodeSections(port);
+
+        ByteBuffer table = ByteBuffer.allocate(PREAMBLE_SIZE
+                + SECTION_COUNT * TABLE_ENTRY_SIZE);
+        table.putInt(MAGIC).putInt(VERSION).putInt(SECTION_COUNT);
+        long offset = table.capacity();
+        for (int id = 0; id < SECTION_COUNT; id++) {
+            table.putInt(id).putLong(offset).putLong(sections[id].size);
+            offset += sections[id].size;
+        }
+        table.flip();
+
+        ByteBuffer[] buffers = new ByteBuffer[SECTION_COUNT + 1];
+        buffers[0] = table;
+        for (int id = 0; id < SECTION_COUNT; id++) {
+            buffers[id + 1] = ByteBuffer.wrap(sections[id].bytes, 0,
+                    sections[id].size);
+        }
+
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffers[SECTION_COUNT].hasRemaining()) {
+                channel.write(buffers);
+            }
+        }
+    }
+
+    /**
+     * Loads a port from the binary snapshot at the given path into the
+     * default simulation context.
+     *
+     * @param path file containing the snapshot
+     * @return loaded port
+     * @throws IOException if an IOException occurs when reading the file
+     * @throws BadEncodingException if the file is not a valid snapshot
+     */
+    public static Port load(Path path) throws IOException, BadEncodingException {
+        return load(SimulationContext.getDefault(), path);
+    }
+
+    /**
+     * Loads a port from the binary snapshot at the given path, registering
+     * all ships and cargo with the given simulation context.
+     *
+     * @param context simulation to load the port into
+     * @param path file containing the snapshot
+     * @return loaded port
+     * @throws IOException if an IOException occurs when reading the file
+     * @throws BadEncodingException if the file is not a valid snapshot
+     */
+    public static Port load(SimulationContext context, Path path)
+            throws IOException, BadEncodingException {
+        ByteBuffer file;
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ)) {
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            return decode(context, file);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new BadEncodingException("Truncated snapshot", e);
+        } catch (IllegalArgumentException | ClassCastException
+                | NoSuchShipException | NoSuchCargoException e) {
+            throw new BadEncodingException("Invalid snapshot", e);
+        }
+    }
+
+    /**
+     * Returns whether the file at the given path starts with the snapshot
+     * magic number.
+     *
+     * @param path file to check
+     * @return true if the file appears to be a binary snapshot
+     * @throws IOException if an IOException occurs when reading the file
+     */
+    public static boolean isSnapshot(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // keep reading until the magic number has been read
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    private static Section[] encodeSections(Port port) {
+        Section[] sections = new Section[SECTION_COUNT];
+        for (int id = 0; id < SECTION_COUNT; id++) {
+            sections[id] = new Section();
+        }
+        StringDictionary strings = new StringDictionary();
+
+        Section header = sections[HEADER];
+        header.putVarint(strings.indexOf(port.getName()));
+        header.putVarint(port.getTime());
+        header.putVarint(port.getDockingPolicy().ordinal());
+
+        Map<Integer, Cargo> cargoRegistry = port.getContext().getCargoRegistry();
+        Section cargoSection = sections[CARGO];
+        cargoSection.putVarint(cargoRegistry.size());
+        for (Cargo cargo : cargoRegistry.values()) {
+            if (cargo instanceof Container) {
+                cargoSection.putByte(CONTAINER);
+                cargoSection.putVarint(cargo.getId());
+                cargoSection.putVarint(strings.indexOf(cargo.getDestination()));
+                cargoSection.putVarint(((Container) cargo).getType().ordinal());
+            } else {
+                BulkCargo bulkCargo = (BulkCargo) cargo;
+                cargoSection.putByte(BULK);
+                cargoSection.putVarint(cargo.getId());
+                cargoSection.putVarint(strings.indexOf(cargo.getDestination()));
+                cargoSection.putVarint(bulkCargo.getType().ordinal());
+                cargoSection.putVarint(bulkCargo.getTonnage());
+            }
+        }
+
+        Map<Long, Ship> shipRegistry = port.getContext().getShipRegistry();
+        Section shipSection = sections[SHIPS];
+        shipSection.putVarint(shipRegistry.size());
+        for (Ship registered : shipRegistry.values()) {
+            Ship ship = port.currentShip(registered);
+            shipSection.putByte(ship instanceof ContainerShip ? CONTAINER : BULK);
+            shipSection.putVarint(ship.getImoNumber());
+            shipSection.putVarint(strings.indexOf(ship.getName()));
+            shipSection.putVarint(strings.indexOf(ship.getOriginFlag()));
+            shipSection.putVarint(ship.getFlag().ordinal());
+            if (ship instanceof ContainerShip) {
+                ContainerShip containerShip = (ContainerShip) ship;
+                List<Container> containers = containerShip.getCargo();
+                shipSection.putVarint(containerShip.getContainerCapacity());
+                shipSection.putVarint(containers.size());
+                for (Container container : containers) {
+                    shipSection.putVarint(container.getId());
+                }
+            } else {
+                BulkCarrier bulkCarrier = (BulkCarrier) ship;
+                BulkCargo cargo = bulkCarrier.getCargo();
+                shipSection.putVarint(bulkCarrier.getTonnageCapacity());
+                shipSection.putVarint(cargo == null ? 0 : cargo.getId() + 1L);
+            }
+        }
+
+        Section quaySection = sections[QUAYS];
+        List<Quay> quays = port.getQuays();
+        quaySection.putVarint(quays.size());
+        for (Quay quay : quays) {
+            if (quay instanceof ContainerQuay) {
+                quaySection.putByte(CONTAINER);
+                quaySection.putVarint(quay.getId());
+                quaySection.putVarint(((ContainerQuay) quay).getMaxContainers());
+            } else {
+                quaySection.putByte(BULK);
+                quaySection.putVarint(quay.getId());
+                quaySection.putVarint(((BulkQuay) quay).getMaxTonnage());
+            }
+            quaySection.putVarint(quay.isEmpty()
+                    ? 0 : quay.getShip().getImoNumber() + 1);
+        }
+
+        List<Ship> queued = port.getShipQueue().getShipQueue();
+        Section queueSection = sections[QUEUE];
+        queueSection.putVarint(queued.size());
+        for (Ship ship : queued) {
+            queueSection.putVarint(ship.getImoNumber());
+        }
+
+        Section storedSection = sections[STORED_CARGO];
+        Warehouse storedCargo = port.getWarehouse();
+        storedSection.putVarint(storedCargo.size());
+        for (Cargo cargo : storedCargo) {
+            storedSection.putVarint(cargo.getId());
+        }
+
+        Section movementSection = sections[MOVEMENTS];
+        MovementSchedule movements = port.getMovementSchedule();
+        movementSection.putVarint(movements.size());
+        for (Movement movement : movements) {
+            boolean isShip = movement instanceof ShipMovement;
+            movementSection.putByte(isShip ? SHIP_MOVEMENT : CARGO_MOVEMENT);
+            movementSection.putVarint(movement.getTime());
+            movementSection.putVarint(movement.getDirection().ordinal());
+            if (isShip) {
+                movementSection.putVarint(
+                        ((ShipMovement) movement).getShip().getImoNumber());
+            } else {
+                List<Cargo> cargo = ((CargoMovement) movement).getCargo();
+                movementSection.putVarint(cargo.size());
+                for (Cargo piece : cargo) {
+                    movementSection.putVarint(piece.getId());
+                }
+            }
+        }
+
+        List<StatisticsEvaluator> evaluators = port.getEvaluators();
+        Section evaluatorSection = sections[EVALUATORS];
+        evaluatorSection.putVarint(evaluators.size());
+        for (StatisticsEvaluator evaluator : evaluators) {
+            evaluatorSection.putVarint(strings.indexOf(
+                    evaluator.getClass().getSimpleName()));
+        }
+
+        strings.writeTo(sections[STRINGS]);
+        return sections;
+    }
+
+    private static Port decode(SimulationContext context, ByteBuffer file)
+            throws BadEncodingException, NoSuchShipException,
+            NoSuchCargoException {
+        if (file.remaining() < PREAMBLE_SIZE || file.getInt() != MAGIC) {
+            throw new BadEncodingException("Not a port snapshot");
+        }
+        int version = file.getInt();
+        if (version < 1 || version > VERSION) {
+            throw new BadEncodingException("Unsupported snapshot version "
+                    + version);
+        }
+        int sectionCount = file.getInt();
+        ByteBuffer[] sections = new ByteBuffer[SECTION_COUNT];
+        for (int i = 0; i < sectionCount; i++) {
+            int id = file.getInt();
+            long offset = file.getLong();
+            long length = file.getLong();
+            if (offset < 0 || length < 0 || offset + length > file.limit()) {
+                throw new BadEncodingException("Section " + id
+                        + " lies outside the snapshot");
+            }
+            // sections with unknown ids are skipped
+            if (id >= 0 && id < SECTION_COUNT) {
+                sections[id] = file.duplicate()
+                        .position((int) offset).limit((int) (offset + length))
+                        .slice();
+            }
+        }
+        for (int id = 0; id < SECTION_COUNT; id++) {
+            if (sections[id] == null) {
+                throw new BadEncodingException("Missing section " + id);
+            }
+        }
+
+        ByteBuffer in = sections[STRINGS];
+        String[] strings = new String[getCount(in)];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] utf8 = new byte[getCount(in)];
+            in.get(utf8);
+            strings[i] = new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        in = sections[HEADER];
+        String name = getString(in, strings);
+        long time = getVarint(in);
+        DockingPolicy policy = version >= POLICY_VERSION
+                ? getEnum(in, DockingPolicy.values()) : DockingPolicy.FIRST_FIT;
+
+        in = sections[CARGO];
+        for (int i = getCount(in); i > 0; i--) {
+            int kind = in.get();
+            int id = getInt(in);
+            String destination = getString(in, strings);
+            if (kind == CONTAINER) {
+                new Container(context, id, destination,
+                        getEnum(in, ContainerType.values()));
+            } else if (kind == BULK) {
+                BulkCargoType type = getEnum(in, BulkCargoType.values());
+                new BulkCargo(context, id, destination, getInt(in), type);
+            } else {
+                throw new BadEncodingException("Unknown cargo kind " + kind);
+            }
+        }
+
+        in = sections[SHIPS];
+        for (int i = getCount(in); i > 0; i--) {
+            int kind = in.get();
+            long imoNumber = getVarint(in);
+            String shipName = getString(in, strings);
+            String originFlag = getString(in, strings);
+            NauticalFlag flag = getEnum(in, NauticalFlag.values());
+            int capacity = getInt(in);
+            if (kind == CONTAINER) {
+                Ship ship = new ContainerShip(context, imoNumber, shipName,
+                        originFlag, flag, capacity);
+                for (int n = getCount(in); n > 0; n--) {
+                    ship.loadCargo(context.getCargoById(getInt(in)));
+                }
+            } else if (kind == BULK) {
+                Ship ship = new BulkCarrier(context, imoNumber, shipName,
+                        originFlag, flag, capacity);
+                long cargoId = getVarint(in);
+                if (cargoId != 0) {
+                    ship.loadCargo(context.getCargoById((int) (cargoId - 1)));
+                }
+            } else {
+                throw new BadEncodingException("Unknown ship kind " + kind);
+            }
+        }
+
+        in = sections[QUAYS];
+        List<Quay> quays = new ArrayList<>();
+        for (int i = getCount(in); i > 0; i--) {
+            int kind = in.get();
+            int id = getInt(in);
+            int capacity = getInt(in);
+            Quay quay;
+            if (kind == CONTAINER) {
+                quay = new ContainerQuay(id, capacity);
+            } else if (kind == BULK) {
+                quay = new BulkQuay(id, capacity);
+            } else {
+                throw new BadEncodingException("Unknown quay kind " + kind);
+            }
+            long imoNumber = getVarint(in);
+            if (imoNumber != 0) {
+                quay.shipArrives(context.getShipByImoNumber(imoNumber - 1));
+            }
+            quays.add(quay);
+        }
+
+        in = sections[QUEUE];
+        ShipQueue queue = new ShipQueue();
+        for (int i = getCount(in); i > 0; i--) {
+            queue.add(context.getShipByImoNumber(getVarint(in)));
+        }
+
+        in = sections[STORED_CARGO];
+        List<Cargo> storedCargo = new ArrayList<>();
+        IntObjectMap<Cargo> storedById = new IntObjectMap<>();
+        for (int i = getCount(in); i > 0; i--) {
+            Cargo cargo = context.getCargoById(getInt(in));
+            if (storedById.put(cargo.getId(), cargo) != null) {
+                throw new BadEncodingException("Duplicate stored cargo "
+                        + cargo.getId());
+            }
+            storedCargo.add(cargo);
+        }
+
+        Port port = new Port(context, name, time, queue, quays, storedCargo);
+        port.setDockingPolicy(policy);
+
+        in = sections[MOVEMENTS];
+        for (int i = getCount(in); i > 0; i--) {
+            int kind = in.get();
+            long movementTime = getVarint(in);
+            MovementDirection direction
+                    = getEnum(in, MovementDirection.values());
+            if (kind == SHIP_MOVEMENT) {
+                port.addMovement(new ShipMovement(movementTime, direction,
+                        context.getShipByImoNumber(getVarint(in))));
+            } else if (kind == CARGO_MOVEMENT) {
+                List<Cargo> cargo = new ArrayList<>();
+                for (int n = getCount(in); n > 0; n--) {
+                    cargo.add(context.getCargoById(getInt(in)));
+                }
+                port.addMovement(new CargoMovement(movementTime, direction,
+                        cargo));
+            } else {
+                throw new BadEncodingException("Unknown movement kind " + kind);
+            }
+        }
+
+        in = sections[EVALUATORS];
+        for (int i = getCount(in); i > 0; i--) {
+            port.addStatisticsEvaluator(PortDecoder.createEvaluator(
+                    getString(in, strings)));
+        }
+
+        return port;
+    }
+
+    private static long getVarint(ByteBuffer in) throws BadEncodingException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new BadEncodingException("Malformed variable-length integer");
+    }
+
+    private static int getInt(ByteBuffer in) throws BadEncodingException {
+        long value = getVarint(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new BadEncodingException("Integer out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    /* Reads a count, which can never exceed the bytes left in the section */
+    private static int getCount(ByteBuffer in) throws BadEncodingException {
+        int count = getInt(in);
+        if (count > in.remaining()) {
+            throw new BadEncodingException("Count exceeds section size");
+        }
+        return count;
+    }
+
+    private static String getString(ByteBuffer in, String[] strings)
+            throws BadEncodingException {
+        int index = getInt(in);
+        if (index >= strings.length) {
+            throw new BadEncodingException("Unknown string " + index);
+        }
+        return strings[index];
+    }
+
+    private static <E extends Enum<E>> E getEnum(ByteBuffer in, E[] values)
+            throws BadEncodingException {
+        int ordinal = getInt(in);
+        if (ordinal >= values.length) {
+            throw new BadEncodingException("Unknown "
+                    + values[0].getDeclaringClass().getSimpleName()
+                    + " ordinal " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    /**
+     * Growable byte array holding the encoded contents of one section.
+     */
+    private static class Section {
+        private byte[] bytes = new byte[256];
+        private int size = 0;
+
+        void putByte(int b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[size++] = (byte) b;
+        }
+
+        void putVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                putByte((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            putByte((int) value);
+        }
+
+        void putBytes(byte[] b) {
+            if (size + b.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes,
+                        Math.max(bytes.length * 2, size + b.length));
+            }
+            System.arraycopy(b, 0, bytes, size, b.length);
+            size += b.length;
+        }
+    }
+
+    /**
+     * Assigns each distinct string an index in order of first use.
+     */
+    private static class StringDictionary {
+        private final Map<String, Integer> indices = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        int indexOf(String string) {
+            Integer index = indices.get(string);
+            if (index == null) {
+                index = strings.size();
+                indices.put(string, index);
+                strings.add(string);
+            }
+            return index;
+        }
+
+        void writeTo(Section section) {
+            section.putVarint(strings.size());
+            for (String string : strings) {
+                byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+                section.putVarint(utf8.length);
+                section.putBytes(utf8);
+            }
+        }
+    }
+}
@@ -4,7 +4,10 @@ import portsim.ship.Ship;
 import portsim.util.BadEncodingException;
 import portsim.util.Encodable;
 import portsim.util.NoSuchShipException;
+import portsim.util.SimulationContext;
 
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Quay is a platform lying alongside or projecting into the water where
@@ -23,6 +26,11 @@ public abstract class Quay implements Encodable {
      */
     private Ship ship;
 
+    /**
+     * Listeners told whenever a ship docks at or leaves this quay
+     */
+    private final List<QuayListener> listeners;
+
     /**
      * Creates a new Quay with the given ID, with no ship docked at the quay.
      *
@@ -37,6 +45,7 @@ public abstract class Quay implements Encodable {
         }
         this.id = id;
         this.ship = null;
+        this.listeners = new ArrayList<>(1);
     }
 
     /**
@@ -56,7 +65,18 @@ public abstract class Quay implements Encodable {
      * @ass1
      */
     public void shipArrives(Ship ship) {
+        Ship previous = this.ship;
         this.ship = ship;
+        if (previous != null) {
+            for (QuayListener listener : listeners) {
+                listener.shipDeparted(this, previous);
+            }
+        }
+        if (ship != null) {
+            for (QuayListener listener : listeners) {
+                listener.shipArrived(this, ship);
+            }
+        }
     }
 
     /**
@@ -69,9 +89,42 @@ public abstract class Quay implements Encodable {
     public Ship shipDeparts() {
         Ship current = this.ship;
         this.ship = null;
+        if (current != null) {
+            for (QuayListener listener : listeners) {
+                listener.shipDeparted(this, current);
+            }
+        }
         return current;
     }
 
+    /**
+     * Replaces the docked ship with a copy of it, without telling the
+     * listeners, as the same ship is still docked.
+     *
+     * @param copy copy of the docked ship
+     */
+    void replaceShip(Ship copy) {
+        this.ship = copy;
+    }
+
+    /**
+     * Returns a new quay with the same ID and capacity as this quay and no
+     * ship docked.
+     *
+     * @return empty copy of this quay
+     */
+    public abstract Quay copy();
+
+    /**
+     * Registers a listener to be told whenever a ship docks at or leaves
+     * this quay.
+     *
+     * @param listener listener to add
+     */
+    void addListener(QuayListener listener) {
+        listeners.add(listener);
+    }
+
     /**
      * Returns whether a ship is currently docked at this quay.
      *
@@ -170,6 +223,21 @@ public abstract class Quay implements Encodable {
      */
     public static Quay fromString(String string)
             throws BadEncodingException {
+        return fromString(SimulationContext.getDefault(), string);
+    }
+
+    /**
+     * Reads a Quay from its encoded representation in the given string,
+     * looking up any docked ship in the given simulation context.
+     *
+     * @param context - simulation the docked ship belongs to
+     * @param string - string containing the encoded Quay
+     *
+     * @return decoded Quay instance
+     * @throws BadEncodingException - if the encoding is invalid
+     */
+    public static Quay fromString(SimulationContext context, String string)
+            throws BadEncodingException {
         String [] result = string.split(":");
         int id = stringToId(result);
         int capacity = stringToCapacity(result);
@@ -205,7 +273,7 @@ public abstract class Quay implements Encodable {
             }
 
             try {
-                decodedQuay.shipArrives(Ship.getShipByImoNumber(imo));
+                decodedQuay.shipArrives(context.getShipByImoNumber(imo));
             } catch (NoSuchShipException e) {
                 throw new BadEncodingException();
             }
@@ -0,0 +1,39 @@
+package portsim.port;
+
+import portsim.ship.Ship;
+
+/**
+ * Receives notifications whenever a ship docks at or leaves a quay.
+ * <p>
+ * Listeners let ports and statistics evaluators keep indexes and counters
+ * over quays up to date without scanning every quay, no matter whether
+ * ships are docked by the port itself or directly through
+ * {@link Quay#shipArrives(Ship)}. Listeners are registered with a port
+ * through {@link Port#addQuayListener(QuayListener)}.
+ */
+public interface QuayListener {
+    /**
+     * Called when the listener starts receiving notifications from the given
+     * quay, which may already have a ship docked at it.
+     *
+     * @param quay quay now being listened to
+     */
+    default void quayAdded(Quay quay) {
+    }
+
+    /**
+     * Called after the given ship has docked at the given quay.
+     *
+     * @param quay quay the ship docked at
+     * @param ship ship that docked
+     */
+    void shipArrived(Quay quay, Ship ship);
+
+    /**
+     * Called after the given ship has left the given quay.
+     *
+     * @param quay quay the ship left
+     * @param ship ship that left
+     */
+    void shipDeparted(Quay quay, Ship ship);
+}
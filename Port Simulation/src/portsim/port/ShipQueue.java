@@ -5,12 +5,13 @@ import portsim.ship.NauticalFlag;
 import portsim.ship.Ship;
 import portsim.util.BadEncodingException;
 import portsim.util.Encodable;
+import portsim.util.LongTrieMap;
 import portsim.util.NoSuchShipException;
+import portsim.util.SimulationContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Queue of ships waiting to enter a Quay at the port. Ships are chosen based
@@ -19,10 +20,29 @@ import java.util.Map;
  * @ass2
  */
 public class ShipQueue implements Encodable {
+    /* Priority classes, in the order ships are taken from them */
+    private static final int DANGEROUS = 0;
+    private static final int MEDICAL = 1;
+    private static final int DOCK_READY = 2;
+    private static final int CONTAINERS = 3;
+    private static final int OTHER = 4;
+
+    /**
+     * The ships currently in this ShipQueue, in one first-in-first-out lane
+     * per priority class.
+     */
+    private Lane[] lanes;
+
+    /**
+     * Sequence number given to the next ship added, used to recover the
+     * order ships were added across all lanes
+     */
+    private long nextSequence;
+
     /**
-     * A list containing all the ships currently stored in this ShipQueue.
+     * The number of ships in the queue
      */
-    private ArrayList<Ship> queue;
+    private int size;
 
     /**
      * Constructs a new ShipQueue with an initially empty queue of ships.
@@ -30,7 +50,39 @@ public class ShipQueue implements Encodable {
      * @ass2
      */
     public ShipQueue() {
-        this.queue = new ArrayList<>();
+        this.lanes = new Lane[OTHER + 1];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane();
+        }
+        this.nextSequence = 0;
+        this.size = 0;
+    }
+
+    /**
+     * Creates a queue that shares the ships of the given queue, forking
+     * each of its lanes.
+     *
+     * @param queue queue to share the lanes of
+     */
+    private ShipQueue(ShipQueue queue) {
+        this.lanes = new Lane[queue.lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = queue.lanes[i].fork();
+        }
+        this.nextSequence = queue.nextSequence;
+        this.size = queue.size;
+    }
+
+    /**
+     * Returns a new queue with the same ships as this one, in constant
+     * time. The two queues share the segments of their lanes, and each
+     * copies at most the partly filled tail segment of a lane before it
+     * adds to that lane.
+     *
+     * @return forked queue
+     */
+    ShipQueue fork() {
+        return new ShipQueue(this);
     }
 
     /**
@@ -41,10 +93,14 @@ public class ShipQueue implements Encodable {
      * @ass2
      */
     public Ship poll() {
-        if (this.queue.size() != 0) {
-            Ship result =  queue.get(findNext());
-            queue.remove(findNext());
-            return result;
+        if (size == 0) {
+            return null;
+        }
+        for (Lane lane : lanes) {
+            if (lane.size != 0) {
+                size--;
+                return lane.poll();
+            }
         }
         return null;
     }
@@ -52,76 +108,51 @@ public class ShipQueue implements Encodable {
     /**
      * Returns the next ship waiting to enter the port.
      * The queue should not change.
+     * <p>
+     * The next ship is the ship added earliest out of, in order of priority:
+     * <ol>
+     *     <li>ships flying the {@link NauticalFlag#BRAVO} flag (carrying
+     *     dangerous cargo)</li>
+     *     <li>ships flying the {@link NauticalFlag#WHISKEY} flag (requiring
+     *     medical assistance)</li>
+     *     <li>ships flying the {@link NauticalFlag#HOTEL} flag (ready to
+     *     dock)</li>
+     *     <li>container ships</li>
+     *     <li>all other ships</li>
+     * </ol>
      *
      * @return next ship in queue
      *
      * @ass2
      */
     public Ship peek() {
-        if (this.queue.size() != 0) {
-            return queue.get(findNext());
+        for (Lane lane : lanes) {
+            if (lane.size != 0) {
+                return lane.get(0);
+            }
         }
         return null;
     }
 
     /**
-     * A helper method to return the index of the next ship waiting to enter
-     * the port.
-     *
-     * @return the index of the ship waiting to enter the port.
+     * Returns the priority class of the given ship, the index of the lane
+     * it is queued in.
      *
-     * @ass2
+     * @param ship ship to classify
+     * @return priority class of the ship
      */
-    private int findNext() {
-        // A hashmap of possible indexes.
-        Map<String, Integer> possibleIndex = new HashMap<>();
-
-        // Iterate through the list of ships and record the first instance
-        // of a ship of each criteria on the prioty list occuring.
-        for (int i = 0; i < queue.size(); i++) {
-            Ship ship = queue.get(i);
-            NauticalFlag flag = ship.getFlag();
-
-            if (flag.equals(NauticalFlag.BRAVO)) {
-                checkFirst(possibleIndex, "dangerous", i);
-            } else if (flag.equals(NauticalFlag.WHISKEY)) {
-                checkFirst(possibleIndex, "medical", i);
-            } else if (flag.equals(NauticalFlag.HOTEL)) {
-                checkFirst(possibleIndex, "dockReady", i);
-            } else if (ship instanceof ContainerShip
-                    && possibleIndex.get("containers") == null) {
-                possibleIndex.put("containers", i);
-            }
-            // Else none of the ships meet the priorty criteria
-            // So do nothing.
-        }
-
-        // Check the map of possible indexes
-        // Find which index should be returned
-        if (possibleIndex.get("dangerous") != null) {
-            return possibleIndex.get("dangerous");
-        } else if (possibleIndex.get("medical") != null) {
-            return possibleIndex.get("medical");
-        } else if (possibleIndex.get("dockReady") != null) {
-            return possibleIndex.get("dockReady");
-        } else if (possibleIndex.get("containers") != null) {
-            return possibleIndex.get("containers");
-        } else  {
-            // There are no ships  that meet the priority criteria
-            // So return the index of the ship added to the queue first
-            return 0;
+    private static int priorityOf(Ship ship) {
+        NauticalFlag flag = ship.getFlag();
+        if (flag == NauticalFlag.BRAVO) {
+            return DANGEROUS;
+        } else if (flag == NauticalFlag.WHISKEY) {
+            return MEDICAL;
+        } else if (flag == NauticalFlag.HOTEL) {
+            return DOCK_READY;
+        } else if (ship instanceof ContainerShip) {
+            return CONTAINERS;
         }
-    }
-
-    private void checkFirst(Map<String, Integer> possibleIndex,
-                            String type,
-                            int index) {
-        if (possibleIndex.get(type) == null) {
-            possibleIndex.put(type, index);
-        } /*else if (!(queue.get(possibleIndex.get(type)) instanceof ContainerShip)
-                && queue.get(index) instanceof ContainerShip) {
-            possibleIndex.put(type, index);
-        } */
+        return OTHER;
     }
 
     /**
@@ -132,7 +163,17 @@ public class ShipQueue implements Encodable {
      * @ass2
      */
     public void add(Ship ship) {
-        this.queue.add(ship);
+        lanes[priorityOf(ship)].add(ship, nextSequence++);
+        size++;
+    }
+
+    /**
+     * Returns whether there are no ships waiting in this ShipQueue.
+     *
+     * @return true if the queue is empty else false
+     */
+    public boolean isEmpty() {
+        return size == 0;
     }
 
     /**
@@ -144,13 +185,26 @@ public class ShipQueue implements Encodable {
      * @ass2
      */
     public List<Ship> getShipQueue() {
-        return new ArrayList<Ship>(queue);
+        List<Ship> result = new ArrayList<>(size);
+        int[] next = new int[lanes.length];
+        for (int n = 0; n < size; n++) {
+            int earliest = -1;
+            for (int i = 0; i < lanes.length; i++) {
+                if (next[i] < lanes[i].size && (earliest < 0
+                        || lanes[i].sequenceAt(next[i])
+                        < lanes[earliest].sequenceAt(next[earliest]))) {
+                    earliest = i;
+                }
+            }
+            result.add(lanes[earliest].get(next[earliest]++));
+        }
+        return result;
     }
 
     @Override
     public boolean equals(Object o) {
         if (o instanceof ShipQueue) {
-            return queue.equals(((ShipQueue) o).getShipQueue());
+            return getShipQueue().equals(((ShipQueue) o).getShipQueue());
         }
         return false;
     }
@@ -158,8 +212,10 @@ public class ShipQueue implements Encodable {
     @Override
     public int hashCode() {
         int result = 0;
-        for (Ship ship : queue) {
-            result += ship.hashCode();
+        for (Lane lane : lanes) {
+            for (int i = 0; i < lane.size; i++) {
+                result += lane.get(i).hashCode();
+            }
         }
         return result;
     }
@@ -173,17 +229,21 @@ public class ShipQueue implements Encodable {
      * @ass2
      */
     public String encode() {
-        String result = "" + this.getClass().getSimpleName() + ":"
-                + queue.size() + ":";
-
-        for (int i = 0; i < queue.size(); i++) {
-            result += queue.get(i).getImoNumber();
+        return Encodable.encodeToString(this);
+    }
 
-            if (i < queue.size() - 1) {
-                result += ",";
+    @Override
+    public void encodeTo(Appendable out) throws IOException {
+        List<Ship> ships = getShipQueue();
+        out.append(this.getClass().getSimpleName()).append(':')
+                .append(Integer.toString(ships.size())).append(':');
+
+        for (int i = 0; i < ships.size(); i++) {
+            if (i > 0) {
+                out.append(',');
             }
+            out.append(Long.toString(ships.get(i).getImoNumber()));
         }
-        return result;
     }
 
     /**
@@ -197,6 +257,22 @@ public class ShipQueue implements Encodable {
      */
     public static ShipQueue fromString(String string)
             throws BadEncodingException {
+        return fromString(SimulationContext.getDefault(), string);
+    }
+
+    /**
+     * Creates a ship queue from a string encoding, looking up the queued
+     * ships in the given simulation context.
+     *
+     * @param context - simulation the queued ships belong to
+     * @param string - string containing the encoded ShipQueue
+     *
+     * @return decoded ship queue instance
+     * @throws BadEncodingException - if the encoding is invalid
+     */
+    public static ShipQueue fromString(SimulationContext context,
+                                       String string)
+            throws BadEncodingException {
         String [] result = string.split(":", -1);
         int numShipsInQueue = stringToInt(result);
         ShipQueue decodedShipQueue = new ShipQueue();
@@ -223,7 +299,7 @@ public class ShipQueue implements Encodable {
             }
 
             try {
-                decodedShipQueue.add(Ship.getShipByImoNumber(shipImo));
+                decodedShipQueue.add(context.getShipByImoNumber(shipImo));
             } catch (NoSuchShipException e) {
                 throw new BadEncodingException();
             }
@@ -257,6 +333,139 @@ public class ShipQueue implements Encodable {
         }
     }
 
+    /**
+     * A first-in-first-out lane of ships, each with its sequence number.
+     * <p>
+     * Ships are stored in fixed-size segments, numbered by the positions
+     * they hold. The head and tail segments are held directly, and those
+     * in between are found through a trie shared with forked lanes. A lane
+     * only writes to segments it created since it was last forked, and
+     * copies its tail segment before adding to it otherwise, so the
+     * segments a fork can see never change. Adding, peeking and polling
+     * are O(1); a segment that has been polled empty and was never seen by
+     * a fork is reused for the next tail, so a lane only allocates as it
+     * grows or when it first adds after a fork.
+     */
+    private static class Lane {
+        private static final int SEGMENT_BITS = 5;
+        private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+        private static final int OFFSET_MASK = SEGMENT_SIZE - 1;
+
+        private final LongTrieMap<Segment> segments;
+        private Segment head;
+        private Segment tail;
+        private Segment spare;
+        private long first = 0;
+        private long end = 0;
+        private int size = 0;
+        private Object owner = new Object();
+
+        Lane() {
+            this.segments = new LongTrieMap<>();
+        }
+
+        private Lane(Lane lane) {
+            this.segments = lane.segments.fork();
+            this.head = lane.head;
+            this.tail = lane.tail;
+            this.first = lane.first;
+            this.end = lane.end;
+            this.size = lane.size;
+        }
 
+        Lane fork() {
+            owner = new Object();
+            spare = null;
+            return new Lane(this);
+        }
 
+        void add(Ship ship, long sequence) {
+            int offset = (int) end & OFFSET_MASK;
+            if (offset == 0) {
+                if (size > 0 && tail != head) {
+                    segments.put((end - 1) >>> SEGMENT_BITS, tail);
+                }
+                tail = spare != null ? spare : new Segment(owner);
+                spare = null;
+            } else if (tail.owner != owner) {
+                Segment copy = new Segment(tail, owner);
+                if (head == tail) {
+                    head = copy;
+                }
+                tail = copy;
+            }
+            tail.ships[offset] = ship;
+            tail.sequences[offset] = sequence;
+            if (size == 0) {
+                head = tail;
+            }
+            end++;
+            size++;
+        }
+
+        Ship poll() {
+            int offset = (int) first & OFFSET_MASK;
+            Ship ship = head.ships[offset];
+            if (head.owner == owner) {
+                head.ships[offset] = null;
+            }
+            first++;
+            size--;
+            if (offset == OFFSET_MASK) {
+                if (head.owner == owner) {
+                    spare = head;
+                }
+                long number = first >>> SEGMENT_BITS;
+                if (size == 0) {
+                    head = null;
+                } else if (number == (end - 1) >>> SEGMENT_BITS) {
+                    head = tail;
+                } else {
+                    head = segments.remove(number);
+                }
+            }
+            return ship;
+        }
+
+        Ship get(int index) {
+            long position = first + index;
+            return segmentAt(position).ships[(int) position & OFFSET_MASK];
+        }
+
+        long sequenceAt(int index) {
+            long position = first + index;
+            return segmentAt(position).sequences[(int) position & OFFSET_MASK];
+        }
+
+        private Segment segmentAt(long position) {
+            long number = position >>> SEGMENT_BITS;
+            if (number == first >>> SEGMENT_BITS) {
+                return head;
+            }
+            return number == (end - 1) >>> SEGMENT_BITS
+                    ? tail : segments.get(number);
+        }
+    }
+
+    /**
+     * A fixed-size block of consecutive positions of a lane, which only the
+     * lane that created it may change.
+     */
+    private static class Segment {
+        private final Object owner;
+        private final Ship[] ships;
+        private final long[] sequences;
+
+        Segment(Object owner) {
+            this.owner = owner;
+            this.ships = new Ship[Lane.SEGMENT_SIZE];
+            this.sequences = new long[Lane.SEGMENT_SIZE];
+        }
+
+        Segment(Segment segment, Object owner) {
+            this.owner = owner;
+            this.ships = segment.ships.clone();
+            this.sequences = segment.sequences.clone();
+        }
+    }
 }
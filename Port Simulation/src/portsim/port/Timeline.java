@@ -0,0 +1,463 @@
+package portsim.port;
+
+import portsim.cargo.Cargo;
+import portsim.evaluators.PortEvent;
+import portsim.evaluators.StatisticsEvaluator;
+import portsim.movement.CargoMovement;
+import portsim.movement.Movement;
+import portsim.movement.ShipMovement;
+import portsim.ship.Ship;
+import portsim.util.SimulationContext;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The history of a port's simulation, which can be moved back and forth to
+ * any minute since the timeline started.
+ * <p>
+ * Every {@code interval} minutes the timeline takes a checkpoint by
+ * {@linkplain Port#fork() forking} the port, so a checkpoint shares all
+ * ships, cargo and movements with the live port. No checkpoint copies the
+ * stored cargo, the registries or the movement schedule, however many are
+ * taken: as the port goes on, it copies only the trie nodes on the paths
+ * to the entries it changes, so a checkpoint holds memory in proportion to
+ * the changes made in the following interval, not to the size of the
+ * port. Alongside the
+ * checkpoints it keeps a journal of the movements added through the
+ * timeline, needed to replay the history, and of the events of each
+ * minute: movements processed, and ships docking, leaving and being
+ * unloaded.
+ * <p>
+ * {@link #seek(long) Seeking} to a minute continues from the latest
+ * checkpoint at or before it, re-adding the journalled movements as their
+ * minutes are reached, so at most {@code interval} minutes are replayed.
+ * Adding a movement at an earlier minute than the latest reached starts a
+ * new history from that minute, and the old history after it is
+ * discarded.
+ * <p>
+ * The port returned by {@link #getPort()} changes with each seek. It should
+ * only be advanced and given movements through the timeline; other changes,
+ * such as adding quays or evaluators, are not journalled and are lost when
+ * seeking back past them. Statistics evaluators of a port restored from a
+ * checkpoint count from the time of the checkpoint.
+ */
+public class Timeline {
+    private final long interval;
+    private final long startTime;
+
+    /**
+     * Ports frozen at each checkpoint minute, never advanced themselves
+     */
+    private final TreeMap<Long, Port> checkpoints;
+
+    /**
+     * Movements added through the timeline, in the order they were added
+     */
+    private final List<Event> added;
+
+    /**
+     * Events of each minute up to {@link #endTime}, in the order they
+     * happened
+     */
+    private final List<Event> events;
+
+    /**
+     * The latest minute whose events have been journalled
+     */
+    private long endTime;
+
+    /**
+     * The port at the current minute of the timeline
+     */
+    private Port port;
+
+    /**
+     * Index in {@link #added} of the first movement not yet added to the
+     * current port
+     */
+    private int nextAdded;
+
+    /**
+     * Starts a timeline for the given port at its current time, taking a
+     * checkpoint every given number of minutes.
+     *
+     * @param port port to record the history of
+     * @param interval minutes between checkpoints
+     * @throws IllegalArgumentException if interval &lt; 1
+     */
+    public Timeline(Port port, long interval) throws IllegalArgumentException {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be"
+                    + " positive: " + interval);
+        }
+        this.interval = interval;
+        this.startTime = port.getTime();
+        this.endTime = startTime;
+        this.checkpoints = new TreeMap<>();
+        this.added = new ArrayList<>();
+        this.events = new ArrayList<>();
+        this.port = port;
+        port.addObserver(new Recorder(port));
+        checkpoints.put(startTime, port.fork());
+    }
+
+    /**
+     * Returns the port at the current minute of the timeline.
+     *
+     * @return current port
+     */
+    public Port getPort() {
+        return port;
+    }
+
+    /**
+     * Returns the current minute of the timeline.
+     *
+     * @return time of the current port
+     */
+    public long getTime() {
+        return port.getTime();
+    }
+
+    /**
+     * Returns the minute the timeline started at, the earliest that can be
+     * sought to.
+     *
+     * @return start time
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns the latest minute reached in the current history.
+     *
+     * @return end time
+     */
+    public long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * Returns the number of minutes between checkpoints.
+     *
+     * @return checkpoint interval
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Returns the number of checkpoints held.
+     *
+     * @return number of checkpoints
+     */
+    public int getCheckpointCount() {
+        return checkpoints.size();
+    }
+
+    /**
+     * Returns the journalled events of the given minutes, in the order they
+     * happened.
+     *
+     * @param from first minute, inclusive
+     * @param to last minute, inclusive
+     * @return events from the given minutes
+     */
+    public List<Event> getEvents(long from, long to) {
+        List<Event> result = new ArrayList<>();
+        for (int i = firstAtOrAfter(events, from);
+             i < events.size() && events.get(i).getTime() <= to; i++) {
+            result.add(events.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Adds a movement to the current port and journals it.
+     * <p>
+     * If the current minute is earlier than the end of the history, the
+     * history after the current minute is discarded first.
+     *
+     * @param movement movement to add
+     * @throws IllegalArgumentException if the movement's action time is
+     * before the current minute
+     */
+    public void addMovement(Movement movement) throws IllegalArgumentException {
+        port.addMovement(movement);
+        long time = port.getTime();
+        if (time < endTime) {
+            truncate(time);
+        }
+        added.add(new Event(time, null, movement, -1, -1, 0));
+        nextAdded = added.size();
+    }
+
+    /**
+     * Advances the current port by one minute.
+     */
+    public void elapseOneMinute() {
+        advanceTo(port.getTime() + 1);
+    }
+
+    /**
+     * Advances the current port to the given minute, replaying the history
+     * up to the end time and simulating past it.
+     *
+     * @param time minute to advance to
+     * @throws IllegalArgumentException if time is before the current minute
+     */
+    public void advanceTo(long time) throws IllegalArgumentException {
+        if (time < port.getTime()) {
+            throw new IllegalArgumentException("Cannot advance to a time in"
+                    + " the past: " + time);
+        }
+        run(time);
+    }
+
+    /**
+     * Moves the timeline to the given minute.
+     * <p>
+     * Unless the minute is ahead of the current port and no checkpoint lies
+     * between them, the port is restored from the latest checkpoint at or
+     * before the minute. The port is then replayed up to the minute.
+     * Seeking past the end time simulates the minutes after it.
+     *
+     * @param time minute to move to
+     * @throws IllegalArgumentException if time is before the start time
+     */
+    public void seek(long time) throws IllegalArgumentException {
+        if (time < startTime) {
+            throw new IllegalArgumentException("Cannot seek before the start"
+                    + " of the timeline: " + time);
+        }
+        Map.Entry<Long, Port> checkpoint = checkpoints.floorEntry(time);
+        if (time < port.getTime() || checkpoint.getKey() > port.getTime()) {
+            port = checkpoint.getValue().fork();
+            port.addObserver(new Recorder(port));
+            nextAdded = firstAtOrAfter(added, checkpoint.getKey());
+        }
+        run(time);
+    }
+
+    /* Advances the current port to the given time, re-adding journalled
+     * movements and taking checkpoints on the way */
+    private void run(long time) {
+        replayAdded();
+        while (port.getTime() < time) {
+            long next = Math.min(time, (port.getTime() / interval + 1) * interval);
+            if (nextAdded < added.size()) {
+                next = Math.min(next, added.get(nextAdded).getTime());
+            }
+            port.advanceTo(next);
+            endTime = Math.max(endTime, next);
+            if (next % interval == 0 && !checkpoints.containsKey(next)) {
+                checkpoints.put(next, port.fork());
+            }
+            replayAdded();
+        }
+    }
+
+    /* Re-adds the journalled movements added at the current minute */
+    private void replayAdded() {
+        SimulationContext context = port.getContext();
+        while (nextAdded < added.size()
+                && added.get(nextAdded).getTime() == port.getTime()) {
+            Movement movement = added.get(nextAdded++).getMovement();
+            // ships and cargo created after the checkpoint are not in its
+            // registries
+            if (movement instanceof ShipMovement) {
+                Ship ship = ((ShipMovement) movement).getShip();
+                if (!context.shipExists(ship.getImoNumber())) {
+                    context.registerShip(ship);
+                }
+            } else if (movement instanceof CargoMovement) {
+                for (Cargo cargo : ((CargoMovement) movement).getCargo()) {
+                    if (!context.cargoExists(cargo.getId())) {
+                        context.registerCargo(cargo);
+                    }
+                }
+            }
+            port.addMovement(movement);
+        }
+    }
+
+    /* Discards the history after the given minute */
+    private void truncate(long time) {
+        events.subList(firstAtOrAfter(events, time + 1), events.size()).clear();
+        added.subList(firstAtOrAfter(added, time + 1), added.size()).clear();
+        checkpoints.tailMap(time, false).clear();
+        endTime = time;
+    }
+
+    /* Index of the first of the given events at or after the given time */
+    private static int firstAtOrAfter(List<Event> journal, long time) {
+        int low = 0;
+        int high = journal.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (journal.get(middle).getTime() < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * An entry in a timeline's journal.
+     * <p>
+     * Movement events refer to the movement processed. Dock, undock and
+     * unload events only record the quay ID, the ship's IMO number and the
+     * amount of cargo unloaded, since the quay and ship objects change as
+     * the simulation runs.
+     */
+    public static final class Event {
+        private final long time;
+        private final PortEvent type;
+        private final Movement movement;
+        private final int quayId;
+        private final long imoNumber;
+        private final int cargoCount;
+
+        private Event(long time, PortEvent type, Movement movement, int quayId,
+                      long imoNumber, int cargoCount) {
+            this.time = time;
+            this.type = type;
+            this.movement = movement;
+            this.quayId = quayId;
+            this.imoNumber = imoNumber;
+            this.cargoCount = cargoCount;
+        }
+
+        /**
+         * Returns the minute the event happened.
+         *
+         * @return time of the event
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * Returns the kind of event.
+         *
+         * @return event type
+         */
+        public PortEvent getType() {
+            return type;
+        }
+
+        /**
+         * Returns the movement processed.
+         *
+         * @return movement, or null if this is not a movement event
+         */
+        public Movement getMovement() {
+            return movement;
+        }
+
+        /**
+         * Returns the ID of the quay a ship docked at, left or was unloaded
+         * at.
+         *
+         * @return quay ID, or -1 if this is a movement event
+         */
+        public int getQuayId() {
+            return quayId;
+        }
+
+        /**
+         * Returns the IMO number of the ship that docked, left or was
+         * unloaded.
+         *
+         * @return IMO number, or -1 if this is a movement event
+         */
+        public long getImoNumber() {
+            return imoNumber;
+        }
+
+        /**
+         * Returns the number of cargo unloaded.
+         *
+         * @return number of cargo, 0 unless this is an unload event
+         */
+        public int getCargoCount() {
+            return cargoCount;
+        }
+
+        /**
+         * Returns the string representation of this event.
+         * <p>
+         * The format of the string to return is
+         * <pre>time:TYPE:details</pre>
+         * where details is the encoding of the movement for movement
+         * events, and {@code quayId:imoNumber:cargoCount} otherwise.
+         *
+         * @return string representation of this event
+         */
+        @Override
+        public String toString() {
+            return time + ":" + type + ":" + (movement != null
+                    ? movement.encode()
+                    : quayId + ":" + imoNumber + ":" + cargoCount);
+        }
+    }
+
+    /**
+     * Journals the events of minutes after the end of the history.
+     */
+    private class Recorder extends StatisticsEvaluator {
+        private final Port recorded;
+
+        Recorder(Port recorded) {
+            this.recorded = recorded;
+        }
+
+        @Override
+        public Set<PortEvent> getSubscriptions() {
+            return EnumSet.of(PortEvent.SHIP_INBOUND, PortEvent.SHIP_OUTBOUND,
+                    PortEvent.CARGO_INBOUND, PortEvent.CARGO_OUTBOUND,
+                    PortEvent.DOCK, PortEvent.UNDOCK, PortEvent.UNLOAD);
+        }
+
+        @Override
+        public void onProcessMovement(Movement movement) {
+            record(PortEvent.of(movement), movement, null, null, 0);
+        }
+
+        @Override
+        public void onDock(Quay quay, Ship ship) {
+            record(PortEvent.DOCK, null, quay, ship, 0);
+        }
+
+        @Override
+        public void onUndock(Quay quay, Ship ship) {
+            record(PortEvent.UNDOCK, null, quay, ship, 0);
+        }
+
+        @Override
+        public void onUnload(Quay quay, Ship ship,
+                             List<? extends Cargo> cargo) {
+            record(PortEvent.UNLOAD, null, quay, ship, cargo.size());
+        }
+
+        private void record(PortEvent type, Movement movement, Quay quay,
+                            Ship ship, int cargoCount) {
+            // minutes up to the end time are being replayed, and already
+            // journalled
+            if (recorded != port || recorded.getTime() <= endTime) {
+                return;
+            }
+            events.add(new Event(recorded.getTime(), type, movement,
+                    quay == null ? -1 : quay.getId(),
+                    ship == null ? -1 : ship.getImoNumber(), cargoCount));
+        }
+    }
+}
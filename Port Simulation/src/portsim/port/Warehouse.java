@@ -0,0 +1,582 @@
+package portsim.port;
+
+import portsim.cargo.BulkCargo;
+import portsim.cargo.Cargo;
+import portsim.cargo.Container;
+import portsim.util.IntObjectMap;
+import portsim.util.LongTrieMap;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * The cargo stored in the warehouses of a port, indexed by cargo ID,
+ * destination and cargo type.
+ * <p>
+ * Stored cargo is kept in three chains: the chain of all cargo in the order
+ * it was stored, the chain of cargo of the same kind (container or bulk)
+ * bound for the same destination, and the chain of cargo of the same
+ * {@link portsim.cargo.ContainerType} or {@link portsim.cargo.BulkCargoType}.
+ * Each chain can be walked in the order its cargo was stored, without
+ * copying.
+ * <p>
+ * Until a warehouse is first forked, each piece of cargo is held in a node
+ * linked into its three chains and found by ID through a primitive-keyed
+ * map, so storing and removing cargo are O(1). Forking moves the cargo,
+ * once, into {@link LongTrieMap}s keyed by the order it was stored, which
+ * the warehouse and its forks then share; from then on storing or removing
+ * cargo copies only the trie nodes on the paths to it.
+ * <p>
+ * A piece of cargo can only be stored once; storing cargo whose ID is
+ * already in the warehouse has no effect. Cargo may be removed while
+ * iterating over any chain, as long as only the element most recently
+ * returned is removed.
+ * <p>
+ * Only the port that owns a warehouse stores and removes cargo, so that
+ * every change goes through the port's journal, forks and evaluator
+ * events. Code outside this package can only read a port's warehouse.
+ */
+public class Warehouse implements Iterable<Cargo> {
+    /* Indices of the links each node holds, one per chain it belongs to */
+    private static final int ALL = 0;
+    private static final int DESTINATION = 1;
+    private static final int TYPE = 2;
+
+    private static final Iterable<Cargo> EMPTY = Collections::emptyIterator;
+
+    /**
+     * The stored cargo, linked until the warehouse is first forked and in
+     * tries from then on
+     */
+    private Storage storage;
+
+    /**
+     * Creates a new empty warehouse.
+     */
+    public Warehouse() {
+        this.storage = new LinkedStorage();
+    }
+
+    private Warehouse(Storage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Returns a new warehouse with the same cargo as this one.
+     * <p>
+     * The first fork of a warehouse moves its cargo into tries, in time
+     * linear in the amount of cargo stored; iterators over the warehouse
+     * from before then keep walking the old nodes, which are never changed
+     * again. Later forks take time proportional to the number of
+     * destinations and cargo types in the warehouse. The two warehouses
+     * share the nodes of their tries, and each copies only the nodes on the
+     * paths to the cargo it later stores or removes, so neither affects the
+     * other.
+     *
+     * @return forked warehouse
+     */
+    Warehouse fork() {
+        if (storage instanceof LinkedStorage) {
+            TrieStorage tries = new TrieStorage();
+            for (Cargo cargo : storage) {
+                tries.store(cargo);
+            }
+            storage = tries;
+        }
+        return new Warehouse(((TrieStorage) storage).fork());
+    }
+
+    /**
+     * Stores the given cargo in the warehouse.
+     *
+     * @param cargo cargo to store
+     * @return true if the cargo was stored, false if cargo with the same ID
+     * was already in the warehouse
+     */
+    boolean add(Cargo cargo) {
+        if (storage.get(cargo.getId()) != null) {
+            return false;
+        }
+        storage.store(cargo);
+        return true;
+    }
+
+    /**
+     * Removes the cargo with the given ID from the warehouse.
+     *
+     * @param id ID of the cargo to remove
+     * @return the removed cargo, or null if no cargo with that ID is stored
+     */
+    Cargo remove(int id) {
+        return storage.remove(id);
+    }
+
+    /**
+     * Returns whether cargo with the given ID is stored in the warehouse.
+     *
+     * @param id cargo ID to look up
+     * @return true if the cargo is stored here
+     */
+    public boolean contains(int id) {
+        return storage.get(id) != null;
+    }
+
+    /**
+     * Returns the stored cargo with the given ID.
+     *
+     * @param id cargo ID to look up
+     * @return the cargo, or null if no cargo with that ID is stored
+     */
+    public Cargo get(int id) {
+        return storage.get(id);
+    }
+
+    /**
+     * Returns the number of pieces of cargo stored in the warehouse.
+     *
+     * @return number of stored cargo
+     */
+    public int size() {
+        return storage.size();
+    }
+
+    /**
+     * Returns whether the warehouse is empty.
+     *
+     * @return true if no cargo is stored
+     */
+    public boolean isEmpty() {
+        return storage.size() == 0;
+    }
+
+    /**
+     * Returns an iterator over all stored cargo, in the order it was stored.
+     *
+     * @return cargo iterator
+     */
+    @Override
+    public Iterator<Cargo> iterator() {
+        return storage.iterator();
+    }
+
+    /**
+     * Returns the stored containers bound for the given destination, in the
+     * order they were stored.
+     *
+     * @param destination destination to look up
+     * @return containers bound for the destination
+     */
+    public Iterable<Cargo> containersFor(String destination) {
+        return storage.containersFor(destination);
+    }
+
+    /**
+     * Returns the stored bulk cargo bound for the given destination, in the
+     * order it was stored.
+     *
+     * @param destination destination to look up
+     * @return bulk cargo bound for the destination
+     */
+    public Iterable<Cargo> bulkCargoFor(String destination) {
+        return storage.bulkCargoFor(destination);
+    }
+
+    /**
+     * Returns the stored cargo of the given container type or bulk cargo
+     * type, in the order it was stored.
+     *
+     * @param type a {@link portsim.cargo.ContainerType} or
+     * {@link portsim.cargo.BulkCargoType}
+     * @return cargo of that type
+     */
+    public Iterable<Cargo> ofType(Enum<?> type) {
+        return storage.ofType(type);
+    }
+
+    /**
+     * Returns the number of stored pieces of cargo of the given container
+     * type or bulk cargo type.
+     *
+     * @param type a {@link portsim.cargo.ContainerType} or
+     * {@link portsim.cargo.BulkCargoType}
+     * @return number of stored cargo of that type
+     */
+    public int countOfType(Enum<?> type) {
+        return storage.countOfType(type);
+    }
+
+    private static Enum<?> typeOf(Cargo cargo) {
+        if (cargo instanceof Container) {
+            return ((Container) cargo).getType();
+        } else if (cargo instanceof BulkCargo) {
+            return ((BulkCargo) cargo).getType();
+        }
+        return null;
+    }
+
+    /**
+     * The chains of a warehouse and its index by cargo ID.
+     */
+    private interface Storage extends Iterable<Cargo> {
+        int size();
+
+        Cargo get(int id);
+
+        /* Stores cargo whose ID is not yet stored */
+        void store(Cargo cargo);
+
+        Cargo remove(int id);
+
+        Iterable<Cargo> containersFor(String destination);
+
+        Iterable<Cargo> bulkCargoFor(String destination);
+
+        Iterable<Cargo> ofType(Enum<?> type);
+
+        int countOfType(Enum<?> type);
+    }
+
+    /**
+     * Storage as nodes linked into each chain, for a warehouse that has
+     * never been forked.
+     */
+    private static class LinkedStorage implements Storage {
+        /**
+         * Nodes of all stored cargo, by cargo ID
+         */
+        private final IntObjectMap<Node> byId = new IntObjectMap<>();
+
+        /**
+         * All stored cargo, in the order it was stored
+         */
+        private final Chain all = new Chain();
+
+        /**
+         * Stored containers, by destination
+         */
+        private final Map<String, Chain> containersByDestination
+                = new HashMap<>();
+
+        /**
+         * Stored bulk cargo, by destination
+         */
+        private final Map<String, Chain> bulkByDestination = new HashMap<>();
+
+        /**
+         * Stored cargo, by container type or bulk cargo type
+         */
+        private final Map<Enum<?>, Chain> byType = new HashMap<>();
+
+        @Override
+        public int size() {
+            return all.size;
+        }
+
+        @Override
+        public Cargo get(int id) {
+            Node node = byId.get(id);
+            return node == null ? null : node.cargo;
+        }
+
+        @Override
+        public void store(Cargo cargo) {
+            Node node = new Node(cargo);
+            byId.put(cargo.getId(), node);
+            all.append(node, ALL);
+
+            Map<String, Chain> destinations = cargo instanceof Container
+                    ? containersByDestination : bulkByDestination;
+            node.destination = destinations.computeIfAbsent(
+                    cargo.getDestination(), d -> new Chain());
+            node.destination.append(node, DESTINATION);
+
+            Enum<?> type = typeOf(cargo);
+            if (type != null) {
+                node.type = byType.computeIfAbsent(type, t -> new Chain());
+                node.type.append(node, TYPE);
+            }
+        }
+
+        @Override
+        public Cargo remove(int id) {
+            Node node = byId.remove(id);
+            if (node == null) {
+                return null;
+            }
+            all.unlink(node, ALL);
+            node.destination.unlink(node, DESTINATION);
+            if (node.type != null) {
+                node.type.unlink(node, TYPE);
+            }
+            return node.cargo;
+        }
+
+        @Override
+        public Iterator<Cargo> iterator() {
+            return all.iterator(ALL);
+        }
+
+        @Override
+        public Iterable<Cargo> containersFor(String destination) {
+            return walk(containersByDestination.get(destination), DESTINATION);
+        }
+
+        @Override
+        public Iterable<Cargo> bulkCargoFor(String destination) {
+            return walk(bulkByDestination.get(destination), DESTINATION);
+        }
+
+        @Override
+        public Iterable<Cargo> ofType(Enum<?> type) {
+            return walk(byType.get(type), TYPE);
+        }
+
+        @Override
+        public int countOfType(Enum<?> type) {
+            Chain chain = byType.get(type);
+            return chain == null ? 0 : chain.size;
+        }
+
+        private static Iterable<Cargo> walk(Chain chain, int link) {
+            return chain == null ? EMPTY : () -> chain.iterator(link);
+        }
+    }
+
+    /**
+     * Storage as tries keyed by the order cargo was stored, shared with the
+     * forks of a warehouse.
+     */
+    private static class TrieStorage implements Storage {
+        /**
+         * All stored cargo, with its sequence number, by cargo ID
+         */
+        private final LongTrieMap<Stored> byId;
+
+        /**
+         * All stored cargo, by sequence number
+         */
+        private final LongTrieMap<Cargo> all;
+
+        /**
+         * Stored containers, by destination and then sequence number
+         */
+        private final Map<String, LongTrieMap<Cargo>> containersByDestination;
+
+        /**
+         * Stored bulk cargo, by destination and then sequence number
+         */
+        private final Map<String, LongTrieMap<Cargo>> bulkByDestination;
+
+        /**
+         * Stored cargo, by container type or bulk cargo type and then
+         * sequence number
+         */
+        private final Map<Enum<?>, LongTrieMap<Cargo>> byType;
+
+        /**
+         * Sequence number given to the next cargo stored
+         */
+        private long nextSequence;
+
+        TrieStorage() {
+            this.byId = new LongTrieMap<>();
+            this.all = new LongTrieMap<>();
+            this.containersByDestination = new HashMap<>();
+            this.bulkByDestination = new HashMap<>();
+            this.byType = new HashMap<>();
+            this.nextSequence = 0;
+        }
+
+        private TrieStorage(TrieStorage storage) {
+            this.byId = storage.byId.fork();
+            this.all = storage.all.fork();
+            this.containersByDestination
+                    = fork(storage.containersByDestination);
+            this.bulkByDestination = fork(storage.bulkByDestination);
+            this.byType = fork(storage.byType);
+            this.nextSequence = storage.nextSequence;
+        }
+
+        TrieStorage fork() {
+            return new TrieStorage(this);
+        }
+
+        private static <K> Map<K, LongTrieMap<Cargo>> fork(
+                Map<K, LongTrieMap<Cargo>> chains) {
+            Map<K, LongTrieMap<Cargo>> forked
+                    = new HashMap<>(chains.size() * 2);
+            for (Map.Entry<K, LongTrieMap<Cargo>> entry : chains.entrySet()) {
+                forked.put(entry.getKey(), entry.getValue().fork());
+            }
+            return forked;
+        }
+
+        @Override
+        public int size() {
+            return all.size();
+        }
+
+        @Override
+        public Cargo get(int id) {
+            Stored stored = byId.get(id);
+            return stored == null ? null : stored.cargo;
+        }
+
+        @Override
+        public void store(Cargo cargo) {
+            long sequence = nextSequence++;
+            byId.put(cargo.getId(), new Stored(cargo, sequence));
+            all.put(sequence, cargo);
+            destinationChains(cargo).computeIfAbsent(cargo.getDestination(),
+                    d -> new LongTrieMap<>()).put(sequence, cargo);
+            Enum<?> type = typeOf(cargo);
+            if (type != null) {
+                byType.computeIfAbsent(type, t -> new LongTrieMap<>())
+                        .put(sequence, cargo);
+            }
+        }
+
+        @Override
+        public Cargo remove(int id) {
+            Stored stored = byId.remove(id);
+            if (stored == null) {
+                return null;
+            }
+            Cargo cargo = stored.cargo;
+            all.remove(stored.sequence);
+            destinationChains(cargo).get(cargo.getDestination())
+                    .remove(stored.sequence);
+            Enum<?> type = typeOf(cargo);
+            if (type != null) {
+                byType.get(type).remove(stored.sequence);
+            }
+            return cargo;
+        }
+
+        @Override
+        public Iterator<Cargo> iterator() {
+            return all.iterator();
+        }
+
+        @Override
+        public Iterable<Cargo> containersFor(String destination) {
+            return readOnly(containersByDestination.get(destination));
+        }
+
+        @Override
+        public Iterable<Cargo> bulkCargoFor(String destination) {
+            return readOnly(bulkByDestination.get(destination));
+        }
+
+        @Override
+        public Iterable<Cargo> ofType(Enum<?> type) {
+            return readOnly(byType.get(type));
+        }
+
+        @Override
+        public int countOfType(Enum<?> type) {
+            LongTrieMap<Cargo> chain = byType.get(type);
+            return chain == null ? 0 : chain.size();
+        }
+
+        private Map<String, LongTrieMap<Cargo>> destinationChains(
+                Cargo cargo) {
+            return cargo instanceof Container
+                    ? containersByDestination : bulkByDestination;
+        }
+
+        /* Iterates over a chain without giving access to the chain itself */
+        private static Iterable<Cargo> readOnly(LongTrieMap<Cargo> chain) {
+            return chain == null ? EMPTY : chain::iterator;
+        }
+    }
+
+    /**
+     * A piece of stored cargo and the sequence number it was stored with.
+     */
+    private static class Stored {
+        private final Cargo cargo;
+        private final long sequence;
+
+        Stored(Cargo cargo, long sequence) {
+            this.cargo = cargo;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * A piece of stored cargo and its links in each chain.
+     */
+    private static class Node {
+        private final Cargo cargo;
+        private final Node[] prev = new Node[3];
+        private final Node[] next = new Node[3];
+        private Chain destination;
+        private Chain type;
+
+        Node(Cargo cargo) {
+            this.cargo = cargo;
+        }
+    }
+
+    /**
+     * A doubly linked list of nodes through one of their links.
+     */
+    private static class Chain {
+        private Node head;
+        private Node tail;
+        private int size;
+
+        void append(Node node, int link) {
+            node.prev[link] = tail;
+            node.next[link] = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next[link] = node;
+            }
+            tail = node;
+            size++;
+        }
+
+        void unlink(Node node, int link) {
+            Node before = node.prev[link];
+            Node after = node.next[link];
+            if (before == null) {
+                head = after;
+            } else {
+                before.next[link] = after;
+            }
+            if (after == null) {
+                tail = before;
+            } else {
+                after.prev[link] = before;
+            }
+            size--;
+        }
+
+        Iterator<Cargo> iterator(int link) {
+            return new Iterator<Cargo>() {
+                private Node next = head;
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Cargo next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    Node current = next;
+                    next = current.next[link];
+                    return current.cargo;
+                }
+            };
+        }
+    }
+}
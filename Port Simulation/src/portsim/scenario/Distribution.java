@@ -0,0 +1,70 @@
+package portsim.scenario;
+
+import java.util.Random;
+
+/**
+ * A distribution of whole numbers that generated values, such as quay and
+ * ship capacities, are drawn from.
+ */
+public interface Distribution {
+    /**
+     * Draws a value from the distribution.
+     *
+     * @param random source of randomness, the only one the distribution may
+     *               use so results are reproducible
+     * @return value drawn
+     */
+    int sample(Random random);
+
+    /**
+     * Returns a distribution that always gives the same value.
+     *
+     * @param value value to give
+     * @return fixed distribution
+     */
+    static Distribution fixed(int value) {
+        return random -> value;
+    }
+
+    /**
+     * Returns a distribution where every value between the given bounds is
+     * equally likely.
+     *
+     * @param min smallest value, inclusive
+     * @param max largest value, inclusive
+     * @return uniform distribution
+     * @throws IllegalArgumentException if max &lt; min
+     */
+    static Distribution uniform(int min, int max)
+            throws IllegalArgumentException {
+        if (max < min) {
+            throw new IllegalArgumentException("Empty range: " + min + " to "
+                    + max);
+        }
+        return random -> min + (int) (random.nextDouble() * ((long) max - min + 1));
+    }
+
+    /**
+     * Returns a normal distribution with the given mean and standard
+     * deviation, rounded to the nearest whole number and clamped to the
+     * given bounds.
+     *
+     * @param mean mean value
+     * @param deviation standard deviation
+     * @param min smallest value, inclusive
+     * @param max largest value, inclusive
+     * @return clamped normal distribution
+     * @throws IllegalArgumentException if max &lt; min or deviation &lt; 0
+     */
+    static Distribution normal(double mean, double deviation, int min, int max)
+            throws IllegalArgumentException {
+        if (max < min || deviation < 0) {
+            throw new IllegalArgumentException("Invalid normal distribution: "
+                    + mean + ", " + deviation + ", " + min + " to " + max);
+        }
+        return random -> {
+            long value = Math.round(mean + deviation * random.nextGaussian());
+            return (int) Math.max(min, Math.min(max, value));
+        };
+    }
+}
@@ -0,0 +1,546 @@
+package portsim.scenario;
+
+import portsim.evaluators.QuayOccupancyEvaluator;
+import portsim.evaluators.QueueWaitEvaluator;
+import portsim.movement.Movement;
+import portsim.port.BulkQuay;
+import portsim.port.ContainerQuay;
+import portsim.port.DockingPolicy;
+import portsim.port.Port;
+import portsim.port.Quay;
+import portsim.util.BadEncodingException;
+import portsim.util.SimulationContext;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Compares quay layouts by running the same movement schedule against every
+ * combination of a grid of layout parameters.
+ * <p>
+ * The schedule is a port whose stored cargo, ship queue and movements are
+ * used as they are; its quays are replaced by each layout's quays, so ships
+ * docked at them are not carried over. A layout has a number of bulk quays,
+ * all with the same maximum tonnage, and a number of container quays, all
+ * with the same maximum number of containers. Layouts are run in parallel
+ * on a {@link ForkJoinPool}, each in its own {@link SimulationContext}.
+ * <p>
+ * Results are cached by a hash of the schedule's encoding and docking
+ * policy, the layout and the number of minutes simulated, so running a
+ * sweep again after adding points to the grid only runs the new points.
+ */
+public class LayoutSweep {
+    private final Port schedule;
+
+    private int[] bulkQuayCounts = {1};
+    private int[] containerQuayCounts = {1};
+    private int[] maxTonnages = {1000};
+    private int[] maxContainers = {100};
+
+    private int parallelism;
+
+    /**
+     * Results already measured, by configuration hash
+     */
+    private final Map<String, Result> cache;
+
+    /**
+     * Creates a sweep over the given schedule with a single layout of one
+     * bulk quay of 1000 tonnes and one container quay of 100 containers.
+     *
+     * @param schedule port providing the stored cargo, queue and movements
+     */
+    public LayoutSweep(Port schedule) {
+        this.schedule = schedule;
+        this.cache = new HashMap<>();
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Sets the numbers of bulk quays to try.
+     *
+     * @param counts numbers of bulk quays
+     * @throws IllegalArgumentException if no counts are given or one is
+     * negative
+     */
+    public void setBulkQuayCounts(int... counts)
+            throws IllegalArgumentException {
+        this.bulkQuayCounts = checked("bulk quay count", counts);
+    }
+
+    /**
+     * Sets the numbers of container quays to try.
+     *
+     * @param counts numbers of container quays
+     * @throws IllegalArgumentException if no counts are given or one is
+     * negative
+     */
+    public void setContainerQuayCounts(int... counts)
+            throws IllegalArgumentException {
+        this.containerQuayCounts = checked("container quay count", counts);
+    }
+
+    /**
+     * Sets the maximum tonnages of bulk quays to try.
+     *
+     * @param tonnages maximum tonnages
+     * @throws IllegalArgumentException if no tonnages are given or one is
+     * negative
+     */
+    public void setMaxTonnages(int... tonnages)
+            throws IllegalArgumentException {
+        this.maxTonnages = checked("maximum tonnage", tonnages);
+    }
+
+    /**
+     * Sets the maximum numbers of containers of container quays to try.
+     *
+     * @param containers maximum numbers of containers
+     * @throws IllegalArgumentException if no values are given or one is
+     * negative
+     */
+    public void setMaxContainers(int... containers)
+            throws IllegalArgumentException {
+        this.maxContainers = checked("maximum containers", containers);
+    }
+
+    /**
+     * Sets the number of layouts run at once. Defaults to the number of
+     * available processors.
+     *
+     * @param parallelism number of threads to run layouts on
+     * @throws IllegalArgumentException if parallelism &lt; 1
+     */
+    public void setParallelism(int parallelism)
+            throws IllegalArgumentException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: "
+                    + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the number of results cached by earlier runs.
+     *
+     * @return number of cached results
+     */
+    public int getCachedResults() {
+        return cache.size();
+    }
+
+    /**
+     * Returns every layout in the grid, varying the container quay settings
+     * fastest. Layouts without bulk quays only appear once for all maximum
+     * tonnages, and likewise for container quays.
+     *
+     * @return layouts in the grid
+     */
+    public List<Layout> getLayouts() {
+        List<Layout> layouts = new ArrayList<>();
+        for (int bulk : bulkQuayCounts) {
+            for (int tonnage : bulk == 0 ? new int[]{0} : maxTonnages) {
+                for (int containers : containerQuayCounts) {
+                    for (int capacity : containers == 0
+                            ? new int[]{0} : maxContainers) {
+                        layouts.add(new Layout(bulk, tonnage, containers,
+                                capacity));
+                    }
+                }
+            }
+        }
+        return layouts;
+    }
+
+    /**
+     * Runs every layout in the grid that is not already cached for the
+     * given number of minutes, and returns the results of all layouts in
+     * the grid ranked best first: by ships per hour, highest first, then by
+     * mean queue wait, shortest first, then by quay utilisation, highest
+     * first.
+     *
+     * @param minutes number of minutes to simulate each layout
+     * @return ranked results
+     * @throws IllegalArgumentException if minutes &lt; 1
+     * @throws IllegalStateException if the schedule cannot be copied
+     */
+    public List<Result> run(long minutes)
+            throws IllegalArgumentException, IllegalStateException {
+        if (minutes < 1) {
+            throw new IllegalArgumentException("Invalid run length: "
+                    + minutes);
+        }
+        String encoded = schedule.encode();
+        DockingPolicy policy = schedule.getDockingPolicy();
+        String digest = digest(policy + System.lineSeparator() + encoded);
+
+        List<Layout> layouts = getLayouts();
+        List<Result> results = new ArrayList<>(layouts.size());
+        Map<String, ForkJoinTask<Result>> pending = new HashMap<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (Layout layout : layouts) {
+                String key = digest + ":" + layout + ":" + minutes;
+                if (!cache.containsKey(key) && !pending.containsKey(key)) {
+                    pending.put(key, pool.submit(() -> simulate(encoded,
+                            policy, layout, minutes)));
+                }
+            }
+            for (Map.Entry<String, ForkJoinTask<Result>> entry
+                    : pending.entrySet()) {
+                cache.put(entry.getKey(), entry.getValue().join());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        for (Layout layout : layouts) {
+            results.add(cache.get(digest + ":" + layout + ":" + minutes));
+        }
+
+        results.sort(Comparator.comparingDouble(Result::getShipsPerHour)
+                .reversed()
+                .thenComparingDouble(Result::getMeanWait)
+                .thenComparing(Comparator.comparingDouble(
+                        Result::getUtilisation).reversed()));
+        return results;
+    }
+
+    private static Result simulate(String encoded, DockingPolicy policy,
+                                   Layout layout, long minutes) {
+        SimulationContext context = new SimulationContext();
+        Port copy;
+        try {
+            copy = Port.initialisePort(context, new StringReader(encoded));
+        } catch (BadEncodingException | IOException e) {
+            throw new IllegalStateException("Schedule cannot be copied", e);
+        }
+
+        Port port = new Port(context, copy.getName(), copy.getTime(),
+                copy.getShipQueue(), layout.createQuays(), copy.getCargo());
+        port.setDockingPolicy(policy);
+        for (Movement movement : copy.getMovements()) {
+            port.addMovement(movement);
+        }
+        QueueWaitEvaluator wait = new QueueWaitEvaluator();
+        QuayOccupancyEvaluator occupancy = new QuayOccupancyEvaluator();
+        port.addStatisticsEvaluator(wait);
+        port.addStatisticsEvaluator(occupancy);
+
+        port.advanceTo(port.getTime() + minutes);
+        return new Result(layout, wait.getShipsDocked() * 60.0 / minutes,
+                wait.getMeanWait(), occupancy.getUtilisation(),
+                wait.getShipsWaiting());
+    }
+
+    private static int[] checked(String what, int[] values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("No " + what + " given");
+        }
+        for (int value : values) {
+            if (value < 0) {
+                throw new IllegalArgumentException("Negative " + what + ": "
+                        + value);
+            }
+        }
+        return Arrays.stream(values).distinct().toArray();
+    }
+
+    private static String digest(String encoded) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(encoded.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Formats ranked results as a table with one row per layout.
+     *
+     * @param results results to format, in the order to show them
+     * @return table of results
+     */
+    public static String toTable(List<Result> results) {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%4s %5s %8s %5s %8s %10s %10s %11s %7s%n",
+                "rank", "bulk", "tonnage", "boxes", "capacity", "ships/hour",
+                "mean wait", "utilisation", "waiting"));
+        int rank = 1;
+        for (Result result : results) {
+            Layout layout = result.getLayout();
+            table.append(String.format(
+                    "%4d %5d %8d %5d %8d %10.3f %10.3f %11.3f %7d%n", rank++,
+                    layout.getBulkQuays(), layout.getMaxTonnage(),
+                    layout.getContainerQuays(), layout.getMaxContainers(),
+                    result.getShipsPerHour(), result.getMeanWait(),
+                    result.getUtilisation(), result.getShipsWaiting()));
+        }
+        return table.toString();
+    }
+
+    /**
+     * Runs a layout sweep over the schedule in a save file and prints the
+     * ranked results.
+     * <p>
+     * Usage: {@code schedule_file minutes bulk_quays max_tonnages
+     * container_quays max_containers}
+     * <p>
+     * Where
+     * <ul>
+     * <li>{@code schedule_file} is the path to the file containing the
+     * schedule</li>
+     * <li>{@code minutes} is the number of minutes to simulate</li>
+     * <li>the other arguments are comma separated lists of values to try,
+     * for example {@code 2,4,6}</li>
+     * </ul>
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length != 6) {
+            System.err.println("Usage: schedule_file minutes bulk_quays"
+                    + " max_tonnages container_quays max_containers");
+            System.exit(1);
+        }
+
+        Port schedule;
+        try (Reader reader = new FileReader(args[0])) {
+            schedule = Port.initialisePort(new SimulationContext(), reader);
+        } catch (BadEncodingException | IOException e) {
+            System.err.println("Error loading from file. Stack trace below:");
+            e.printStackTrace();
+            System.exit(1);
+            return;
+        }
+
+        LayoutSweep sweep = new LayoutSweep(schedule);
+        long minutes;
+        try {
+            minutes = Long.parseLong(args[1]);
+            sweep.setBulkQuayCounts(parseList(args[2]));
+            sweep.setMaxTonnages(parseList(args[3]));
+            sweep.setContainerQuayCounts(parseList(args[4]));
+            sweep.setMaxContainers(parseList(args[5]));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid sweep: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<Result> results = sweep.run(minutes);
+        System.out.print(toTable(results));
+        System.out.printf("Ran %d layouts in %.3f seconds%n", results.size(),
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    private static int[] parseList(String list) {
+        return Arrays.stream(list.split(",")).mapToInt(Integer::parseInt)
+                .toArray();
+    }
+
+    /**
+     * The quays of one point of the sweep.
+     */
+    public static final class Layout {
+        private final int bulkQuays;
+        private final int maxTonnage;
+        private final int containerQuays;
+        private final int maxContainers;
+
+        /**
+         * Creates a layout.
+         *
+         * @param bulkQuays number of bulk quays
+         * @param maxTonnage maximum tonnage of each bulk quay
+         * @param containerQuays number of container quays
+         * @param maxContainers maximum containers of each container quay
+         */
+        public Layout(int bulkQuays, int maxTonnage, int containerQuays,
+                      int maxContainers) {
+            this.bulkQuays = bulkQuays;
+            this.maxTonnage = maxTonnage;
+            this.containerQuays = containerQuays;
+            this.maxContainers = maxContainers;
+        }
+
+        /**
+         * Returns the number of bulk quays.
+         *
+         * @return number of bulk quays
+         */
+        public int getBulkQuays() {
+            return bulkQuays;
+        }
+
+        /**
+         * Returns the maximum tonnage of each bulk quay.
+         *
+         * @return maximum tonnage
+         */
+        public int getMaxTonnage() {
+            return maxTonnage;
+        }
+
+        /**
+         * Returns the number of container quays.
+         *
+         * @return number of container quays
+         */
+        public int getContainerQuays() {
+            return containerQuays;
+        }
+
+        /**
+         * Returns the maximum number of containers of each container
+         * quay.
+         *
+         * @return maximum containers
+         */
+        public int getMaxContainers() {
+            return maxContainers;
+        }
+
+        /* Bulk quays first, numbered from 0 */
+        private List<Quay> createQuays() {
+            List<Quay> quays = new ArrayList<>(bulkQuays + containerQuays);
+            for (int i = 0; i < bulkQuays; i++) {
+                quays.add(new BulkQuay(quays.size(), maxTonnage));
+            }
+            for (int i = 0; i < containerQuays; i++) {
+                quays.add(new ContainerQuay(quays.size(), maxContainers));
+            }
+            return quays;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Layout)) {
+                return false;
+            }
+            Layout other = (Layout) o;
+            return bulkQuays == other.bulkQuays
+                    && maxTonnage == other.maxTonnage
+                    && containerQuays == other.containerQuays
+                    && maxContainers == other.maxContainers;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bulkQuays, maxTonnage, containerQuays,
+                    maxContainers);
+        }
+
+        /**
+         * Returns the string representation of this layout.
+         * <p>
+         * The format of the string to return is
+         * <pre>bulk x tonnage + containers x capacity</pre>
+         *
+         * @return string representation of this layout
+         */
+        @Override
+        public String toString() {
+            return bulkQuays + "x" + maxTonnage + "+" + containerQuays + "x"
+                    + maxContainers;
+        }
+    }
+
+    /**
+     * What was measured running one layout.
+     */
+    public static final class Result {
+        private final Layout layout;
+        private final double shipsPerHour;
+        private final double meanWait;
+        private final double utilisation;
+        private final int shipsWaiting;
+
+        Result(Layout layout, double shipsPerHour, double meanWait,
+               double utilisation, int shipsWaiting) {
+            this.layout = layout;
+            this.shipsPerHour = shipsPerHour;
+            this.meanWait = meanWait;
+            this.utilisation = utilisation;
+            this.shipsWaiting = shipsWaiting;
+        }
+
+        /**
+         * Returns the layout that was run.
+         *
+         * @return layout
+         */
+        public Layout getLayout() {
+            return layout;
+        }
+
+        /**
+         * Returns the mean number of ships that arrived and docked per
+         * hour. Ships leave at the times in the schedule whatever the
+         * layout, so this rather than departures measures how many ships
+         * the layout served.
+         *
+         * @return ships per hour
+         */
+        public double getShipsPerHour() {
+            return shipsPerHour;
+        }
+
+        /**
+         * Returns the mean number of minutes ships waited in the queue
+         * before docking, over the ships that docked.
+         *
+         * @return mean wait in minutes
+         */
+        public double getMeanWait() {
+            return meanWait;
+        }
+
+        /**
+         * Returns the fraction of the time the layout's quays were
+         * occupied.
+         *
+         * @return utilisation between 0 and 1
+         */
+        public double getUtilisation() {
+            return utilisation;
+        }
+
+        /**
+         * Returns the number of ships that arrived during the run and never
+         * docked, either still queued at the end or turned away for lack
+         * of a free quay.
+         *
+         * @return number of ships
+         */
+        public int getShipsWaiting() {
+            return shipsWaiting;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %.3f ships/hour, %.3f minutes wait,"
+                            + " %.3f utilisation, %d waiting", layout,
+                    shipsPerHour, meanWait, utilisation, shipsWaiting);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package portsim.scenario;
+
+import portsim.evaluators.QuayOccupancyEvaluator;
+import portsim.evaluators.ShipThroughputEvaluator;
+import portsim.evaluators.StatisticsEvaluator;
+import portsim.port.Port;
+import portsim.util.BadEncodingException;
+import portsim.util.SimulationContext;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Runs many independent replications of a port simulation in parallel and
+ * summarises their results.
+ * <p>
+ * Each replication starts from a copy of the same base port, made by
+ * decoding the base port's encoding into a new {@link SimulationContext},
+ * so replications share no ships, cargo or evaluators. A {@link Schedule}
+ * then adds that replication's own movements, generated from its seed, and
+ * the copy is advanced by the configured number of minutes. At the end of
+ * each replication every metric is measured, and the values are summarised
+ * over all replications.
+ * <p>
+ * Replication seeds are derived from the run's seed before any replication
+ * starts, and each replication only touches its own port, so the results
+ * are the same however the replications are scheduled on the pool's
+ * threads.
+ */
+public class ReplicationRunner {
+    /**
+     * Adds one replication's movements to its copy of the base port.
+     */
+    @FunctionalInterface
+    public interface Schedule {
+        /**
+         * Adds movements generated from the given seed to the given port.
+         * The same seed must always give the same movements.
+         *
+         * @param port replication's copy of the base port
+         * @param seed replication's seed
+         */
+        void addMovements(Port port, long seed);
+    }
+
+    private final Port base;
+    private final Schedule schedule;
+
+    /**
+     * Names of the metrics measured, and how to measure each
+     */
+    private final Map<String, ToDoubleFunction<Port>> metrics;
+
+    private int parallelism;
+
+    /**
+     * Creates a runner for replications of the given base port.
+     *
+     * @param base port every replication starts from
+     * @param schedule adds each replication's movements
+     */
+    public ReplicationRunner(Port base, Schedule schedule) {
+        this.base = base;
+        this.schedule = schedule;
+        this.metrics = new LinkedHashMap<>();
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Adds a value to measure at the end of each replication.
+     * <p>
+     * If no metrics are added, the standard metrics are measured: the
+     * number of ships queued and cargo stored at the end of the run, and if
+     * the base port has the evaluators for them, ships per hour and quay
+     * utilisation.
+     *
+     * @param name name of the value, unique among this runner's metrics
+     * @param metric measures the value from a finished replication's port
+     * @throws IllegalArgumentException if a metric with the name was
+     * already added
+     */
+    public void addMetric(String name, ToDoubleFunction<Port> metric)
+            throws IllegalArgumentException {
+        if (metrics.putIfAbsent(name, metric) != null) {
+            throw new IllegalArgumentException("Duplicate metric: " + name);
+        }
+    }
+
+    /**
+     * Sets the number of replications run at once. Defaults to the number
+     * of available processors.
+     *
+     * @param parallelism number of threads to run replications on
+     * @throws IllegalArgumentException if parallelism &lt; 1
+     */
+    public void setParallelism(int parallelism)
+            throws IllegalArgumentException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: "
+                    + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the seed of the given replication of a run with the given
+     * seed, so a single replication can be reproduced on its own.
+     *
+     * @param seed seed of the run
+     * @param replication index of the replication
+     * @return seed passed to the replication's schedule
+     */
+    public static long replicationSeed(long seed, int replication) {
+        return seeds(seed, replication + 1)[replication];
+    }
+
+    /**
+     * Runs the given number of replications for the given number of minutes
+     * each, and summarises each metric over them.
+     *
+     * @param replications number of replications
+     * @param seed seed the replication seeds are derived from
+     * @param minutes number of minutes to advance each replication
+     * @return summary of each metric, in the order the metrics were added
+     * @throws IllegalArgumentException if replications &lt; 1 or
+     * minutes &lt; 0
+     * @throws IllegalStateException if the base port cannot be copied
+     */
+    public Map<String, Summary> run(int replications, long seed, long minutes)
+            throws IllegalArgumentException, IllegalStateException {
+        if (replications < 1 || minutes < 0) {
+            throw new IllegalArgumentException("Invalid run: " + replications
+                    + " replications of " + minutes + " minutes");
+        }
+        Map<String, ToDoubleFunction<Port>> measured = metrics.isEmpty()
+                ? standardMetrics() : new LinkedHashMap<>(metrics);
+        List<ToDoubleFunction<Port>> measures = new ArrayList<>(measured.values());
+        String encoded = base.encode();
+        long[] seeds = seeds(seed, replications);
+
+        double[][] values = new double[measures.size()][replications];
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<double[]>> tasks = new ArrayList<>(replications);
+            for (int i = 0; i < replications; i++) {
+                long replicationSeed = seeds[i];
+                tasks.add(pool.submit(() -> replicate(encoded, replicationSeed,
+                        minutes, measures)));
+            }
+            for (int i = 0; i < replications; i++) {
+                double[] result = tasks.get(i).join();
+                for (int j = 0; j < result.length; j++) {
+                    values[j][i] = result[j];
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Map<String, Summary> summaries = new LinkedHashMap<>();
+        int index = 0;
+        for (String name : measured.keySet()) {
+            summaries.put(name, new Summary(name, values[index++]));
+        }
+        return summaries;
+    }
+
+    private double[] replicate(String encoded, long seed, long minutes,
+                               List<ToDoubleFunction<Port>> measures) {
+        Port port;
+        try {
+            port = Port.initialisePort(new SimulationContext(),
+                    new StringReader(encoded));
+        } catch (BadEncodingException | IOException e) {
+            throw new IllegalStateException("Base port cannot be copied", e);
+        }
+        port.setDockingPolicy(base.getDockingPolicy());
+        schedule.addMovements(port, seed);
+        port.advanceTo(port.getTime() + minutes);
+
+        double[] result = new double[measures.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = measures.get(i).applyAsDouble(port);
+        }
+        return result;
+    }
+
+    private Map<String, ToDoubleFunction<Port>> standardMetrics() {
+        Map<String, ToDoubleFunction<Port>> standard = new LinkedHashMap<>();
+        standard.put("ships queued",
+                port -> port.getShipQueue().getShipQueue().size());
+        standard.put("cargo stored", port -> port.getWarehouse().size());
+        if (find(base, ShipThroughputEvaluator.class) != null) {
+            standard.put("ships per hour", port -> find(port,
+                    ShipThroughputEvaluator.class).getThroughputPerHour());
+        }
+        if (find(base, QuayOccupancyEvaluator.class) != null) {
+            standard.put("quay utilisation", port -> find(port,
+                    QuayOccupancyEvaluator.class).getUtilisation());
+        }
+        return standard;
+    }
+
+    /* The port's evaluator of the given type, or null if it has none */
+    private static <T extends StatisticsEvaluator> T find(Port port,
+                                                          Class<T> type) {
+        for (StatisticsEvaluator evaluator : port.getEvaluators()) {
+            if (type.isInstance(evaluator)) {
+                return type.cast(evaluator);
+            }
+        }
+        return null;
+    }
+
+    private static long[] seeds(long seed, int count) {
+        Random random = new Random(seed);
+        long[] seeds = new long[count];
+        for (int i = 0; i < count; i++) {
+            seeds[i] = random.nextLong();
+        }
+        return seeds;
+    }
+
+    /**
+     * Runs replications of a port loaded from a save file, each with a
+     * schedule generated by a {@link ScenarioGenerator} with the default
+     * settings over the simulated minutes, and prints a summary of the
+     * standard metrics.
+     * <p>
+     * Usage: {@code port_file minutes replications seed}
+     * <p>
+     * Where
+     * <ul>
+     * <li>{@code port_file} is the path to the file containing the base
+     * port</li>
+     * <li>{@code minutes} is the number of minutes to simulate</li>
+     * <li>{@code replications} is the number of replications to run</li>
+     * <li>{@code seed} is the seed the replications are derived from</li>
+     * </ul>
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length != 4) {
+            System.err.println("Usage: port_file minutes replications seed");
+            System.exit(1);
+        }
+
+        long minutes;
+        int replications;
+        long seed;
+        try {
+            minutes = Long.parseLong(args[1]);
+            replications = Integer.parseInt(args[2]);
+            seed = Long.parseLong(args[3]);
+        } catch (NumberFormatException e) {
+            System.err.println("minutes, replications and seed must be"
+                    + " integers");
+            System.exit(1);
+            return;
+        }
+        if (minutes < 1 || replications < 1) {
+            System.err.println("minutes and replications must be positive");
+            System.exit(1);
+        }
+
+        Port base;
+        try (Reader reader = new FileReader(args[0])) {
+            base = Port.initialisePort(new SimulationContext(), reader);
+        } catch (BadEncodingException | IOException e) {
+            System.err.println("Error loading from file. Stack trace below:");
+            e.printStackTrace();
+            System.exit(1);
+            return;
+        }
+
+        ReplicationRunner runner = new ReplicationRunner(base,
+                (port, replicationSeed) -> {
+                    ScenarioGenerator generator
+                            = new ScenarioGenerator(replicationSeed);
+                    generator.setSchedule(minutes,
+                            Distribution.uniform(60, 24 * 60));
+                    generator.addMovements(port);
+                });
+        long start = System.nanoTime();
+        Map<String, Summary> summaries = runner.run(replications, seed,
+                minutes);
+        for (Summary summary : summaries.values()) {
+            System.out.println(summary);
+        }
+        System.out.printf("Ran %d replications in %.3f seconds%n",
+                replications, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,645 @@
+package portsim.scenario;
+
+import portsim.cargo.BulkCargo;
+import portsim.cargo.BulkCargoType;
+import portsim.cargo.Cargo;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.evaluators.CargoDecompositionEvaluator;
+import portsim.evaluators.QuayOccupancyEvaluator;
+import portsim.evaluators.ShipFlagEvaluator;
+import portsim.evaluators.ShipThroughputEvaluator;
+import portsim.movement.CargoMovement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.port.BulkQuay;
+import portsim.port.ContainerQuay;
+import portsim.port.Port;
+import portsim.port.Quay;
+import portsim.port.ShipQueue;
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+import portsim.util.SimulationContext;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates large, valid ports from a seed, for load testing the
+ * simulation.
+ * <p>
+ * A generated port has the configured number of bulk and container quays,
+ * with capacities drawn from the configured distributions, cargo in its
+ * warehouse, and a schedule of ship and cargo movements spread over the
+ * configured horizon. Cargo destinations and ship origins follow a Zipf
+ * distribution over the destination list, so a few countries see most of
+ * the traffic, and ships fly a weighted mix of nautical flags. Ships arrive
+ * carrying cargo bound for their origin, as the port requires, and leave
+ * after a stay drawn from the configured distribution.
+ * <p>
+ * Every value is drawn from one {@link Random} seeded with the generator's
+ * seed, in a fixed order, so the same seed and settings always produce the
+ * same port and the same save file.
+ */
+public class ScenarioGenerator {
+    /**
+     * IMO number of the first generated ship, the smallest valid one
+     */
+    private static final long FIRST_IMO = 1_000_000;
+
+    /**
+     * Largest number of ships that still have valid IMO numbers
+     */
+    private static final int MAX_SHIPS = 9_000_000;
+
+    /**
+     * Countries cargo is bound for by default, most popular first
+     */
+    private static final List<String> DEFAULT_DESTINATIONS = List.of(
+            "China", "Japan", "Korea", "Singapore", "Australia", "New Zealand",
+            "India", "Indonesia", "Chile", "Peru", "Brazil", "Canada");
+
+    private final long seed;
+
+    private int bulkQuays = 10;
+    private Distribution bulkQuayTonnage = Distribution.uniform(100, 1000);
+    private int containerQuays = 10;
+    private Distribution containerQuayCapacity = Distribution.uniform(10, 100);
+
+    private int ships = 1_000;
+    private double bulkCarrierShare = 0.4;
+    private Distribution bulkCarrierCapacity
+            = Distribution.normal(600, 200, 100, 1000);
+    private Distribution containerShipCapacity
+            = Distribution.normal(50, 20, 10, 100);
+
+    private int storedCargo = 10_000;
+    private double containerShare = 0.75;
+    private Distribution bulkCargoTonnage = Distribution.uniform(10, 500);
+
+    private int cargoMovements = 1_000;
+    private double outboundCargoShare = 0.3;
+    private Distribution cargoBatchSize = Distribution.uniform(1, 20);
+
+    private long horizon = 7 * 24 * 60;
+    private Distribution stay = Distribution.uniform(60, 24 * 60);
+
+    private List<String> destinations = DEFAULT_DESTINATIONS;
+    private double skew = 1.0;
+    private final Map<NauticalFlag, Double> flagWeights;
+
+    private boolean evaluators = true;
+
+    /**
+     * Creates a generator with the given seed and the default settings: a
+     * week of traffic for twenty quays, a thousand ships and ten thousand
+     * stored cargo.
+     *
+     * @param seed seed every generated value is derived from
+     */
+    public ScenarioGenerator(long seed) {
+        this.seed = seed;
+        this.flagWeights = new EnumMap<>(NauticalFlag.class);
+        flagWeights.put(NauticalFlag.NOVEMBER, 0.70);
+        flagWeights.put(NauticalFlag.HOTEL, 0.15);
+        flagWeights.put(NauticalFlag.BRAVO, 0.10);
+        flagWeights.put(NauticalFlag.WHISKEY, 0.05);
+    }
+
+    /**
+     * Returns the seed of this generator.
+     *
+     * @return seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sets the number of bulk quays and the distribution of their maximum
+     * tonnage.
+     *
+     * @param count number of bulk quays
+     * @param maxTonnage distribution of each quay's maximum tonnage
+     * @throws IllegalArgumentException if count &lt; 0
+     */
+    public void setBulkQuays(int count, Distribution maxTonnage)
+            throws IllegalArgumentException {
+        requireNonNegative("bulk quays", count);
+        this.bulkQuays = count;
+        this.bulkQuayTonnage = maxTonnage;
+    }
+
+    /**
+     * Sets the number of container quays and the distribution of their
+     * maximum number of containers.
+     *
+     * @param count number of container quays
+     * @param maxContainers distribution of each quay's maximum containers
+     * @throws IllegalArgumentException if count &lt; 0
+     */
+    public void setContainerQuays(int count, Distribution maxContainers)
+            throws IllegalArgumentException {
+        requireNonNegative("container quays", count);
+        this.containerQuays = count;
+        this.containerQuayCapacity = maxContainers;
+    }
+
+    /**
+     * Sets the number of ships that visit the port and the fraction of them
+     * that are bulk carriers; the rest are container ships.
+     *
+     * @param count number of ships
+     * @param bulkCarrierShare fraction of ships that are bulk carriers
+     * @throws IllegalArgumentException if count is negative or too large
+     * for every ship to have a valid IMO number, or the share is not between
+     * 0 and 1
+     */
+    public void setShips(int count, double bulkCarrierShare)
+            throws IllegalArgumentException {
+        requireNonNegative("ships", count);
+        if (count > MAX_SHIPS) {
+            throw new IllegalArgumentException("Too many ships: " + count);
+        }
+        requireShare("bulk carrier share", bulkCarrierShare);
+        this.ships = count;
+        this.bulkCarrierShare = bulkCarrierShare;
+    }
+
+    /**
+     * Sets the distributions of ship capacities.
+     *
+     * @param bulkCarrier distribution of bulk carrier tonnage capacity
+     * @param containerShip distribution of container ship capacity
+     */
+    public void setShipCapacity(Distribution bulkCarrier,
+                                Distribution containerShip) {
+        this.bulkCarrierCapacity = bulkCarrier;
+        this.containerShipCapacity = containerShip;
+    }
+
+    /**
+     * Sets the amount of cargo stored at the port when the scenario starts,
+     * and the fraction of all generated cargo that is containers rather
+     * than bulk cargo.
+     *
+     * @param count number of stored cargo
+     * @param containerShare fraction of cargo that is containers
+     * @param bulkTonnage distribution of bulk cargo tonnage
+     * @throws IllegalArgumentException if count &lt; 0 or the share is not
+     * between 0 and 1
+     */
+    public void setStoredCargo(int count, double containerShare,
+                               Distribution bulkTonnage)
+            throws IllegalArgumentException {
+        requireNonNegative("stored cargo", count);
+        requireShare("container share", containerShare);
+        this.storedCargo = count;
+        this.containerShare = containerShare;
+        this.bulkCargoTonnage = bulkTonnage;
+    }
+
+    /**
+     * Sets the number of cargo movements, the fraction of them that take
+     * stored cargo away rather than bring new cargo in, and the distribution
+     * of the number of cargo each moves.
+     *
+     * @param count number of cargo movements
+     * @param outboundShare fraction of movements that are outbound
+     * @param batchSize distribution of cargo per movement
+     * @throws IllegalArgumentException if count &lt; 0 or the share is not
+     * between 0 and 1
+     */
+    public void setCargoMovements(int count, double outboundShare,
+                                  Distribution batchSize)
+            throws IllegalArgumentException {
+        requireNonNegative("cargo movements", count);
+        requireShare("outbound share", outboundShare);
+        this.cargoMovements = count;
+        this.outboundCargoShare = outboundShare;
+        this.cargoBatchSize = batchSize;
+    }
+
+    /**
+     * Sets the number of minutes movements are spread over, and the
+     * distribution of how long ships stay between arriving and leaving.
+     * Ships that would leave after the horizon have no outbound movement.
+     *
+     * @param minutes length of the schedule in minutes
+     * @param stay distribution of minutes between a ship's inbound and
+     *             outbound movements
+     * @throws IllegalArgumentException if minutes &lt; 1
+     */
+    public void setSchedule(long minutes, Distribution stay)
+            throws IllegalArgumentException {
+        if (minutes < 1) {
+            throw new IllegalArgumentException("Horizon must be positive: "
+                    + minutes);
+        }
+        this.horizon = minutes;
+        this.stay = stay;
+    }
+
+    /**
+     * Sets the countries cargo is bound for and ships come from, and how
+     * skewed traffic is towards the first of them. The country at index
+     * {@code i} is chosen with weight {@code 1 / (i + 1)^skew}, so a skew of
+     * 0 spreads traffic evenly.
+     *
+     * @param destinations countries, most popular first
+     * @param skew Zipf exponent
+     * @throws IllegalArgumentException if there are no destinations, one
+     * contains a character used by the save file format, or skew &lt; 0
+     */
+    public void setDestinations(List<String> destinations, double skew)
+            throws IllegalArgumentException {
+        if (destinations.isEmpty() || skew < 0) {
+            throw new IllegalArgumentException("Invalid destinations: "
+                    + destinations + ", skew " + skew);
+        }
+        for (String destination : destinations) {
+            if (destination.isEmpty() || destination.contains(":")
+                    || destination.contains(",")
+                    || destination.contains("\n")) {
+                throw new IllegalArgumentException("Invalid destination: "
+                        + destination);
+            }
+        }
+        this.destinations = List.copyOf(destinations);
+        this.skew = skew;
+    }
+
+    /**
+     * Sets the relative weight of a nautical flag among generated ships.
+     *
+     * @param flag flag to weight
+     * @param weight relative weight, 0 for none
+     * @throws IllegalArgumentException if weight &lt; 0
+     */
+    public void setFlagWeight(NauticalFlag flag, double weight)
+            throws IllegalArgumentException {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Negative weight: " + weight);
+        }
+        flagWeights.put(flag, weight);
+    }
+
+    /**
+     * Sets whether generated ports have the standard statistics evaluators.
+     *
+     * @param evaluators true to add the evaluators
+     */
+    public void setEvaluators(boolean evaluators) {
+        this.evaluators = evaluators;
+    }
+
+    /**
+     * Multiplies the number of quays, ships, stored cargo and cargo
+     * movements by the given factor, keeping every distribution the same.
+     *
+     * @param factor scale factor
+     * @throws IllegalArgumentException if factor &lt; 0 or a count would be
+     * out of range
+     */
+    public void scale(double factor) throws IllegalArgumentException {
+        if (factor < 0) {
+            throw new IllegalArgumentException("Negative scale: " + factor);
+        }
+        setBulkQuays(scaled(bulkQuays, factor), bulkQuayTonnage);
+        setContainerQuays(scaled(containerQuays, factor),
+                containerQuayCapacity);
+        setShips(scaled(ships, factor), bulkCarrierShare);
+        setStoredCargo(scaled(storedCargo, factor), containerShare,
+                bulkCargoTonnage);
+        setCargoMovements(scaled(cargoMovements, factor), outboundCargoShare,
+                cargoBatchSize);
+    }
+
+    /**
+     * Generates a port in a new simulation context.
+     *
+     * @return generated port
+     * @see #generate(SimulationContext)
+     */
+    public Port generate() {
+        return generate(new SimulationContext());
+    }
+
+    /**
+     * Generates a port, registering its ships and cargo in the given
+     * context. The context must not already contain ships or cargo with the
+     * generated IMO numbers or IDs, which count up from 1000000 and 0.
+     *
+     * @param context context to register ships and cargo in
+     * @return generated port
+     * @throws IllegalArgumentException if a generated ship or cargo clashes
+     * with one already in the context
+     */
+    public Port generate(SimulationContext context)
+            throws IllegalArgumentException {
+        return new Generation(context, 0, FIRST_IMO).run();
+    }
+
+    /**
+     * Adds a generated schedule of ship and cargo movements to an existing
+     * port, leaving its quays and stored cargo as they are.
+     * <p>
+     * The generated ships and cargo are registered in the port's context,
+     * with IMO numbers and IDs above any already there. Outbound cargo
+     * movements take cargo currently stored at the port. The movements are
+     * spread over the configured horizon starting at the port's current
+     * time, and are the same every time for the same seed, settings and
+     * port.
+     *
+     * @param port port to add movements to
+     * @throws IllegalArgumentException if the port's context has no room
+     * for the generated ships' IMO numbers
+     */
+    public void addMovements(Port port) throws IllegalArgumentException {
+        SimulationContext context = port.getContext();
+        int nextCargoId = 0;
+        for (int id : context.getCargoRegistry().keySet()) {
+            nextCargoId = Math.max(nextCargoId, id + 1);
+        }
+        long nextImo = FIRST_IMO;
+        for (long imo : context.getShipRegistry().keySet()) {
+            nextImo = Math.max(nextImo, imo + 1);
+        }
+        if (nextImo + ships > FIRST_IMO + MAX_SHIPS) {
+            throw new IllegalArgumentException("No IMO numbers left for "
+                    + ships + " ships");
+        }
+        new Generation(context, nextCargoId, nextImo)
+                .schedule(port, port.getCargo(), port.getTime());
+    }
+
+    /**
+     * Generates a port from a seed and saves it to a file.
+     * <p>
+     * Usage: {@code seed output_file [scale]}
+     * <p>
+     * Where
+     * <ul>
+     * <li>{@code seed} is the seed to generate the port from</li>
+     * <li>{@code output_file} is the path the port will be saved to</li>
+     * <li>{@code scale} optionally multiplies the default number of quays,
+     * ships, cargo and movements</li>
+     * </ul>
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length != 2 && args.length != 3) {
+            System.err.println("Usage: seed output_file [scale]");
+            System.exit(1);
+        }
+
+        ScenarioGenerator generator;
+        try {
+            generator = new ScenarioGenerator(Long.parseLong(args[0]));
+            if (args.length == 3) {
+                generator.scale(Double.parseDouble(args[2]));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid seed or scale: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        long start = System.nanoTime();
+        Port port = generator.generate();
+        try {
+            port.save(Paths.get(args[1]));
+        } catch (IOException e) {
+            System.err.println("Error saving to file. Stack trace below:");
+            e.printStackTrace();
+            System.exit(1);
+        }
+        System.out.printf("Generated %d quays, %d cargo and %d movements in"
+                        + " %.3f seconds%n", port.getQuays().size(),
+                port.getCargo().size(), port.getMovements().size(),
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    private static int scaled(int count, double factor) {
+        double result = Math.rint(count * factor);
+        if (result > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Scaled count too large: "
+                    + count + " * " + factor);
+        }
+        return (int) result;
+    }
+
+    private static void requireNonNegative(String what, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Negative " + what + ": "
+                    + count);
+        }
+    }
+
+    private static void requireShare(String what, double share) {
+        if (!(share >= 0 && share <= 1)) {
+            throw new IllegalArgumentException("Invalid " + what + ": "
+                    + share);
+        }
+    }
+
+    /**
+     * One run of the generator, holding the random source and the next
+     * free cargo ID.
+     */
+    private class Generation {
+        private final SimulationContext context;
+        private final Random random = new Random(seed);
+        private final Weighted destinationChoice;
+        private final Weighted flagChoice;
+        private final NauticalFlag[] flags = NauticalFlag.values();
+        private final long firstImo;
+        private int nextCargoId;
+
+        Generation(SimulationContext context, int firstCargoId, long firstImo) {
+            this.context = context;
+            this.nextCargoId = firstCargoId;
+            this.firstImo = firstImo;
+            double[] zipf = new double[destinations.size()];
+            for (int i = 0; i < zipf.length; i++) {
+                zipf[i] = 1 / Math.pow(i + 1, skew);
+            }
+            this.destinationChoice = new Weighted(zipf);
+            double[] weights = new double[flags.length];
+            for (int i = 0; i < flags.length; i++) {
+                weights[i] = flagWeights.getOrDefault(flags[i], 0.0);
+            }
+            this.flagChoice = new Weighted(weights);
+        }
+
+        Port run() {
+            List<Quay> quays = new ArrayList<>(bulkQuays + containerQuays);
+            for (int i = 0; i < bulkQuays; i++) {
+                quays.add(new BulkQuay(quays.size(),
+                        Math.max(0, bulkQuayTonnage.sample(random))));
+            }
+            for (int i = 0; i < containerQuays; i++) {
+                quays.add(new ContainerQuay(quays.size(),
+                        Math.max(0, containerQuayCapacity.sample(random))));
+            }
+
+            List<Cargo> stored = new ArrayList<>(storedCargo);
+            for (int i = 0; i < storedCargo; i++) {
+                stored.add(cargo(destination()));
+            }
+
+            Port port = new Port(context, "Generated", 0, new ShipQueue(),
+                    quays, stored);
+            if (evaluators) {
+                port.addStatisticsEvaluator(new CargoDecompositionEvaluator());
+                port.addStatisticsEvaluator(new QuayOccupancyEvaluator());
+                port.addStatisticsEvaluator(new ShipFlagEvaluator());
+                port.addStatisticsEvaluator(new ShipThroughputEvaluator());
+            }
+            schedule(port, stored, 0);
+            return port;
+        }
+
+        /* Ship movements, then cargo movements, from the given time */
+        void schedule(Port port, List<Cargo> stored, long start) {
+            for (int i = 0; i < ships; i++) {
+                Ship ship = ship(firstImo + i);
+                long arrival = start + time();
+                port.addMovement(new ShipMovement(arrival,
+                        MovementDirection.INBOUND, ship));
+                long departure = arrival + Math.max(1, stay.sample(random));
+                if (departure <= start + horizon) {
+                    port.addMovement(new ShipMovement(departure,
+                            MovementDirection.OUTBOUND, ship));
+                }
+            }
+
+            // outbound movements take stored cargo in a random order, each
+            // cargo at most once
+            int[] order = new int[stored.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            int taken = 0;
+            for (int i = 0; i < cargoMovements; i++) {
+                long time = start + time();
+                int size = Math.max(1, cargoBatchSize.sample(random));
+                List<Cargo> cargo = new ArrayList<>(size);
+                if (random.nextDouble() < outboundCargoShare) {
+                    for (int j = 0; j < size && taken < order.length; j++) {
+                        int pick = taken + random.nextInt(order.length - taken);
+                        int index = order[pick];
+                        order[pick] = order[taken];
+                        order[taken++] = index;
+                        cargo.add(stored.get(index));
+                    }
+                    if (!cargo.isEmpty()) {
+                        port.addMovement(new CargoMovement(time,
+                                MovementDirection.OUTBOUND, cargo));
+                    }
+                } else {
+                    for (int j = 0; j < size; j++) {
+                        cargo.add(cargo(destination()));
+                    }
+                    port.addMovement(new CargoMovement(time,
+                            MovementDirection.INBOUND, cargo));
+                }
+            }
+        }
+
+        /* A ship loaded with cargo bound for its origin */
+        private Ship ship(long imo) {
+            String origin = destination();
+            NauticalFlag flag = flags[flagChoice.sample(random)];
+            if (random.nextDouble() < bulkCarrierShare) {
+                int capacity = Math.max(1, bulkCarrierCapacity.sample(random));
+                BulkCarrier ship = new BulkCarrier(context, imo, "Bulk" + imo,
+                        origin, flag, capacity);
+                ship.loadCargo(new BulkCargo(context, nextCargoId++, origin,
+                        1 + random.nextInt(capacity), bulkType()));
+                return ship;
+            }
+            int capacity = Math.max(1, containerShipCapacity.sample(random));
+            ContainerShip ship = new ContainerShip(context, imo, "Box" + imo,
+                    origin, flag, capacity);
+            int containers = random.nextInt(capacity + 1);
+            for (int i = 0; i < containers; i++) {
+                ship.loadCargo(new Container(context, nextCargoId++, origin,
+                        containerType()));
+            }
+            return ship;
+        }
+
+        /* A container or bulk cargo bound for the given destination */
+        private Cargo cargo(String destination) {
+            if (random.nextDouble() < containerShare) {
+                return new Container(context, nextCargoId++, destination,
+                        containerType());
+            }
+            return new BulkCargo(context, nextCargoId++, destination,
+                    Math.max(0, bulkCargoTonnage.sample(random)), bulkType());
+        }
+
+        private String destination() {
+            return destinations.get(destinationChoice.sample(random));
+        }
+
+        private long time() {
+            return (long) (random.nextDouble() * horizon);
+        }
+
+        private ContainerType containerType() {
+            ContainerType[] types = ContainerType.values();
+            return types[random.nextInt(types.length)];
+        }
+
+        private BulkCargoType bulkType() {
+            BulkCargoType[] types = BulkCargoType.values();
+            return types[random.nextInt(types.length)];
+        }
+    }
+
+    /**
+     * Chooses indices in proportion to a fixed set of weights.
+     */
+    private static class Weighted {
+        /**
+         * Running total of the weights
+         */
+        private final double[] cumulative;
+
+        Weighted(double[] weights) {
+            this.cumulative = new double[weights.length];
+            double total = 0;
+            for (int i = 0; i < weights.length; i++) {
+                total += weights[i];
+                cumulative[i] = total;
+            }
+            if (!(total > 0)) {
+                throw new IllegalArgumentException("Weights must not all be"
+                        + " zero: " + Arrays.toString(weights));
+            }
+        }
+
+        int sample(Random random) {
+            double target = random.nextDouble() * cumulative[cumulative.length - 1];
+            int index = Arrays.binarySearch(cumulative, target);
+            index = index < 0 ? -index - 1 : index;
+            // an exact hit belongs to the next index with a larger total
+            while (index < cumulative.length - 1
+                    && cumulative[index] <= target) {
+                index++;
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package portsim.scenario;
+
+import java.util.Arrays;
+
+/**
+ * Summary statistics of one measured value over a number of simulation
+ * runs.
+ */
+public class Summary {
+    private final String name;
+
+    /**
+     * Value measured in each run, in run order
+     */
+    private final double[] values;
+
+    /**
+     * The same values in ascending order, for percentiles
+     */
+    private final double[] sorted;
+
+    private final double mean;
+    private final double deviation;
+
+    /**
+     * Creates a summary of the given values.
+     *
+     * @param name name of the measured value
+     * @param values value measured in each run, in run order
+     * @throws IllegalArgumentException if there are no values
+     */
+    public Summary(String name, double[] values)
+            throws IllegalArgumentException {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("No values for " + name);
+        }
+        this.name = name;
+        this.values = values.clone();
+        this.sorted = values.clone();
+        Arrays.sort(sorted);
+
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        this.mean = sum / values.length;
+        double squares = 0;
+        for (double value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+        this.deviation = values.length < 2
+                ? 0 : Math.sqrt(squares / (values.length - 1));
+    }
+
+    /**
+     * Returns the name of the measured value.
+     *
+     * @return name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of runs summarised.
+     *
+     * @return number of runs
+     */
+    public int getCount() {
+        return values.length;
+    }
+
+    /**
+     * Returns the value measured in the given run.
+     *
+     * @param run index of the run
+     * @return value measured
+     */
+    public double getValue(int run) {
+        return values[run];
+    }
+
+    /**
+     * Returns the mean of the values.
+     *
+     * @return mean
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Returns the sample standard deviation of the values.
+     *
+     * @return standard deviation, or 0 for a single run
+     */
+    public double getStandardDeviation() {
+        return deviation;
+    }
+
+    /**
+     * Returns half the width of the approximate 95% confidence interval for
+     * the mean, using the normal approximation.
+     *
+     * @return half-width of the confidence interval
+     */
+    public double getConfidenceInterval() {
+        return 1.96 * deviation / Math.sqrt(values.length);
+    }
+
+    /**
+     * Returns the smallest value.
+     *
+     * @return minimum
+     */
+    public double getMin() {
+        return sorted[0];
+    }
+
+    /**
+     * Returns the largest value.
+     *
+     * @return maximum
+     */
+    public double getMax() {
+        return sorted[sorted.length - 1];
+    }
+
+    /**
+     * Returns the given percentile of the values, interpolating linearly
+     * between the two nearest values.
+     *
+     * @param percentile percentile between 0 and 100
+     * @return value at that percentile
+     * @throws IllegalArgumentException if percentile is not between 0 and
+     * 100
+     */
+    public double getPercentile(double percentile)
+            throws IllegalArgumentException {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Invalid percentile: "
+                    + percentile);
+        }
+        double rank = percentile / 100 * (sorted.length - 1);
+        int lower = (int) rank;
+        if (lower == sorted.length - 1) {
+            return sorted[lower];
+        }
+        return sorted[lower] + (rank - lower) * (sorted[lower + 1] - sorted[lower]);
+    }
+
+    /**
+     * Returns the string representation of this summary.
+     * <p>
+     * The format of the string to return is
+     * <pre>name: mean +/- interval (p5 p50 p95) over count runs</pre>
+     * with each number given to three decimal places.
+     *
+     * @return string representation of this summary
+     */
+    @Override
+    public String toString() {
+        return String.format("%s: %.3f +/- %.3f (%.3f %.3f %.3f) over %d runs",
+                name, mean, getConfidenceInterval(), getPercentile(5),
+                getPercentile(50), getPercentile(95), values.length);
+    }
+}
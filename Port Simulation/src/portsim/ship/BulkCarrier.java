@@ -6,6 +6,7 @@ import portsim.port.BulkQuay;
 import portsim.port.Quay;
 import portsim.util.Encodable;
 import portsim.util.NoSuchCargoException;
+import portsim.util.SimulationContext;
 
 /**
  * Represents a ship capable of carrying bulk cargo.
@@ -39,7 +40,30 @@ public class BulkCarrier extends Ship implements Encodable {
      */
     public BulkCarrier(long imoNumber, String name, String originFlag,
                        NauticalFlag flag, int capacity) throws IllegalArgumentException {
-        super(imoNumber, name, originFlag, flag);
+        this(SimulationContext.getDefault(), imoNumber, name, originFlag, flag,
+                capacity);
+    }
+
+    /**
+     * Creates a new bulk carrier with the given IMO number, name, origin port,
+     * nautical flag and cargo capacity, registered with the given simulation
+     * context.
+     *
+     * @param context    simulation the ship belongs to
+     * @param imoNumber  unique identifier
+     * @param name       name of the ship
+     * @param originFlag port of origin
+     * @param flag       the nautical flag this ship is flying
+     * @param capacity   the tonnage capacity of this ship
+     * @throws IllegalArgumentException if a ship already exists in the context
+     *                                  with the given imoNumber, imoNumber &lt; 0,
+     *                                  imoNumber is not 7 digits long or if the
+     *                                  tonnage capacity is &lt; than 0
+     */
+    public BulkCarrier(SimulationContext context, long imoNumber, String name,
+                       String originFlag, NauticalFlag flag, int capacity)
+            throws IllegalArgumentException {
+        super(context, imoNumber, name, originFlag, flag);
         if (capacity < 0) {
             throw new IllegalArgumentException("The tonnage capacity of the "
                 + "ship must be positive: " + capacity);
@@ -48,6 +72,22 @@ public class BulkCarrier extends Ship implements Encodable {
         this.cargo = null;
     }
 
+    /**
+     * Creates a copy of the given bulk carrier, carrying the same cargo.
+     *
+     * @param ship bulk carrier to copy
+     */
+    private BulkCarrier(BulkCarrier ship) {
+        super(ship);
+        this.tonnageCapacity = ship.tonnageCapacity;
+        this.cargo = ship.cargo;
+    }
+
+    @Override
+    public BulkCarrier copy() {
+        return new BulkCarrier(this);
+    }
+
     /**
      * Check if this ship can dock with the specified quay.
      * <p>
@@ -126,11 +166,37 @@ public class BulkCarrier extends Ship implements Encodable {
         if (cargo == null) {
             throw new NoSuchCargoException("Cargo has already been unloaded");
         }
+        return pollCargo();
+    }
+
+    /**
+     * Unloads the cargo from the ship if it has any.
+     * <p>
+     * Unlike {@link #unloadCargo()}, this does not throw an exception if the
+     * ship has already been unloaded.
+     *
+     * @return the ship's cargo, or null if the ship has no cargo onboard
+     */
+    public BulkCargo pollCargo() {
         BulkCargo unload = cargo;
         cargo = null;
         return unload;
     }
 
+    @Override
+    public boolean hasCargo() {
+        return cargo != null;
+    }
+
+    /**
+     * Returns the maximum tonnage of cargo this ship can carry.
+     *
+     * @return tonnage capacity
+     */
+    public int getTonnageCapacity() {
+        return tonnageCapacity;
+    }
+
     /**
      * Returns the current cargo onboard this vessel.
      *
@@ -7,8 +7,10 @@ import portsim.port.ContainerQuay;
 import portsim.port.Quay;
 import portsim.util.Encodable;
 import portsim.util.NoSuchCargoException;
+import portsim.util.SimulationContext;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -43,7 +45,30 @@ public class ContainerShip extends Ship implements Encodable {
      */
     public ContainerShip(long imoNumber, String name, String originFlag,
                          NauticalFlag flag, int capacity) throws IllegalArgumentException {
-        super(imoNumber, name, originFlag, flag);
+        this(SimulationContext.getDefault(), imoNumber, name, originFlag, flag,
+                capacity);
+    }
+
+    /**
+     * Creates a new container ship with the given IMO number, name, origin port,
+     * nautical flag and cargo capacity, registered with the given simulation
+     * context.
+     *
+     * @param context    simulation the ship belongs to
+     * @param imoNumber  unique identifier
+     * @param name       name of the ship
+     * @param originFlag port of origin
+     * @param flag       the nautical flag this ship is flying
+     * @param capacity   the container capacity of this ship
+     * @throws IllegalArgumentException if a ship already exists in the context
+     *                                  with the given imoNumber, imoNumber &lt; 0,
+     *                                  imoNumber is not 7 digits long or if the
+     *                                  container capacity is &lt; than 0
+     */
+    public ContainerShip(SimulationContext context, long imoNumber, String name,
+                         String originFlag, NauticalFlag flag, int capacity)
+            throws IllegalArgumentException {
+        super(context, imoNumber, name, originFlag, flag);
         if (capacity < 0) {
             throw new IllegalArgumentException("The container capacity of the"
                 + " ship must be positive: " + capacity);
@@ -52,6 +77,23 @@ public class ContainerShip extends Ship implements Encodable {
         this.containers = new ArrayList<>();
     }
 
+    /**
+     * Creates a copy of the given container ship, carrying the same
+     * containers.
+     *
+     * @param ship container ship to copy
+     */
+    private ContainerShip(ContainerShip ship) {
+        super(ship);
+        this.containerCapacity = ship.containerCapacity;
+        this.containers = new ArrayList<>(ship.containers);
+    }
+
+    @Override
+    public ContainerShip copy() {
+        return new ContainerShip(this);
+    }
+
     /**
      * Checks if this ship can dock with the specified quay.
      * <p>
@@ -128,11 +170,64 @@ public class ContainerShip extends Ship implements Encodable {
         if (containers.size() == 0) {
             throw new NoSuchCargoException("Cargo has already been unloaded");
         }
-        List<Container> unload = new ArrayList<>(containers);
+        return pollCargo();
+    }
+
+    /**
+     * Unloads all cargo from the ship.
+     * <p>
+     * Unlike {@link #unloadCargo()}, this does not throw an exception if the
+     * ship has already been unloaded, and the containers onboard are handed
+     * over without being copied.
+     *
+     * @return the ship's cargo before it was unloaded, which is empty if the
+     * ship had no cargo onboard
+     */
+    public List<Container> pollCargo() {
+        if (containers.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Container> unload = containers;
         containers = new ArrayList<>();
         return unload;
     }
 
+    @Override
+    public boolean hasCargo() {
+        return !containers.isEmpty();
+    }
+
+    /**
+     * Returns the maximum number of containers this ship can carry.
+     *
+     * @return container capacity
+     */
+    public int getContainerCapacity() {
+        return containerCapacity;
+    }
+
+    /**
+     * Returns the number of containers currently onboard this vessel.
+     *
+     * @return number of containers on the vessel
+     */
+    public int getContainerCount() {
+        return containers.size();
+    }
+
+    /**
+     * Returns the container at the given position onboard this vessel,
+     * without copying the cargo list.
+     *
+     * @param index position of the container, from 0 to
+     *              {@link #getContainerCount()} - 1
+     * @return container at that position
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public Container getContainer(int index) throws IndexOutOfBoundsException {
+        return containers.get(index);
+    }
+
     /**
      * Returns the current cargo onboard this vessel.
      * <p>
@@ -185,21 +280,16 @@ public class ContainerShip extends Ship implements Encodable {
 
     @Override
     public String encode() {
-        int cargoNum = this.getCargo().size();
-        StringBuilder result = new StringBuilder(super.encode() + ":"
-                + this.containerCapacity + ":" + cargoNum + ":");
-
-        if (cargoNum == 0) {
-            result.append("[");
-            for (int i = 0; i < containers.size(); i++) {
-                result.append(containers.get(i).getId());
-
-                if (i < containers.size() - 1) {
-                    result.append(",");
-                } else {
-                    result.append("]");
-                }
+        int cargoNum = containers.size();
+        StringBuilder result = new StringBuilder(super.encode()).append(":")
+                .append(this.containerCapacity).append(":")
+                .append(cargoNum).append(":");
+
+        for (int i = 0; i < cargoNum; i++) {
+            if (i > 0) {
+                result.append(",");
             }
+            result.append(containers.get(i).getId());
         }
 
         return result.toString();
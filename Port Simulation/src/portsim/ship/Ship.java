@@ -5,8 +5,8 @@ import portsim.port.Quay;
 import portsim.util.BadEncodingException;
 import portsim.util.Encodable;
 import portsim.util.NoSuchShipException;
+import portsim.util.SimulationContext;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -37,11 +37,6 @@ public abstract class Ship implements Encodable {
      */
     private NauticalFlag flag;
 
-    /**
-     * Database of all ships currently active in the simulation
-     */
-    private static Map<Long, Ship> shipRegistry = new HashMap<>();
-
     /**
      * Creates a new ship with the given
      * <a href="https://en.wikipedia.org/wiki/IMO_number">IMO number</a>,
@@ -61,6 +56,27 @@ public abstract class Ship implements Encodable {
      */
     public Ship(long imoNumber, String name, String originFlag,
                 NauticalFlag flag) throws IllegalArgumentException {
+        this(SimulationContext.getDefault(), imoNumber, name, originFlag, flag);
+    }
+
+    /**
+     * Creates a new ship with the given IMO number, name, origin port flag
+     * and nautical flag, and adds it to the ship registry of the given
+     * simulation context.
+     *
+     * @param context    simulation the ship belongs to
+     * @param imoNumber  unique identifier
+     * @param name       name of the ship
+     * @param originFlag port of origin
+     * @param flag       the nautical flag this ship is flying
+     * @throws IllegalArgumentException if a ship already exists in the context
+     *                                  with the given imoNumber, imoNumber &lt; 0
+     *                                  or imoNumber is not 7 digits long
+     *                                  (no leading zero's [0])
+     */
+    public Ship(SimulationContext context, long imoNumber, String name,
+                String originFlag, NauticalFlag flag)
+            throws IllegalArgumentException {
         if (imoNumber < 0) {
             throw new IllegalArgumentException("The imoNumber of the ship "
                 + "must be positive: " + imoNumber);
@@ -70,7 +86,7 @@ public abstract class Ship implements Encodable {
             throw new IllegalArgumentException("The imoNumber of the ship "
                 + "must have 7 digits (no leading zero's [0]): " + imoNumber);
         }
-        if (shipExists(imoNumber)) {
+        if (context.shipExists(imoNumber)) {
             throw new IllegalArgumentException("IMO Number already exists");
         }
 
@@ -79,9 +95,35 @@ public abstract class Ship implements Encodable {
         this.originFlag = originFlag;
         this.flag = flag;
 
-        shipRegistry.put(imoNumber, this);
+        context.registerShip(this);
+    }
+
+    /**
+     * Creates a copy of the given ship, with the same IMO number, name,
+     * origin port flag and nautical flag. The copy is not added to any ship
+     * registry.
+     *
+     * @param ship ship to copy
+     */
+    protected Ship(Ship ship) {
+        this.imoNumber = ship.imoNumber;
+        this.name = ship.name;
+        this.originFlag = ship.originFlag;
+        this.flag = ship.flag;
     }
 
+    /**
+     * Returns a copy of this ship carrying the same cargo, which can be
+     * loaded and unloaded without affecting this ship.
+     * <p>
+     * The copy is not added to any ship registry, so it stands in for this
+     * ship rather than being a new ship; it is used by ports that have been
+     * {@linkplain portsim.port.Port#fork() forked}.
+     *
+     * @return copy of this ship
+     */
+    public abstract Ship copy();
+
     /**
      * Checks if a ship exists in the simulation using its IMO number.
      *
@@ -91,13 +133,7 @@ public abstract class Ship implements Encodable {
      * @ass2
      */
     public static boolean shipExists(long imoNumber) {
-        for (Map.Entry<Long, Ship> entry : shipRegistry.entrySet()) {
-            if (entry.getKey() == imoNumber) {
-                return true;
-            }
-        }
-
-        return false;
+        return SimulationContext.getDefault().shipExists(imoNumber);
     }
 
     /**
@@ -110,12 +146,7 @@ public abstract class Ship implements Encodable {
      */
     public static Ship getShipByImoNumber(long imoNumber)
             throws NoSuchShipException {
-        for (Map.Entry<Long, Ship> entry : shipRegistry.entrySet()) {
-            if (entry.getKey() == imoNumber) {
-                return entry.getValue();
-            }
-        }
-        throw new NoSuchShipException();
+        return SimulationContext.getDefault().getShipByImoNumber(imoNumber);
     }
 
     /**
@@ -148,6 +179,13 @@ public abstract class Ship implements Encodable {
      */
     public abstract void loadCargo(Cargo cargo);
 
+    /**
+     * Returns whether the ship currently has any cargo onboard.
+     *
+     * @return true if there is cargo to unload else false
+     */
+    public abstract boolean hasCargo();
+
     /**
      * Returns this ship's name.
      *
@@ -191,16 +229,14 @@ public abstract class Ship implements Encodable {
     /**
      * Returns the database of ships currently active in the simulation as a
      * mapping from the ship's IMO number to its Ship instance.
+     * <p>
+     * The returned map is a read-only view of the registry.
      *
      * @return ship registry database
      * @ass2s
      */
     public static Map<Long, Ship> getShipRegistry() {
-        Map<Long, Ship> result = new HashMap<>();
-        for (Map.Entry<Long, Ship> entry : shipRegistry.entrySet()) {
-            result.put(entry.getKey(), entry.getValue());
-        }
-        return result;
+        return SimulationContext.getDefault().getShipRegistry();
     }
 
     @Override
@@ -259,7 +295,7 @@ public abstract class Ship implements Encodable {
      * @given
      */
     public static void resetShipRegistry() {
-        Ship.shipRegistry = new HashMap<>();
+        SimulationContext.getDefault().resetShipRegistry();
     }
 
     /**
@@ -269,9 +305,9 @@ public abstract class Ship implements Encodable {
      * @ass2s
      */
     public String encode() {
-        return "" + this.getClass().getSimpleName() + ":"
-                + this.getImoNumber() + this.getName() + this.getOriginFlag()
-                + this.getFlag();
+        return this.getClass().getSimpleName() + ":"
+                + this.getImoNumber() + ":" + this.getName() + ":"
+                + this.getOriginFlag() + ":" + this.getFlag();
     }
 
     /**
@@ -283,6 +319,22 @@ public abstract class Ship implements Encodable {
      * @ass2
      */
     public static Ship fromString(String string) throws BadEncodingException {
+        return fromString(SimulationContext.getDefault(), string);
+    }
+
+    /**
+     * Reads a Ship from its encoded representation in the given string,
+     * registering it with the given simulation context. Any cargo on board is
+     * looked up in the same context.
+     *
+     * @param context simulation the ship belongs to
+     * @param string  string containing the encoded Ship
+     *
+     * @return decoded ship instance
+     * @throws BadEncodingException if the encoding is invalid
+     */
+    public static Ship fromString(SimulationContext context, String string)
+            throws BadEncodingException {
         String [] result = string.split(":", -1);
         long shipImo = checkImo(result);
         NauticalFlag flag = checkNautical(result);
@@ -305,7 +357,7 @@ public abstract class Ship implements Encodable {
 
             BulkCarrier decodedShip;
             try {
-                decodedShip =  new BulkCarrier(shipImo, result[2],
+                decodedShip =  new BulkCarrier(context, shipImo, result[2],
                         result[3], flag, capacity);
 
 
@@ -314,8 +366,8 @@ public abstract class Ship implements Encodable {
             }
 
             if (!result[6].equals("")) {
-                if (Cargo.cargoExists(id)) {
-                    Cargo toLoad = Cargo.getCargoRegistry().get(id);
+                if (context.cargoExists(id)) {
+                    Cargo toLoad = context.getCargoRegistry().get(id);
 
                     if (!decodedShip.canLoad(toLoad)) {
                         throw new BadEncodingException();
@@ -338,7 +390,7 @@ public abstract class Ship implements Encodable {
             Ship decodedShip;
 
             try {
-                decodedShip = new ContainerShip(shipImo, result[2],
+                decodedShip = new ContainerShip(context, shipImo, result[2],
                         result[3], flag, capacity);
             } catch (IllegalArgumentException e) {
                 throw new BadEncodingException();
@@ -354,11 +406,11 @@ public abstract class Ship implements Encodable {
 
                 for (String cargo : cargos) {
                     int id = stringToInt(cargo);
-                    if (!Cargo.cargoExists(id)) {
+                    if (!context.cargoExists(id)) {
                         throw new BadEncodingException();
                     }
 
-                    Cargo toLoad = Cargo.getCargoRegistry().get(id);
+                    Cargo toLoad = context.getCargoRegistry().get(id);
 
                     if (!decodedShip.canLoad(toLoad)) {
                         throw new BadEncodingException();
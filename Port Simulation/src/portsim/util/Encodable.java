@@ -1,5 +1,8 @@
 package portsim.util;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 /**
  *
  * A type that can be encoded to a machine-readable string representation, u
@@ -14,4 +17,41 @@ public interface Encodable {
      * @return encoded String representation
      */
     String encode();
+
+    /**
+     * Writes the String representation of the current state of this object
+     * to the given destination.
+     * <p>
+     * The characters written are exactly those returned by {@link #encode()}.
+     * Implementations with large encodings should override this method to
+     * write their encoding piece by piece rather than building it in memory
+     * first.
+     *
+     * @param out destination to write the encoding to
+     * @throws IOException if an IOException occurs when writing to out
+     */
+    default void encodeTo(Appendable out) throws IOException {
+        out.append(encode());
+    }
+
+    /**
+     * Returns the characters the given object writes with
+     * {@link #encodeTo(Appendable)}.
+     * <p>
+     * Types overriding {@code encodeTo} can implement {@link #encode()} with
+     * this method, so both produce the same encoding from one place.
+     *
+     * @param encodable object to encode
+     * @return encoded String representation
+     */
+    static String encodeToString(Encodable encodable) {
+        StringBuilder result = new StringBuilder();
+        try {
+            encodable.encodeTo(result);
+        } catch (IOException e) {
+            // appending to a StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
+    }
 }
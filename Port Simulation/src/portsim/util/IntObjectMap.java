@@ -0,0 +1,306 @@
+package portsim.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A hash map from primitive {@code int} keys to object values.
+ * <p>
+ * Entries are stored densely in insertion order and located through an
+ * open-addressing index table, so lookups never box the key and iterating
+ * the map walks a plain array. Removing an entry moves the most recently
+ * inserted entry into its place, so iteration order is insertion order only
+ * until the first removal.
+ *
+ * @param <V> type of the values stored in the map
+ */
+public class IntObjectMap<V> {
+    /**
+     * Keys of the entries, in insertion order
+     */
+    private int[] keys;
+
+    /**
+     * Values of the entries, parallel to {@link #keys}
+     */
+    private Object[] values;
+
+    /**
+     * Open-addressing index table holding (entry index + 1), or 0 if empty
+     */
+    private int[] slots;
+
+    /**
+     * The number of entries in the map
+     */
+    private int size;
+
+    /**
+     * Read-only boxed view of this map, created on first use
+     */
+    private Map<Integer, V> view;
+
+    /**
+     * Creates a new empty map.
+     */
+    public IntObjectMap() {
+        this(8);
+    }
+
+    /**
+     * Creates a new empty map able to hold the given number of entries
+     * without resizing.
+     *
+     * @param expectedSize number of entries expected
+     */
+    public IntObjectMap(int expectedSize) {
+        int capacity = Math.max(4, expectedSize);
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+        this.slots = new int[tableSizeFor(capacity)];
+        this.size = 0;
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     *
+     * @return map size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the map contains no entries.
+     *
+     * @return true if the map is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns whether the map contains an entry for the given key.
+     *
+     * @param key key to look up
+     * @return true if the key is present
+     */
+    public boolean containsKey(int key) {
+        return slots[findSlot(key)] != 0;
+    }
+
+    /**
+     * Returns the value associated with the given key.
+     *
+     * @param key key to look up
+     * @return the value for the key, or null if the key is not present
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int index = slots[findSlot(key)];
+        return index == 0 ? null : (V) values[index - 1];
+    }
+
+    /**
+     * Associates the given value with the given key, replacing any previous
+     * value.
+     *
+     * @param key   key of the entry
+     * @param value value of the entry
+     * @return the previous value for the key, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        int slot = findSlot(key);
+        int index = slots[slot];
+        if (index != 0) {
+            V previous = (V) values[index - 1];
+            values[index - 1] = value;
+            return previous;
+        }
+
+        if (size == keys.length) {
+            grow();
+            slot = findSlot(key);
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+        slots[slot] = size;
+        return null;
+    }
+
+    /**
+     * Removes the entry for the given key.
+     *
+     * @param key key of the entry to remove
+     * @return the removed value, or null if the key was not present
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = findSlot(key);
+        int index = slots[slot] - 1;
+        if (index < 0) {
+            return null;
+        }
+        V removed = (V) values[index];
+        deleteSlot(slot);
+
+        int last = size - 1;
+        if (index != last) {
+            keys[index] = keys[last];
+            values[index] = values[last];
+            slots[findSlot(keys[index])] = index + 1;
+        }
+        values[last] = null;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Removes all entries from the map.
+     */
+    public void clear() {
+        Arrays.fill(values, 0, size, null);
+        Arrays.fill(slots, 0);
+        size = 0;
+    }
+
+    /**
+     * Returns the key of the entry at the given position in iteration order.
+     *
+     * @param index position of the entry, 0 &le; index &lt; size()
+     * @return key at that position
+     */
+    public int keyAt(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Returns the value of the entry at the given position in iteration
+     * order.
+     *
+     * @param index position of the entry, 0 &le; index &lt; size()
+     * @return value at that position
+     */
+    @SuppressWarnings("unchecked")
+    public V valueAt(int index) {
+        return (V) values[index];
+    }
+
+    /**
+     * Returns a read-only {@link Map} view of this map.
+     * <p>
+     * The view is backed by this map, so it reflects later changes without
+     * copying. Attempts to modify the view throw
+     * {@link UnsupportedOperationException}.
+     *
+     * @return read-only map view
+     */
+    public Map<Integer, V> asMap() {
+        if (view == null) {
+            view = new View();
+        }
+        return view;
+    }
+
+    private int findSlot(int key) {
+        int mask = slots.length - 1;
+        int slot = hash(key) & mask;
+        while (slots[slot] != 0 && keys[slots[slot] - 1] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /* Clears a slot, shifting back later entries of the same probe run */
+    private void deleteSlot(int slot) {
+        int mask = slots.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (slots[next] != 0) {
+            int ideal = hash(keys[slots[next] - 1]) & mask;
+            if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                slots[hole] = slots[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        slots[hole] = 0;
+    }
+
+    private void grow() {
+        int capacity = keys.length + (keys.length >> 1);
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+        slots = new int[tableSizeFor(capacity)];
+        for (int i = 0; i < size; i++) {
+            slots[findSlot(keys[i])] = i + 1;
+        }
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(capacity * 2 - 1) << 1;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /* Read-only boxed view over the map */
+    private class View extends AbstractMap<Integer, V> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer && IntObjectMap.this.containsKey((Integer) key);
+        }
+
+        @Override
+        public V get(Object key) {
+            return key instanceof Integer ? IntObjectMap.this.get((Integer) key) : null;
+        }
+
+        @Override
+        public Set<Entry<Integer, V>> entrySet() {
+            return new AbstractSet<Entry<Integer, V>>() {
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public Iterator<Entry<Integer, V>> iterator() {
+                    return new Iterator<Entry<Integer, V>>() {
+                        private int next = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < size;
+                        }
+
+                        @Override
+                        public Entry<Integer, V> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<Integer, V> entry = new SimpleImmutableEntry<>(
+                                    keyAt(next), valueAt(next));
+                            next++;
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package portsim.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A map from non-negative {@code long} keys to object values that can be
+ * forked in constant time.
+ * <p>
+ * Entries are stored in a 32-way trie indexed by the key five bits at a
+ * time, most significant bits first, so iterating the map visits the keys
+ * in ascending order. Each node keeps only its occupied children, found
+ * through a bitmap, and the trie is only as deep as the largest key needs:
+ * keys below a million are at most four nodes from the root.
+ * <p>
+ * {@link #fork()} returns a map that shares every node with this one.
+ * Nodes belong to the map that created them, and a map changes only its
+ * own nodes in place; to change a shared entry it first copies the nodes
+ * on the path from the root to that entry, so a change after a fork costs
+ * time proportional to the depth of the trie, not to the size of the map.
+ * <p>
+ * Iterators do not fail when the map changes while they are in use: each
+ * step continues with the smallest key greater than the one last returned.
+ * Null values are not permitted.
+ *
+ * @param <V> type of the values stored in the map
+ */
+public class LongTrieMap<V> implements Iterable<V> {
+    /* Number of key bits each level of the trie indexes */
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    /**
+     * Root of the trie, or null if the map is empty
+     */
+    private Node root;
+
+    /**
+     * Position of the key bits indexed by the root, a multiple of BITS;
+     * every key in the map is below {@code 1L << (shift + BITS)}
+     */
+    private int shift;
+
+    /**
+     * The number of entries in the map
+     */
+    private int size;
+
+    /**
+     * Marks the nodes this map created since it was last forked, which
+     * no other map can see and so can be changed in place
+     */
+    private Object owner;
+
+    /**
+     * Creates a new empty map.
+     */
+    public LongTrieMap() {
+        this.owner = new Object();
+    }
+
+    private LongTrieMap(Node root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+        this.owner = new Object();
+    }
+
+    /**
+     * Returns a new map with the same entries as this one, in constant
+     * time. The two maps share their nodes, and neither sees the changes
+     * made to the other afterwards.
+     *
+     * @return forked map
+     */
+    public LongTrieMap<V> fork() {
+        this.owner = new Object();
+        return new LongTrieMap<>(root, shift, size);
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     *
+     * @return map size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the map contains no entries.
+     *
+     * @return true if the map is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns whether the map contains an entry for the given key.
+     *
+     * @param key key to look up
+     * @return true if the key is present
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Returns the value associated with the given key.
+     *
+     * @param key key to look up
+     * @return the value for the key, or null if the key is not present
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (!inRange(key)) {
+            return null;
+        }
+        Node node = root;
+        for (int s = shift; ; s -= BITS) {
+            int bit = bit(key, s);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = node.slots[node.index(bit)];
+            if (s == 0) {
+                return (V) slot;
+            }
+            node = (Node) slot;
+        }
+    }
+
+    /**
+     * Returns the smallest key in the map that is greater than or equal to
+     * the given key.
+     *
+     * @param key lower bound of the key to find
+     * @return the smallest such key, or -1 if there is none
+     */
+    public long ceilingKey(long key) {
+        long from = Math.max(key, 0);
+        return inRange(from) ? ceiling(root, shift, 0, from) : -1;
+    }
+
+    /* The smallest key >= from below the given node, whose keys all start
+     * with base, or -1 */
+    private static long ceiling(Node node, int s, long base, long from) {
+        int digit = (int) (from >>> s) & MASK;
+        int bit = 1 << digit;
+        if ((node.bitmap & bit) != 0) {
+            if (s == 0) {
+                return base | digit;
+            }
+            long found = ceiling((Node) node.slots[node.index(bit)], s - BITS,
+                    base | (long) digit << s, from);
+            if (found >= 0) {
+                return found;
+            }
+        }
+        int higher = node.bitmap & -(bit << 1);
+        if (higher == 0) {
+            return -1;
+        }
+        int next = Integer.numberOfTrailingZeros(higher);
+        base |= (long) next << s;
+        Object slot = node.slots[node.index(1 << next)];
+        while (s > 0) {
+            node = (Node) slot;
+            s -= BITS;
+            base |= (long) Integer.numberOfTrailingZeros(node.bitmap) << s;
+            slot = node.slots[0];
+        }
+        return base;
+    }
+
+    /**
+     * Associates the given value with the given key, replacing any previous
+     * value.
+     *
+     * @param key   key of the entry, not negative
+     * @param value value of the entry, not null
+     * @return the previous value for the key, or null if there was none
+     * @throws IllegalArgumentException if the key is negative
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Negative key: " + key);
+        }
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        if (root == null) {
+            shift = 0;
+            while ((key >>> shift) >>> BITS != 0) {
+                shift += BITS;
+            }
+            root = new Node(owner);
+        }
+        while ((key >>> shift) >>> BITS != 0) {
+            Node parent = new Node(owner);
+            parent.insert(1, 0, root);
+            root = parent;
+            shift += BITS;
+        }
+
+        Node node = root = editable(root);
+        for (int s = shift; s > 0; s -= BITS) {
+            int bit = bit(key, s);
+            int index = node.index(bit);
+            Node child;
+            if ((node.bitmap & bit) == 0) {
+                child = new Node(owner);
+                node.insert(bit, index, child);
+            } else {
+                child = editable((Node) node.slots[index]);
+                node.slots[index] = child;
+            }
+            node = child;
+        }
+
+        int bit = bit(key, 0);
+        int index = node.index(bit);
+        if ((node.bitmap & bit) != 0) {
+            V previous = (V) node.slots[index];
+            node.slots[index] = value;
+            return previous;
+        }
+        node.insert(bit, index, value);
+        size++;
+        return null;
+    }
+
+    /**
+     * Removes the entry for the given key.
+     *
+     * @param key key of the entry to remove
+     * @return the removed value, or null if the key was not present
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (!containsKey(key)) {
+            return null;
+        }
+        root = editable(root);
+        V removed = (V) remove(root, shift, key);
+        size--;
+        if (size == 0) {
+            root = null;
+        } else {
+            while (shift > 0 && root.bitmap == 1) {
+                root = (Node) root.slots[0];
+                shift -= BITS;
+            }
+        }
+        return removed;
+    }
+
+    /* Removes a key known to be present below the given editable node,
+     * dropping the nodes left empty */
+    private Object remove(Node node, int s, long key) {
+        int bit = bit(key, s);
+        int index = node.index(bit);
+        if (s == 0) {
+            Object removed = node.slots[index];
+            node.delete(bit, index);
+            return removed;
+        }
+        Node child = editable((Node) node.slots[index]);
+        node.slots[index] = child;
+        Object removed = remove(child, s - BITS, key);
+        if (child.bitmap == 0) {
+            node.delete(bit, index);
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all entries from the map.
+     */
+    public void clear() {
+        root = null;
+        shift = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns an iterator over the values of the map, in ascending order of
+     * their keys.
+     *
+     * @return value iterator
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new Iterator<V>() {
+            private final Cursor cursor = new Cursor();
+
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V next() {
+                cursor.advance();
+                return (V) cursor.value;
+            }
+        };
+    }
+
+    private boolean inRange(long key) {
+        return root != null && key >= 0 && (key >>> shift) >>> BITS == 0;
+    }
+
+    /* The given node, or a copy of it this map may change if it could be
+     * shared with another map */
+    private Node editable(Node node) {
+        return node.owner == owner ? node : node.copy(owner);
+    }
+
+    /* Bitmap bit of the child the key falls in at the given level */
+    private static int bit(long key, int shift) {
+        return 1 << ((int) (key >>> shift) & MASK);
+    }
+
+    /**
+     * A trie node, holding the children present out of its 32 positions
+     * packed in position order. Children are nodes, except in the nodes
+     * indexing the lowest bits, which hold the values themselves.
+     */
+    private static final class Node {
+        private final Object owner;
+        private int bitmap;
+        private Object[] slots;
+
+        Node(Object owner) {
+            this.owner = owner;
+            this.slots = new Object[2];
+        }
+
+        private Node(Object owner, int bitmap, Object[] slots) {
+            this.owner = owner;
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        Node copy(Object owner) {
+            return new Node(owner, bitmap, slots.clone());
+        }
+
+        /* Position in slots of the child with the given bit */
+        int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        void insert(int bit, int index, Object child) {
+            int count = Integer.bitCount(bitmap);
+            if (count == slots.length) {
+                Object[] grown = new Object[Math.min(MASK + 1, count * 2)];
+                System.arraycopy(slots, 0, grown, 0, index);
+                System.arraycopy(slots, index, grown, index + 1, count - index);
+                slots = grown;
+            } else {
+                System.arraycopy(slots, index, slots, index + 1, count - index);
+            }
+            slots[index] = child;
+            bitmap |= bit;
+        }
+
+        void delete(int bit, int index) {
+            int count = Integer.bitCount(bitmap);
+            System.arraycopy(slots, index + 1, slots, index, count - index - 1);
+            slots[count - 1] = null;
+            bitmap &= ~bit;
+        }
+    }
+
+    /**
+     * A position in the map, found again from the root at each step so that
+     * it stays valid while the map changes.
+     */
+    private class Cursor {
+        private long key;
+        private Object value;
+        private long from = 0;
+        private boolean ready;
+
+        boolean hasNext() {
+            if (!ready) {
+                key = from >= 0 ? ceilingKey(from) : -1;
+                value = key >= 0 ? get(key) : null;
+                ready = true;
+            }
+            return key >= 0;
+        }
+
+        void advance() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            from = key + 1;
+            ready = false;
+        }
+    }
+}
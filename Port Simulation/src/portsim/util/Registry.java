@@ -0,0 +1,239 @@
+package portsim.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * A registry of values keyed by a {@code long} taken from each value, in
+ * the order they were registered. Values can be registered and the
+ * registry cleared, but single values are never removed.
+ * <p>
+ * Until it is first forked, a registry is a flat {@link LongObjectMap}, so
+ * lookups are a single open-addressing probe and iteration walks an array.
+ * Forking moves the values, once, into two {@link LongTrieMap}s, one by key
+ * and one by registration order, which the registry and its forks then
+ * share: later forks are constant time, and registering a value copies
+ * only the trie paths to it. Clearing a registry makes it flat again.
+ *
+ * @param <V> type of the registered values
+ */
+class Registry<V> {
+    /**
+     * Gives the key each value is registered under
+     */
+    private final ToLongFunction<V> keyOf;
+
+    /**
+     * The registered values, or null once the registry has been forked
+     */
+    private LongObjectMap<V> flat;
+
+    /**
+     * The registered values by key, once the registry has been forked
+     */
+    private LongTrieMap<V> byKey;
+
+    /**
+     * The registered values by registration number, from 0, once the
+     * registry has been forked
+     */
+    private LongTrieMap<V> inOrder;
+
+    /**
+     * Read-only boxed views of this registry, created on first use
+     */
+    private Map<Long, V> longView;
+    private Map<Integer, V> intView;
+
+    /**
+     * Creates a new empty registry.
+     *
+     * @param keyOf gives the key to register each value under
+     */
+    Registry(ToLongFunction<V> keyOf) {
+        this.keyOf = keyOf;
+        this.flat = new LongObjectMap<>();
+    }
+
+    private Registry(Registry<V> registry) {
+        this.keyOf = registry.keyOf;
+        this.byKey = registry.byKey.fork();
+        this.inOrder = registry.inOrder.fork();
+    }
+
+    /**
+     * Returns a new registry with the same values as this one. Neither
+     * registry sees the values registered with the other afterwards.
+     *
+     * @return forked registry
+     */
+    Registry<V> fork() {
+        if (flat != null) {
+            byKey = new LongTrieMap<>();
+            inOrder = new LongTrieMap<>();
+            for (int i = 0; i < flat.size(); i++) {
+                byKey.put(flat.keyAt(i), flat.valueAt(i));
+                inOrder.put(i, flat.valueAt(i));
+            }
+            flat = null;
+        }
+        return new Registry<>(this);
+    }
+
+    /**
+     * Returns the number of registered values.
+     *
+     * @return registry size
+     */
+    int size() {
+        return flat != null ? flat.size() : byKey.size();
+    }
+
+    /**
+     * Returns whether a value is registered under the given key.
+     *
+     * @param key key to look up
+     * @return true if the key is registered
+     */
+    boolean containsKey(long key) {
+        return flat != null ? flat.containsKey(key) : byKey.containsKey(key);
+    }
+
+    /**
+     * Returns the value registered under the given key.
+     *
+     * @param key key to look up
+     * @return the value, or null if the key is not registered
+     */
+    V get(long key) {
+        return flat != null ? flat.get(key) : byKey.get(key);
+    }
+
+    /**
+     * Registers the given value under its key, which must not already be
+     * registered.
+     *
+     * @param value value to register
+     */
+    void add(V value) {
+        long key = keyOf.applyAsLong(value);
+        if (flat != null) {
+            flat.put(key, value);
+        } else {
+            inOrder.put(inOrder.size(), value);
+            byKey.put(key, value);
+        }
+    }
+
+    /**
+     * Removes all values from the registry.
+     */
+    void clear() {
+        flat = new LongObjectMap<>();
+        byKey = null;
+        inOrder = null;
+    }
+
+    /**
+     * Returns a read-only {@link Map} view of this registry, which reflects
+     * later changes and iterates in registration order.
+     *
+     * @return read-only map view
+     */
+    Map<Long, V> asMap() {
+        if (longView == null) {
+            longView = new View<Long>() {
+                @Override
+                Long box(long key) {
+                    return key;
+                }
+
+                @Override
+                public V get(Object key) {
+                    return key instanceof Long ? Registry.this.get((Long) key) : null;
+                }
+            };
+        }
+        return longView;
+    }
+
+    /**
+     * Returns a read-only {@link Map} view of this registry for keys that
+     * all fit in an {@code int}, as {@link #asMap()} does for long keys.
+     *
+     * @return read-only map view with int keys
+     */
+    Map<Integer, V> asIntMap() {
+        if (intView == null) {
+            intView = new View<Integer>() {
+                @Override
+                Integer box(long key) {
+                    return (int) key;
+                }
+
+                @Override
+                public V get(Object key) {
+                    return key instanceof Integer ? Registry.this.get((Integer) key) : null;
+                }
+            };
+        }
+        return intView;
+    }
+
+    /* Read-only boxed view over the registry, for the key type K */
+    private abstract class View<K> extends AbstractMap<K, V> {
+        abstract K box(long key);
+
+        @Override
+        public int size() {
+            return Registry.this.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return new AbstractSet<Entry<K, V>>() {
+                @Override
+                public int size() {
+                    return Registry.this.size();
+                }
+
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    final LongObjectMap<V> values = flat;
+                    final Iterator<V> registered
+                            = values == null ? inOrder.iterator() : null;
+                    return new Iterator<Entry<K, V>>() {
+                        private int next = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return values != null
+                                    ? next < values.size() : registered.hasNext();
+                        }
+
+                        @Override
+                        public Entry<K, V> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            V value = values != null
+                                    ? values.valueAt(next++) : registered.next();
+                            return new SimpleImmutableEntry<>(
+                                    box(keyOf.applyAsLong(value)), value);
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package portsim.util;
+
+import portsim.cargo.Cargo;
+import portsim.ship.Ship;
+
+import java.util.Map;
+
+/**
+ * The state shared by all entities of a single port simulation, namely the
+ * registries of ships and cargo that are active in that simulation.
+ * <p>
+ * Each simulation should use its own context so that independent
+ * simulations can exist side by side, for example on different threads.
+ * A context is not thread-safe, so it should only be used by one thread at
+ * a time.
+ * <p>
+ * Constructors and decoders that do not take a context use the
+ * {@linkplain #getDefault() default context}.
+ */
+public class SimulationContext {
+    /**
+     * The context used when no context is given explicitly
+     */
+    private static final SimulationContext DEFAULT = new SimulationContext();
+
+    /**
+     * Database of all ships currently active in this simulation
+     */
+    private final Registry<Ship> shipRegistry;
+
+    /**
+     * Database of all cargo currently active in this simulation
+     */
+    private final Registry<Cargo> cargoRegistry;
+
+    /**
+     * Creates a new simulation context with empty ship and cargo registries.
+     */
+    public SimulationContext() {
+        this(new Registry<>(Ship::getImoNumber), new Registry<>(Cargo::getId));
+    }
+
+    private SimulationContext(Registry<Ship> shipRegistry,
+                              Registry<Cargo> cargoRegistry) {
+        this.shipRegistry = shipRegistry;
+        this.cargoRegistry = cargoRegistry;
+    }
+
+    /**
+     * Returns a new context with the same ships and cargo as this one.
+     * <p>
+     * The two contexts share their registries, and registering a ship or
+     * cargo in one never affects the other. The first fork of a context
+     * moves its registries from flat maps into tries, in time linear in the
+     * number of ships and cargo; from then on forking takes constant time,
+     * and registering copies only the few trie nodes on the path to the new
+     * entry (see {@link Registry}).
+     *
+     * @return forked context
+     */
+    public SimulationContext fork() {
+        return new SimulationContext(shipRegistry.fork(), cargoRegistry.fork());
+    }
+
+    /**
+     * Returns the context used by constructors and decoders that are not
+     * given a context explicitly.
+     *
+     * @return default simulation context
+     */
+    public static SimulationContext getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Adds the given ship to the ship registry with its IMO number as the key.
+     *
+     * @param ship ship to register
+     * @throws IllegalArgumentException if a ship already exists with the
+     *                                  same IMO number
+     */
+    public void registerShip(Ship ship) throws IllegalArgumentException {
+        if (shipExists(ship.getImoNumber())) {
+            throw new IllegalArgumentException("IMO Number already exists");
+        }
+        shipRegistry.add(ship);
+    }
+
+    /**
+     * Checks if a ship exists in this simulation using its IMO number.
+     *
+     * @param imoNumber unique key to identify ship
+     * @return true if there is a ship with key imoNumber else false
+     */
+    public boolean shipExists(long imoNumber) {
+        return shipRegistry.containsKey(imoNumber);
+    }
+
+    /**
+     * Returns the ship specified by the IMO number.
+     *
+     * @param imoNumber unique key to identify ship
+     * @return Ship specified by the given IMO number
+     * @throws NoSuchShipException if no ship has the given IMO number
+     */
+    public Ship getShipByImoNumber(long imoNumber) throws NoSuchShipException {
+        Ship ship = shipRegistry.get(imoNumber);
+        if (ship == null) {
+            throw new NoSuchShipException();
+        }
+        return ship;
+    }
+
+    /**
+     * Returns the ships in this simulation as a mapping from each ship's IMO
+     * number to its Ship instance.
+     * <p>
+     * The returned map is a read-only view of the registry, so it is not
+     * copied and reflects ships registered later on.
+     *
+     * @return ship registry database
+     */
+    public Map<Long, Ship> getShipRegistry() {
+        return shipRegistry.asMap();
+    }
+
+    /**
+     * Returns the number of ships in this simulation.
+     *
+     * @return number of registered ships
+     */
+    public int getShipCount() {
+        return shipRegistry.size();
+    }
+
+    /**
+     * Removes all ships from the ship registry.
+     */
+    public void resetShipRegistry() {
+        shipRegistry.clear();
+    }
+
+    /**
+     * Adds the given cargo to the cargo registry with its ID as the key.
+     *
+     * @param cargo cargo to register
+     * @throws IllegalArgumentException if a cargo already exists with the
+     *                                  same ID
+     */
+    public void registerCargo(Cargo cargo) throws IllegalArgumentException {
+        if (cargoExists(cargo.getId())) {
+            throw new IllegalArgumentException("Cargo ID already exists");
+        }
+        cargoRegistry.add(cargo);
+    }
+
+    /**
+     * Checks if a cargo exists in this simulation using its ID.
+     *
+     * @param id unique key to identify cargo
+     * @return true if there is a cargo with key id else false
+     */
+    public boolean cargoExists(int id) {
+        return cargoRegistry.containsKey(id);
+    }
+
+    /**
+     * Returns the cargo specified by the given ID.
+     *
+     * @param id unique key to identify cargo
+     * @return cargo specified by the id
+     * @throws NoSuchCargoException if the cargo does not exist in the registry
+     */
+    public Cargo getCargoById(int id) throws NoSuchCargoException {
+        Cargo cargo = cargoRegistry.get(id);
+        if (cargo == null) {
+            throw new NoSuchCargoException();
+        }
+        return cargo;
+    }
+
+    /**
+     * Returns the cargo in this simulation as a mapping from cargo IDs to
+     * Cargo instances.
+     * <p>
+     * The returned map is a read-only view of the registry, so it is not
+     * copied and reflects cargo registered later on.
+     *
+     * @return cargo registry database
+     */
+    public Map<Integer, Cargo> getCargoRegistry() {
+        return cargoRegistry.asIntMap();
+    }
+
+    /**
+     * Returns the number of pieces of cargo in this simulation.
+     *
+     * @return number of registered cargo
+     */
+    public int getCargoCount() {
+        return cargoRegistry.size();
+    }
+
+    /**
+     * Removes all cargo from the cargo registry.
+     */
+    public void resetCargoRegistry() {
+        cargoRegistry.clear();
+    }
+}
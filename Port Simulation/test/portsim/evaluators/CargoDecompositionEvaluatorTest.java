@@ -0,0 +1,81 @@
+package portsim.evaluators;
+
+import org.junit.Before;
+import org.junit.Test;
+import portsim.cargo.BulkCargo;
+import portsim.cargo.BulkCargoType;
+import portsim.cargo.Cargo;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.movement.CargoMovement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.util.SimulationContext;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CargoDecompositionEvaluatorTest {
+    SimulationContext context;
+    CargoDecompositionEvaluator evaluator;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new SimulationContext();
+        evaluator = new CargoDecompositionEvaluator();
+    }
+
+    @Test
+    public void countsInboundCargo() {
+        ContainerShip containerShip = new ContainerShip(context, 1234567,
+                "Boxy", "Japan", NauticalFlag.HOTEL, 10);
+        containerShip.loadCargo(new Container(context, 1, "Japan",
+                ContainerType.REEFER));
+        containerShip.loadCargo(new Container(context, 2, "Japan",
+                ContainerType.REEFER));
+        BulkCarrier empty = new BulkCarrier(context, 2345678, "Bulky",
+                "Japan", NauticalFlag.NOVEMBER, 100);
+        Cargo coal = new BulkCargo(context, 3, "Japan", 10, BulkCargoType.COAL);
+        Cargo tanker = new Container(context, 4, "Japan", ContainerType.TANKER);
+
+        evaluator.onProcessMovement(new ShipMovement(0,
+                MovementDirection.INBOUND, containerShip));
+        evaluator.onProcessMovement(new ShipMovement(0,
+                MovementDirection.INBOUND, empty));
+        evaluator.onProcessMovement(new CargoMovement(0,
+                MovementDirection.INBOUND, Arrays.asList(coal, tanker)));
+        evaluator.onProcessMovement(new CargoMovement(0,
+                MovementDirection.OUTBOUND, Arrays.asList(coal, tanker)));
+
+        Map<String, Integer> cargo = evaluator.getCargoDistribution();
+        assertEquals(2, cargo.size());
+        assertEquals(Integer.valueOf(3), cargo.get("Container"));
+        assertEquals(Integer.valueOf(1), cargo.get("BulkCargo"));
+
+        Map<ContainerType, Integer> containers
+                = evaluator.getContainerDistribution();
+        assertEquals(2, containers.size());
+        assertEquals(Integer.valueOf(2), containers.get(ContainerType.REEFER));
+        assertEquals(Integer.valueOf(1), containers.get(ContainerType.TANKER));
+
+        Map<BulkCargoType, Integer> bulk = evaluator.getBulkCargoDistribution();
+        assertEquals(1, bulk.size());
+        assertEquals(Integer.valueOf(1), bulk.get(BulkCargoType.COAL));
+    }
+
+    @Test
+    public void distributionsAreSnapshots() {
+        evaluator.onProcessMovement(new CargoMovement(0,
+                MovementDirection.INBOUND, Arrays.asList(
+                new BulkCargo(context, 1, "Japan", 10, BulkCargoType.OIL))));
+        Map<String, Integer> before = evaluator.getCargoDistribution();
+        before.clear();
+        assertEquals(Integer.valueOf(1),
+                evaluator.getCargoDistribution().get("BulkCargo"));
+    }
+}
@@ -0,0 +1,111 @@
+package portsim.evaluators;
+
+import org.junit.Before;
+import org.junit.Test;
+import portsim.port.BulkQuay;
+import portsim.port.ContainerQuay;
+import portsim.port.Port;
+import portsim.port.Quay;
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+import portsim.util.SimulationContext;
+
+import static org.junit.Assert.*;
+
+public class QuayOccupancyEvaluatorTest {
+    SimulationContext context;
+    Port port;
+    Quay bulkQuay;
+    Quay containerQuay;
+    Ship bulkCarrier;
+    Ship containerShip;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new SimulationContext();
+        port = new Port(context, "Brisbane");
+        bulkQuay = new BulkQuay(1, 100);
+        containerQuay = new ContainerQuay(2, 10);
+        port.addQuay(bulkQuay);
+        port.addQuay(containerQuay);
+        bulkCarrier = new BulkCarrier(context, 1234567, "Bulky", "Japan",
+                NauticalFlag.NOVEMBER, 100);
+        containerShip = new ContainerShip(context, 2345678, "Boxy", "Japan",
+                NauticalFlag.HOTEL, 10);
+    }
+
+    @Test
+    public void countsByType() {
+        bulkQuay.shipArrives(bulkCarrier);
+        QuayOccupancyEvaluator evaluator = new QuayOccupancyEvaluator();
+        port.addStatisticsEvaluator(evaluator);
+        assertEquals(1, evaluator.getQuaysOccupied());
+        assertEquals(1, evaluator.getQuaysOccupied(BulkQuay.class));
+        assertEquals(0, evaluator.getQuaysOccupied(ContainerQuay.class));
+        assertEquals(1, evaluator.getQuayCount(ContainerQuay.class));
+
+        containerQuay.shipArrives(containerShip);
+        assertEquals(2, evaluator.getQuaysOccupied());
+        assertEquals(1, evaluator.getQuaysOccupied(ContainerQuay.class));
+
+        bulkQuay.shipDeparts();
+        bulkQuay.shipDeparts();
+        assertEquals(1, evaluator.getQuaysOccupied());
+        assertEquals(0, evaluator.getQuaysOccupied(BulkQuay.class));
+    }
+
+    @Test
+    public void quaysAddedLater() {
+        QuayOccupancyEvaluator evaluator = new QuayOccupancyEvaluator();
+        port.addStatisticsEvaluator(evaluator);
+        Quay later = new BulkQuay(3, 100);
+        later.shipArrives(bulkCarrier);
+        port.addQuay(later);
+        assertEquals(1, evaluator.getQuaysOccupied());
+        assertEquals(2, evaluator.getQuayCount(BulkQuay.class));
+    }
+
+    @Test
+    public void timeWeightedUtilisation() {
+        QuayOccupancyEvaluator evaluator = new QuayOccupancyEvaluator();
+        port.addStatisticsEvaluator(evaluator);
+        assertEquals(0, evaluator.getUtilisation(), 0);
+
+        bulkQuay.shipArrives(bulkCarrier);
+        for (int i = 0; i < 10; i++) {
+            port.elapseOneMinute();
+        }
+        bulkQuay.shipDeparts();
+        evaluator.elapseMinutes(10);
+        containerQuay.shipArrives(containerShip);
+        evaluator.elapseMinutes(5);
+
+        assertEquals(25, evaluator.getTime());
+        assertEquals(10, evaluator.getOccupiedMinutes(bulkQuay));
+        assertEquals(5, evaluator.getOccupiedMinutes(containerQuay));
+        assertEquals(15, evaluator.getOccupiedQuayMinutes());
+        assertEquals(0.3, evaluator.getUtilisation(), 1e-9);
+        assertEquals(0.4, evaluator.getUtilisation(bulkQuay), 1e-9);
+        assertEquals(0.2, evaluator.getUtilisation(containerQuay), 1e-9);
+    }
+
+    @Test
+    public void onlyCountsWhileAdded() {
+        QuayOccupancyEvaluator evaluator = new QuayOccupancyEvaluator();
+        bulkQuay.shipArrives(bulkCarrier);
+        assertEquals(0, evaluator.getQuayCount(BulkQuay.class));
+        assertEquals(0, evaluator.getQuaysOccupied());
+
+        port.addStatisticsEvaluator(evaluator);
+        assertEquals(1, evaluator.getQuaysOccupied());
+        assertTrue(port.removeStatisticsEvaluator(evaluator));
+        assertFalse(port.removeStatisticsEvaluator(evaluator));
+        containerQuay.shipArrives(containerShip);
+        port.elapseOneMinute();
+        assertEquals(1, evaluator.getQuaysOccupied());
+        assertEquals(0, evaluator.getTime());
+        assertTrue(port.getEvaluators().isEmpty());
+    }
+}
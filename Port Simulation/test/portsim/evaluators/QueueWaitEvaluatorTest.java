@@ -0,0 +1,86 @@
+package portsim.evaluators;
+
+import org.junit.Before;
+import org.junit.Test;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.port.ContainerQuay;
+import portsim.port.Port;
+import portsim.port.Quay;
+import portsim.port.ShipQueue;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.util.SimulationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class QueueWaitEvaluatorTest {
+    SimulationContext context;
+    Port port;
+    QueueWaitEvaluator evaluator;
+    ContainerShip first;
+    ContainerShip second;
+
+    @Before
+    public void setUp() {
+        context = new SimulationContext();
+        List<Quay> quays = new ArrayList<>();
+        quays.add(new ContainerQuay(0, 100));
+        port = new Port(context, "Port", 0, new ShipQueue(), quays,
+                new ArrayList<>());
+        evaluator = new QueueWaitEvaluator();
+        port.addStatisticsEvaluator(evaluator);
+        first = new ContainerShip(context, 1234567, "First", "Japan",
+                NauticalFlag.NOVEMBER, 10);
+        second = new ContainerShip(context, 2345678, "Second", "Japan",
+                NauticalFlag.NOVEMBER, 10);
+    }
+
+    @Test
+    public void nothingMeasuredInitially() {
+        assertEquals(0, evaluator.getShipsDocked());
+        assertEquals(0, evaluator.getShipsWaiting());
+        assertEquals(0, evaluator.getMeanWait(), 0);
+        assertEquals(0, evaluator.getLongestWait());
+    }
+
+    @Test
+    public void measuresWaitForQuay() {
+        port.addMovement(new ShipMovement(1, MovementDirection.INBOUND, first));
+        port.addMovement(new ShipMovement(1, MovementDirection.INBOUND,
+                second));
+        port.addMovement(new ShipMovement(15, MovementDirection.OUTBOUND,
+                first));
+        port.advanceTo(15);
+        assertEquals(1, evaluator.getShipsDocked());
+        assertEquals(1, evaluator.getShipsWaiting());
+        assertEquals(9, evaluator.getLongestWait());
+
+        port.advanceTo(20);
+        assertEquals(2, evaluator.getShipsDocked());
+        assertEquals(0, evaluator.getShipsWaiting());
+        assertEquals(19, evaluator.getLongestWait());
+        assertEquals(14, evaluator.getMeanWait(), 1e-9);
+    }
+
+    @Test
+    public void turnedAwayShipsNeverDock() {
+        port.addMovement(new ShipMovement(1, MovementDirection.INBOUND, first));
+        port.addMovement(new ShipMovement(1, MovementDirection.INBOUND,
+                second));
+        port.advanceTo(60);
+        assertEquals(1, evaluator.getShipsDocked());
+        assertEquals(1, evaluator.getShipsWaiting());
+    }
+
+    @Test
+    public void subscribesToArrivalsAndDocking() {
+        assertTrue(evaluator.getSubscriptions().contains(PortEvent.DOCK));
+        assertTrue(evaluator.getSubscriptions()
+                .contains(PortEvent.SHIP_INBOUND));
+        assertFalse(evaluator.getSubscriptions().contains(PortEvent.UNDOCK));
+    }
+}
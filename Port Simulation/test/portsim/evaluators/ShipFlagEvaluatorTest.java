@@ -0,0 +1,48 @@
+package portsim.evaluators;
+
+import org.junit.Before;
+import org.junit.Test;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.ship.BulkCarrier;
+import portsim.ship.NauticalFlag;
+import portsim.util.SimulationContext;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ShipFlagEvaluatorTest {
+    SimulationContext context;
+    ShipFlagEvaluator evaluator;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new SimulationContext();
+        evaluator = new ShipFlagEvaluator();
+    }
+
+    private void arrive(long imo, String origin, MovementDirection direction) {
+        evaluator.onProcessMovement(new ShipMovement(0, direction,
+                new BulkCarrier(context, imo, "Bulky", origin,
+                        NauticalFlag.NOVEMBER, 100)));
+    }
+
+    @Test
+    public void countsInboundOrigins() {
+        assertEquals(0, evaluator.getFlagStatistics("Japan"));
+        arrive(1234567, "Japan", MovementDirection.INBOUND);
+        arrive(2345678, "Japan", MovementDirection.INBOUND);
+        arrive(3456789, "Australia", MovementDirection.INBOUND);
+        arrive(4567890, "Australia", MovementDirection.OUTBOUND);
+
+        assertEquals(2, evaluator.getFlagStatistics("Japan"));
+        assertEquals(1, evaluator.getFlagStatistics("Australia"));
+        Map<String, Integer> distribution = evaluator.getFlagDistribution();
+        assertEquals(2, distribution.size());
+        assertEquals(Integer.valueOf(2), distribution.get("Japan"));
+
+        distribution.put("Japan", 10);
+        assertEquals(2, evaluator.getFlagStatistics("Japan"));
+    }
+}
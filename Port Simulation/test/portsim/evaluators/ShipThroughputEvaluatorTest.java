@@ -69,6 +69,64 @@ public class ShipThroughputEvaluatorTest {
         assertEquals(0, test.getThroughputPerHour());
     }
 
+    @Test
+    public void configuredWindowsTest() {
+        ShipThroughputEvaluator windows = new ShipThroughputEvaluator(15, 1440);
+        assertArrayEquals(new int[] {15, 60, 1440}, windows.getWindows());
+
+        windows.onProcessMovement(new ShipMovement(0, MovementDirection.OUTBOUND,
+                new ContainerShip(1000101, "hi", "Singapore", NauticalFlag.BRAVO, 30)));
+        windows.elapseMinutes(15);
+        assertEquals(1, windows.getThroughput(15));
+        windows.elapseOneMinute();
+        assertEquals(0, windows.getThroughput(15));
+        assertEquals(1, windows.getThroughputPerHour());
+        assertEquals(1, windows.getThroughput(1440));
+
+        windows.elapseMinutes(1424);
+        assertEquals(0, windows.getThroughputPerHour());
+        assertEquals(1, windows.getThroughput(1440));
+        windows.elapseOneMinute();
+        assertEquals(0, windows.getThroughput(1440));
+    }
+
+    @Test
+    public void elapseMinutesMatchesTicksTest() {
+        ShipThroughputEvaluator ticked = new ShipThroughputEvaluator();
+        Ship ship = new ContainerShip(1000102, "hi", "Singapore", NauticalFlag.BRAVO, 30);
+        for (int minute = 0; minute < 200; minute++) {
+            for (int i = 0; i < minute % 3; i++) {
+                ShipMovement movement =
+                        new ShipMovement(minute, MovementDirection.OUTBOUND, ship);
+                ticked.onProcessMovement(movement);
+                test.onProcessMovement(movement);
+            }
+            ticked.elapseOneMinute();
+            test.elapseMinutes(1);
+            assertEquals(ticked.getThroughputPerHour(), test.getThroughputPerHour());
+        }
+        assertEquals(60, ticked.getThroughputPerHour());
+
+        for (int i = 0; i < 40; i++) {
+            ticked.elapseOneMinute();
+        }
+        test.elapseMinutes(40);
+        assertEquals(ticked.getThroughputPerHour(), test.getThroughputPerHour());
+        test.elapseMinutes(61);
+        assertEquals(0, test.getThroughputPerHour());
+        assertEquals(301, test.getTime());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void unmeasuredWindowTest() {
+        test.getThroughput(15);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void invalidWindowTest() {
+        new ShipThroughputEvaluator(0);
+    }
+
     @After
     public void tearDown() throws Exception {
     }
@@ -0,0 +1,97 @@
+package portsim.port;
+
+import org.junit.Before;
+import org.junit.Test;
+import portsim.cargo.BulkCargo;
+import portsim.cargo.BulkCargoType;
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+import portsim.util.SimulationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BerthIndexTest {
+    SimulationContext context;
+    BerthIndex index;
+    List<Quay> quays;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new SimulationContext();
+        index = new BerthIndex();
+        quays = new ArrayList<>();
+    }
+
+    private Quay track(Quay quay) {
+        quays.add(quay);
+        index.track(quay);
+        return quay;
+    }
+
+    private BulkCarrier bulkCarrier(int imo, int tonnage) {
+        BulkCarrier ship = new BulkCarrier(context, imo, "Bulky", "Japan",
+                NauticalFlag.NOVEMBER, 1000);
+        ship.loadCargo(new BulkCargo(context, imo, "Japan", tonnage,
+                BulkCargoType.OIL));
+        return ship;
+    }
+
+    @Test
+    public void firstAndBestFit() {
+        Quay large = track(new BulkQuay(1, 500));
+        track(new ContainerQuay(2, 10));
+        Quay small = track(new BulkQuay(3, 100));
+        Ship ship = bulkCarrier(1234567, 80);
+
+        assertSame(large, index.find(ship, DockingPolicy.FIRST_FIT));
+        assertSame(small, index.find(ship, DockingPolicy.BEST_FIT));
+
+        small.shipArrives(ship);
+        Ship heavy = bulkCarrier(2345678, 300);
+        assertSame(large, index.find(heavy, DockingPolicy.BEST_FIT));
+        large.shipArrives(heavy);
+        assertNull(index.find(bulkCarrier(3456789, 1), DockingPolicy.FIRST_FIT));
+
+        small.shipDeparts();
+        assertSame(small, index.find(bulkCarrier(4567890, 1),
+                DockingPolicy.FIRST_FIT));
+    }
+
+    @Test
+    public void emptyIndex() {
+        assertNull(index.find(new ContainerShip(context, 1234567, "Boxy",
+                "Japan", NauticalFlag.NOVEMBER, 5), DockingPolicy.FIRST_FIT));
+    }
+
+    @Test
+    public void firstFitMatchesLinearScan() {
+        Random random = new Random(42);
+        for (int i = 0; i < 50; i++) {
+            track(new BulkQuay(i, random.nextInt(1000)));
+        }
+        for (int i = 0; i < 500; i++) {
+            Ship ship = bulkCarrier(1000000 + i, random.nextInt(1000));
+            Quay expected = null;
+            for (Quay quay : quays) {
+                if (ship.canDock(quay) && quay.isEmpty()) {
+                    expected = quay;
+                    break;
+                }
+            }
+            assertSame(expected, index.find(ship, DockingPolicy.FIRST_FIT));
+
+            Quay toggle = quays.get(random.nextInt(quays.size()));
+            if (toggle.isEmpty()) {
+                toggle.shipArrives(ship);
+            } else {
+                toggle.shipDeparts();
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package portsim.port;
+
+import org.junit.Before;
+import org.junit.Test;
+import portsim.cargo.Cargo;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.evaluators.PortEvent;
+import portsim.evaluators.StatisticsEvaluator;
+import portsim.movement.CargoMovement;
+import portsim.movement.Movement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+import portsim.util.SimulationContext;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class EvaluatorBusTest {
+    SimulationContext context;
+    Port port;
+    Quay quay;
+
+    /**
+     * Records the events it receives.
+     */
+    private static class Recorder extends StatisticsEvaluator {
+        private final Set<PortEvent> subscriptions;
+        private final List<String> events = new ArrayList<>();
+
+        Recorder(PortEvent first, PortEvent... rest) {
+            this.subscriptions = EnumSet.of(first, rest);
+        }
+
+        @Override
+        public Set<PortEvent> getSubscriptions() {
+            return subscriptions;
+        }
+
+        @Override
+        public void onProcessMovement(Movement movement) {
+            events.add(PortEvent.of(movement).name());
+        }
+
+        @Override
+        public void onDock(Quay quay, Ship ship) {
+            events.add("DOCK " + quay.getId());
+        }
+
+        @Override
+        public void onUndock(Quay quay, Ship ship) {
+            events.add("UNDOCK " + quay.getId());
+        }
+
+        @Override
+        public void onUnload(Quay quay, Ship ship, List<? extends Cargo> cargo) {
+            events.add("UNLOAD " + cargo.size());
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        context = new SimulationContext();
+        port = new Port(context, "Brisbane");
+        quay = new ContainerQuay(1, 10);
+        port.addQuay(quay);
+    }
+
+    @Test
+    public void deliversOnlySubscribedEvents() {
+        Recorder recorder = new Recorder(PortEvent.DOCK, PortEvent.UNDOCK,
+                PortEvent.UNLOAD, PortEvent.SHIP_OUTBOUND);
+        port.addStatisticsEvaluator(recorder);
+
+        ContainerShip ship = new ContainerShip(context, 1234567, "Boxy",
+                "Japan", NauticalFlag.BRAVO, 10);
+        ship.loadCargo(new Container(context, 1, "Chile", ContainerType.OTHER));
+        ship.loadCargo(new Container(context, 2, "Chile", ContainerType.OTHER));
+        port.addMovement(new ShipMovement(1, MovementDirection.INBOUND, ship));
+        port.addMovement(new CargoMovement(2, MovementDirection.INBOUND,
+                List.of(new Container(context, 3, "Chile", ContainerType.OTHER))));
+        port.addMovement(new ShipMovement(20, MovementDirection.OUTBOUND, ship));
+        port.advanceTo(30);
+
+        assertEquals(List.of("DOCK 1", "UNLOAD 2", "UNDOCK 1", "SHIP_OUTBOUND"),
+                recorder.events);
+        assertEquals(0, recorder.getTime());
+    }
+
+    @Test
+    public void defaultSubscriptionsReceiveMovementsAndTicks() {
+        StatisticsEvaluator evaluator = new StatisticsEvaluator() {
+            @Override
+            public void onProcessMovement(Movement movement) {
+            }
+        };
+        assertEquals(EnumSet.of(PortEvent.SHIP_INBOUND, PortEvent.SHIP_OUTBOUND,
+                PortEvent.CARGO_INBOUND, PortEvent.CARGO_OUTBOUND, PortEvent.TICK),
+                evaluator.getSubscriptions());
+        port.addStatisticsEvaluator(evaluator);
+        port.advanceTo(15);
+        assertEquals(15, evaluator.getTime());
+    }
+}
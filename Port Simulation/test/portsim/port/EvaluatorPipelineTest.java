@@ -0,0 +1,196 @@
+package portsim.port;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import portsim.cargo.BulkCargo;
+import portsim.cargo.BulkCargoType;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.evaluators.CargoDecompositionEvaluator;
+import portsim.evaluators.QuayOccupancyEvaluator;
+import portsim.evaluators.ShipFlagEvaluator;
+import portsim.evaluators.ShipThroughputEvaluator;
+import portsim.evaluators.StatisticsEvaluator;
+import portsim.movement.Movement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.util.SimulationContext;
+
+import static org.junit.Assert.*;
+
+public class EvaluatorPipelineTest {
+    Port inline;
+    Port threaded;
+
+    private Port createPort() {
+        SimulationContext context = new SimulationContext();
+        Port port = new Port(context, "Brisbane");
+        port.addQuay(new BulkQuay(1, 200));
+        port.addQuay(new ContainerQuay(2, 100));
+        port.addStatisticsEvaluator(new ShipThroughputEvaluator());
+        port.addStatisticsEvaluator(new CargoDecompositionEvaluator());
+        port.addStatisticsEvaluator(new ShipFlagEvaluator());
+
+        for (int i = 0; i < 50; i++) {
+            BulkCarrier bulk = new BulkCarrier(context, 1000000 + i, "Bulky",
+                    "Japan", NauticalFlag.HOTEL, 300);
+            bulk.loadCargo(new BulkCargo(context, 2 * i, "Australia", 150,
+                    BulkCargoType.OIL));
+            ContainerShip boxes = new ContainerShip(context, 2000000 + i,
+                    "Boxy", i % 2 == 0 ? "Chile" : "Peru", NauticalFlag.BRAVO, 5);
+            boxes.loadCargo(new Container(context, 2 * i + 1, "Australia",
+                    ContainerType.REEFER));
+            port.addMovement(new ShipMovement(7 * i, MovementDirection.INBOUND, bulk));
+            port.addMovement(new ShipMovement(7 * i + 3, MovementDirection.INBOUND,
+                    boxes));
+            port.addMovement(new ShipMovement(7 * i + 40,
+                    MovementDirection.OUTBOUND, bulk));
+        }
+        return port;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        inline = createPort();
+        threaded = createPort();
+        threaded.setEvaluatorThreads(2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        threaded.close();
+    }
+
+    /* Adds an evaluator to the port that records the thread it runs on */
+    private static Thread[] recordThread(Port port) {
+        Thread[] thread = new Thread[1];
+        port.addStatisticsEvaluator(new StatisticsEvaluator() {
+            @Override
+            public boolean canRunConcurrently() {
+                return true;
+            }
+
+            @Override
+            public void onProcessMovement(Movement movement) {
+            }
+
+            @Override
+            public void elapseOneMinute() {
+                super.elapseOneMinute();
+                thread[0] = Thread.currentThread();
+            }
+        });
+        return thread;
+    }
+
+    @Test
+    public void matchesInlineEvaluators() {
+        assertEquals(2, threaded.getEvaluatorThreads());
+        for (int minute = 0; minute < 400; minute++) {
+            inline.elapseOneMinute();
+            threaded.elapseOneMinute();
+            if (minute % 37 == 0) {
+                ShipThroughputEvaluator expected
+                        = (ShipThroughputEvaluator) inline.getEvaluators().get(0);
+                ShipThroughputEvaluator actual
+                        = (ShipThroughputEvaluator) threaded.getEvaluators().get(0);
+                assertEquals(expected.getTime(), actual.getTime());
+                assertEquals(expected.getThroughputPerHour(),
+                        actual.getThroughputPerHour());
+            }
+        }
+        inline.advanceTo(1000);
+        threaded.advanceTo(1000);
+
+        for (int i = 0; i < inline.getEvaluators().size(); i++) {
+            assertEquals(1000, threaded.getEvaluators().get(i).getTime());
+        }
+        assertEquals(
+                ((CargoDecompositionEvaluator) inline.getEvaluators().get(1))
+                        .getCargoDistribution(),
+                ((CargoDecompositionEvaluator) threaded.getEvaluators().get(1))
+                        .getCargoDistribution());
+        assertEquals(
+                ((ShipFlagEvaluator) inline.getEvaluators().get(2))
+                        .getFlagDistribution(),
+                ((ShipFlagEvaluator) threaded.getEvaluators().get(2))
+                        .getFlagDistribution());
+    }
+
+    @Test
+    public void evaluatorsAddedWhileThreaded() {
+        QuayOccupancyEvaluator occupancy = new QuayOccupancyEvaluator();
+        threaded.addStatisticsEvaluator(occupancy);
+        threaded.advanceTo(100);
+        threaded.syncEvaluators();
+        assertEquals(100, occupancy.getTime());
+    }
+
+    @Test
+    public void removedEvaluatorsStopOnThreads() {
+        StatisticsEvaluator throughput = threaded.getEvaluators().get(0);
+        threaded.advanceTo(100);
+        assertTrue(threaded.removeStatisticsEvaluator(throughput));
+        threaded.advanceTo(200);
+        threaded.syncEvaluators();
+        assertEquals(100, throughput.getTime());
+    }
+
+    @Test
+    public void closeStopsThreads() throws Exception {
+        Thread[] worker = recordThread(threaded);
+        threaded.elapseOneMinute();
+        threaded.syncEvaluators();
+        assertNotSame(Thread.currentThread(), worker[0]);
+
+        threaded.close();
+        worker[0].join(5000);
+        assertFalse(worker[0].isAlive());
+        assertEquals(0, threaded.getEvaluatorThreads());
+        threaded.elapseOneMinute();
+        assertSame(Thread.currentThread(), worker[0]);
+    }
+
+    @Test
+    public void replacedThreadsAreStopped() throws Exception {
+        Thread[] worker = recordThread(threaded);
+        threaded.elapseOneMinute();
+        threaded.syncEvaluators();
+        Thread first = worker[0];
+
+        threaded.setEvaluatorThreads(1);
+        first.join(5000);
+        assertFalse(first.isAlive());
+        threaded.elapseOneMinute();
+        threaded.syncEvaluators();
+        assertNotSame(first, worker[0]);
+        assertTrue(worker[0].isAlive());
+    }
+
+    @Test (expected = IllegalStateException.class)
+    public void failuresReachTheSimulationThread() {
+        inline.setEvaluatorThreads(1);
+        inline.addStatisticsEvaluator(new StatisticsEvaluator() {
+            @Override
+            public boolean canRunConcurrently() {
+                return true;
+            }
+
+            @Override
+            public void onProcessMovement(Movement movement) {
+                throw new IllegalArgumentException("broken evaluator");
+            }
+        });
+        inline.advanceTo(10);
+        inline.syncEvaluators();
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void negativeThreads() {
+        inline.setEvaluatorThreads(-1);
+    }
+}
@@ -0,0 +1,172 @@
+package portsim.port;
+
+import org.junit.Before;
+import org.junit.Test;
+import portsim.cargo.Cargo;
+import portsim.movement.CargoMovement;
+import portsim.movement.Movement;
+import portsim.movement.MovementDirection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MovementScheduleTest {
+    MovementSchedule schedule;
+
+    @Before
+    public void setUp() throws Exception {
+        schedule = new MovementSchedule();
+    }
+
+    private Movement movement(long time) {
+        return new CargoMovement(time, MovementDirection.INBOUND, new ArrayList<Cargo>());
+    }
+
+    @Test
+    public void testEmpty() {
+        assertTrue(schedule.isEmpty());
+        assertEquals(-1, schedule.firstTime());
+        assertEquals(0, schedule.pollDue(5).size());
+    }
+
+    @Test
+    public void testPollDue() {
+        Movement first = movement(10);
+        Movement second = movement(10);
+        Movement later = movement(25);
+        schedule.add(later);
+        schedule.add(first);
+        schedule.add(second);
+
+        assertEquals(3, schedule.size());
+        assertEquals(10, schedule.firstTime());
+        assertEquals(0, schedule.pollDue(9).size());
+
+        List<Movement> due = schedule.pollDue(10);
+        assertEquals(2, due.size());
+        assertSame(first, due.get(0));
+        assertSame(second, due.get(1));
+        assertEquals(1, schedule.size());
+        assertEquals(0, schedule.pollDue(10).size());
+
+        assertSame(later, schedule.iterator().next());
+        assertEquals(1, schedule.pollDue(25).size());
+        assertTrue(schedule.isEmpty());
+    }
+
+    @Test
+    public void testStaleBucketsDiscarded() {
+        schedule.add(movement(3));
+        schedule.add(movement(7));
+        assertEquals(1, schedule.pollDue(7).size());
+        assertTrue(schedule.isEmpty());
+    }
+
+    private static List<Movement> toList(Iterable<Movement> movements) {
+        List<Movement> result = new ArrayList<>();
+        movements.forEach(result::add);
+        return result;
+    }
+
+    @Test
+    public void testForkSharesMovements() {
+        Movement first = movement(10);
+        Movement later = movement(25);
+        schedule.add(first);
+        schedule.add(later);
+        schedule.pollDue(5);
+
+        MovementSchedule fork = schedule.fork();
+        assertEquals(2, fork.size());
+        assertEquals(10, fork.firstTime());
+        assertEquals(List.of(first, later), toList(fork));
+
+        assertSame(first, fork.pollDue(10).get(0));
+        assertEquals(1, fork.size());
+        assertEquals(25, fork.firstTime());
+        assertEquals(2, schedule.size());
+        assertEquals(List.of(first, later), toList(schedule));
+        assertSame(first, schedule.pollDue(10).get(0));
+    }
+
+    @Test
+    public void testForkedSchedulesAddIndependently() {
+        Movement shared = movement(10);
+        schedule.add(shared);
+        MovementSchedule fork = schedule.fork();
+
+        Movement parentOnly = movement(10);
+        Movement forkOnly = movement(5);
+        schedule.add(parentOnly);
+        fork.add(forkOnly);
+
+        assertEquals(List.of(shared, parentOnly), toList(schedule));
+        assertEquals(List.of(forkOnly, shared), toList(fork));
+        assertEquals(5, fork.firstTime());
+        assertEquals(List.of(shared, parentOnly), schedule.pollDue(10));
+        assertEquals(List.of(forkOnly), fork.pollDue(5));
+        assertEquals(List.of(shared), fork.pollDue(10));
+        assertTrue(schedule.isEmpty());
+        assertTrue(fork.isEmpty());
+    }
+
+    @Test
+    public void testRepeatedForksKeepOrder() {
+        List<Movement> added = new ArrayList<>();
+        MovementSchedule current = schedule;
+        for (int i = 0; i < 20; i++) {
+            Movement movement = movement(100 + i % 3);
+            added.add(movement);
+            current.add(movement);
+            current = current.fork();
+        }
+        assertEquals(20, current.size());
+        List<Movement> expected = new ArrayList<>();
+        for (int time = 100; time < 103; time++) {
+            for (Movement movement : added) {
+                if (movement.getTime() == time) {
+                    expected.add(movement);
+                }
+            }
+        }
+        assertEquals(expected, toList(current));
+        List<Movement> polled = new ArrayList<>();
+        for (int time = 100; time < 103; time++) {
+            polled.addAll(current.pollDue(time));
+        }
+        assertEquals(expected, polled);
+        assertTrue(current.isEmpty());
+        assertEquals(1, schedule.size());
+    }
+
+    @Test
+    public void testForkKeepsMovementAddedForPolledTime() {
+        schedule.pollDue(10);
+        Movement late = movement(10);
+        schedule.add(late);
+        MovementSchedule fork = schedule.fork();
+        assertEquals(1, fork.size());
+        assertEquals(List.of(late), toList(fork));
+        assertEquals(0, fork.pollDue(11).size());
+        assertTrue(fork.isEmpty());
+        assertEquals(1, schedule.size());
+    }
+
+    @Test
+    public void testManyForksShareBuckets() {
+        for (int i = 0; i < 50; i++) {
+            schedule.add(movement(200));
+        }
+        List<Movement> bucket = schedule.fork().pollDue(200);
+        MovementSchedule current = schedule;
+        for (int i = 0; i < 20; i++) {
+            current.add(movement(100 + i));
+            current = current.fork();
+            assertSame(bucket, current.fork().pollDue(200));
+        }
+        assertEquals(70, current.size());
+        assertEquals(51, schedule.size());
+    }
+}
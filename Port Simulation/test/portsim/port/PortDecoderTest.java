@@ -0,0 +1,196 @@
+package portsim.port;
+
+import org.junit.Before;
+import org.junit.Test;
+import portsim.cargo.BulkCargo;
+import portsim.cargo.BulkCargoType;
+import portsim.cargo.Cargo;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.evaluators.QuayOccupancyEvaluator;
+import portsim.evaluators.ShipThroughputEvaluator;
+import portsim.movement.CargoMovement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.util.BadEncodingException;
+import portsim.util.SimulationContext;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PortDecoderTest {
+    SimulationContext context;
+    Port port;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new SimulationContext();
+        BulkCarrier bulkCarrier = new BulkCarrier(context, 1234567, "Bulky",
+                "Japan", NauticalFlag.HOTEL, 300);
+        bulkCarrier.loadCargo(new BulkCargo(context, 1, "Japan", 150,
+                BulkCargoType.OIL));
+        ContainerShip containerShip = new ContainerShip(context, 7654321,
+                "Boxy", "Australia", NauticalFlag.NOVEMBER, 5);
+        containerShip.loadCargo(new Container(context, 2, "Australia",
+                ContainerType.REEFER));
+        containerShip.loadCargo(new Container(context, 3, "Australia",
+                ContainerType.STANDARD));
+        ContainerShip emptyShip = new ContainerShip(context, 1111111,
+                "Empty", "Australia", NauticalFlag.BRAVO, 5);
+
+        List<Quay> quays = new ArrayList<>();
+        quays.add(new ContainerQuay(1, 10));
+        quays.add(new BulkQuay(2, 400));
+        quays.get(0).shipArrives(emptyShip);
+        ShipQueue queue = new ShipQueue();
+        queue.add(containerShip);
+        List<Cargo> stored = new ArrayList<>();
+        stored.add(new Container(context, 4, "Japan", ContainerType.OTHER));
+        port = new Port(context, "Brisbane", 12, queue, quays, stored);
+
+        List<Cargo> cargo = new ArrayList<>();
+        cargo.add(new Container(context, 5, "Japan", ContainerType.TANKER));
+        port.addMovement(new ShipMovement(20, MovementDirection.INBOUND,
+                bulkCarrier));
+        port.addMovement(new CargoMovement(30, MovementDirection.INBOUND, cargo));
+
+        port.addStatisticsEvaluator(new ShipThroughputEvaluator());
+        port.addStatisticsEvaluator(new QuayOccupancyEvaluator());
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        String encoding = port.encode();
+
+        Port decoded = Port.initialisePort(new SimulationContext(),
+                new StringReader(encoding));
+
+        assertEquals(encoding, decoded.encode());
+        assertEquals(2, decoded.getEvaluators().size());
+        assertEquals(1, decoded.getShipQueue().getShipQueue().size());
+        assertEquals(2, ((ContainerShip) decoded.getShipQueue().peek())
+                .getCargo().size());
+    }
+
+    @Test
+    public void encodeToMatchesEncode() throws Exception {
+        StringWriter writer = new StringWriter();
+        port.encodeTo(writer);
+        assertEquals(port.encode(), writer.toString());
+    }
+
+    @Test
+    public void saveRoundTrip() throws Exception {
+        Path file = Files.createTempFile("port", ".txt");
+        try {
+            port.save(file);
+            assertEquals(port.encode(), new String(Files.readAllBytes(file),
+                    StandardCharsets.UTF_8));
+
+            Port decoded = Port.initialisePort(new SimulationContext(),
+                    Files.newBufferedReader(file));
+            assertEquals(port.encode(), decoded.encode());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void reportsLineNumber() throws Exception {
+        String sep = System.lineSeparator();
+        String encoding = "Brisbane" + sep
+                + "0" + sep
+                + "1" + sep
+                + "BulkCargo:1:Japan:OIL:10" + sep
+                + "0" + sep
+                + "0" + sep
+                + "ShipQueue:1:1234567" + sep
+                + "StoredCargo:0:" + sep
+                + "Movements:0" + sep
+                + "Evaluators:0:";
+
+        try {
+            Port.initialisePort(new SimulationContext(),
+                    new StringReader(encoding));
+            fail("Expected BadEncodingException");
+        } catch (BadEncodingException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Line 7: "));
+        }
+    }
+
+    @Test(expected = BadEncodingException.class)
+    public void truncatedInput() throws Exception {
+        String encoding = port.encode();
+        String truncated = encoding.substring(0,
+                encoding.lastIndexOf(System.lineSeparator()));
+        Port.initialisePort(new SimulationContext(), new StringReader(truncated));
+    }
+
+    @Test(expected = BadEncodingException.class)
+    public void wrongStoredCargoCount() throws Exception {
+        String sep = System.lineSeparator();
+        String encoding = "Brisbane" + sep
+                + "0" + sep
+                + "1" + sep
+                + "BulkCargo:1:Japan:OIL:10" + sep
+                + "0" + sep
+                + "0" + sep
+                + "ShipQueue:0:" + sep
+                + "StoredCargo:2:1" + sep
+                + "Movements:0" + sep
+                + "Evaluators:0:";
+        Port.initialisePort(new SimulationContext(),
+                new StringReader(encoding));
+    }
+
+    @Test(expected = BadEncodingException.class)
+    public void storedCargoIdOutOfRange() throws Exception {
+        String sep = System.lineSeparator();
+        String encoding = "Brisbane" + sep
+                + "0" + sep
+                + "1" + sep
+                + "BulkCargo:1:Japan:OIL:10" + sep
+                + "0" + sep
+                + "0" + sep
+                + "ShipQueue:0:" + sep
+                + "StoredCargo:1:4294967297" + sep
+                + "Movements:0" + sep
+                + "Evaluators:0:";
+        Port.initialisePort(new SimulationContext(),
+                new StringReader(encoding));
+    }
+
+    @Test
+    public void duplicateStoredCargo() throws Exception {
+        String sep = System.lineSeparator();
+        String encoding = "Brisbane" + sep
+                + "0" + sep
+                + "2" + sep
+                + "BulkCargo:2:Japan:OIL:10" + sep
+                + "BulkCargo:5:Japan:OIL:10" + sep
+                + "0" + sep
+                + "0" + sep
+                + "ShipQueue:0:" + sep
+                + "StoredCargo:2:5,5" + sep
+                + "Movements:0" + sep
+                + "Evaluators:0:";
+
+        try {
+            Port.initialisePort(new SimulationContext(),
+                    new StringReader(encoding));
+            fail("Expected BadEncodingException");
+        } catch (BadEncodingException e) {
+            assertEquals("Line 9: duplicate stored cargo 5", e.getMessage());
+        }
+    }
+}
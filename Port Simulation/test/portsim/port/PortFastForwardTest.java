@@ -0,0 +1,119 @@
+package portsim.port;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import portsim.cargo.BulkCargo;
+import portsim.cargo.BulkCargoType;
+import portsim.cargo.Cargo;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.evaluators.CargoDecompositionEvaluator;
+import portsim.evaluators.ShipThroughputEvaluator;
+import portsim.movement.CargoMovement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PortFastForwardTest {
+
+    @Before
+    public void setUp() throws Exception {
+        Ship.resetShipRegistry();
+        Cargo.resetCargoRegistry();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Ship.resetShipRegistry();
+        Cargo.resetCargoRegistry();
+    }
+
+    private Port createPort(int offset) {
+        Port port = new Port("Brisbane");
+        port.addQuay(new BulkQuay(1, 200));
+        port.addQuay(new ContainerQuay(2, 100));
+
+        BulkCarrier bulkCarrier = new BulkCarrier(1000000 + offset, "Bulky",
+                "Japan", NauticalFlag.HOTEL, 300);
+        bulkCarrier.loadCargo(new BulkCargo(offset, "Australia", 150,
+                BulkCargoType.OIL));
+        ContainerShip containerShip = new ContainerShip(2000000 + offset,
+                "Boxy", "Australia", NauticalFlag.NOVEMBER, 5);
+        containerShip.loadCargo(new Container(offset + 1, "Australia",
+                ContainerType.REEFER));
+
+        List<Cargo> inbound = new ArrayList<>();
+        inbound.add(new Container(offset + 2, "Australia", ContainerType.STANDARD));
+        inbound.add(new Container(offset + 3, "Japan", ContainerType.OTHER));
+
+        port.addMovement(new ShipMovement(3, MovementDirection.INBOUND, bulkCarrier));
+        port.addMovement(new ShipMovement(17, MovementDirection.INBOUND, containerShip));
+        port.addMovement(new CargoMovement(40, MovementDirection.INBOUND, inbound));
+        port.addMovement(new ShipMovement(95, MovementDirection.OUTBOUND, containerShip));
+
+        port.addStatisticsEvaluator(new ShipThroughputEvaluator());
+        port.addStatisticsEvaluator(new CargoDecompositionEvaluator());
+        return port;
+    }
+
+    @Test
+    public void advanceMatchesSingleSteps() {
+        Port stepped = createPort(100);
+        Port skipped = createPort(200);
+
+        for (int i = 0; i < 130; i++) {
+            stepped.elapseOneMinute();
+        }
+        skipped.advanceTo(130);
+
+        assertEquals(stepped.getTime(), skipped.getTime());
+        assertEquals(stepped.getMovements().size(), skipped.getMovements().size());
+        assertEquals(stepped.getCargo().size(), skipped.getCargo().size());
+        assertEquals(stepped.getShipQueue().getShipQueue().size(),
+                skipped.getShipQueue().getShipQueue().size());
+        for (int i = 0; i < stepped.getQuays().size(); i++) {
+            assertEquals(stepped.getQuays().get(i).isEmpty(),
+                    skipped.getQuays().get(i).isEmpty());
+        }
+
+        ShipThroughputEvaluator steppedThroughput =
+                (ShipThroughputEvaluator) stepped.getEvaluators().get(0);
+        ShipThroughputEvaluator skippedThroughput =
+                (ShipThroughputEvaluator) skipped.getEvaluators().get(0);
+        assertEquals(steppedThroughput.getTime(), skippedThroughput.getTime());
+        assertEquals(steppedThroughput.getThroughputPerHour(),
+                skippedThroughput.getThroughputPerHour());
+        assertEquals(1, skippedThroughput.getThroughputPerHour());
+        assertEquals(130, skipped.getEvaluators().get(1).getTime());
+
+        stepped.advanceTo(200);
+        skipped.advanceTo(200);
+        assertEquals(0, steppedThroughput.getThroughputPerHour());
+        assertEquals(0, skippedThroughput.getThroughputPerHour());
+    }
+
+    @Test
+    public void advanceIdlePort() {
+        Port port = new Port("Empty");
+        port.advanceTo(100000);
+        assertEquals(100000, port.getTime());
+        port.advanceTo(100000);
+        assertEquals(100000, port.getTime());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void advanceToPast() {
+        Port port = new Port("Empty");
+        port.advanceTo(10);
+        port.advanceTo(9);
+    }
+}
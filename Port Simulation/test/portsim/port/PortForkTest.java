@@ -0,0 +1,180 @@
+package portsim.port;
+
+import org.junit.Before;
+import org.junit.Test;
+import portsim.cargo.Cargo;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.evaluators.QueueWaitEvaluator;
+import portsim.evaluators.ShipThroughputEvaluator;
+import portsim.evaluators.StatisticsEvaluator;
+import portsim.movement.CargoMovement;
+import portsim.movement.Movement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.scenario.Distribution;
+import portsim.scenario.ScenarioGenerator;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.util.SimulationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class PortForkTest {
+    ScenarioGenerator generator;
+
+    @Before
+    public void setUp() throws Exception {
+        generator = new ScenarioGenerator(7);
+        generator.setBulkQuays(2, Distribution.uniform(100, 200));
+        generator.setContainerQuays(3, Distribution.fixed(20));
+        generator.setShips(40, 0.5);
+        generator.setStoredCargo(300, 0.75, Distribution.uniform(10, 50));
+        generator.setCargoMovements(60, 0.5, Distribution.uniform(1, 5));
+        generator.setSchedule(2000, Distribution.uniform(30, 300));
+        generator.setEvaluators(true);
+    }
+
+    @Test
+    public void forkEncodesLikeParent() {
+        Port port = generator.generate();
+        port.advanceTo(700);
+        Port fork = port.fork();
+        assertEquals(port.encode(), fork.encode());
+        assertEquals(port.getTime(), fork.getTime());
+        assertEquals(port.getEvaluators().size(), fork.getEvaluators().size());
+    }
+
+    @Test
+    public void forkRunsLikeParent() {
+        Port port = generator.generate();
+        Port unforked = generator.generate();
+        port.advanceTo(700);
+        unforked.advanceTo(700);
+
+        Port fork = port.fork();
+        fork.advanceTo(2500);
+        port.advanceTo(2500);
+        unforked.advanceTo(2500);
+
+        assertEquals(unforked.encode(), port.encode());
+        assertEquals(unforked.encode(), fork.encode());
+    }
+
+    @Test
+    public void forksRunOnSeparateThreads() throws Exception {
+        Port port = generator.generate();
+        port.advanceTo(500);
+        Port reference = generator.generate();
+        reference.advanceTo(2500);
+
+        List<Port> forks = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            forks.add(port.fork());
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (Port fork : forks) {
+                results.add(pool.submit(() -> {
+                    fork.advanceTo(2500);
+                    return fork.encode();
+                }));
+            }
+            for (Future<String> result : results) {
+                assertEquals(reference.encode(), result.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(500, port.getTime());
+    }
+
+    @Test
+    public void forksDivergeIndependently() {
+        SimulationContext context = new SimulationContext();
+        Port port = generator.generate(context);
+        port.advanceTo(100);
+        int stored = port.getWarehouse().size();
+        int scheduled = port.getMovements().size();
+
+        Port fork = port.fork();
+        List<Cargo> delivered = new ArrayList<>();
+        delivered.add(new Container(fork.getContext(), 1_000_000, "Japan",
+                ContainerType.STANDARD));
+        fork.addMovement(new CargoMovement(101, MovementDirection.INBOUND,
+                delivered));
+        fork.advanceTo(101);
+
+        assertTrue(fork.getContext().cargoExists(1_000_000));
+        assertFalse(context.cargoExists(1_000_000));
+        assertTrue(fork.getWarehouse().contains(1_000_000));
+        assertFalse(port.getWarehouse().contains(1_000_000));
+        assertEquals(stored, port.getWarehouse().size());
+        assertEquals(scheduled, port.getMovements().size());
+        assertEquals(100, port.getTime());
+    }
+
+    @Test
+    public void shipCargoIsIsolated() {
+        SimulationContext context = new SimulationContext();
+        Port port = new Port(context, "Brisbane");
+        port.addQuay(new ContainerQuay(1, 10));
+        ContainerShip ship = new ContainerShip(context, 1234567, "Boxy",
+                "Australia", NauticalFlag.NOVEMBER, 5);
+        ship.loadCargo(new Container(context, 1, "Australia",
+                ContainerType.REEFER));
+        ship.loadCargo(new Container(context, 2, "Australia",
+                ContainerType.STANDARD));
+        port.addMovement(new ShipMovement(1, MovementDirection.INBOUND, ship));
+        port.addMovement(new ShipMovement(30, MovementDirection.OUTBOUND,
+                ship));
+        port.addStatisticsEvaluator(new QueueWaitEvaluator());
+        port.advanceTo(5);
+
+        Port fork = port.fork();
+        fork.advanceTo(10);
+        assertEquals(2, fork.getWarehouse().size());
+        assertFalse(fork.getQuays().get(0).getShip().hasCargo());
+        assertEquals(2, ship.getCargo().size());
+        assertTrue(port.getQuays().get(0).isEmpty());
+
+        port.advanceTo(10);
+        assertEquals(fork.encode(), port.encode());
+        assertEquals(2, ship.getCargo().size());
+        assertNotSame(ship, port.getQuays().get(0).getShip());
+
+        Port later = port.fork();
+        later.advanceTo(30);
+        assertTrue(later.getQuays().get(0).isEmpty());
+        assertEquals(1, ((QueueWaitEvaluator) port.getEvaluators().get(0))
+                .getShipsDocked());
+        for (StatisticsEvaluator evaluator : later.getEvaluators()) {
+            assertEquals(0, ((QueueWaitEvaluator) evaluator).getShipsDocked());
+        }
+    }
+
+    @Test
+    public void evaluatorsChooseTheirForks() {
+        Port port = new Port(new SimulationContext(), "Brisbane");
+        port.addStatisticsEvaluator(new ShipThroughputEvaluator(15, 1440));
+        port.addStatisticsEvaluator(new StatisticsEvaluator() {
+            @Override
+            public void onProcessMovement(Movement movement) {
+            }
+        });
+
+        Port fork = port.fork();
+        assertEquals(1, fork.getEvaluators().size());
+        ShipThroughputEvaluator throughput
+                = (ShipThroughputEvaluator) fork.getEvaluators().get(0);
+        assertNotSame(port.getEvaluators().get(0), throughput);
+        assertArrayEquals(new int[] {15, 60, 1440}, throughput.getWindows());
+    }
+}
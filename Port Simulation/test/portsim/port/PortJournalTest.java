@@ -0,0 +1,192 @@
+package portsim.port;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import portsim.cargo.Cargo;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.movement.CargoMovement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.scenario.Distribution;
+import portsim.scenario.ScenarioGenerator;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.util.SimulationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PortJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    Port port;
+    Path snapshot;
+    Path journalPath;
+    PortJournal journal;
+
+    @Before
+    public void setUp() throws Exception {
+        ScenarioGenerator generator = new ScenarioGenerator(5);
+        generator.setBulkQuays(2, Distribution.uniform(100, 200));
+        generator.setContainerQuays(3, Distribution.fixed(20));
+        generator.setShips(40, 0.5);
+        generator.setStoredCargo(300, 0.75, Distribution.uniform(10, 50));
+        generator.setCargoMovements(60, 0.5, Distribution.uniform(1, 5));
+        generator.setSchedule(2000, Distribution.uniform(30, 300));
+        generator.setEvaluators(true);
+        port = generator.generate();
+        snapshot = folder.getRoot().toPath().resolve("port.snapshot");
+        journalPath = folder.getRoot().toPath().resolve("port.journal");
+        journal = new PortJournal(port, snapshot, journalPath);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        journal.close();
+    }
+
+    private Port recover() throws Exception {
+        return PortJournal.recover(new SimulationContext(), snapshot,
+                journalPath);
+    }
+
+    @Test
+    public void recoverReplaysJournal() throws Exception {
+        SimulationContext context = port.getContext();
+        port.advanceTo(300);
+        Container delivered = new Container(context, 1_000_000, "Japan",
+                ContainerType.STANDARD);
+        port.addMovement(new CargoMovement(310, MovementDirection.INBOUND,
+                List.<Cargo>of(delivered)));
+        Container onBoard = new Container(context, 1_000_001, "Fiji",
+                ContainerType.REEFER);
+        ContainerShip ship = new ContainerShip(context, 9_999_999, "Late",
+                "Fiji", NauticalFlag.BRAVO, 10);
+        ship.loadCargo(onBoard);
+        port.addMovement(new ShipMovement(320, MovementDirection.INBOUND,
+                ship));
+        port.advanceTo(400);
+        port.processMovement(new CargoMovement(400, MovementDirection.OUTBOUND,
+                List.<Cargo>of(delivered)));
+        port.advanceTo(700);
+        journal.commit();
+
+        Port recovered = recover();
+        assertEquals(700, recovered.getTime());
+        assertTrue(recovered.getContext().shipExists(9_999_999));
+        assertFalse(recovered.getWarehouse().contains(1_000_000));
+        assertEquals(port.encode(), recovered.encode());
+    }
+
+    @Test
+    public void processedMovementsCarryNewShips() throws Exception {
+        SimulationContext context = port.getContext();
+        port.advanceTo(100);
+        ContainerShip ship = new ContainerShip(context, 9_999_998, "Direct",
+                "Fiji", NauticalFlag.BRAVO, 10);
+        ship.loadCargo(new Container(context, 1_000_002, "Fiji",
+                ContainerType.REEFER));
+        port.processMovement(new ShipMovement(100, MovementDirection.INBOUND,
+                ship));
+        port.advanceTo(400);
+        journal.commit();
+
+        Port recovered = recover();
+        assertTrue(recovered.getContext().shipExists(9_999_998));
+        assertEquals(port.encode(), recovered.encode());
+    }
+
+    @Test
+    public void dockingPolicyIsRecovered() throws Exception {
+        journal.close();
+        port.setDockingPolicy(DockingPolicy.BEST_FIT);
+        journal = new PortJournal(port, snapshot, journalPath);
+        port.advanceTo(300);
+        journal.commit();
+        Port recovered = recover();
+        assertEquals(DockingPolicy.BEST_FIT, recovered.getDockingPolicy());
+        assertEquals(port.encode(), recovered.encode());
+
+        port.setDockingPolicy(DockingPolicy.FIRST_FIT);
+        port.advanceTo(900);
+        journal.commit();
+        recovered = recover();
+        assertEquals(DockingPolicy.FIRST_FIT, recovered.getDockingPolicy());
+        assertEquals(port.encode(), recovered.encode());
+    }
+
+    @Test
+    public void checkpointStartsJournalAgain() throws Exception {
+        port.advanceTo(200);
+        journal.checkpoint();
+        assertEquals(20, Files.size(journalPath));
+        assertEquals(port.encode(), recover().encode());
+
+        port.advanceTo(450);
+        journal.commit();
+        assertEquals(port.encode(), recover().encode());
+    }
+
+    @Test
+    public void partialRecordIgnored() throws Exception {
+        port.advanceTo(500);
+        journal.commit();
+        port.advanceTo(600);
+        journal.close();
+        long size = Files.size(journalPath);
+        try (var channel = Files.newByteChannel(journalPath,
+                StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+        Port recovered = recover();
+        assertTrue(recovered.getTime() < 600);
+        assertTrue(recovered.getTime() >= 500);
+    }
+
+    @Test
+    public void journalFromBeforeSnapshotIgnored() throws Exception {
+        port.advanceTo(200);
+        journal.commit();
+        Path old = folder.getRoot().toPath().resolve("old.journal");
+        Files.copy(journalPath, old);
+        port.advanceTo(300);
+        journal.checkpoint();
+        String checkpointed = port.encode();
+
+        Files.copy(old, journalPath, StandardCopyOption.REPLACE_EXISTING);
+        assertEquals(checkpointed, recover().encode());
+    }
+
+    @Test
+    public void groupCommitWritesInBackground() throws Exception {
+        journal.close();
+        journal = new PortJournal(port, snapshot, journalPath, 1_000_000, 5);
+        port.advanceTo(100);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (Files.size(journalPath) == 20
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(Files.size(journalPath) > 20);
+    }
+
+    @Test
+    public void closeStopsJournalling() throws Exception {
+        port.advanceTo(100);
+        journal.close();
+        long size = Files.size(journalPath);
+        port.advanceTo(200);
+        assertEquals(size, Files.size(journalPath));
+        assertEquals(100, recover().getTime());
+    }
+}
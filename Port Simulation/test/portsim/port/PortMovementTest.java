@@ -0,0 +1,145 @@
+package portsim.port;
+
+import org.junit.Before;
+import org.junit.Test;
+import portsim.cargo.BulkCargo;
+import portsim.cargo.BulkCargoType;
+import portsim.cargo.Cargo;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.movement.CargoMovement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.util.SimulationContext;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PortMovementTest {
+    SimulationContext context;
+    Port port;
+    Quay containerQuay;
+    Quay bulkQuay;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new SimulationContext();
+        port = new Port(context, "Brisbane");
+        containerQuay = new ContainerQuay(1, 10);
+        bulkQuay = new BulkQuay(2, 500);
+        port.addQuay(containerQuay);
+        port.addQuay(bulkQuay);
+    }
+
+    private void store(Cargo... cargo) {
+        port.processMovement(new CargoMovement(0, MovementDirection.INBOUND,
+                List.of(cargo)));
+    }
+
+    @Test
+    public void containerShipLoadsMatchingCargoUpToCapacity() {
+        ContainerShip ship = new ContainerShip(context, 1234567, "Boxy",
+                "Japan", NauticalFlag.BRAVO, 2);
+        containerQuay.shipArrives(ship);
+        Container first = new Container(context, 1, "Japan", ContainerType.OTHER);
+        Container elsewhere = new Container(context, 2, "Chile",
+                ContainerType.OTHER);
+        Container second = new Container(context, 3, "Japan", ContainerType.OTHER);
+        Container third = new Container(context, 4, "Japan", ContainerType.OTHER);
+        BulkCargo bulk = new BulkCargo(context, 5, "Japan", 10, BulkCargoType.OIL);
+        store(first, elsewhere, second, third, bulk);
+
+        port.processMovement(new ShipMovement(0, MovementDirection.OUTBOUND, ship));
+
+        assertEquals(List.of(first, second), ship.getCargo());
+        assertEquals(List.of(elsewhere, third, bulk), port.getCargo());
+        assertTrue(containerQuay.isEmpty());
+    }
+
+    @Test
+    public void bulkCarrierLoadsFirstCargoThatFits() {
+        BulkCarrier ship = new BulkCarrier(context, 1234567, "Bulky", "Japan",
+                NauticalFlag.BRAVO, 100);
+        bulkQuay.shipArrives(ship);
+        BulkCargo tooHeavy = new BulkCargo(context, 1, "Japan", 200,
+                BulkCargoType.OIL);
+        BulkCargo fits = new BulkCargo(context, 2, "Japan", 50,
+                BulkCargoType.GRAIN);
+        store(tooHeavy, fits);
+
+        port.processMovement(new ShipMovement(0, MovementDirection.OUTBOUND, ship));
+
+        assertSame(fits, ship.getCargo());
+        assertEquals(List.of(tooHeavy), port.getCargo());
+        assertTrue(bulkQuay.isEmpty());
+    }
+
+    @Test
+    public void loadedBulkCarrierTakesNothing() {
+        BulkCarrier ship = new BulkCarrier(context, 1234567, "Bulky", "Japan",
+                NauticalFlag.BRAVO, 100);
+        BulkCargo onboard = new BulkCargo(context, 1, "Japan", 50,
+                BulkCargoType.OIL);
+        ship.loadCargo(onboard);
+        BulkCargo stored = new BulkCargo(context, 2, "Japan", 10,
+                BulkCargoType.GRAIN);
+        store(stored);
+
+        port.processMovement(new ShipMovement(0, MovementDirection.OUTBOUND, ship));
+
+        assertSame(onboard, ship.getCargo());
+        assertEquals(List.of(stored), port.getCargo());
+    }
+
+    @Test
+    public void shipLeavesQuayWithNoCargoStored() {
+        ContainerShip ship = new ContainerShip(context, 1234567, "Boxy",
+                "Japan", NauticalFlag.BRAVO, 2);
+        containerQuay.shipArrives(ship);
+
+        port.processMovement(new ShipMovement(0, MovementDirection.OUTBOUND, ship));
+
+        assertTrue(containerQuay.isEmpty());
+    }
+
+    @Test
+    public void undockedShipLeavesOtherQuaysAlone() {
+        ContainerShip docked = new ContainerShip(context, 1234567, "Boxy",
+                "Japan", NauticalFlag.BRAVO, 2);
+        ContainerShip other = new ContainerShip(context, 7654321, "Other",
+                "Japan", NauticalFlag.BRAVO, 2);
+        containerQuay.shipArrives(docked);
+
+        port.processMovement(new ShipMovement(0, MovementDirection.OUTBOUND, other));
+
+        assertSame(docked, containerQuay.getShip());
+    }
+
+    @Test
+    public void unloadsDockedShipsWithCargo() {
+        ContainerShip loaded = new ContainerShip(context, 1234567, "Boxy",
+                "Japan", NauticalFlag.BRAVO, 2);
+        Container first = new Container(context, 1, "Japan", ContainerType.OTHER);
+        Container second = new Container(context, 2, "Japan", ContainerType.OTHER);
+        loaded.loadCargo(first);
+        loaded.loadCargo(second);
+        BulkCarrier empty = new BulkCarrier(context, 7654321, "Bulky", "Japan",
+                NauticalFlag.BRAVO, 100);
+        containerQuay.shipArrives(loaded);
+        bulkQuay.shipArrives(empty);
+
+        for (int i = 0; i < 5; i++) {
+            port.elapseOneMinute();
+        }
+
+        assertEquals(List.of(first, second), port.getCargo());
+        assertFalse(loaded.hasCargo());
+        assertSame(loaded, containerQuay.getShip());
+        assertNull(empty.pollCargo());
+        assertEquals(List.of(), loaded.pollCargo());
+    }
+}
@@ -0,0 +1,133 @@
+package portsim.port;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import portsim.cargo.BulkCargo;
+import portsim.cargo.BulkCargoType;
+import portsim.cargo.Cargo;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.evaluators.CargoDecompositionEvaluator;
+import portsim.evaluators.ShipFlagEvaluator;
+import portsim.movement.CargoMovement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.ship.BulkCarrier;
+import portsim.ship.ContainerShip;
+import portsim.ship.NauticalFlag;
+import portsim.util.BadEncodingException;
+import portsim.util.SimulationContext;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PortSnapshotTest {
+    SimulationContext context;
+    Port port;
+    Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new SimulationContext();
+        file = Files.createTempFile("port", ".snapshot");
+
+        BulkCarrier bulkCarrier = new BulkCarrier(context, 1234567, "Bulky",
+                "Japan", NauticalFlag.HOTEL, 300);
+        bulkCarrier.loadCargo(new BulkCargo(context, 1, "Japan", 150,
+                BulkCargoType.GRAIN));
+        ContainerShip containerShip = new ContainerShip(context, 7654321,
+                "Boxy", "Australia", NauticalFlag.WHISKEY, 5);
+        containerShip.loadCargo(new Container(context, 2, "Australia",
+                ContainerType.REEFER));
+        ContainerShip docked = new ContainerShip(context, 1111111, "Docked",
+                "Australia", NauticalFlag.BRAVO, 5);
+
+        List<Quay> quays = new ArrayList<>();
+        quays.add(new ContainerQuay(1, 10));
+        quays.add(new BulkQuay(2, 400));
+        quays.get(0).shipArrives(docked);
+        ShipQueue queue = new ShipQueue();
+        queue.add(containerShip);
+        List<Cargo> stored = new ArrayList<>();
+        stored.add(new Container(context, 300000, "Japan", ContainerType.OTHER));
+        port = new Port(context, "Brisbane", 4321, queue, quays, stored);
+
+        List<Cargo> cargo = new ArrayList<>();
+        cargo.add(new Container(context, 5, "Japan", ContainerType.TANKER));
+        cargo.add(new BulkCargo(context, 6, "Japan", 20, BulkCargoType.OIL));
+        port.addMovement(new ShipMovement(5000, MovementDirection.INBOUND,
+                bulkCarrier));
+        port.addMovement(new CargoMovement(4400, MovementDirection.OUTBOUND,
+                cargo));
+
+        port.addStatisticsEvaluator(new ShipFlagEvaluator());
+        port.addStatisticsEvaluator(new CargoDecompositionEvaluator());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void roundTripMatchesTextEncoding() throws Exception {
+        PortSnapshot.save(port, file);
+        assertTrue(PortSnapshot.isSnapshot(file));
+
+        Port loaded = PortSnapshot.load(new SimulationContext(), file);
+        assertEquals(port.encode(), loaded.encode());
+    }
+
+    @Test
+    public void smallerThanText() throws Exception {
+        PortSnapshot.save(port, file);
+        assertTrue(Files.size(file) < port.encode().length());
+    }
+
+    @Test
+    public void textFileIsNotSnapshot() throws Exception {
+        port.save(file);
+        assertFalse(PortSnapshot.isSnapshot(file));
+    }
+
+    @Test(expected = BadEncodingException.class)
+    public void loadTextFile() throws Exception {
+        port.save(file);
+        PortSnapshot.load(new SimulationContext(), file);
+    }
+
+    @Test(expected = BadEncodingException.class)
+    public void loadTruncated() throws Exception {
+        PortSnapshot.save(port, file);
+        byte[] bytes = Files.readAllBytes(file);
+        byte[] truncated = new byte[bytes.length - 3];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        Files.write(file, truncated);
+        PortSnapshot.load(new SimulationContext(), file);
+    }
+
+    @Test
+    public void versionOneLoadsFirstFit() throws Exception {
+        port.setDockingPolicy(DockingPolicy.BEST_FIT);
+        PortSnapshot.save(port, file);
+        assertEquals(DockingPolicy.BEST_FIT, PortSnapshot.load(
+                new SimulationContext(), file).getDockingPolicy());
+
+        // rewrite as version 1, whose header section ends before the policy
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        bytes.putInt(4, 1);
+        int headerLengthAt = 12 + 20 + 12;
+        bytes.putLong(headerLengthAt, bytes.getLong(headerLengthAt) - 1);
+        Files.write(file, bytes.array());
+
+        Port loaded = PortSnapshot.load(new SimulationContext(), file);
+        assertEquals(DockingPolicy.FIRST_FIT, loaded.getDockingPolicy());
+        assertEquals(port.encode(), loaded.encode());
+    }
+}
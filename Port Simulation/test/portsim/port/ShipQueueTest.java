@@ -8,7 +8,9 @@ import portsim.ship.ContainerShip;
 import portsim.ship.NauticalFlag;
 import portsim.ship.Ship;
 import portsim.util.BadEncodingException;
+import portsim.util.SimulationContext;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.SortedMap;
 
@@ -105,6 +107,109 @@ public class ShipQueueTest {
 
     }
 
+    @Test
+    public void testInterleavedMatchesPriorityOrder() {
+        SimulationContext context = new SimulationContext();
+        NauticalFlag[] flags = {NauticalFlag.NOVEMBER, NauticalFlag.HOTEL,
+                NauticalFlag.BRAVO, NauticalFlag.WHISKEY};
+        List<Ship> added = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            NauticalFlag flag = flags[i * 7 % flags.length];
+            Ship ship = i % 3 == 0
+                    ? new ContainerShip(context, 2000000 + i, "c" + i,
+                            "Singapore", flag, 10)
+                    : new BulkCarrier(context, 2000000 + i, "b" + i,
+                            "Singapore", flag, 10);
+            queueTest.add(ship);
+            added.add(ship);
+
+            if (i % 4 == 3) {
+                Ship next = queueTest.peek();
+                assertSame(next, queueTest.poll());
+                added.remove(next);
+            }
+            assertEquals(added, queueTest.getShipQueue());
+        }
+
+        String[] order = {"BRAVO", "WHISKEY", "HOTEL", "container", "other"};
+        int lastRank = 0;
+        while (!queueTest.isEmpty()) {
+            Ship next = queueTest.poll();
+            int rank = rank(next);
+            assertTrue("ships out of priority order at " + order[rank],
+                    rank >= lastRank);
+            for (Ship waiting : queueTest.getShipQueue()) {
+                if (rank(waiting) == rank) {
+                    assertTrue(added.indexOf(next) < added.indexOf(waiting));
+                }
+            }
+            lastRank = rank;
+        }
+        assertNull(queueTest.poll());
+    }
+
+    private static int rank(Ship ship) {
+        switch (ship.getFlag()) {
+            case BRAVO:
+                return 0;
+            case WHISKEY:
+                return 1;
+            case HOTEL:
+                return 2;
+            default:
+                return ship instanceof ContainerShip ? 3 : 4;
+        }
+    }
+
+    /* Removes and returns the ship a queue holding the given ships, in the
+     * order they were added, would poll next */
+    private static Ship pollExpected(List<Ship> added) {
+        Ship next = null;
+        for (Ship ship : added) {
+            if (next == null || rank(ship) < rank(next)) {
+                next = ship;
+            }
+        }
+        added.remove(next);
+        return next;
+    }
+
+    @Test
+    public void forkedQueuesChangeIndependently() {
+        SimulationContext context = new SimulationContext();
+        NauticalFlag[] flags = {NauticalFlag.NOVEMBER, NauticalFlag.HOTEL,
+                NauticalFlag.BRAVO};
+        List<Ship> ships = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            ships.add(new BulkCarrier(context, 3000000 + i, "b" + i,
+                    "Singapore", flags[i / 50 % flags.length], 10));
+        }
+
+        List<ShipQueue> queues = new ArrayList<>(List.of(queueTest));
+        List<List<Ship>> expected = new ArrayList<>();
+        expected.add(new ArrayList<>());
+        for (int i = 0; i < ships.size(); i++) {
+            int which = i * 7 % queues.size();
+            ShipQueue queue = queues.get(which);
+            List<Ship> model = expected.get(which);
+            queue.add(ships.get(i));
+            model.add(ships.get(i));
+            if (i % 3 == 2) {
+                assertSame(pollExpected(model), queue.poll());
+            }
+            if (i % 37 == 0) {
+                queues.add(queue.fork());
+                expected.add(new ArrayList<>(model));
+            }
+        }
+        for (int i = 0; i < queues.size(); i++) {
+            assertEquals(expected.get(i), queues.get(i).getShipQueue());
+            while (!queues.get(i).isEmpty()) {
+                assertSame(pollExpected(expected.get(i)), queues.get(i).poll());
+            }
+        }
+    }
+
     @Test (expected = BadEncodingException.class)
     public void badFromStringTest1() throws BadEncodingException {
         new ContainerShip(2000008, "dummy", "Singapore", NauticalFlag.BRAVO, 100);
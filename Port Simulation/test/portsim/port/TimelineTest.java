@@ -0,0 +1,169 @@
+package portsim.port;
+
+import org.junit.Before;
+import org.junit.Test;
+import portsim.cargo.Cargo;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.evaluators.PortEvent;
+import portsim.movement.CargoMovement;
+import portsim.movement.Movement;
+import portsim.movement.MovementDirection;
+import portsim.scenario.Distribution;
+import portsim.scenario.ScenarioGenerator;
+import portsim.util.SimulationContext;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TimelineTest {
+    ScenarioGenerator generator;
+    Timeline timeline;
+
+    @Before
+    public void setUp() throws Exception {
+        generator = new ScenarioGenerator(11);
+        generator.setBulkQuays(2, Distribution.uniform(100, 200));
+        generator.setContainerQuays(3, Distribution.fixed(20));
+        generator.setShips(40, 0.5);
+        generator.setStoredCargo(300, 0.75, Distribution.uniform(10, 50));
+        generator.setCargoMovements(60, 0.5, Distribution.uniform(1, 5));
+        generator.setSchedule(2000, Distribution.uniform(30, 300));
+        generator.setEvaluators(true);
+        timeline = new Timeline(generator.generate(), 60);
+    }
+
+    private String reference(long time) {
+        Port port = generator.generate();
+        port.advanceTo(time);
+        return port.encode();
+    }
+
+    private static CargoMovement delivery(SimulationContext context,
+                                          long time) {
+        return new CargoMovement(time, MovementDirection.INBOUND,
+                List.<Cargo>of(new Container(context, 1_000_000, "Japan",
+                        ContainerType.STANDARD)));
+    }
+
+    @Test
+    public void seekBackRestoresEarlierMinute() {
+        timeline.advanceTo(1500);
+        assertEquals(1500, timeline.getEndTime());
+        assertEquals(26, timeline.getCheckpointCount());
+
+        timeline.seek(437);
+        assertEquals(437, timeline.getTime());
+        assertEquals(reference(437), timeline.getPort().encode());
+
+        timeline.seek(1210);
+        assertEquals(reference(1210), timeline.getPort().encode());
+
+        timeline.seek(0);
+        assertEquals(reference(0), timeline.getPort().encode());
+        assertEquals(1500, timeline.getEndTime());
+    }
+
+    @Test
+    public void seekPastEndSimulates() {
+        timeline.advanceTo(200);
+        timeline.seek(1000);
+        assertEquals(1000, timeline.getEndTime());
+        assertEquals(reference(1000), timeline.getPort().encode());
+    }
+
+    @Test
+    public void replayIsNotJournalledTwice() {
+        timeline.advanceTo(1500);
+        List<Timeline.Event> events = timeline.getEvents(0, 1500);
+        assertFalse(events.isEmpty());
+
+        timeline.seek(100);
+        timeline.advanceTo(1500);
+        assertEquals(events, timeline.getEvents(0, 1500));
+        for (Timeline.Event event : timeline.getEvents(300, 400)) {
+            assertTrue(event.getTime() >= 300 && event.getTime() <= 400);
+        }
+    }
+
+    @Test
+    public void journalRecordsDocking() {
+        timeline.advanceTo(1500);
+        int docked = 0;
+        for (Timeline.Event event : timeline.getEvents(0, 1500)) {
+            if (event.getType() == PortEvent.DOCK) {
+                assertTrue(event.getTime() % 10 == 0);
+                assertTrue(event.getQuayId() >= 0);
+                assertNull(event.getMovement());
+                docked++;
+            } else if (event.getType() == PortEvent.SHIP_INBOUND) {
+                assertEquals(event.getTime(), event.getMovement().getTime());
+            }
+        }
+        assertTrue(docked > 0);
+    }
+
+    @Test
+    public void addedMovementsAreReplayed() {
+        timeline.advanceTo(200);
+        timeline.addMovement(delivery(timeline.getPort().getContext(), 250));
+        timeline.advanceTo(400);
+
+        Port expected = generator.generate();
+        expected.advanceTo(200);
+        expected.addMovement(delivery(expected.getContext(), 250));
+        expected.advanceTo(300);
+
+        timeline.seek(150);
+        assertFalse(timeline.getPort().getContext().cargoExists(1_000_000));
+        timeline.seek(300);
+        assertTrue(timeline.getPort().getWarehouse().contains(1_000_000));
+        assertEquals(expected.encode(), timeline.getPort().encode());
+    }
+
+    @Test
+    public void addingInThePastStartsNewHistory() {
+        timeline.advanceTo(600);
+        timeline.seek(150);
+        timeline.addMovement(delivery(timeline.getPort().getContext(), 170));
+
+        assertEquals(150, timeline.getEndTime());
+        assertEquals(3, timeline.getCheckpointCount());
+        assertTrue(timeline.getEvents(151, 600).isEmpty());
+
+        timeline.seek(180);
+        assertTrue(timeline.getPort().getWarehouse().contains(1_000_000));
+        assertFalse(timeline.getEvents(170, 170).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void seekBeforeStart() {
+        Port port = generator.generate();
+        port.advanceTo(100);
+        new Timeline(port, 60).seek(99);
+    }
+
+    @Test
+    public void checkpointsShareScheduledMovements() {
+        timeline.advanceTo(1500);
+        assertTrue(timeline.getCheckpointCount() > 8);
+        long last = -1;
+        for (Movement movement : timeline.getPort().getMovementSchedule()) {
+            last = movement.getTime();
+        }
+        assertTrue(last > 1500);
+
+        List<Movement> bucket = null;
+        for (long time = 0; time <= 1500; time += timeline.getInterval()) {
+            timeline.seek(time);
+            List<Movement> due = timeline.getPort().fork()
+                    .getMovementSchedule().pollDue(last);
+            assertFalse(due.isEmpty());
+            if (bucket != null) {
+                assertSame(bucket, due);
+            }
+            bucket = due;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package portsim.port;
+
+import org.junit.Before;
+import org.junit.Test;
+import portsim.cargo.BulkCargo;
+import portsim.cargo.BulkCargoType;
+import portsim.cargo.Cargo;
+import portsim.cargo.Container;
+import portsim.cargo.ContainerType;
+import portsim.util.SimulationContext;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WarehouseTest {
+    SimulationContext context;
+    Warehouse warehouse;
+    Container reefer;
+    Container standard;
+    Container otherReefer;
+    BulkCargo oil;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new SimulationContext();
+        warehouse = new Warehouse();
+        reefer = new Container(context, 1, "Japan", ContainerType.REEFER);
+        standard = new Container(context, 2, "Australia", ContainerType.STANDARD);
+        otherReefer = new Container(context, 3, "Japan", ContainerType.REEFER);
+        oil = new BulkCargo(context, 4, "Japan", 100, BulkCargoType.OIL);
+        warehouse.add(reefer);
+        warehouse.add(standard);
+        warehouse.add(otherReefer);
+        warehouse.add(oil);
+    }
+
+    private static List<Cargo> toList(Iterable<Cargo> cargo) {
+        List<Cargo> result = new ArrayList<>();
+        cargo.forEach(result::add);
+        return result;
+    }
+
+    @Test
+    public void insertionOrder() {
+        assertEquals(List.of(reefer, standard, otherReefer, oil),
+                toList(warehouse));
+        assertEquals(4, warehouse.size());
+    }
+
+    @Test
+    public void duplicateIgnored() {
+        assertFalse(warehouse.add(reefer));
+        assertEquals(4, warehouse.size());
+    }
+
+    @Test
+    public void indexes() {
+        assertEquals(List.of(reefer, otherReefer),
+                toList(warehouse.containersFor("Japan")));
+        assertEquals(List.of(oil), toList(warehouse.bulkCargoFor("Japan")));
+        assertEquals(List.of(), toList(warehouse.bulkCargoFor("Australia")));
+        assertEquals(List.of(reefer, otherReefer),
+                toList(warehouse.ofType(ContainerType.REEFER)));
+        assertEquals(1, warehouse.countOfType(BulkCargoType.OIL));
+        assertEquals(0, warehouse.countOfType(BulkCargoType.GRAIN));
+    }
+
+    @Test
+    public void removeUpdatesAllIndexes() {
+        assertSame(reefer, warehouse.remove(1));
+        assertNull(warehouse.remove(1));
+        assertFalse(warehouse.contains(1));
+        assertEquals(List.of(standard, otherReefer, oil), toList(warehouse));
+        assertEquals(List.of(otherReefer),
+                toList(warehouse.containersFor("Japan")));
+        assertEquals(1, warehouse.countOfType(ContainerType.REEFER));
+    }
+
+    @Test
+    public void removeWhileIterating() {
+        Iterator<Cargo> iterator = warehouse.containersFor("Japan").iterator();
+        while (iterator.hasNext()) {
+            warehouse.remove(iterator.next().getId());
+        }
+        assertEquals(List.of(standard, oil), toList(warehouse));
+        assertEquals(List.of(), toList(warehouse.containersFor("Japan")));
+    }
+
+    @Test
+    public void forkedWarehousesChangeIndependently() {
+        Warehouse fork = warehouse.fork();
+        Container added = new Container(context, 5, "Japan",
+                ContainerType.REEFER);
+        assertTrue(fork.add(added));
+        assertSame(reefer, fork.remove(1));
+
+        assertEquals(List.of(standard, otherReefer, oil, added),
+                toList(fork));
+        assertEquals(List.of(otherReefer, added),
+                toList(fork.containersFor("Japan")));
+        assertEquals(List.of(reefer, standard, otherReefer, oil),
+                toList(warehouse));
+        assertEquals(List.of(reefer, otherReefer),
+                toList(warehouse.containersFor("Japan")));
+        assertFalse(warehouse.contains(5));
+
+        assertSame(oil, warehouse.remove(4));
+        assertTrue(fork.contains(4));
+        assertEquals(2, fork.countOfType(ContainerType.REEFER));
+        assertEquals(2, warehouse.countOfType(ContainerType.REEFER));
+    }
+
+    @Test
+    public void iteratorSurvivesForkedChange() {
+        Warehouse fork = warehouse.fork();
+        List<Cargo> seen = new ArrayList<>();
+        for (Cargo cargo : fork) {
+            seen.add(cargo);
+            fork.remove(cargo.getId());
+        }
+        assertEquals(List.of(reefer, standard, otherReefer, oil), seen);
+        assertTrue(fork.isEmpty());
+        assertEquals(4, warehouse.size());
+    }
+
+    @Test
+    public void iteratorBeforeFirstForkKeepsOldCargo() {
+        Iterator<Cargo> iterator = warehouse.iterator();
+        assertSame(reefer, iterator.next());
+        Warehouse fork = warehouse.fork();
+        assertSame(standard, warehouse.remove(2));
+        assertSame(otherReefer, fork.remove(3));
+
+        assertSame(standard, iterator.next());
+        assertSame(otherReefer, iterator.next());
+        assertEquals(List.of(reefer, otherReefer, oil), toList(warehouse));
+        assertEquals(List.of(reefer, standard, oil), toList(fork));
+        assertEquals(List.of(reefer),
+                toList(fork.containersFor("Japan")));
+    }
+}
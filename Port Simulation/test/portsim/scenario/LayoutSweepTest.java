@@ -0,0 +1,112 @@
+package portsim.scenario;
+
+import org.junit.Before;
+import org.junit.Test;
+import portsim.port.DockingPolicy;
+import portsim.port.Port;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LayoutSweepTest {
+    Port schedule;
+    LayoutSweep sweep;
+
+    @Before
+    public void setUp() {
+        ScenarioGenerator generator = new ScenarioGenerator(11);
+        generator.setBulkQuays(0, Distribution.fixed(0));
+        generator.setContainerQuays(0, Distribution.fixed(0));
+        generator.setShips(60, 0.5);
+        generator.setStoredCargo(200, 0.75, Distribution.fixed(20));
+        generator.setCargoMovements(20, 0.5, Distribution.uniform(1, 5));
+        generator.setSchedule(600, Distribution.uniform(30, 240));
+        schedule = generator.generate();
+        sweep = new LayoutSweep(schedule);
+        sweep.setBulkQuayCounts(1, 4);
+        sweep.setMaxTonnages(1000);
+        sweep.setContainerQuayCounts(1, 4);
+        sweep.setMaxContainers(100);
+    }
+
+    @Test
+    public void gridHasEveryCombination() {
+        assertEquals(4, sweep.getLayouts().size());
+        sweep.setMaxTonnages(500, 1000);
+        sweep.setBulkQuayCounts(0, 2);
+        assertEquals(6, sweep.getLayouts().size());
+    }
+
+    @Test
+    public void resultsAreRanked() {
+        List<LayoutSweep.Result> results = sweep.run(600);
+        assertEquals(4, results.size());
+        for (int i = 1; i < results.size(); i++) {
+            assertTrue(results.get(i - 1).getShipsPerHour()
+                    >= results.get(i).getShipsPerHour());
+        }
+        LayoutSweep.Result large = find(results, 4, 4);
+        LayoutSweep.Result small = find(results, 1, 1);
+        assertTrue(large.getShipsPerHour() > small.getShipsPerHour());
+        assertTrue(small.getShipsWaiting() > large.getShipsWaiting());
+        assertTrue(small.getUtilisation() > 0 && small.getUtilisation() <= 1);
+    }
+
+    private static LayoutSweep.Result find(List<LayoutSweep.Result> results,
+                                           int bulk, int containers) {
+        for (LayoutSweep.Result result : results) {
+            if (result.getLayout().getBulkQuays() == bulk
+                    && result.getLayout().getContainerQuays() == containers) {
+                return result;
+            }
+        }
+        throw new AssertionError("No result for " + bulk + ", " + containers);
+    }
+
+    @Test
+    public void sameResultsInParallel() {
+        sweep.setParallelism(1);
+        String serial = LayoutSweep.toTable(sweep.run(600));
+        LayoutSweep other = new LayoutSweep(schedule);
+        other.setBulkQuayCounts(1, 4);
+        other.setMaxTonnages(1000);
+        other.setContainerQuayCounts(1, 4);
+        other.setMaxContainers(100);
+        other.setParallelism(4);
+        assertEquals(serial, LayoutSweep.toTable(other.run(600)));
+    }
+
+    @Test
+    public void onlyNewPointsAreRun() {
+        sweep.run(600);
+        assertEquals(4, sweep.getCachedResults());
+        sweep.setContainerQuayCounts(1, 4, 8);
+        assertEquals(6, sweep.run(600).size());
+        assertEquals(6, sweep.getCachedResults());
+        sweep.run(300);
+        assertEquals(12, sweep.getCachedResults());
+    }
+
+    @Test
+    public void dockingPolicyIsPartOfTheKey() {
+        sweep.run(600);
+        schedule.setDockingPolicy(DockingPolicy.BEST_FIT);
+        sweep.run(600);
+        assertEquals(8, sweep.getCachedResults());
+        sweep.run(600);
+        assertEquals(8, sweep.getCachedResults());
+    }
+
+    @Test
+    public void scheduleIsUntouched() {
+        String before = schedule.encode();
+        sweep.run(600);
+        assertEquals(before, schedule.encode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeCount() {
+        sweep.setBulkQuayCounts(-1);
+    }
+}
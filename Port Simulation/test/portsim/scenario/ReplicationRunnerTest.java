@@ -0,0 +1,93 @@
+package portsim.scenario;
+
+import org.junit.Before;
+import org.junit.Test;
+import portsim.port.Port;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ReplicationRunnerTest {
+    Port base;
+    ReplicationRunner runner;
+
+    @Before
+    public void setUp() {
+        ScenarioGenerator generator = new ScenarioGenerator(1);
+        generator.setBulkQuays(2, Distribution.fixed(500));
+        generator.setContainerQuays(2, Distribution.fixed(50));
+        generator.setShips(0, 0.5);
+        generator.setStoredCargo(100, 0.75, Distribution.fixed(20));
+        generator.setCargoMovements(0, 0, Distribution.fixed(1));
+        base = generator.generate();
+        runner = new ReplicationRunner(base, (port, seed) -> {
+            ScenarioGenerator schedule = new ScenarioGenerator(seed);
+            schedule.setShips(30, 0.5);
+            schedule.setCargoMovements(10, 0.5, Distribution.uniform(1, 5));
+            schedule.setSchedule(300, Distribution.uniform(30, 120));
+            schedule.addMovements(port);
+        });
+    }
+
+    @Test
+    public void standardMetrics() {
+        Map<String, Summary> summaries = runner.run(4, 7, 300);
+        assertEquals(List.of("ships queued", "cargo stored", "ships per hour",
+                "quay utilisation"), new ArrayList<>(summaries.keySet()));
+        for (Summary summary : summaries.values()) {
+            assertEquals(4, summary.getCount());
+        }
+        double utilisation = summaries.get("quay utilisation").getMean();
+        assertTrue(utilisation > 0 && utilisation <= 1);
+    }
+
+    @Test
+    public void sameSeedSameResults() {
+        runner.setParallelism(4);
+        Map<String, Summary> parallel = runner.run(6, 7, 300);
+        runner.setParallelism(1);
+        Map<String, Summary> serial = runner.run(6, 7, 300);
+        for (String name : parallel.keySet()) {
+            for (int i = 0; i < 6; i++) {
+                assertEquals(name, serial.get(name).getValue(i),
+                        parallel.get(name).getValue(i), 0);
+            }
+        }
+    }
+
+    @Test
+    public void replicationsDiffer() {
+        Summary cargo = new ReplicationRunner(base, (port, seed) -> {
+            ScenarioGenerator schedule = new ScenarioGenerator(seed);
+            schedule.setShips(0, 0.5);
+            schedule.setCargoMovements(20, 0, Distribution.uniform(1, 10));
+            schedule.setSchedule(100, Distribution.fixed(1));
+            schedule.addMovements(port);
+        }).run(5, 3, 100).get("cargo stored");
+        assertTrue(cargo.getMax() > cargo.getMin());
+    }
+
+    @Test
+    public void baseIsUntouched() {
+        String before = base.encode();
+        runner.run(2, 7, 300);
+        assertEquals(before, base.encode());
+    }
+
+    @Test
+    public void replicationSeedsAreStable() {
+        assertEquals(ReplicationRunner.replicationSeed(7, 3),
+                ReplicationRunner.replicationSeed(7, 3));
+        assertNotEquals(ReplicationRunner.replicationSeed(7, 0),
+                ReplicationRunner.replicationSeed(7, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDuplicateMetric() {
+        runner.addMetric("x", port -> 0);
+        runner.addMetric("x", port -> 1);
+    }
+}
@@ -0,0 +1,142 @@
+package portsim.scenario;
+
+import org.junit.Before;
+import org.junit.Test;
+import portsim.cargo.Cargo;
+import portsim.movement.CargoMovement;
+import portsim.movement.Movement;
+import portsim.movement.MovementDirection;
+import portsim.movement.ShipMovement;
+import portsim.port.BulkQuay;
+import portsim.port.ContainerQuay;
+import portsim.port.Port;
+import portsim.port.Quay;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+import portsim.util.SimulationContext;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ScenarioGeneratorTest {
+    ScenarioGenerator generator;
+
+    @Before
+    public void setUp() {
+        generator = new ScenarioGenerator(42);
+        generator.setBulkQuays(3, Distribution.uniform(100, 200));
+        generator.setContainerQuays(4, Distribution.fixed(30));
+        generator.setShips(50, 0.5);
+        generator.setStoredCargo(200, 0.75, Distribution.uniform(10, 50));
+        generator.setCargoMovements(40, 0.5, Distribution.uniform(1, 5));
+        generator.setSchedule(600, Distribution.uniform(30, 300));
+    }
+
+    @Test
+    public void sameSeedSamePort() {
+        assertEquals(generator.generate().encode(),
+                generator.generate().encode());
+    }
+
+    @Test
+    public void differentSeedDifferentPort() {
+        ScenarioGenerator other = new ScenarioGenerator(43);
+        assertNotEquals(new ScenarioGenerator(42).generate().encode(),
+                other.generate().encode());
+    }
+
+    @Test
+    public void quaysFollowSettings() {
+        List<Quay> quays = generator.generate().getQuays();
+        assertEquals(7, quays.size());
+        for (int i = 0; i < 3; i++) {
+            BulkQuay quay = (BulkQuay) quays.get(i);
+            assertTrue(quay.getMaxTonnage() >= 100
+                    && quay.getMaxTonnage() <= 200);
+        }
+        for (int i = 3; i < 7; i++) {
+            assertEquals(30, ((ContainerQuay) quays.get(i)).getMaxContainers());
+        }
+    }
+
+    @Test
+    public void scheduleIsValid() {
+        Port port = generator.generate();
+        assertEquals(200, port.getCargo().size());
+        Set<Ship> arrived = new HashSet<>();
+        Set<Cargo> shipped = new HashSet<>();
+        int inbound = 0;
+        for (Movement movement : port.getMovements()) {
+            assertTrue(movement.getTime() >= 0 && movement.getTime() <= 600);
+            if (movement instanceof ShipMovement) {
+                Ship ship = ((ShipMovement) movement).getShip();
+                if (movement.getDirection() == MovementDirection.INBOUND) {
+                    inbound++;
+                    assertTrue(arrived.add(ship));
+                }
+            } else if (movement.getDirection() == MovementDirection.OUTBOUND) {
+                for (Cargo cargo : ((CargoMovement) movement).getCargo()) {
+                    assertTrue(port.getCargo().contains(cargo));
+                    assertTrue(shipped.add(cargo));
+                }
+            }
+        }
+        assertEquals(50, inbound);
+    }
+
+    @Test
+    public void destinationsAreSkewed() {
+        generator.setDestinations(List.of("First", "Second", "Third"), 2.0);
+        generator.setStoredCargo(3000, 0.75, Distribution.fixed(10));
+        Map<String, Integer> counts = new HashMap<>();
+        for (Cargo cargo : generator.generate().getCargo()) {
+            counts.merge(cargo.getDestination(), 1, Integer::sum);
+        }
+        assertTrue(counts.get("First") > counts.get("Second"));
+        assertTrue(counts.get("Second") > counts.get("Third"));
+    }
+
+    @Test
+    public void flagWeightsAreUsed() {
+        generator.setFlagWeight(NauticalFlag.NOVEMBER, 0);
+        generator.setFlagWeight(NauticalFlag.HOTEL, 0);
+        generator.setFlagWeight(NauticalFlag.WHISKEY, 0);
+        for (Movement movement : generator.generate().getMovements()) {
+            if (movement instanceof ShipMovement) {
+                assertEquals(NauticalFlag.BRAVO,
+                        ((ShipMovement) movement).getShip().getFlag());
+            }
+        }
+    }
+
+    @Test
+    public void saveFileRoundTrips() throws Exception {
+        String encoded = generator.generate().encode();
+        Port loaded = Port.initialisePort(new SimulationContext(),
+                new StringReader(encoded));
+        assertEquals(encoded, loaded.encode());
+    }
+
+    @Test
+    public void generatedPortRuns() {
+        Port port = generator.generate();
+        port.advanceTo(600);
+        assertEquals(600, port.getTime());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBadShare() {
+        generator.setShips(10, 1.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBadDestination() {
+        generator.setDestinations(List.of("A:B"), 1);
+    }
+}
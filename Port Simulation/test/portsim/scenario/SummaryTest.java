@@ -0,0 +1,49 @@
+package portsim.scenario;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SummaryTest {
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void meanAndDeviation() {
+        Summary summary = new Summary("x", new double[]{2, 4, 4, 4, 5, 5, 7, 9});
+        assertEquals(5, summary.getMean(), DELTA);
+        assertEquals(Math.sqrt(32.0 / 7), summary.getStandardDeviation(),
+                DELTA);
+        assertEquals(2, summary.getMin(), DELTA);
+        assertEquals(9, summary.getMax(), DELTA);
+        assertEquals(8, summary.getCount());
+    }
+
+    @Test
+    public void percentilesInterpolate() {
+        Summary summary = new Summary("x", new double[]{40, 10, 30, 20});
+        assertEquals(10, summary.getPercentile(0), DELTA);
+        assertEquals(25, summary.getPercentile(50), DELTA);
+        assertEquals(40, summary.getPercentile(100), DELTA);
+        assertEquals(13, summary.getPercentile(10), DELTA);
+    }
+
+    @Test
+    public void keepsRunOrder() {
+        Summary summary = new Summary("x", new double[]{3, 1, 2});
+        assertEquals(3, summary.getValue(0), DELTA);
+        assertEquals(2, summary.getValue(2), DELTA);
+    }
+
+    @Test
+    public void singleRun() {
+        Summary summary = new Summary("x", new double[]{7});
+        assertEquals(0, summary.getStandardDeviation(), DELTA);
+        assertEquals(0, summary.getConfidenceInterval(), DELTA);
+        assertEquals(7, summary.getPercentile(95), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNoValues() {
+        new Summary("x", new double[0]);
+    }
+}
@@ -0,0 +1,71 @@
+package portsim.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LongObjectMapTest {
+    LongObjectMap<String> map;
+
+    @Before
+    public void setUp() throws Exception {
+        map = new LongObjectMap<>();
+    }
+
+    @Test
+    public void testPutGet() {
+        assertTrue(map.isEmpty());
+        assertNull(map.put(1234567, "first"));
+        assertNull(map.put(7654321, "second"));
+        assertEquals("first", map.put(1234567, "replaced"));
+
+        assertEquals(2, map.size());
+        assertEquals("replaced", map.get(1234567));
+        assertEquals("second", map.get(7654321));
+        assertNull(map.get(42));
+        assertFalse(map.containsKey(42));
+        assertEquals(1234567, map.keyAt(0));
+        assertEquals("second", map.valueAt(1));
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            long key = random.nextInt(3000) * 1_000_003L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map.asMap());
+        for (Map.Entry<Long, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void testViewIsLive() {
+        Map<Long, String> view = map.asMap();
+        map.put(5, "five");
+        assertEquals(1, view.size());
+        assertEquals("five", view.get(5L));
+        assertNull(view.get("5"));
+        map.clear();
+        assertTrue(view.isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testViewIsReadOnly() {
+        map.asMap().put(1L, "one");
+    }
+}
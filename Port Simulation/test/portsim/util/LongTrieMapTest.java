@@ -0,0 +1,134 @@
+package portsim.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class LongTrieMapTest {
+    LongTrieMap<String> map;
+
+    @Before
+    public void setUp() throws Exception {
+        map = new LongTrieMap<>();
+    }
+
+    private static void assertContents(TreeMap<Long, String> expected,
+                                       LongTrieMap<String> actual) {
+        assertEquals(expected.size(), actual.size());
+        List<Long> keys = new ArrayList<>();
+        for (long key = actual.ceilingKey(0); key >= 0 && keys.size() < actual.size();
+                key = key == Long.MAX_VALUE ? -1 : actual.ceilingKey(key + 1)) {
+            assertEquals(expected.get(key), actual.get(key));
+            keys.add(key);
+        }
+        assertEquals(new ArrayList<>(expected.keySet()), keys);
+        List<String> values = new ArrayList<>();
+        actual.forEach(values::add);
+        assertEquals(new ArrayList<>(expected.values()), values);
+    }
+
+    @Test
+    public void testPutGet() {
+        assertTrue(map.isEmpty());
+        assertNull(map.put(1234567, "first"));
+        assertNull(map.put(7, "second"));
+        assertEquals("first", map.put(1234567, "replaced"));
+
+        assertEquals(2, map.size());
+        assertEquals("replaced", map.get(1234567));
+        assertEquals("second", map.get(7));
+        assertNull(map.get(42));
+        assertNull(map.get(-7));
+        assertNull(map.get(Long.MAX_VALUE));
+        assertFalse(map.containsKey(42));
+        assertEquals(7, map.ceilingKey(0));
+        assertEquals(1234567, map.ceilingKey(8));
+        assertEquals(-1, map.ceilingKey(1234568));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeKey() {
+        map.put(-1, "negative");
+    }
+
+    @Test
+    public void testAgainstTreeMap() {
+        TreeMap<Long, String> expected = new TreeMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            long key = random.nextInt(3000) * 1_000_003L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+        assertContents(expected, map);
+        map.put(Long.MAX_VALUE, "max");
+        expected.put(Long.MAX_VALUE, "max");
+        assertContents(expected, map);
+        for (Long key : new ArrayList<>(expected.keySet())) {
+            assertEquals(expected.remove(key), map.remove(key));
+        }
+        assertTrue(map.isEmpty());
+        assertEquals(-1, map.ceilingKey(0));
+    }
+
+    @Test
+    public void testForksAreIndependent() {
+        TreeMap<Long, String> expected = new TreeMap<>();
+        for (long key = 0; key < 5000; key++) {
+            map.put(key, "v" + key);
+            expected.put(key, "v" + key);
+        }
+        LongTrieMap<String> fork = map.fork();
+        TreeMap<Long, String> forkExpected = new TreeMap<>(expected);
+
+        Random random = new Random(11);
+        for (int i = 0; i < 5000; i++) {
+            long key = random.nextInt(6000);
+            boolean inFork = random.nextBoolean();
+            LongTrieMap<String> target = inFork ? fork : map;
+            TreeMap<Long, String> reference = inFork ? forkExpected : expected;
+            if (random.nextBoolean()) {
+                assertEquals(reference.remove(key), target.remove(key));
+            } else {
+                String value = "w" + i;
+                assertEquals(reference.put(key, value), target.put(key, value));
+            }
+            if (i == 2500) {
+                LongTrieMap<String> again = fork.fork();
+                again.clear();
+                again.put(1, "cleared");
+            }
+        }
+        assertContents(expected, map);
+        assertContents(forkExpected, fork);
+    }
+
+    @Test
+    public void testRemoveWhileIterating() {
+        for (long key = 0; key < 100; key++) {
+            map.put(key * 3, "v" + key);
+        }
+        LongTrieMap<String> fork = map.fork();
+        int seen = 0;
+        for (Iterator<String> iterator = map.iterator(); iterator.hasNext(); ) {
+            String value = iterator.next();
+            map.remove(Long.parseLong(value.substring(1)) * 3);
+            seen++;
+        }
+        assertEquals(100, seen);
+        assertTrue(map.isEmpty());
+        assertEquals(100, fork.size());
+        assertEquals("v99", fork.get(297));
+    }
+}
@@ -0,0 +1,99 @@
+package portsim.util;
+
+import org.junit.Before;
+import org.junit.Test;
+import portsim.cargo.BulkCargo;
+import portsim.cargo.BulkCargoType;
+import portsim.cargo.Cargo;
+import portsim.port.Port;
+import portsim.ship.BulkCarrier;
+import portsim.ship.NauticalFlag;
+import portsim.ship.Ship;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SimulationContextTest {
+    SimulationContext first;
+    SimulationContext second;
+
+    @Before
+    public void setUp() throws Exception {
+        first = new SimulationContext();
+        second = new SimulationContext();
+    }
+
+    @Test
+    public void testIndependentRegistries() throws Exception {
+        Ship ship1 = new BulkCarrier(first, 1234567, "One", "Japan",
+                NauticalFlag.NOVEMBER, 100);
+        Ship ship2 = new BulkCarrier(second, 1234567, "Two", "Japan",
+                NauticalFlag.NOVEMBER, 100);
+        new BulkCargo(first, 1, "Japan", 10, BulkCargoType.OIL);
+
+        assertSame(ship1, first.getShipByImoNumber(1234567));
+        assertSame(ship2, second.getShipByImoNumber(1234567));
+        assertTrue(first.cargoExists(1));
+        assertFalse(second.cargoExists(1));
+        assertFalse(SimulationContext.getDefault() == first);
+    }
+
+    @Test
+    public void testForkKeepsRegistrationOrder() throws Exception {
+        new BulkCargo(first, 9, "Japan", 10, BulkCargoType.OIL);
+        new BulkCargo(first, 3, "Japan", 10, BulkCargoType.OIL);
+        SimulationContext fork = first.fork();
+        new BulkCargo(fork, 5, "Japan", 10, BulkCargoType.OIL);
+        new BulkCargo(first, 1, "Japan", 10, BulkCargoType.OIL);
+
+        assertEquals(List.of(9, 3, 5),
+                new ArrayList<>(fork.getCargoRegistry().keySet()));
+        assertEquals(List.of(9, 3, 1),
+                new ArrayList<>(first.getCargoRegistry().keySet()));
+        assertFalse(first.cargoExists(5));
+        assertSame(fork.getCargoById(9), first.getCargoById(9));
+
+        first.resetCargoRegistry();
+        assertEquals(0, first.getCargoCount());
+        assertEquals(3, fork.getCargoCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateInSameContext() {
+        new BulkCarrier(first, 1234567, "One", "Japan", NauticalFlag.NOVEMBER, 100);
+        new BulkCarrier(first, 1234567, "Two", "Japan", NauticalFlag.NOVEMBER, 100);
+    }
+
+    @Test(expected = NoSuchShipException.class)
+    public void testMissingShip() throws NoSuchShipException {
+        first.getShipByImoNumber(7654321);
+    }
+
+    @Test
+    public void testInitialiseSamePortTwice() throws Exception {
+        String sep = System.lineSeparator();
+        String encoding = "Brisbane" + sep
+                + "0" + sep
+                + "1" + sep
+                + "BulkCargo:1:Japan:OIL:10" + sep
+                + "1" + sep
+                + "BulkCarrier:1234567:One:Japan:NOVEMBER:100:1" + sep
+                + "0" + sep
+                + "ShipQueue:1:1234567" + sep
+                + "StoredCargo:0:" + sep
+                + "Movements:0" + sep
+                + "Evaluators:0:";
+
+        Port port1 = Port.initialisePort(first, new StringReader(encoding));
+        Port port2 = Port.initialisePort(second, new StringReader(encoding));
+
+        assertSame(first, port1.getContext());
+        assertSame(second, port2.getContext());
+        assertNotSame(port1.getShipQueue().peek(), port2.getShipQueue().peek());
+        Cargo cargo = ((BulkCarrier) port1.getShipQueue().peek()).getCargo();
+        assertSame(first.getCargoById(1), cargo);
+    }
+}